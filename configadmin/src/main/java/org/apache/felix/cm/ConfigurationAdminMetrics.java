@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm;
+
+import java.util.List;
+
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * The <code>ConfigurationAdminMetrics</code> service provides timing
+ * information collected by the Configuration Admin Service to find the
+ * cause of slow reconfiguration: configuration plugins, the persistence
+ * manager, the update queue and the managed services.
+ * <p>
+ * Timers are grouped into categories and named within their category,
+ * for example by the class of the configuration plugin or by the service
+ * PID of the managed service.
+ *
+ * @since 1.3
+ */
+@ProviderType
+public interface ConfigurationAdminMetrics
+{
+
+    /**
+     * Category of the timers of <code>ConfigurationPlugin</code> calls,
+     * named by the plugin class.
+     */
+    String CATEGORY_PLUGIN = "plugin";
+
+    /**
+     * Category of the timers of persistence manager calls, named by the
+     * called method, for example <code>load</code> or <code>store</code>.
+     */
+    String CATEGORY_PERSISTENCE = "persistence";
+
+    /**
+     * Category of the timers of the time tasks wait in the update queue
+     * before being processed, named by the queue.
+     */
+    String CATEGORY_QUEUE = "queue";
+
+    /**
+     * Category of the timers of <code>ManagedService</code> and
+     * <code>ManagedServiceFactory</code> callbacks, named by the service.
+     */
+    String CATEGORY_DELIVERY = "delivery";
+
+    /**
+     * Returns the timers of the category, the timer with the highest total
+     * time first.
+     *
+     * @param category The category of the timers
+     * @return The timers, possibly empty but never <code>null</code>
+     */
+    List<Timer> getTimers( String category );
+
+    /**
+     * Returns the number of configuration updates waiting to be delivered.
+     */
+    int getUpdateQueueSize();
+
+    /**
+     * Resets all timers.
+     */
+    void reset();
+
+    /**
+     * A timer accumulating the durations of an operation.
+     */
+    @ProviderType
+    interface Timer
+    {
+        /**
+         * The name of the timer within its category.
+         */
+        String getName();
+
+        /**
+         * The number of recorded operations.
+         */
+        long getCount();
+
+        /**
+         * The total duration of the recorded operations in nanoseconds.
+         */
+        long getTotalNanos();
+
+        /**
+         * The longest duration of a recorded operation in nanoseconds.
+         */
+        long getMaxNanos();
+    }
+}
@@ -19,14 +19,13 @@
 package org.apache.felix.cm.file;
 
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.PushbackReader;
+import java.io.Reader;
 import java.io.Writer;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
@@ -284,8 +283,7 @@ public class ConfigurationHandler
 
     private Dictionary<String, ?> readInternal( InputStream ins ) throws IOException
     {
-        BufferedReader br = new BufferedReader( new InputStreamReader( ins, ENCODING ) );
-        PushbackReader pr = new PushbackReader( br, 1 );
+        Input pr = new Input( new InputStreamReader( ins, ENCODING ) );
 
         token = 0;
         tokenValue = null;
@@ -325,7 +323,7 @@ public class ConfigurationHandler
      * @return
      * @throws IOException
      */
-    private Object readValue( PushbackReader pr ) throws IOException
+    private Object readValue( Input pr ) throws IOException
     {
         // read (optional) type code
         int type = read( pr );
@@ -361,7 +359,7 @@ public class ConfigurationHandler
     }
 
 
-    private Object readArray( int typeCode, PushbackReader pr ) throws IOException
+    private Object readArray( int typeCode, Input pr ) throws IOException
     {
         List<Object> list = new ArrayList<Object>();
         for ( ;; )
@@ -405,7 +403,7 @@ public class ConfigurationHandler
     }
 
 
-    private Collection<Object> readCollection( int typeCode, PushbackReader pr ) throws IOException
+    private Collection<Object> readCollection( int typeCode, Input pr ) throws IOException
     {
         Collection<Object> collection = new ArrayList<Object>();
         for ( ;; )
@@ -443,7 +441,7 @@ public class ConfigurationHandler
     }
 
 
-    private Object readSimple( int code, PushbackReader pr ) throws IOException
+    private Object readSimple( int code, Input pr ) throws IOException
     {
         switch ( code )
         {
@@ -500,7 +498,7 @@ public class ConfigurationHandler
     }
 
 
-    private void ensureNext( PushbackReader pr, int expected ) throws IOException
+    private void ensureNext( Input pr, int expected ) throws IOException
     {
         int next = read( pr );
         if ( next != expected )
@@ -510,11 +508,14 @@ public class ConfigurationHandler
     }
 
 
-    private String readQuoted( PushbackReader pr ) throws IOException
+    private String readQuoted( Input pr ) throws IOException
     {
         StringBuilder buf = new StringBuilder();
         for ( ;; )
         {
+            // copy characters not requiring special handling at once
+            pos += pr.readPlain( buf );
+
             int c = read( pr );
             switch ( c )
             {
@@ -570,7 +571,7 @@ public class ConfigurationHandler
         }
     }
 
-    private int nextToken( PushbackReader pr, final boolean newLine ) throws IOException
+    private int nextToken( Input pr, final boolean newLine ) throws IOException
     {
         int c = ignorableWhiteSpace( pr );
 
@@ -616,7 +617,7 @@ public class ConfigurationHandler
     }
 
 
-    private int ignorableWhiteSpace( PushbackReader pr ) throws IOException
+    private int ignorableWhiteSpace( Input pr ) throws IOException
     {
         int c = read( pr );
         while ( c >= 0 && Character.isWhitespace( ( char ) c ) )
@@ -627,7 +628,7 @@ public class ConfigurationHandler
     }
 
 
-    private int ignorablePageBreakAndWhiteSpace( PushbackReader pr ) throws IOException
+    private int ignorablePageBreakAndWhiteSpace( Input pr ) throws IOException
     {
         int c = ignorableWhiteSpace( pr );
         for ( ;; )
@@ -649,7 +650,7 @@ public class ConfigurationHandler
     }
 
 
-    private int read( PushbackReader pr ) throws IOException
+    private int read( Input pr ) throws IOException
     {
         int c = pr.read();
         if ( c == '\r' )
@@ -676,7 +677,7 @@ public class ConfigurationHandler
     }
 
 
-    private int read( PushbackReader pr, char[] buf ) throws IOException
+    private int read( Input pr, char[] buf ) throws IOException
     {
         for ( int i = 0; i < buf.length; i++ )
         {
@@ -702,6 +703,76 @@ public class ConfigurationHandler
     }
 
 
+    /**
+     * The <code>Input</code> class provides the characters of the
+     * configuration data read completely into memory. Contrary to the
+     * <code>java.io.PushbackReader</code>, access to the characters is
+     * not synchronized and runs of plain characters can be copied at once.
+     */
+    private static final class Input
+    {
+        private final char[] chars;
+
+        private final int length;
+
+        private int idx;
+
+        Input( final Reader reader ) throws IOException
+        {
+            char[] buf = new char[4096];
+            int len = 0;
+            int read;
+            while ( ( read = reader.read( buf, len, buf.length - len ) ) >= 0 )
+            {
+                len += read;
+                if ( len == buf.length )
+                {
+                    buf = Arrays.copyOf( buf, buf.length * 2 );
+                }
+            }
+            this.chars = buf;
+            this.length = len;
+        }
+
+        int read()
+        {
+            return idx < length ? chars[idx++] : -1;
+        }
+
+        void unread( final int c )
+        {
+            // nothing to push back at the end of the data
+            if ( c >= 0 )
+            {
+                idx--;
+            }
+        }
+
+        /**
+         * Appends the characters up to the next escape, separator or line
+         * break character to the buffer and returns the number of characters
+         * appended.
+         */
+        int readPlain( final StringBuilder buf )
+        {
+            final int start = idx;
+            int i = idx;
+            while ( i < length )
+            {
+                final char c = chars[i];
+                if ( c == '\\' || c == TOKEN_EQ || c == TOKEN_VAL_CLOS || c == '\r' || c == '\n' )
+                {
+                    break;
+                }
+                i++;
+            }
+            buf.append( chars, start, i - start );
+            idx = i;
+            return i - start;
+        }
+    }
+
+
     // ---------- Configuration Output Implementation --------------------------
 
     private static void writeValue( Writer out, Object value ) throws IOException
@@ -19,6 +19,8 @@
 package org.apache.felix.cm.file;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -30,12 +32,24 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
-import java.util.NoSuchElementException;
+import java.util.List;
 import java.util.Stack;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.felix.cm.PersistenceManager;
 import org.osgi.framework.BundleContext;
@@ -100,20 +114,19 @@ import org.osgi.framework.Constants;
  * file currently being written and thus loading corrupt data (if data is
  * available at all).
  * <p>
- * To prevent this situation from happening, the methods use synchronization and
- * temporary files as follows:
+ * To prevent this situation from happening, the methods use a read-write lock
+ * and temporary files as follows:
  * <ul>
  * <li>The {@link #store(String, Dictionary)} method writes a temporary file
  * with file extension <code>.tmp</code>. When done, the file is renamed to
  * actual configuration file name as implied by the PID. This last step of
- * renaming the file is synchronized on the FilePersistenceManager
- * instance.</li>
- * <li>The {@link #load(String)} method is completeley synchronized on the
- * FilePersistenceManager instance such that the {@link #store} method might
- * inadvertantly try to replace the file while it is being read.</li>
- * <li>Finally the <code>Iterator</code> returned by {@link #getDictionaries()}
- * is implemented such that any temporary configuration file is just
- * ignored.</li>
+ * renaming the file is done holding the write lock.</li>
+ * <li>The {@link #load(String)} method reads the file contents holding the
+ * read lock such that the {@link #store} method might not inadvertantly try
+ * to replace the file while it is being read. The contents are parsed after
+ * releasing the lock, so multiple files can be loaded concurrently.</li>
+ * <li>Finally the {@link #getDictionaries()} method ignores any temporary
+ * configuration file.</li>
  * </ul>
  */
 public class FilePersistenceManager implements PersistenceManager
@@ -144,6 +157,21 @@ public class FilePersistenceManager implements PersistenceManager
      */
     private static final String TMP_EXT = ".tmp";
 
+    /**
+     * The minimum number of configuration files to be loaded by each thread
+     * when loading all configuration files in parallel.
+     *
+     * @see #getDictionaries()
+     */
+    private static final int FILES_PER_LOADER = 16;
+
+    /**
+     * The maximum number of threads loading configuration files in parallel.
+     *
+     * @see #getDictionaries()
+     */
+    private static final int MAX_LOADERS = 8;
+
     private static final BitSet VALID_PATH_CHARS;
 
     /**
@@ -162,6 +190,12 @@ public class FilePersistenceManager implements PersistenceManager
      */
     private final boolean isWin;
 
+    /**
+     * The lock preventing a configuration file from being replaced or
+     * deleted while it is being read.
+     */
+    private final ReadWriteLock fileLock = new ReentrantReadWriteLock();
+
     // sets up this class defining the set of valid characters in path
     // set getFile(String) for details.
     static
@@ -468,8 +502,9 @@ public class FilePersistenceManager implements PersistenceManager
      * Loads configuration data from the configuration location and returns
      * it as <code>Dictionary</code> objects.
      * <p>
-     * This method is a lazy implementation, which is just one configuration
-     * file ahead of the current enumeration location.
+     * This method loads all configuration files before returning. If there
+     * are many configuration files, they are loaded and parsed by multiple
+     * threads in parallel. Files which cannot be read are ignored.
      *
      * @return an enumeration of configuration data returned as instances of
      *      the <code>Dictionary</code> class.
@@ -478,7 +513,168 @@ public class FilePersistenceManager implements PersistenceManager
     @Override
     public Enumeration getDictionaries()
     {
-        return new DictionaryEnumeration();
+        final List<File> files;
+        if ( System.getSecurityManager() != null )
+        {
+            files = AccessController.doPrivileged( new PrivilegedAction<List<File>>()
+            {
+                @Override
+                public List<File> run()
+                {
+                    return listConfigurationFiles();
+                }
+            } );
+        }
+        else
+        {
+            files = listConfigurationFiles();
+        }
+
+        final int loaders = Math.min( Math.min( MAX_LOADERS, Runtime.getRuntime().availableProcessors() ),
+            files.size() / FILES_PER_LOADER );
+        final List<Dictionary> dictionaries = loaders > 1 ? loadParallel( files, loaders ) : loadSequential( files );
+        return Collections.enumeration( dictionaries );
+    }
+
+
+    // lists the configuration files, depth first
+    List<File> listConfigurationFiles()
+    {
+        // this method is not part of the API of this class but is made
+        // package private to prevent the creation of a synthetic method
+        // for use by the privileged action in getDictionaries
+
+        final List<File> files = new ArrayList<>();
+        final Stack<File> dirStack = new Stack<>();
+        dirStack.push( getLocation() );
+        while ( !dirStack.isEmpty() )
+        {
+            final File[] fileList = dirStack.pop().listFiles();
+            if ( fileList != null )
+            {
+                for ( final File cfgFile : fileList )
+                {
+                    if ( cfgFile.isFile() && !cfgFile.getName().endsWith( TMP_EXT ) )
+                    {
+                        files.add( cfgFile );
+                    }
+                    else if ( cfgFile.isDirectory() )
+                    {
+                        dirStack.push( cfgFile );
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+
+    @SuppressWarnings("rawtypes")
+    private List<Dictionary> loadSequential( final List<File> files )
+    {
+        final List<Dictionary> dictionaries = new ArrayList<>( files.size() );
+        for ( final File cfgFile : files )
+        {
+            final Dictionary dict = loadConfiguration( cfgFile );
+            if ( dict != null )
+            {
+                dictionaries.add( dict );
+            }
+        }
+        return dictionaries;
+    }
+
+
+    @SuppressWarnings("rawtypes")
+    private List<Dictionary> loadParallel( final List<File> files, final int loaders )
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool( loaders, new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread( final Runnable r )
+            {
+                final Thread t = new Thread( r, "CM Configuration Loader #" + count.incrementAndGet() );
+                t.setDaemon( true );
+                return t;
+            }
+        } );
+        try
+        {
+            // split into one chunk per loader, keeping the order of the files
+            final int chunkSize = ( files.size() + loaders - 1 ) / loaders;
+            final List<Future<List<Dictionary>>> chunks = new ArrayList<>( loaders );
+            for ( int start = 0; start < files.size(); start += chunkSize )
+            {
+                final List<File> chunk = files.subList( start, Math.min( files.size(), start + chunkSize ) );
+                chunks.add( executor.submit( new Callable<List<Dictionary>>()
+                {
+                    @Override
+                    public List<Dictionary> call()
+                    {
+                        return loadSequential( chunk );
+                    }
+                } ) );
+            }
+
+            final List<Dictionary> dictionaries = new ArrayList<>( files.size() );
+            for ( final Future<List<Dictionary>> chunk : chunks )
+            {
+                try
+                {
+                    dictionaries.addAll( chunk.get() );
+                }
+                catch ( final ExecutionException ee )
+                {
+                    // loadSequential handles load failures, so this is
+                    // a runtime exception thrown while parsing a file
+                    if ( ee.getCause() instanceof RuntimeException )
+                    {
+                        throw ( RuntimeException ) ee.getCause();
+                    }
+                    throw new IllegalStateException( "Failed loading configuration files", ee.getCause() );
+                }
+            }
+            return dictionaries;
+        }
+        catch ( final InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted loading configuration files", ie );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Loads the configuration file returning <code>null</code> if the file
+     * cannot be read or if the PID of the configuration does not match the
+     * file name.
+     */
+    @SuppressWarnings("rawtypes")
+    private Dictionary loadConfiguration( final File cfgFile )
+    {
+        try
+        {
+            final Dictionary dict = System.getSecurityManager() != null ? _privilegedLoad( cfgFile ) : _load( cfgFile );
+
+            // use the dictionary if it has no PID or the PID
+            // derived file name matches the source file name
+            if ( dict.get( Constants.SERVICE_PID ) == null
+                || cfgFile.equals( getFile( ( String ) dict.get( Constants.SERVICE_PID ) ) ) )
+            {
+                return dict;
+            }
+        }
+        catch ( IOException ioe )
+        {
+            // ignore, check next file
+        }
+        return null;
     }
 
 
@@ -517,10 +713,16 @@ public class FilePersistenceManager implements PersistenceManager
 
     private void _delete( final String pid )
     {
-        synchronized ( this )
+        final Lock lock = fileLock.writeLock();
+        lock.lock();
+        try
         {
             getFile( pid ).delete();
         }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
 
@@ -561,10 +763,16 @@ public class FilePersistenceManager implements PersistenceManager
 
     private boolean _exists( final String pid )
     {
-        synchronized ( this )
+        final Lock lock = fileLock.readLock();
+        lock.lock();
+        try
         {
             return getFile( pid ).isFile();
         }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
 
@@ -634,34 +842,63 @@ public class FilePersistenceManager implements PersistenceManager
     {
         // this method is not part of the API of this class but is made
         // package private to prevent the creation of a synthetic method
-        // for use by the DictionaryEnumeration._seek method
+        // for use by the privileged action in _privilegedLoad
+
+        // hold the read lock to make at least sure, the file is not at the
+        // same time replaced by another thread (see store()) while we are
+        // reading and still have the file open. This might be a problem e.g.
+        // in Windows environments, where files may not be removed which are
+        // still open. The contents are parsed after releasing the lock.
+        final byte[] data;
+        final Lock lock = fileLock.readLock();
+        lock.lock();
+        try
+        {
+            data = readFully( cfgFile );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        return ConfigurationHandler.read( new ByteArrayInputStream( data ) );
+    }
+
 
-        // synchronize this instance to make at least sure, the file is
-        // not at the same time accessed by another thread (see store())
-        // we have to synchronize the complete load time as the store
-        // method might want to replace the file while we are reading and
-        // still have the file open. This might be a problem e.g. in Windows
-        // environments, where files may not be removed which are still open
-        synchronized ( this )
+    private static byte[] readFully( final File cfgFile ) throws IOException
+    {
+        InputStream ins = null;
+        try
         {
-            InputStream ins = null;
-            try
+            ins = new FileInputStream( cfgFile );
+            final long length = cfgFile.length();
+            if ( length > Integer.MAX_VALUE )
             {
-                ins = new FileInputStream( cfgFile );
-                return ConfigurationHandler.read( ins );
+                throw new IOException( "Configuration file " + cfgFile + " is too large" );
             }
-            finally
+            final byte[] data = new byte[( int ) length];
+            int offset = 0;
+            while ( offset < data.length )
             {
-                if ( ins != null )
+                final int read = ins.read( data, offset, data.length - offset );
+                if ( read < 0 )
                 {
-                    try
-                    {
-                        ins.close();
-                    }
-                    catch ( IOException ioe )
-                    {
-                        // ignore
-                    }
+                    throw new EOFException( "Configuration file " + cfgFile + " has been truncated" );
+                }
+                offset += read;
+            }
+            return data;
+        }
+        finally
+        {
+            if ( ins != null )
+            {
+                try
+                {
+                    ins.close();
+                }
+                catch ( IOException ioe )
+                {
+                    // ignore
                 }
             }
         }
@@ -738,7 +975,9 @@ public class FilePersistenceManager implements PersistenceManager
             // after writing the file, rename it but ensure, that no other
             // might at the same time open the new file
             // see load(File)
-            synchronized ( this )
+            final Lock lock = fileLock.writeLock();
+            lock.lock();
+            try
             {
                 // make sure the cfg file does not exists (just for sanity)
                 if ( cfgFile.exists() )
@@ -757,6 +996,10 @@ public class FilePersistenceManager implements PersistenceManager
                     throw new IOException( "Failed to rename configuration file from '" + tmpFile + "' to '" + cfgFile );
                 }
             }
+            finally
+            {
+                lock.unlock();
+            }
         }
         finally
         {
@@ -799,129 +1042,8 @@ public class FilePersistenceManager implements PersistenceManager
     {
         // this method is not part of the API of this class but is made
         // package private to prevent the creation of a synthetic method
-        // for use by the DictionaryEnumeration._seek method
+        // for use by the privileged actions
 
         return new File( location, encodePid( pid ) + FILE_EXT );
     }
-
-    /**
-     * The <code>DictionaryEnumeration</code> class implements the
-     * <code>Enumeration</code> returning configuration <code>Dictionary</code>
-     * objects on behalf of the {@link FilePersistenceManager#getDictionaries()}
-     * method.
-     * <p>
-     * This enumeration loads configuration lazily with a look ahead of one
-     * dictionary.
-     */
-    @SuppressWarnings("rawtypes")
-    class DictionaryEnumeration implements Enumeration
-    {
-        private Stack<File> dirStack;
-        private File[] fileList;
-        private int idx;
-        private Dictionary next;
-
-
-        DictionaryEnumeration()
-        {
-            dirStack = new Stack<>();
-            fileList = null;
-            idx = 0;
-
-            dirStack.push( getLocation() );
-            next = seek();
-        }
-
-
-        @Override
-        public boolean hasMoreElements()
-        {
-            return next != null;
-        }
-
-
-        @Override
-        public Object nextElement()
-        {
-            if ( next == null )
-            {
-                throw new NoSuchElementException();
-            }
-
-            Dictionary toReturn = next;
-            next = seek();
-            return toReturn;
-        }
-
-
-        private Dictionary seek()
-        {
-            if ( System.getSecurityManager() != null )
-            {
-                return _privilegedSeek();
-            }
-
-            return _seek();
-        }
-
-
-        protected Dictionary _privilegedSeek()
-        {
-            Dictionary result = AccessController.doPrivileged( new PrivilegedAction<Dictionary>()
-            {
-                @Override
-                public Dictionary run()
-                {
-                    return _seek();
-                }
-            } );
-            return result;
-        }
-
-
-        protected Dictionary _seek()
-        {
-            while ( ( fileList != null && idx < fileList.length ) || !dirStack.isEmpty() )
-            {
-                if ( fileList == null || idx >= fileList.length )
-                {
-                    File dir = dirStack.pop();
-                    fileList = dir.listFiles();
-                    idx = 0;
-                }
-                else
-                {
-
-                    File cfgFile = fileList[idx++];
-                    if ( cfgFile.isFile() && !cfgFile.getName().endsWith( TMP_EXT ))
-                    {
-                        try
-                        {
-                            Dictionary dict =  _load( cfgFile );
-
-                            // use the dictionary if it has no PID or the PID
-                            // derived file name matches the source file name
-                            if ( dict.get( Constants.SERVICE_PID ) == null
-                                || cfgFile.equals( getFile( ( String ) dict.get( Constants.SERVICE_PID ) ) ) )
-                            {
-                                return dict;
-                            }
-                        }
-                        catch ( IOException ioe )
-                        {
-                            // ignore, check next file
-                        }
-                    }
-                    else if ( cfgFile.isDirectory() )
-                    {
-                        dirStack.push( cfgFile );
-                    }
-                }
-            }
-
-            // exhausted
-            return null;
-        }
-    }
-
 }
@@ -18,6 +18,8 @@
  */
 package org.apache.felix.cm.impl;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
@@ -27,6 +29,7 @@ import java.util.List;
 
 import org.apache.felix.cm.PersistenceManager;
 import org.apache.felix.cm.file.FilePersistenceManager;
+import org.apache.felix.cm.impl.persistence.JournalPersistenceManager;
 import org.apache.felix.cm.impl.persistence.MemoryPersistenceManager;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleActivator;
@@ -45,6 +48,8 @@ import org.osgi.service.log.LogService;
  *  <li>Sets up the logger {@link Log}.
  *  <li>A {@link FilePersistenceManager} instance is registered as a default
  * {@link PersistenceManager}.
+ *  <li>A {@link MemoryPersistenceManager} and a {@link JournalPersistenceManager}
+ * are registered as alternative {@link PersistenceManager}s.
  *  <li>Creates and sets up the {@link ConfigurationManager}.
  * </ul>
  * <p>
@@ -87,6 +92,81 @@ public class Activator implements BundleActivator
      */
     public static final String CM_CONFIG_PLUGINS = "felix.cm.config.plugins";
 
+    /**
+     * The name of the framework context property defining additional
+     * configuration properties to index for configuration queries. The
+     * value is a comma separated list of property names. The
+     * <code>service.factoryPid</code> and <code>service.bundleLocation</code>
+     * properties are always indexed.
+     *
+     * @see #start(BundleContext)
+     */
+    public static final String CM_INDEX_PROPERTIES = "felix.cm.index.properties";
+
+    /**
+     * The name of the framework context property defining the location of
+     * the journal file used by the {@link JournalPersistenceManager}. If this
+     * property is not set, the <code>config.journal</code> file in the
+     * persistent storage area of the bundle is used. The journal persistence
+     * manager is used if the <code>felix.cm.pm</code> property is set to
+     * <code>journal</code>. When the journal is created, all configurations
+     * of the default file persistence manager are migrated into the journal.
+     *
+     * @see #start(BundleContext)
+     */
+    public static final String CM_JOURNAL_FILE = "felix.cm.journal";
+
+    /**
+     * The name of the framework context property defining the number of
+     * threads used to call <code>ManagedService</code> and
+     * <code>ManagedServiceFactory</code> services. If this property is not
+     * set or set to <code>1</code>, all updates are delivered in order by a
+     * single thread. Otherwise updates for unrelated PIDs and services are
+     * delivered concurrently while updates for the same PID or the same
+     * service are still delivered in order.
+     *
+     * @see UpdateThread
+     */
+    public static final String CM_UPDATE_THREADS = "felix.cm.update.threads";
+
+    /**
+     * The name of the framework context property defining the duration in
+     * milliseconds after which a call to a <code>ManagedService</code> or
+     * <code>ManagedServiceFactory</code> is logged as being slow. The
+     * default value is 1000 milliseconds. A value of zero or less disables
+     * logging of slow callbacks.
+     *
+     * @see UpdateStatistics
+     */
+    public static final String CM_UPDATE_SLOW_THRESHOLD = "felix.cm.update.slow";
+
+    /**
+     * The name of the framework context property defining whether pending
+     * updates of a configuration are superseded by a newer update of the
+     * same configuration. If this property is set to <code>true</code>,
+     * only the latest revision of a configuration is delivered if several
+     * updates are waiting to be delivered. The default value is
+     * <code>false</code>: every update is delivered to the
+     * <code>ManagedService</code> or <code>ManagedServiceFactory</code>
+     * services.
+     *
+     * @see UpdateThread
+     */
+    public static final String CM_UPDATE_COALESCE = "felix.cm.update.coalesce";
+
+    /**
+     * The name of the framework context property defining whether all
+     * configurations are loaded from the persistence manager in the
+     * background when the Configuration Admin service is started. If this
+     * property is set to <code>true</code>, the first query for
+     * configurations does not have to wait for the configurations to be
+     * loaded. The default value is <code>false</code>: configurations are
+     * loaded on the first query.
+     *
+     * @see org.apache.felix.cm.impl.persistence.CachingPersistenceManagerProxy#warmUp()
+     */
+    public static final String CM_WARMUP = "felix.cm.warmup";
+
     private volatile DependencyTracker tracker;
 
     // the service registration of the default file persistence manager
@@ -95,6 +175,12 @@ public class Activator implements BundleActivator
     // the service registration of the memory persistence manager
     private volatile ServiceRegistration<PersistenceManager> memorypmRegistration;
 
+    // the service registration of the journal persistence manager
+    private volatile ServiceRegistration<PersistenceManager> journalpmRegistration;
+
+    // the journal persistence manager, created on demand
+    private volatile JournalPersistenceManager journalpm;
+
     @Override
     public void start( final BundleContext bundleContext ) throws BundleException
     {
@@ -107,11 +193,15 @@ public class Activator implements BundleActivator
         // register memory persistence manager
         registerMemoryPersistenceManager(bundleContext);
 
+        // register journal persistence manager
+        registerJournalPersistenceManager(bundleContext, defaultFactory);
+
         try
         {
             this.tracker = new DependencyTracker(bundleContext, defaultFactory,
                     getConfiguredPersistenceManager(bundleContext),
-                    getConfiguredConfigurationPlugins(bundleContext));
+                    getConfiguredConfigurationPlugins(bundleContext),
+                    getListProperty(bundleContext, CM_INDEX_PROPERTIES));
         }
         catch ( InvalidSyntaxException iae )
         {
@@ -130,8 +220,12 @@ public class Activator implements BundleActivator
     }
 
     private String[] getConfiguredConfigurationPlugins(final BundleContext bundleContext) {
+        return getListProperty(bundleContext, CM_CONFIG_PLUGINS);
+    }
+
+    private String[] getListProperty(final BundleContext bundleContext, final String name) {
         String[] configuredPlugins = null;
-        String configuredPls = bundleContext.getProperty(CM_CONFIG_PLUGINS);
+        String configuredPls = bundleContext.getProperty(name);
         if (configuredPls != null) {
             final List<String> values = new ArrayList<>();
             configuredPlugins = configuredPls.split(",");
@@ -164,6 +258,7 @@ public class Activator implements BundleActivator
         // shutdown the file and memory persistence manager and unregister
         this.unregisterFilePersistenceManager();
         this.unregisterMemoryPersistenceManager();
+        this.unregisterJournalPersistenceManager();
     }
 
     private ServiceFactory<PersistenceManager> registerFilePersistenceManager(final BundleContext bundleContext)
@@ -209,6 +304,57 @@ public class Activator implements BundleActivator
         memorypmRegistration = bundleContext.registerService(PersistenceManager.class, mpm, props);
     }
 
+    private void registerJournalPersistenceManager(final BundleContext bundleContext,
+            final ServiceFactory<PersistenceManager> defaultFactory)
+    {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put(Constants.SERVICE_DESCRIPTION, "Platform Journal Persistence Manager");
+        props.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
+        props.put(PersistenceManager.PROPERTY_NAME, JournalPersistenceManager.PERSISTENCE_MANAGER_NAME);
+
+        final ServiceFactory<PersistenceManager> factory = new ServiceFactory<PersistenceManager>()
+        {
+
+            @Override
+            public PersistenceManager getService(Bundle bundle, ServiceRegistration<PersistenceManager> registration) {
+                synchronized (Activator.this) {
+                    if (journalpm == null) {
+                        File file = null;
+                        final String location = bundleContext.getProperty(CM_JOURNAL_FILE);
+                        if (location != null) {
+                            file = new File(location);
+                        }
+                        if (file == null || !file.isAbsolute()) {
+                            final File dataFile = bundleContext.getDataFile(file == null
+                                    ? JournalPersistenceManager.DEFAULT_JOURNAL_FILE : file.getPath());
+                            if (dataFile != null) {
+                                file = dataFile;
+                            } else if (file == null) {
+                                file = new File(JournalPersistenceManager.DEFAULT_JOURNAL_FILE);
+                            }
+                        }
+                        try {
+                            final PersistenceManager filepm = file.exists() ? null : defaultFactory.getService(null, null);
+                            journalpm = new JournalPersistenceManager(file, filepm);
+                        } catch (final IOException | IllegalArgumentException e) {
+                            Log.logger.log(LogService.LOG_ERROR, "Cannot open the configuration journal {0}",
+                                    new Object[] { file, e });
+                        }
+                    }
+                    return journalpm;
+                }
+            }
+
+            @Override
+            public void ungetService(Bundle bundle, ServiceRegistration<PersistenceManager> registration,
+                    PersistenceManager service) {
+                // nothing to do
+            }
+
+        };
+        journalpmRegistration = bundleContext.registerService(PersistenceManager.class, factory, props);
+    }
+
     private void unregisterFilePersistenceManager()
     {
         if ( this.filepmRegistration != null )
@@ -225,6 +371,19 @@ public class Activator implements BundleActivator
         }
     }
 
+    private void unregisterJournalPersistenceManager() {
+        if (this.journalpmRegistration != null) {
+            this.journalpmRegistration.unregister();
+            this.journalpmRegistration = null;
+        }
+        synchronized (this) {
+            if (this.journalpm != null) {
+                this.journalpm.close();
+                this.journalpm = null;
+            }
+        }
+    }
+
     public static String getLocation(final Bundle bundle)
     {
         if (System.getSecurityManager() != null)
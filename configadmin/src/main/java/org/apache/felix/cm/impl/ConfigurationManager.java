@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
+import org.apache.felix.cm.ConfigurationAdminMetrics;
 import org.apache.felix.cm.PersistenceManager;
 import org.apache.felix.cm.impl.helper.BaseTracker;
 import org.apache.felix.cm.impl.helper.ConfigurationMap;
@@ -97,6 +98,9 @@ public class ConfigurationManager implements BundleListener
     // the service registration of the configuration admin
     private volatile ServiceRegistration<ConfigurationAdmin> configurationAdminRegistration;
 
+    // the service registration of the metrics service
+    private volatile ServiceRegistration<ConfigurationAdminMetrics> metricsRegistration;
+
     // the service registration properties
     private volatile Dictionary<String, Object> serviceProperties;
 
@@ -118,6 +122,12 @@ public class ConfigurationManager implements BundleListener
     // the thread used to schedule events to be dispatched asynchronously
     private UpdateThread eventThread;
 
+    // whether pending updates of the same configuration are coalesced
+    private volatile boolean coalesceUpdates;
+
+    // the statistics of the ManagedService[Factory] callbacks
+    private volatile UpdateStatistics updateStatistics = new UpdateStatistics( UpdateStatistics.DEFAULT_SLOW_THRESHOLD );
+
     /**
      * The persistence manager
      */
@@ -159,6 +169,24 @@ public class ConfigurationManager implements BundleListener
         this.persistenceManager = persistenceManager;
     }
 
+    private static long getLongProperty( final BundleContext bundleContext, final String name, final long defaultValue )
+    {
+        final String value = bundleContext.getProperty( name );
+        if ( value != null )
+        {
+            try
+            {
+                return Long.parseLong( value.trim() );
+            }
+            catch ( final NumberFormatException nfe )
+            {
+                Log.logger.log( LogService.LOG_WARNING, "Ignoring invalid value {0} for property {1}", new Object[]
+                    { value, name } );
+            }
+        }
+        return defaultValue;
+    }
+
     public ServiceReference<ConfigurationAdmin> start()
     {
         // configurationlistener support
@@ -171,9 +199,19 @@ public class ConfigurationManager implements BundleListener
         // initialize the asynchonous updater thread
         ThreadGroup tg = new ThreadGroup( "Configuration Admin Service" );
         tg.setDaemon( true );
-        this.updateThread = new UpdateThread( tg, "CM Configuration Updater" );
+        this.updateThread = new UpdateThread( tg, "CM Configuration Updater",
+            ( int ) getLongProperty( bundleContext, Activator.CM_UPDATE_THREADS, 1 ) );
+        this.updateStatistics = new UpdateStatistics( getLongProperty( bundleContext,
+            Activator.CM_UPDATE_SLOW_THRESHOLD, UpdateStatistics.DEFAULT_SLOW_THRESHOLD ) );
+        this.coalesceUpdates = "true".equalsIgnoreCase( bundleContext.getProperty( Activator.CM_UPDATE_COALESCE ) );
         this.eventThread = new UpdateThread( tg, "CM Event Dispatcher" );
 
+        // optionally load all configurations in the background
+        if ( "true".equalsIgnoreCase( bundleContext.getProperty( Activator.CM_WARMUP ) ) )
+        {
+            warmUp( tg );
+        }
+
         // register as bundle and service listener
         handleBundleEvents = true;
         bundleContext.addBundleListener( this );
@@ -199,6 +237,19 @@ public class ConfigurationManager implements BundleListener
         configurationAdminRegistration = bundleContext.registerService(ConfigurationAdmin.class, caf,
                 serviceProperties);
 
+        // register the metrics, also available as shell command and
+        // web console configuration printer
+        final Dictionary<String, Object> metricsProperties = new Hashtable<>();
+        metricsProperties.put(Constants.SERVICE_DESCRIPTION, "Configuration Admin Service Metrics");
+        metricsProperties.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
+        metricsProperties.put("osgi.command.scope", "cm");
+        metricsProperties.put("osgi.command.function", new String[] {"metrics"});
+        metricsProperties.put("felix.webconsole.label", "cm-metrics");
+        metricsProperties.put("felix.webconsole.title", "Configuration Admin Metrics");
+        metricsProperties.put("felix.webconsole.configprinter.modes", "always");
+        metricsRegistration = bundleContext.registerService(ConfigurationAdminMetrics.class,
+                new MetricsService(this), metricsProperties);
+
         // start handling ManagedService[Factory] services
         managedServiceTracker = new ManagedServiceTracker(this);
         managedServiceFactoryTracker = new ManagedServiceFactoryTracker(this);
@@ -212,6 +263,35 @@ public class ConfigurationManager implements BundleListener
     }
 
 
+    private void warmUp( final ThreadGroup tg )
+    {
+        if ( persistenceManager instanceof CachingPersistenceManagerProxy )
+        {
+            final CachingPersistenceManagerProxy cachingManager = ( CachingPersistenceManagerProxy ) persistenceManager;
+            final Thread warmUpThread = new Thread( tg, "CM Configuration Warm-up" )
+            {
+                @Override
+                public void run()
+                {
+                    final long start = System.currentTimeMillis();
+                    try
+                    {
+                        cachingManager.warmUp();
+                        Log.logger.log( LogService.LOG_DEBUG, "Loaded configurations in {0}ms", new Object[]
+                            { System.currentTimeMillis() - start } );
+                    }
+                    catch ( final Exception e )
+                    {
+                        Log.logger.log( LogService.LOG_WARNING, "Failed loading configurations in the background", e );
+                    }
+                }
+            };
+            warmUpThread.setDaemon( true );
+            warmUpThread.start();
+        }
+    }
+
+
     public void stop( )
     {
 
@@ -247,6 +327,12 @@ public class ConfigurationManager implements BundleListener
         {
             caReg.unregister();
         }
+        final ServiceRegistration<ConfigurationAdminMetrics> metricsReg = metricsRegistration;
+        metricsRegistration = null;
+        if ( metricsReg != null )
+        {
+            metricsReg.unregister();
+        }
 
         // consider inactive after unregistering such that during
         // unregistration the manager is still alive and can react
@@ -553,7 +639,8 @@ public class ConfigurationManager implements BundleListener
             {
                 cfg = getCachedConfiguration( pid );
                 if (cfg == null) {
-                    cfg = new ConfigurationImpl(this, this.persistenceManager, config);
+                    // the caching proxy returns immutable snapshots
+                    cfg = new ConfigurationImpl(this, this.persistenceManager, new CaseInsensitiveDictionary(config));
                     // add the to configurations cache if it wasn't in the cache
                     cacheConfiguration(cfg);
                 }
@@ -916,6 +1003,7 @@ public class ConfigurationManager implements BundleListener
                     ignore = (ranking < 0 ) || (ranking > 1000);
                 }
 
+                final long start = System.nanoTime();
                 try
                 {
                     plugin.modifyConfiguration( sr, ignore ? CaseInsensitiveDictionary.unmodifiable(props) : props );
@@ -927,6 +1015,9 @@ public class ConfigurationManager implements BundleListener
                 }
                 finally
                 {
+                    Metrics.metrics.recordSince( ConfigurationAdminMetrics.CATEGORY_PLUGIN, plugin.getClass().getName(),
+                        start );
+
                     // ensure ungetting the plugin
                     bundleContext.ungetService( pluginRef );
                 }
@@ -1042,6 +1133,70 @@ public class ConfigurationManager implements BundleListener
     }
 
 
+    /**
+     * Returns the statistics of the calls to the managed services and
+     * managed service factories.
+     */
+    public UpdateStatistics getUpdateStatistics()
+    {
+        return this.updateStatistics;
+    }
+
+
+    /**
+     * Returns the number of configuration updates waiting to be delivered
+     * or zero if the manager is not started.
+     */
+    public int getUpdateQueueSize()
+    {
+        final UpdateThread thread = this.updateThread;
+        return thread == null ? 0 : thread.getQueueSize();
+    }
+
+
+    /**
+     * Returns the number of configuration updates currently delivered or
+     * zero if the manager is not started.
+     */
+    public int getActiveUpdateCount()
+    {
+        final UpdateThread thread = this.updateThread;
+        return thread == null ? 0 : thread.getActiveCount();
+    }
+
+
+    /**
+     * Returns the number of configuration updates which have not been
+     * delivered because a newer update of the same configuration has been
+     * scheduled before delivery started.
+     */
+    public long getCoalescedUpdateCount()
+    {
+        final UpdateThread thread = this.updateThread;
+        return thread == null ? 0 : thread.getCoalescedCount();
+    }
+
+
+    // the ordering key of updates for the given service
+    private static String getServiceKey( final ServiceReference<?> sr )
+    {
+        return "service:" + sr.getProperty( Constants.SERVICE_ID );
+    }
+
+
+    // the ordering keys of updates for the given PIDs and service
+    private static String[] getOrderingKeys( final String[] pids, final ServiceReference<?> sr )
+    {
+        final String[] keys = new String[pids.length + 1];
+        for ( int i = 0; i < pids.length; i++ )
+        {
+            keys[i] = new TargetedPID( pids[i] ).getServicePid();
+        }
+        keys[pids.length] = getServiceKey( sr );
+        return keys;
+    }
+
+
     // ---------- inner classes
 
     /**
@@ -1050,7 +1205,7 @@ public class ConfigurationManager implements BundleListener
      * ManagedService is registered with multiple PIDs an instance of this
      * class is used for each registered PID.
      */
-    private class ManagedServiceUpdate implements Runnable
+    private class ManagedServiceUpdate implements UpdateThread.OrderedTask
     {
         private final String[] pids;
 
@@ -1122,6 +1277,12 @@ public class ConfigurationManager implements BundleListener
             managedServiceTracker.provideConfiguration( sr, configPid, null, properties, revision, this.configs );
         }
 
+        @Override
+        public String[] getOrderingKeys()
+        {
+            return ConfigurationManager.getOrderingKeys( this.pids, this.sr );
+        }
+
         @Override
         public String toString()
         {
@@ -1136,7 +1297,7 @@ public class ConfigurationManager implements BundleListener
      * multiple PIDs an instance of this class is used for each registered
      * PID.
      */
-    private class ManagedServiceFactoryUpdate implements Runnable
+    private class ManagedServiceFactoryUpdate implements UpdateThread.OrderedTask
     {
         private final String[] factoryPids;
 
@@ -1260,6 +1421,12 @@ public class ConfigurationManager implements BundleListener
         }
 
 
+        @Override
+        public String[] getOrderingKeys()
+        {
+            return ConfigurationManager.getOrderingKeys( this.factoryPids, this.sr );
+        }
+
         @Override
         public String toString()
         {
@@ -1267,7 +1434,7 @@ public class ConfigurationManager implements BundleListener
         }
     }
 
-    private abstract class ConfigurationProvider<T> implements Runnable
+    private abstract class ConfigurationProvider<T> implements UpdateThread.OrderedTask
     {
 
         protected final ConfigurationImpl config;
@@ -1298,6 +1465,25 @@ public class ConfigurationManager implements BundleListener
         }
 
 
+        /**
+         * Returns the service PID of the configuration and the services
+         * currently registered for the configuration as ordering keys.
+         */
+        @Override
+        public String[] getOrderingKeys()
+        {
+            final TargetedPID servicePid = getTargetedServicePid();
+            final List<ServiceReference<T>> srList = this.getHelper().getServices( servicePid );
+            final String[] keys = new String[srList.size() + 1];
+            keys[0] = servicePid.getServicePid();
+            for ( int i = 0; i < srList.size(); i++ )
+            {
+                keys[i + 1] = getServiceKey( srList.get( i ) );
+            }
+            return keys;
+        }
+
+
         protected BaseTracker<T> getHelper()
         {
             if ( this.helper == null )
@@ -1360,8 +1546,12 @@ public class ConfigurationManager implements BundleListener
      * <code>ManagedService[Factory]</code> services with the configuration
      * they are subscribed to. This may cause the configuration to be
      * supplied to multiple services.
+     * <p>
+     * An update which has not been started yet is superseded by a later
+     * update of the same configuration: the later update delivers the
+     * newer revision of the configuration, so the older one is dropped.
      */
-    private class UpdateConfiguration extends ConfigurationProvider
+    private class UpdateConfiguration extends ConfigurationProvider implements UpdateThread.CoalescingTask
     {
 
         UpdateConfiguration( final ConfigurationImpl config )
@@ -1429,6 +1619,13 @@ public class ConfigurationManager implements BundleListener
         }
 
 
+        @Override
+        public String getCoalescingKey()
+        {
+            return coalesceUpdates ? "update:" + config.getPid() : null;
+        }
+
+
         @Override
         public String toString()
         {
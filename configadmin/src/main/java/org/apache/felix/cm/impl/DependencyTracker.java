@@ -49,7 +49,8 @@ public class DependencyTracker
 
     public DependencyTracker(final BundleContext bundleContext,
             final ServiceFactory<PersistenceManager> defaultFactory,
-            final String pmName, final String[] pluginNames)
+            final String pmName, final String[] pluginNames,
+            final String[] indexedProperties)
             throws BundleException, InvalidSyntaxException
     {
         this.starter = new ConfigurationAdminStarter(bundleContext);
@@ -75,7 +76,8 @@ public class DependencyTracker
         if ( pmName != null )
         {
             Log.logger.log(LogService.LOG_DEBUG, "Using persistence manager {0}", new Object[] {pmName});
-            this.persistenceManagerTracker = new PersistenceManagerTracker(bundleContext, workerQueue, starter, pmName);
+            this.persistenceManagerTracker = new PersistenceManagerTracker(bundleContext, workerQueue, starter, pmName,
+                    indexedProperties);
         }
         else
         {
@@ -92,7 +94,8 @@ public class DependencyTracker
                 throw new BundleException("Unable to register default persistence manager.");
             }
 
-            final ExtPersistenceManager epm = PersistenceManagerTracker.createPersistenceManagerProxy(defaultPM);
+            final ExtPersistenceManager epm = PersistenceManagerTracker.createPersistenceManagerProxy(defaultPM,
+                    indexedProperties);
             if (useQueue) {
                 starter.setPersistenceManager(epm);
             } else {
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.felix.cm.ConfigurationAdminMetrics;
+
+
+/**
+ * The <code>Metrics</code> class collects the timers of the Configuration
+ * Admin Service. Like the {@link Log} there is a single instance shared by
+ * all parts of the implementation, which is also used before the
+ * {@link ConfigurationManager} is started.
+ */
+public class Metrics
+{
+
+    /** The shared instance */
+    public static final Metrics metrics = new Metrics();
+
+    /** The maximum number of timers per category */
+    static final int MAX_TIMERS = 500;
+
+    /** The name of the timer collecting durations beyond {@link #MAX_TIMERS} */
+    static final String OTHER = "*";
+
+    private static final Comparator<ConfigurationAdminMetrics.Timer> HIGHEST_TOTAL_FIRST = new Comparator<ConfigurationAdminMetrics.Timer>()
+    {
+        @Override
+        public int compare( final ConfigurationAdminMetrics.Timer t1, final ConfigurationAdminMetrics.Timer t2 )
+        {
+            return Long.compare( t2.getTotalNanos(), t1.getTotalNanos() );
+        }
+    };
+
+    private final ConcurrentMap<String, ConcurrentMap<String, TimerImpl>> categories = new ConcurrentHashMap<>();
+
+    /**
+     * Records the duration of an operation.
+     *
+     * @param category The category of the timer
+     * @param name The name of the timer
+     * @param nanos The duration in nanoseconds
+     */
+    public void record( final String category, final String name, final long nanos )
+    {
+        ConcurrentMap<String, TimerImpl> timers = categories.get( category );
+        if ( timers == null )
+        {
+            final ConcurrentMap<String, TimerImpl> newTimers = new ConcurrentHashMap<>();
+            timers = categories.putIfAbsent( category, newTimers );
+            if ( timers == null )
+            {
+                timers = newTimers;
+            }
+        }
+
+        TimerImpl timer = timers.get( name );
+        if ( timer == null )
+        {
+            final String timerName = timers.size() < MAX_TIMERS ? name : OTHER;
+            final TimerImpl newTimer = new TimerImpl( timerName );
+            timer = timers.putIfAbsent( timerName, newTimer );
+            if ( timer == null )
+            {
+                timer = newTimer;
+            }
+        }
+        timer.record( nanos );
+    }
+
+    /**
+     * Records the time elapsed since the start of an operation.
+     *
+     * @param category The category of the timer
+     * @param name The name of the timer
+     * @param startNanos The start of the operation as returned by
+     *      <code>System.nanoTime()</code>
+     */
+    public void recordSince( final String category, final String name, final long startNanos )
+    {
+        record( category, name, System.nanoTime() - startNanos );
+    }
+
+    /**
+     * Returns a copy of the timers of the category, highest total first.
+     */
+    public List<ConfigurationAdminMetrics.Timer> getTimers( final String category )
+    {
+        final ConcurrentMap<String, TimerImpl> timers = categories.get( category );
+        if ( timers == null )
+        {
+            return Collections.emptyList();
+        }
+        final List<ConfigurationAdminMetrics.Timer> result = new ArrayList<>( timers.size() );
+        for ( final TimerImpl timer : timers.values() )
+        {
+            result.add( timer.snapshot() );
+        }
+        Collections.sort( result, HIGHEST_TOTAL_FIRST );
+        return result;
+    }
+
+    /**
+     * Removes all timers.
+     */
+    public void reset()
+    {
+        categories.clear();
+    }
+
+    private static final class TimerImpl implements ConfigurationAdminMetrics.Timer
+    {
+        private final String name;
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        TimerImpl( final String name )
+        {
+            this.name = name;
+        }
+
+        void record( final long nanos )
+        {
+            count.incrementAndGet();
+            totalNanos.addAndGet( nanos );
+            long max = maxNanos.get();
+            while ( nanos > max && !maxNanos.compareAndSet( max, nanos ) )
+            {
+                max = maxNanos.get();
+            }
+        }
+
+        TimerImpl snapshot()
+        {
+            final TimerImpl copy = new TimerImpl( name );
+            copy.count.set( count.get() );
+            copy.totalNanos.set( totalNanos.get() );
+            copy.maxNanos.set( maxNanos.get() );
+            return copy;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public long getCount()
+        {
+            return count.get();
+        }
+
+        @Override
+        public long getTotalNanos()
+        {
+            return totalNanos.get();
+        }
+
+        @Override
+        public long getMaxNanos()
+        {
+            return maxNanos.get();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.cm.ConfigurationAdminMetrics;
+
+
+/**
+ * The <code>MetricsService</code> is the {@link ConfigurationAdminMetrics}
+ * service registered by the {@link ConfigurationManager}. It also provides
+ * the <code>cm:metrics</code> shell command and is a Web Console
+ * configuration printer listing the top offenders of each category.
+ */
+public class MetricsService implements ConfigurationAdminMetrics
+{
+
+    /** The number of timers listed per category by default */
+    static final int DEFAULT_TOP = 10;
+
+    private static final String[] CATEGORIES =
+        { CATEGORY_PLUGIN, CATEGORY_PERSISTENCE, CATEGORY_QUEUE, CATEGORY_DELIVERY };
+
+    private final ConfigurationManager configurationManager;
+
+    MetricsService( final ConfigurationManager configurationManager )
+    {
+        this.configurationManager = configurationManager;
+    }
+
+    @Override
+    public List<Timer> getTimers( final String category )
+    {
+        return Metrics.metrics.getTimers( category );
+    }
+
+    @Override
+    public int getUpdateQueueSize()
+    {
+        return configurationManager.getUpdateQueueSize();
+    }
+
+    @Override
+    public void reset()
+    {
+        Metrics.metrics.reset();
+        configurationManager.getUpdateStatistics().reset();
+    }
+
+    /**
+     * The <code>cm:metrics</code> command listing the top offenders.
+     */
+    public String metrics()
+    {
+        return metrics( DEFAULT_TOP );
+    }
+
+    /**
+     * The <code>cm:metrics</code> command listing the given number of top
+     * offenders per category.
+     */
+    public String metrics( final int top )
+    {
+        final StringWriter out = new StringWriter();
+        print( new PrintWriter( out ), top );
+        return out.toString();
+    }
+
+    /**
+     * Prints the top offenders for the Web Console configuration status.
+     */
+    public void printConfiguration( final PrintWriter pw )
+    {
+        print( pw, DEFAULT_TOP );
+    }
+
+    private void print( final PrintWriter pw, final int top )
+    {
+        pw.println( "Configuration Admin Metrics" );
+        pw.println( "===========================" );
+        pw.printf( "Update queue size: %d%n", configurationManager.getUpdateQueueSize() );
+        pw.printf( "Updates in progress: %d%n", configurationManager.getActiveUpdateCount() );
+        pw.printf( "Superseded updates: %d%n", configurationManager.getCoalescedUpdateCount() );
+
+        for ( final String category : CATEGORIES )
+        {
+            pw.println();
+            pw.printf( "Top %d %s timers (total ms / count / mean ms / max ms):%n", top, category );
+            final List<Timer> timers = getTimers( category );
+            if ( timers.isEmpty() )
+            {
+                pw.println( "  none" );
+            }
+            for ( int i = 0; i < timers.size() && i < top; i++ )
+            {
+                final Timer timer = timers.get( i );
+                pw.printf( "  %s: %.1f / %d / %.3f / %.1f%n", timer.getName(), millis( timer.getTotalNanos() ),
+                    timer.getCount(), millis( timer.getTotalNanos() ) / Math.max( 1, timer.getCount() ),
+                    millis( timer.getMaxNanos() ) );
+            }
+        }
+
+        pw.println();
+        pw.println( "Slowest ManagedService[Factory] callbacks:" );
+        final List<UpdateStatistics.Callback> slowest = configurationManager.getUpdateStatistics().getSlowest();
+        if ( slowest.isEmpty() )
+        {
+            pw.println( "  none" );
+        }
+        for ( final UpdateStatistics.Callback callback : slowest )
+        {
+            pw.printf( "  %s%n", callback );
+        }
+        pw.flush();
+    }
+
+    private static double millis( final long nanos )
+    {
+        return nanos / ( double ) TimeUnit.MILLISECONDS.toNanos( 1 );
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.osgi.service.log.LogService;
+
+
+/**
+ * The <code>UpdateStatistics</code> class records the duration of the
+ * <code>updated</code> and <code>deleted</code> callbacks of managed
+ * services and managed service factories. The slowest callbacks are kept
+ * for reporting and callbacks exceeding the configured threshold are
+ * logged as warnings.
+ */
+public class UpdateStatistics
+{
+
+    /** The number of slowest callbacks kept */
+    public static final int MAX_SLOWEST = 10;
+
+    /** The default threshold in milliseconds for logging slow callbacks */
+    public static final long DEFAULT_SLOW_THRESHOLD = 1000;
+
+    private static final Comparator<Callback> SLOWEST_FIRST = new Comparator<Callback>()
+    {
+        @Override
+        public int compare( final Callback c1, final Callback c2 )
+        {
+            return Long.compare( c2.getDurationNanos(), c1.getDurationNanos() );
+        }
+    };
+
+    // threshold in nanoseconds, 0 to not log
+    private final long slowThresholdNanos;
+
+    private final AtomicLong callbackCount = new AtomicLong();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    // slowest callbacks, slowest first, guarded by itself
+    private final List<Callback> slowest = new ArrayList<>( MAX_SLOWEST + 1 );
+
+    public UpdateStatistics( final long slowThresholdMillis )
+    {
+        this.slowThresholdNanos = slowThresholdMillis > 0 ? TimeUnit.MILLISECONDS.toNanos( slowThresholdMillis ) : 0;
+    }
+
+    /**
+     * Records a finished callback.
+     *
+     * @param service The description of the called service
+     * @param pid The PID of the configuration provided
+     * @param method The name of the called method
+     * @param durationNanos The duration of the call in nanoseconds
+     */
+    public void record( final String service, final String pid, final String method, final long durationNanos )
+    {
+        callbackCount.incrementAndGet();
+        totalNanos.addAndGet( durationNanos );
+
+        synchronized ( slowest )
+        {
+            if ( slowest.size() < MAX_SLOWEST
+                || slowest.get( slowest.size() - 1 ).getDurationNanos() < durationNanos )
+            {
+                slowest.add( new Callback( service, pid, method, durationNanos, System.currentTimeMillis() ) );
+                Collections.sort( slowest, SLOWEST_FIRST );
+                if ( slowest.size() > MAX_SLOWEST )
+                {
+                    slowest.remove( MAX_SLOWEST );
+                }
+            }
+        }
+
+        if ( slowThresholdNanos > 0 && durationNanos >= slowThresholdNanos )
+        {
+            Log.logger.log( LogService.LOG_WARNING, "Calling {0}({1}) on {2} took {3}ms", new Object[]
+                { method, pid, service, TimeUnit.NANOSECONDS.toMillis( durationNanos ) } );
+        }
+    }
+
+    public long getCallbackCount()
+    {
+        return callbackCount.get();
+    }
+
+    public long getTotalNanos()
+    {
+        return totalNanos.get();
+    }
+
+    /**
+     * Returns the slowest callbacks recorded, slowest first.
+     */
+    public List<Callback> getSlowest()
+    {
+        synchronized ( slowest )
+        {
+            return new ArrayList<>( slowest );
+        }
+    }
+
+    public void reset()
+    {
+        callbackCount.set( 0 );
+        totalNanos.set( 0 );
+        synchronized ( slowest )
+        {
+            slowest.clear();
+        }
+    }
+
+    /**
+     * A single recorded callback.
+     */
+    public static final class Callback
+    {
+        private final String service;
+
+        private final String pid;
+
+        private final String method;
+
+        private final long durationNanos;
+
+        private final long timestamp;
+
+        Callback( final String service, final String pid, final String method, final long durationNanos,
+            final long timestamp )
+        {
+            this.service = service;
+            this.pid = pid;
+            this.method = method;
+            this.durationNanos = durationNanos;
+            this.timestamp = timestamp;
+        }
+
+        public String getService()
+        {
+            return service;
+        }
+
+        public String getPid()
+        {
+            return pid;
+        }
+
+        public String getMethod()
+        {
+            return method;
+        }
+
+        public long getDurationNanos()
+        {
+            return durationNanos;
+        }
+
+        public long getTimestamp()
+        {
+            return timestamp;
+        }
+
+        @Override
+        public String toString()
+        {
+            return method + "(" + pid + ") on " + service + ": "
+                + TimeUnit.NANOSECONDS.toMillis( durationNanos ) + "ms";
+        }
+    }
+}
@@ -22,61 +22,136 @@ import java.security.AccessControlContext;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.felix.cm.ConfigurationAdminMetrics;
 import org.osgi.service.log.LogService;
 
 
 /**
  * The <code>UpdateThread</code> is the thread used to update managed services
  * and managed service factories as well as to send configuration events.
+ * <p>
+ * By default a single worker thread executes all tasks in the order they
+ * are scheduled. If more than one worker thread is configured, tasks are
+ * executed concurrently while preserving the order of tasks sharing an
+ * {@link OrderedTask#getOrderingKeys() ordering key}, for example the
+ * PID of the configuration and the target service. Tasks without ordering
+ * keys are executed exclusively: all tasks scheduled before have finished
+ * and no other task runs concurrently.
+ * <p>
+ * A {@link CoalescingTask} supersedes a task with the same
+ * {@link CoalescingTask#getCoalescingKey() coalescing key} which is still
+ * waiting in the queue: the waiting task is removed and only the new task
+ * is executed.
  */
 public class UpdateThread implements Runnable
 {
 
+    /**
+     * A task which only needs to be ordered with respect to tasks sharing
+     * at least one of its ordering keys.
+     */
+    public interface OrderedTask extends Runnable
+    {
+        /**
+         * Returns the ordering keys of this task, never <code>null</code>.
+         * This method is called once when the task is scheduled.
+         */
+        String[] getOrderingKeys();
+    }
+
+    /**
+     * A task which supersedes an earlier task with the same coalescing key
+     * which has not been started yet.
+     */
+    public interface CoalescingTask extends Runnable
+    {
+        /**
+         * Returns the coalescing key of this task or <code>null</code> if
+         * this task must not be coalesced. This method is called once when
+         * the task is scheduled.
+         */
+        String getCoalescingKey();
+    }
+
     // the thread group into which the worker thread will be placed
     private final ThreadGroup workerThreadGroup;
 
     // the thread's base name
     private final String workerBaseName;
 
-    // the queue of Runnable instances  to be run
-    private final BlockingDeque<Runnable> updateTasks = new LinkedBlockingDeque<>();
+    // the number of worker threads
+    private final int workerCount;
+
+    // the queue of Runnable instances  to be run, guarded by itself
+    private final LinkedList<Entry> updateTasks = new LinkedList<>();
+
+    // the queued tasks by coalescing key, guarded by the queue
+    private final Map<String, Entry> coalescingTasks = new HashMap<>();
+
+    // the number of tasks removed from the queue by a newer task
+    private long coalescedCount;
+
+    // the number of superseded tasks still in the queue
+    private int supersededCount;
 
-    // the actual thread
-    private volatile Thread worker;
+    // the ordering keys of the tasks currently running
+    private final Set<String> runningKeys = new HashSet<>();
+
+    // the number of tasks currently running
+    private int runningCount;
+
+    // whether an exclusive task is currently running
+    private boolean exclusiveRunning;
+
+    // the actual threads
+    private volatile List<Thread> workers;
 
     // the access control context
     private final AccessControlContext acc;
 
     public UpdateThread( final ThreadGroup tg, final String name )
+    {
+        this( tg, name, 1 );
+    }
+
+    public UpdateThread( final ThreadGroup tg, final String name, final int workerCount )
     {
         this.workerThreadGroup = tg;
         this.workerBaseName = name;
+        this.workerCount = Math.max( 1, workerCount );
         this.acc = AccessController.getContext();
     }
 
 
     // waits on Runnable instances coming into the queue. As instances come
     // in, this method calls the Runnable.run method, logs any exception
-    // happening and keeps on waiting for the next Runnable. If the Runnable
-    // taken from the queue is this thread instance itself, the thread
-    // terminates.
+    // happening and keeps on waiting for the next Runnable. If the worker
+    // is terminated, the thread terminates.
     @Override
     public void run()
     {
+        final String name = Thread.currentThread().getName();
         try
         {
-            Runnable task;
-            // return if the task is this thread itself
-            while ((task = updateTasks.take()) != this)
+            Entry entry;
+            while ((entry = take()) != null)
             {
+                final Runnable task = entry.task;
+                Metrics.metrics.recordSince( ConfigurationAdminMetrics.CATEGORY_QUEUE, workerBaseName, entry.scheduled );
                 // otherwise execute the task, log any issues
                 try
                 {
                     // set the thread name indicating the current task
-                    Thread.currentThread().setName( workerBaseName + " (" + task + ")" );
+                    Thread.currentThread().setName( name + " (" + task + ")" );
 
                     Log.logger.log( LogService.LOG_DEBUG, "Running task {0}", new Object[]
                         { task } );
@@ -90,7 +165,8 @@ public class UpdateThread implements Runnable
                 finally
                 {
                     // reset the thread name to "idle"
-                    Thread.currentThread().setName( workerBaseName );
+                    Thread.currentThread().setName( name );
+                    done( entry );
                 }
             }
         }
@@ -100,6 +176,120 @@ public class UpdateThread implements Runnable
         }
     }
 
+    /**
+     * Takes the first task which may run now, waiting if there is none.
+     * @return The task or <code>null</code> if the worker is terminated
+     */
+    private Entry take() throws InterruptedException
+    {
+        synchronized ( updateTasks )
+        {
+            while ( true )
+            {
+                if ( this.workers == null )
+                {
+                    return null;
+                }
+                final Entry entry = this.next();
+                if ( entry != null )
+                {
+                    return entry;
+                }
+                updateTasks.wait();
+            }
+        }
+    }
+
+    // must be called holding the lock on the queue
+    private Entry next()
+    {
+        if ( exclusiveRunning )
+        {
+            return null;
+        }
+        // keys of the tasks scheduled before the current one which can't run yet
+        final Set<String> blockedKeys = new HashSet<>();
+        final Iterator<Entry> i = updateTasks.iterator();
+        while ( i.hasNext() )
+        {
+            final Entry entry = i.next();
+            if ( entry.superseded )
+            {
+                // superseded tasks are dropped when reached
+                i.remove();
+                supersededCount--;
+                continue;
+            }
+            if ( entry.keys == null )
+            {
+                // exclusive task: only if it is the first and nothing runs
+                if ( runningCount == 0 && blockedKeys.isEmpty() )
+                {
+                    i.remove();
+                    dequeued( entry );
+                    exclusiveRunning = true;
+                    runningCount++;
+                    return entry;
+                }
+                return null;
+            }
+            boolean runnable = true;
+            for ( final String key : entry.keys )
+            {
+                if ( runningKeys.contains( key ) || blockedKeys.contains( key ) )
+                {
+                    runnable = false;
+                    break;
+                }
+            }
+            if ( runnable )
+            {
+                i.remove();
+                dequeued( entry );
+                for ( final String key : entry.keys )
+                {
+                    runningKeys.add( key );
+                }
+                runningCount++;
+                return entry;
+            }
+            for ( final String key : entry.keys )
+            {
+                blockedKeys.add( key );
+            }
+        }
+        return null;
+    }
+
+    // must be called holding the lock on the queue
+    private void dequeued( final Entry entry )
+    {
+        if ( entry.coalescingKey != null && coalescingTasks.get( entry.coalescingKey ) == entry )
+        {
+            coalescingTasks.remove( entry.coalescingKey );
+        }
+    }
+
+    private void done( final Entry entry )
+    {
+        synchronized ( updateTasks )
+        {
+            runningCount--;
+            if ( entry.keys != null )
+            {
+                for ( final String key : entry.keys )
+                {
+                    runningKeys.remove( key );
+                }
+            }
+            else
+            {
+                exclusiveRunning = false;
+            }
+            updateTasks.notifyAll();
+        }
+    }
+
     void run0(final Runnable task) throws Throwable {
         if (System.getSecurityManager() != null) {
             try {
@@ -129,24 +319,35 @@ public class UpdateThread implements Runnable
      */
     synchronized void start()
     {
-        if ( this.worker == null )
+        if ( this.workers == null )
         {
-            Thread workerThread = new Thread( workerThreadGroup, this, workerBaseName );
-            workerThread.setDaemon( true );
-            workerThread.start();
-            this.worker = workerThread;
+            final List<Thread> threads = new ArrayList<>( workerCount );
+            for ( int i = 0; i < workerCount; i++ )
+            {
+                final String name = workerCount == 1 ? workerBaseName : workerBaseName + " #" + ( i + 1 );
+                Thread workerThread = new Thread( workerThreadGroup, this, name );
+                workerThread.setDaemon( true );
+                threads.add( workerThread );
+            }
+            synchronized ( updateTasks )
+            {
+                this.workers = threads;
+            }
+            for ( final Thread workerThread : threads )
+            {
+                workerThread.start();
+            }
         }
     }
 
 
     /**
-     * Terminates the worker thread and waits for the thread to have processed
-     * all outstanding events up to and including the termination job. All
-     * jobs {@link #schedule(Runnable) scheduled} after termination has been
-     * initiated will not be processed any more. This method does nothing if
-     * the worker thread is not currently active.
+     * Terminates the worker threads and waits for the threads to have
+     * finished the tasks currently running. Queued tasks are not processed
+     * any more. This method does nothing if the worker threads are not
+     * currently active.
      * <p>
-     * If the worker thread does not terminate within 5 seconds it is killed
+     * If a worker thread does not terminate within 5 seconds it is killed
      * by calling the (deprecated) <code>Thread.stop()</code> method. It may
      * be that the worker thread may be blocked by a deadlock (it should not,
      * though). In this case hope is that <code>Thread.stop()</code> will be
@@ -156,29 +357,35 @@ public class UpdateThread implements Runnable
      */
     synchronized void terminate()
     {
-        if ( this.worker != null )
+        if ( this.workers != null )
         {
-            Thread workerThread = this.worker;
-            this.worker = null;
-
-            updateTasks.offerFirst( this );
-
-            // wait for all updates to terminate (<= 10 seconds !)
-            try
+            final List<Thread> threads = this.workers;
+            synchronized ( updateTasks )
             {
-                workerThread.join( 5000 );
-            }
-            catch ( InterruptedException ie )
-            {
-                // don't really care
+                this.workers = null;
+                updateTasks.notifyAll();
             }
 
-            if ( workerThread.isAlive() )
+            // wait for all updates to terminate (<= 5 seconds !)
+            final long end = System.currentTimeMillis() + 5000;
+            for ( final Thread workerThread : threads )
             {
-                Log.logger.log( LogService.LOG_ERROR,
-                    "Worker thread {0} did not terminate within 5 seconds; trying to kill", new Object[]
-                        { workerBaseName } );
-                workerThread.stop();
+                try
+                {
+                    workerThread.join( Math.max( 1, end - System.currentTimeMillis() ) );
+                }
+                catch ( InterruptedException ie )
+                {
+                    // don't really care
+                }
+
+                if ( workerThread.isAlive() )
+                {
+                    Log.logger.log( LogService.LOG_ERROR,
+                        "Worker thread {0} did not terminate within 5 seconds; trying to kill", new Object[]
+                            { workerThread.getName() } );
+                    workerThread.stop();
+                }
             }
         }
     }
@@ -190,7 +397,112 @@ public class UpdateThread implements Runnable
         Log.logger.log( LogService.LOG_DEBUG, "Scheduling task {0}", new Object[]
             { update } );
 
+        // ordering keys are only relevant with multiple workers
+        final String[] keys;
+        if ( workerCount > 1 && update instanceof OrderedTask )
+        {
+            keys = ( ( OrderedTask ) update ).getOrderingKeys();
+        }
+        else
+        {
+            keys = null;
+        }
+
+        final String coalescingKey;
+        if ( update instanceof CoalescingTask )
+        {
+            coalescingKey = ( ( CoalescingTask ) update ).getCoalescingKey();
+        }
+        else
+        {
+            coalescingKey = null;
+        }
+
         // append to the task queue
-        updateTasks.offer( update );
+        synchronized ( updateTasks )
+        {
+            final Entry entry = new Entry( update, keys, coalescingKey );
+            if ( coalescingKey != null )
+            {
+                // a task is only indexed by its key until it is dequeued, so
+                // the superseded task is just marked instead of searched for
+                final Entry superseded = coalescingTasks.put( coalescingKey, entry );
+                if ( superseded != null )
+                {
+                    superseded.superseded = true;
+                    supersededCount++;
+                    coalescedCount++;
+                    Log.logger.log( LogService.LOG_DEBUG, "Task {0} superseded by {1}", new Object[]
+                        { superseded.task, update } );
+                }
+            }
+            updateTasks.add( entry );
+            updateTasks.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting to be executed.
+     */
+    public int getQueueSize()
+    {
+        synchronized ( updateTasks )
+        {
+            return updateTasks.size() - supersededCount;
+        }
+    }
+
+    /**
+     * Returns the number of tasks currently executed.
+     */
+    public int getActiveCount()
+    {
+        synchronized ( updateTasks )
+        {
+            return runningCount;
+        }
+    }
+
+    /**
+     * Returns the number of tasks which have been removed from the queue
+     * because they have been superseded by a newer task.
+     */
+    public long getCoalescedCount()
+    {
+        synchronized ( updateTasks )
+        {
+            return coalescedCount;
+        }
+    }
+
+    /**
+     * Returns the number of worker threads.
+     */
+    public int getWorkerCount()
+    {
+        return workerCount;
+    }
+
+    // a scheduled task with its ordering keys, null if exclusive, and
+    // its coalescing key, null if not to be coalesced
+    private static final class Entry
+    {
+        final Runnable task;
+
+        final String[] keys;
+
+        final String coalescingKey;
+
+        final long scheduled = System.nanoTime();
+
+        // whether a newer task has superseded this task, guarded by the queue
+        boolean superseded;
+
+        Entry( final Runnable task, final String[] keys, final String coalescingKey )
+        {
+            this.task = task;
+            this.keys = keys;
+            this.coalescingKey = coalescingKey;
+        }
     }
 }
@@ -25,14 +25,17 @@ import java.security.DomainCombiner;
 import java.security.Permission;
 import java.security.ProtectionDomain;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.List;
 
+import org.apache.felix.cm.ConfigurationAdminMetrics;
 import org.apache.felix.cm.impl.CaseInsensitiveDictionary;
 import org.apache.felix.cm.impl.ConfigurationManager;
 import org.apache.felix.cm.impl.Log;
+import org.apache.felix.cm.impl.Metrics;
 import org.apache.felix.cm.impl.RankingComparator;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.Constants;
@@ -223,6 +226,32 @@ public abstract class BaseTracker<S> extends ServiceTracker<S, ConfigurationMap<
     }
 
 
+    protected final void recordCallback( final ServiceReference<?> service, final String pid, final String method,
+        final long startNanos )
+    {
+        final long duration = System.nanoTime() - startNanos;
+        final String name = getServiceName( service );
+        this.cm.getUpdateStatistics().record( name, pid, method, duration );
+        Metrics.metrics.record( ConfigurationAdminMetrics.CATEGORY_DELIVERY, name, duration );
+    }
+
+
+    // describes the service by its PIDs and the providing bundle
+    private static String getServiceName( final ServiceReference<?> service )
+    {
+        final StringBuilder buf = new StringBuilder();
+        final String[] pids = getServicePid( service );
+        buf.append( pids == null ? "service" : Arrays.toString( pids ) );
+        buf.append( " (id=" ).append( service.getProperty( Constants.SERVICE_ID ) );
+        final Bundle bundle = service.getBundle();
+        if ( bundle != null )
+        {
+            buf.append( ", bundle=" ).append( bundle.getSymbolicName() );
+        }
+        return buf.append( ')' ).toString();
+    }
+
+
     protected final void handleCallBackError( final Throwable error, final ServiceReference target, final TargetedPID pid )
     {
         if ( error instanceof ConfigurationException )
@@ -90,7 +90,15 @@ public class ManagedServiceFactoryTracker extends BaseTracker<ManagedServiceFact
             {
                 Dictionary props = getProperties( properties, reference, configPid.toString(),
                     factoryPid.toString() );
-                updated( reference, service, configPid.toString(), props );
+                final long start = System.nanoTime();
+                try
+                {
+                    updated( reference, service, configPid.toString(), props );
+                }
+                finally
+                {
+                    this.recordCallback( reference, configPid.toString(), "updated", start );
+                }
                 configs.record( configPid, factoryPid, revision );
             }
             catch ( Throwable t )
@@ -117,7 +125,15 @@ public class ManagedServiceFactoryTracker extends BaseTracker<ManagedServiceFact
             {
                 try
                 {
-                    deleted( reference, service, configPid.toString() );
+                    final long start = System.nanoTime();
+                    try
+                    {
+                        deleted( reference, service, configPid.toString() );
+                    }
+                    finally
+                    {
+                        this.recordCallback( reference, configPid.toString(), "deleted", start );
+                    }
                     configs.record( configPid, factoryPid, -1 );
                 }
                 catch ( Throwable t )
@@ -149,7 +149,15 @@ public class ManagedServiceTracker extends BaseTracker<ManagedService>
         {
             try
             {
-                updated( service, srv, properties );
+                final long start = System.nanoTime();
+                try
+                {
+                    updated( service, srv, properties );
+                }
+                finally
+                {
+                    this.recordCallback( service, configPid.toString(), "updated", start );
+                }
                 configs.record( configPid, null, revision );
             }
             catch ( Throwable t )
@@ -66,16 +66,39 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
      */
     private volatile boolean fullyLoaded;
 
-    /** Factory configuration cache. */
-    private final Map<String, Set<String>> factoryConfigCache = new HashMap<>();
+    /** Secondary index of the cached dictionaries. */
+    private final ConfigurationIndex index;
+
+    /** Serializes loading all dictionaries from the persistence manager */
+    private final Object loadLock = new Object();
+
+    /**
+     * The PIDs stored or deleted while all dictionaries are loaded from the
+     * persistence manager, <code>null</code> if not loading. Guarded by the
+     * global lock.
+     */
+    private Set<String> modifiedWhileLoading;
 
     /**
      * Creates a new caching layer for the given actual {@link PersistenceManager}.
      * @param pm The actual {@link PersistenceManager}
      */
     public CachingPersistenceManagerProxy( final PersistenceManager pm )
+    {
+        this( pm, null );
+    }
+
+    /**
+     * Creates a new caching layer for the given actual {@link PersistenceManager}
+     * indexing the cached dictionaries by the <code>service.factoryPid</code>,
+     * the <code>service.bundleLocation</code> and the additional properties.
+     * @param pm The actual {@link PersistenceManager}
+     * @param indexedProperties Additional properties to index, might be <code>null</code>
+     */
+    public CachingPersistenceManagerProxy( final PersistenceManager pm, final String[] indexedProperties )
     {
         this.pm = pm;
+        this.index = new ConfigurationIndex( indexedProperties );
     }
 
     @Override
@@ -96,23 +119,8 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
         try
         {
             lock.lock();
-            final Dictionary props = cache.remove( pid );
-            if ( props != null )
-            {
-                final String factoryPid = (String)props.get(ConfigurationAdmin.SERVICE_FACTORYPID);
-                if ( factoryPid != null )
-                {
-                    final Set<String> factoryPids = this.factoryConfigCache.get(factoryPid);
-                    if ( factoryPids != null )
-                    {
-                        factoryPids.remove(pid);
-                        if ( factoryPids.isEmpty() )
-                        {
-                            this.factoryConfigCache.remove(factoryPid);
-                        }
-                    }
-                }
-            }
+            this.uncache( pid );
+            this.modified( pid );
             pm.delete(pid);
         }
         finally
@@ -156,7 +164,13 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
     @Override
     public Enumeration getDictionaries() throws IOException
     {
-        return Collections.enumeration(getDictionaries( null ));
+        final Collection<Dictionary> snapshots = getDictionaries( null );
+        final List<Dictionary> configs = new ArrayList<>( snapshots.size() );
+        for ( final Dictionary d : snapshots )
+        {
+            configs.add( new CaseInsensitiveDictionary( d ) );
+        }
+        return Collections.enumeration( configs );
     }
 
     private final CaseInsensitiveDictionary cache(final Dictionary props)
@@ -170,55 +184,140 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
             {
                 dict = new CaseInsensitiveDictionary(props);
                 cache.put( pid, dict );
-                final String factoryPid = (String)props.get(ConfigurationAdmin.SERVICE_FACTORYPID);
-                if ( factoryPid != null )
+                this.index.add( pid, dict );
+            }
+        }
+        return dict;
+    }
+
+    private final void uncache(final String pid)
+    {
+        final Dictionary props = cache.remove( pid );
+        if ( props != null )
+        {
+            this.index.remove( pid, props );
+        }
+    }
+
+    // must be called holding the write lock
+    private final void modified(final String pid)
+    {
+        if ( this.modifiedWhileLoading != null )
+        {
+            this.modifiedWhileLoading.add( pid );
+        }
+    }
+
+    /**
+     * Loads all dictionaries from the underlying persistence manager into
+     * the cache unless this has already been done. This method may be
+     * called in the background to have the cache ready before the first
+     * query.
+     * <p>
+     * The dictionaries are loaded without holding the global lock, so
+     * single configurations can be loaded, stored and deleted concurrently.
+     * Dictionaries for PIDs stored or deleted while loading are not taken
+     * from the persistence manager.
+     *
+     * @throws IOException If the dictionaries cannot be loaded
+     */
+    public void warmUp() throws IOException
+    {
+        if ( this.fullyLoaded )
+        {
+            return;
+        }
+        synchronized ( this.loadLock )
+        {
+            if ( this.fullyLoaded )
+            {
+                return;
+            }
+
+            Lock lock = globalLock.writeLock();
+            lock.lock();
+            try
+            {
+                this.modifiedWhileLoading = new HashSet<>();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            final List<Dictionary> loaded = new ArrayList<>();
+            boolean complete = false;
+            try
+            {
+                final Enumeration fromPm = pm.getDictionaries();
+                while ( fromPm.hasMoreElements() )
+                {
+                    loaded.add( (Dictionary) fromPm.nextElement() );
+                }
+                complete = true;
+            }
+            finally
+            {
+                lock.lock();
+                try
                 {
-                    Set<String> factoryPids = this.factoryConfigCache.get(factoryPid);
-                    if ( factoryPids == null )
+                    final Set<String> modified = this.modifiedWhileLoading;
+                    this.modifiedWhileLoading = null;
+                    if ( complete )
                     {
-                        factoryPids = new HashSet<>();
-                        this.factoryConfigCache.put(factoryPid, factoryPids);
+                        for ( final Dictionary next : loaded )
+                        {
+                            if ( !modified.contains( next.get( Constants.SERVICE_PID ) ) )
+                            {
+                                this.cache( next );
+                            }
+                        }
+                        this.fullyLoaded = true;
                     }
-                    factoryPids.add(pid);
+                }
+                finally
+                {
+                    lock.unlock();
                 }
             }
         }
-        return dict;
     }
 
+    /**
+     * Returns the dictionaries matching the filter. If possible, the candidates
+     * are selected using the secondary index.
+     * <p>
+     * The returned dictionaries are immutable snapshots of the cached
+     * dictionaries: a cached dictionary is never modified but replaced
+     * on {@link #store(String, Dictionary)}. Callers need to copy a
+     * dictionary before modifying it.
+     */
     @Override
     public Collection<Dictionary> getDictionaries( final SimpleFilter filter ) throws IOException
     {
-        Lock lock = globalLock.readLock();
+        // if not fully loaded, call back to the underlying persistence
+        // manager and cache all dictionaries whose service.pid is set
+        this.warmUp();
+
+        final Lock lock = globalLock.readLock();
         try
         {
             lock.lock();
-            // if not fully loaded, call back to the underlying persistence
-            // manager and cache all dictionaries whose service.pid is set
-            if ( !fullyLoaded )
+
+            final Collection<String> candidates = this.index.getCandidates( filter );
+            final List<Dictionary> configs = new ArrayList<>( candidates == null ? cache.size() : candidates.size() );
+            if ( candidates == null )
             {
-                lock.unlock();
-                lock = globalLock.writeLock();
-                lock.lock();
-                if ( !fullyLoaded )
+                for (final CaseInsensitiveDictionary d : cache.values())
                 {
-                    Enumeration fromPm = pm.getDictionaries();
-                    while ( fromPm.hasMoreElements() )
-                    {
-                        Dictionary next = (Dictionary) fromPm.nextElement();
-                        this.cache(next);
-                    }
-                    this.fullyLoaded = true;
+                    addIfMatching( configs, d, filter );
                 }
             }
-
-            // Deep copy the configuration to avoid any threading issue
-            final List<Dictionary> configs = new ArrayList<>();
-            for (final Dictionary d : cache.values())
+            else
             {
-                if ( d.get( Constants.SERVICE_PID ) != null && ( filter == null || filter.matches( d ) ) )
+                for (final String pid : candidates)
                 {
-                    configs.add( new CaseInsensitiveDictionary( d ) );
+                    addIfMatching( configs, cache.get( pid ), filter );
                 }
             }
             return configs;
@@ -230,6 +329,17 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
     }
 
 
+    private static void addIfMatching( final List<Dictionary> configs,
+            final CaseInsensitiveDictionary d,
+            final SimpleFilter filter )
+    {
+        if ( d != null && d.get( Constants.SERVICE_PID ) != null && ( filter == null || filter.matches( d ) ) )
+        {
+            configs.add( CaseInsensitiveDictionary.unmodifiable( d ) );
+        }
+    }
+
+
     /**
      * Returns the dictionary for the given PID or <code>null</code> if no
      * such dictionary is stored by the underlying persistence manager. This
@@ -289,7 +399,8 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
         {
             lock.lock();
             pm.store( pid, properties );
-            this.cache.remove(pid);
+            this.uncache(pid);
+            this.modified(pid);
             this.cache(properties);
         }
         finally
@@ -302,37 +413,16 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
     public Set<String> getFactoryConfigurationPids(final List<String> targetedFactoryPids )
     throws IOException
     {
+        this.warmUp();
+
         final Set<String> pids = new HashSet<>();
-        Lock lock = globalLock.readLock();
+        final Lock lock = globalLock.readLock();
         try
         {
             lock.lock();
-            if ( !this.fullyLoaded )
-            {
-                lock.unlock();
-                lock = globalLock.writeLock();
-                lock.lock();
-                if ( !this.fullyLoaded )
-                {
-                    final Enumeration fromPm = pm.getDictionaries();
-                    while ( fromPm.hasMoreElements() )
-                    {
-                        Dictionary next = (Dictionary) fromPm.nextElement();
-                        this.cache(next);
-                    }
-                    this.fullyLoaded = true;
-                }
-                lock.unlock();
-                lock = globalLock.readLock();
-                lock.lock();
-            }
             for(final String targetFactoryPid : targetedFactoryPids)
             {
-                final Set<String> cachedPids = this.factoryConfigCache.get(targetFactoryPid);
-                if ( cachedPids != null )
-                {
-                    pids.addAll(cachedPids);
-                }
+                pids.addAll(this.index.get(ConfigurationAdmin.SERVICE_FACTORYPID, targetFactoryPid));
             }
         }
         finally
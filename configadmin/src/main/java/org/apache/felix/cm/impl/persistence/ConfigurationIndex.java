@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl.persistence;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.felix.cm.impl.CaseInsensitiveDictionary;
+import org.apache.felix.cm.impl.SimpleFilter;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+
+/**
+ * The <code>ConfigurationIndex</code> is a secondary index of configuration
+ * PIDs by the values of selected properties. The index always contains the
+ * <code>service.factoryPid</code> and <code>service.bundleLocation</code>
+ * properties.
+ * <p>
+ * Only string values are indexed. Configurations with other values for an
+ * indexed property are recorded separately and are always returned as
+ * candidates, as the filter might convert the value for comparison.
+ * <p>
+ * This class is not thread safe, it is guarded by the lock of the
+ * {@link CachingPersistenceManagerProxy}.
+ */
+class ConfigurationIndex
+{
+
+    /** The index: property name to value to PIDs */
+    private final Map<String, Map<String, Set<String>>> index = new TreeMap<>(
+            CaseInsensitiveDictionary.CASE_INSENSITIVE_ORDER );
+
+    /** PIDs of configurations with a non string value: property name to PIDs */
+    private final Map<String, Set<String>> unindexed = new TreeMap<>(
+            CaseInsensitiveDictionary.CASE_INSENSITIVE_ORDER );
+
+    ConfigurationIndex( final String[] additionalProperties )
+    {
+        this.index.put( ConfigurationAdmin.SERVICE_FACTORYPID, new HashMap<String, Set<String>>() );
+        this.index.put( ConfigurationAdmin.SERVICE_BUNDLELOCATION, new HashMap<String, Set<String>>() );
+        if ( additionalProperties != null )
+        {
+            for ( final String name : additionalProperties )
+            {
+                if ( !this.index.containsKey( name ) )
+                {
+                    this.index.put( name, new HashMap<String, Set<String>>() );
+                }
+            }
+        }
+        for ( final String name : this.index.keySet() )
+        {
+            this.unindexed.put( name, new HashSet<String>() );
+        }
+    }
+
+    /**
+     * Adds the configuration to the index
+     */
+    void add( final String pid, final Dictionary props )
+    {
+        for ( final Map.Entry<String, Map<String, Set<String>>> entry : this.index.entrySet() )
+        {
+            final Object value = props.get( entry.getKey() );
+            if ( value instanceof String )
+            {
+                Set<String> pids = entry.getValue().get( value );
+                if ( pids == null )
+                {
+                    pids = new HashSet<>();
+                    entry.getValue().put( ( String ) value, pids );
+                }
+                pids.add( pid );
+            }
+            else if ( value != null )
+            {
+                this.unindexed.get( entry.getKey() ).add( pid );
+            }
+        }
+    }
+
+    /**
+     * Removes the configuration from the index
+     */
+    void remove( final String pid, final Dictionary props )
+    {
+        for ( final Map.Entry<String, Map<String, Set<String>>> entry : this.index.entrySet() )
+        {
+            final Object value = props.get( entry.getKey() );
+            if ( value instanceof String )
+            {
+                final Set<String> pids = entry.getValue().get( value );
+                if ( pids != null )
+                {
+                    pids.remove( pid );
+                    if ( pids.isEmpty() )
+                    {
+                        entry.getValue().remove( value );
+                    }
+                }
+            }
+            else if ( value != null )
+            {
+                this.unindexed.get( entry.getKey() ).remove( pid );
+            }
+        }
+    }
+
+    /**
+     * Returns the PIDs of the configurations having the given string value
+     * for the indexed property.
+     * @return The PIDs, possibly empty, never <code>null</code>
+     */
+    Set<String> get( final String name, final String value )
+    {
+        final Map<String, Set<String>> values = this.index.get( name );
+        final Set<String> pids = values == null ? null : values.get( value );
+        return pids == null ? Collections.<String>emptySet() : pids;
+    }
+
+    /**
+     * Returns the PIDs of all configurations which might match the filter.
+     * @return The PIDs or <code>null</code> if the index can't be used for
+     *         the filter and all configurations have to be checked
+     */
+    Collection<String> getCandidates( final SimpleFilter filter )
+    {
+        if ( filter == null )
+        {
+            return null;
+        }
+        if ( filter.getOperation() == SimpleFilter.EQ )
+        {
+            return getCandidates( filter.getName(), filter.getValue() );
+        }
+        if ( filter.getOperation() == SimpleFilter.AND )
+        {
+            @SuppressWarnings("unchecked")
+            final List<SimpleFilter> filters = ( List<SimpleFilter> ) filter.getValue();
+            Collection<String> result = null;
+            for ( final SimpleFilter f : filters )
+            {
+                if ( f.getOperation() == SimpleFilter.EQ )
+                {
+                    final Collection<String> candidates = getCandidates( f.getName(), f.getValue() );
+                    if ( candidates != null && ( result == null || candidates.size() < result.size() ) )
+                    {
+                        result = candidates;
+                    }
+                }
+            }
+            return result;
+        }
+        return null;
+    }
+
+    private Collection<String> getCandidates( final String name, final Object value )
+    {
+        final Map<String, Set<String>> values = this.index.get( name );
+        if ( values == null || !( value instanceof String ) )
+        {
+            return null;
+        }
+        final Set<String> pids = values.get( value );
+        final Set<String> others = this.unindexed.get( name );
+        if ( others.isEmpty() )
+        {
+            return pids == null ? Collections.<String>emptySet() : pids;
+        }
+        final Set<String> result = new HashSet<>( others );
+        if ( pids != null )
+        {
+            result.addAll( pids );
+        }
+        return result;
+    }
+}
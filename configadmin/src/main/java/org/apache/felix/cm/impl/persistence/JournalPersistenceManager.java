@@ -0,0 +1,753 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl.persistence;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.apache.felix.cm.PersistenceManager;
+import org.apache.felix.cm.file.ConfigurationHandler;
+import org.apache.felix.cm.impl.Log;
+import org.osgi.framework.Constants;
+import org.osgi.service.log.LogService;
+
+
+/**
+ * The <code>JournalPersistenceManager</code> keeps all configurations in a
+ * single append-only journal file. Each {@link #store(String, Dictionary)}
+ * and {@link #delete(String)} appends a record to the journal, an in-memory
+ * index maps each PID to the offset of its latest record.
+ * <p>
+ * Concurrent modifications are group committed: records of all threads
+ * waiting for a commit are written together and synced to disk once.
+ * <p>
+ * When the journal contains more obsolete than live data, it is compacted
+ * by writing all live records to a new file which atomically replaces the
+ * journal.
+ * <p>
+ * The journal file starts with a header followed by the records. Each record
+ * consists of the length and the CRC32 checksum of the record body followed
+ * by the body: the record type, the PID and, for stored configurations, the
+ * properties in the format of the {@link ConfigurationHandler}. An incomplete
+ * record at the end of the journal, for example after a crash while writing,
+ * is discarded when the journal is opened. A corrupt record followed by other
+ * records is skipped, the journal is not modified in that case.
+ */
+public class JournalPersistenceManager implements PersistenceManager
+{
+
+    /**
+     * The name of this persistence manager when registered in the service
+     * registry (value is "journal").
+     */
+    public static final String PERSISTENCE_MANAGER_NAME = "journal";
+
+    /**
+     * The default name of the journal file (value is "config.journal").
+     */
+    public static final String DEFAULT_JOURNAL_FILE = "config.journal";
+
+    /** The journal header: magic number and format version */
+    private static final int MAGIC = 0x46434d4a; // FCMJ
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_LENGTH = 8;
+
+    /** Length and checksum preceding each record body */
+    private static final int RECORD_HEADER_LENGTH = 8;
+
+    private static final byte TYPE_STORE = 1;
+
+    private static final byte TYPE_DELETE = 2;
+
+    /** Minimum number of obsolete bytes before the journal is compacted */
+    private static final long COMPACTION_THRESHOLD = 64 * 1024;
+
+    /** The journal file */
+    private final File file;
+
+    /** The channel to the journal file */
+    private FileChannel channel;
+
+    /** The offset index: PID to location of the latest store record */
+    private final Map<String, Record> index = new HashMap<>();
+
+    /** The size of the journal, records are appended at this position */
+    private long size;
+
+    /** The number of bytes occupied by live records */
+    private long liveBytes;
+
+    /** The number of commits, each resulting in a single sync */
+    private long commitCount;
+
+    /** Protects the index and the channel: writers append and compact */
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+
+    /** Only one thread commits pending records at a time */
+    private final Lock commitLock = new ReentrantLock();
+
+    /** Records waiting to be committed */
+    private List<Pending> pending = new ArrayList<>();
+
+    /**
+     * Opens the journal in the given file. If the journal does not exist yet
+     * and a persistence manager to migrate from is given, all configurations
+     * of that persistence manager are copied into the new journal.
+     *
+     * @param file The journal file
+     * @param migrateFrom The persistence manager to migrate the configurations
+     *      from if the journal does not exist yet. Might be <code>null</code>.
+     * @throws IOException If the journal cannot be opened or created
+     */
+    public JournalPersistenceManager( final File file, final PersistenceManager migrateFrom ) throws IOException
+    {
+        this.file = file.getAbsoluteFile();
+        final boolean exists = this.file.isFile();
+        if ( !exists )
+        {
+            final File parent = this.file.getParentFile();
+            if ( parent != null && !parent.isDirectory() && !parent.mkdirs() )
+            {
+                throw new IOException( "Cannot create directory " + parent );
+            }
+        }
+        this.channel = openChannel( this.file );
+        if ( exists && this.channel.size() > 0 )
+        {
+            this.readJournal();
+        }
+        else
+        {
+            this.writeHeader( this.channel );
+            this.size = HEADER_LENGTH;
+            if ( migrateFrom != null )
+            {
+                this.migrate( migrateFrom );
+            }
+        }
+    }
+
+    /**
+     * Closes the journal. The persistence manager must not be used afterwards.
+     */
+    public void close()
+    {
+        this.commitLock.lock();
+        try
+        {
+            this.channel.close();
+        }
+        catch ( final IOException ioe )
+        {
+            Log.logger.log( LogService.LOG_WARNING, "Cannot close journal {0}", new Object[] { file, ioe } );
+        }
+        finally
+        {
+            this.commitLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the journal file
+     */
+    public File getFile()
+    {
+        return this.file;
+    }
+
+    /**
+     * Returns the number of commits, each commit syncs the journal once.
+     */
+    long getCommitCount()
+    {
+        return this.commitCount;
+    }
+
+    @Override
+    public boolean exists( final String pid )
+    {
+        final Lock lock = this.indexLock.readLock();
+        lock.lock();
+        try
+        {
+            return this.index.containsKey( pid );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Dictionary load( final String pid ) throws IOException
+    {
+        final Lock lock = this.indexLock.readLock();
+        lock.lock();
+        try
+        {
+            final Record record = this.index.get( pid );
+            if ( record == null )
+            {
+                return null;
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate( record.length );
+            readFully( this.channel, buffer, record.offset );
+            final Entry entry = this.decodeHeader( buffer.array(), 0 );
+            return readProperties( buffer.array(), 0, entry );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns all configurations. The journal is read sequentially once.
+     */
+    @Override
+    public Enumeration getDictionaries() throws IOException
+    {
+        final Lock lock = this.indexLock.readLock();
+        lock.lock();
+        try
+        {
+            final List<Dictionary> configs = new ArrayList<>( this.index.size() );
+            final long length = this.size - HEADER_LENGTH;
+            if ( length > Integer.MAX_VALUE )
+            {
+                throw new IOException( "Journal too large: " + this.file );
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate( ( int ) length );
+            readFully( this.channel, buffer, HEADER_LENGTH );
+            final byte[] data = buffer.array();
+            // only parse the latest record of each PID, in journal order
+            final List<Record> records = new ArrayList<>( this.index.values() );
+            Collections.sort( records, new Comparator<Record>()
+            {
+                @Override
+                public int compare( final Record r1, final Record r2 )
+                {
+                    return Long.compare( r1.offset, r2.offset );
+                }
+            } );
+            for ( final Record record : records )
+            {
+                final int pos = ( int ) ( record.offset - HEADER_LENGTH );
+                configs.add( readProperties( data, pos, this.decodeHeader( data, pos ) ) );
+            }
+            return Collections.enumeration( configs );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void store( final String pid, final Dictionary properties ) throws IOException
+    {
+        final ByteArrayOutputStream props = new ByteArrayOutputStream();
+        ConfigurationHandler.write( props, properties );
+        this.commit( new Pending( pid, encode( TYPE_STORE, pid, props.toByteArray() ) ) );
+    }
+
+    @Override
+    public void delete( final String pid ) throws IOException
+    {
+        this.commit( new Pending( pid, encode( TYPE_DELETE, pid, null ) ) );
+    }
+
+    /**
+     * Appends the record to the journal. If another thread is committing,
+     * this thread waits and the record is committed together with the
+     * records of all other waiting threads.
+     */
+    private void commit( final Pending record ) throws IOException
+    {
+        synchronized ( this )
+        {
+            this.pending.add( record );
+        }
+        this.commitLock.lock();
+        try
+        {
+            if ( !record.done )
+            {
+                final List<Pending> batch;
+                synchronized ( this )
+                {
+                    batch = this.pending;
+                    this.pending = new ArrayList<>();
+                }
+                this.write( batch );
+            }
+        }
+        finally
+        {
+            this.commitLock.unlock();
+        }
+        if ( record.failure != null )
+        {
+            throw new IOException( "Cannot write journal " + this.file, record.failure );
+        }
+    }
+
+    /**
+     * Writes and syncs a batch of records and updates the index.
+     * Must be called holding the commit lock.
+     */
+    private void write( final List<Pending> batch )
+    {
+        try
+        {
+            int total = 0;
+            for ( final Pending p : batch )
+            {
+                total += p.data.length;
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate( total );
+            for ( final Pending p : batch )
+            {
+                buffer.put( p.data );
+            }
+            buffer.flip();
+            final long start = this.size;
+            writeFully( this.channel, buffer, start );
+            this.channel.force( false );
+            this.commitCount++;
+
+            final Lock lock = this.indexLock.writeLock();
+            lock.lock();
+            try
+            {
+                long offset = start;
+                for ( final Pending p : batch )
+                {
+                    this.apply( p.data[RECORD_HEADER_LENGTH], p.pid, offset, p.data.length );
+                    offset += p.data.length;
+                }
+                this.size = offset;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+        catch ( final IOException ioe )
+        {
+            for ( final Pending p : batch )
+            {
+                p.failure = ioe;
+            }
+        }
+        finally
+        {
+            for ( final Pending p : batch )
+            {
+                p.done = true;
+            }
+        }
+
+        try
+        {
+            this.compactIfNeeded();
+        }
+        catch ( final IOException ioe )
+        {
+            Log.logger.log( LogService.LOG_WARNING, "Cannot compact journal {0}", new Object[] { this.file, ioe } );
+        }
+    }
+
+    /**
+     * Updates the index for a record. Must be called holding the index write lock.
+     */
+    private void apply( final byte type, final String pid, final long offset, final int length )
+    {
+        final Record old = this.index.remove( pid );
+        if ( old != null )
+        {
+            this.liveBytes -= old.length;
+        }
+        if ( type == TYPE_STORE )
+        {
+            this.index.put( pid, new Record( offset, length ) );
+            this.liveBytes += length;
+        }
+    }
+
+    private void compactIfNeeded() throws IOException
+    {
+        final long obsolete = this.size - HEADER_LENGTH - this.liveBytes;
+        if ( obsolete > COMPACTION_THRESHOLD && obsolete > this.liveBytes )
+        {
+            this.compact();
+        }
+    }
+
+    /**
+     * Writes all live records into a new journal which replaces the current
+     * journal. Must be called holding the commit lock.
+     */
+    void compact() throws IOException
+    {
+        final Lock lock = this.indexLock.writeLock();
+        lock.lock();
+        try
+        {
+            final File tmpFile = new File( this.file.getPath() + ".tmp" );
+            final Map<String, Record> newIndex = new HashMap<>();
+            final FileChannel tmp = openChannel( tmpFile );
+            long pos = HEADER_LENGTH;
+            try
+            {
+                tmp.truncate( 0 );
+                this.writeHeader( tmp );
+                for ( final Map.Entry<String, Record> entry : this.index.entrySet() )
+                {
+                    final Record record = entry.getValue();
+                    final ByteBuffer buffer = ByteBuffer.allocate( record.length );
+                    readFully( this.channel, buffer, record.offset );
+                    buffer.flip();
+                    writeFully( tmp, buffer, pos );
+                    newIndex.put( entry.getKey(), new Record( pos, record.length ) );
+                    pos += record.length;
+                }
+                tmp.force( true );
+            }
+            finally
+            {
+                tmp.close();
+            }
+
+            // the current journal and its channel are kept if it cannot be replaced
+            try
+            {
+                Files.move( tmpFile.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING );
+            }
+            catch ( final IOException ioe )
+            {
+                if ( !tmpFile.delete() )
+                {
+                    tmpFile.deleteOnExit();
+                }
+                throw ioe;
+            }
+            final FileChannel old = this.channel;
+            this.channel = openChannel( this.file );
+            try
+            {
+                old.close();
+            }
+            catch ( final IOException ioe )
+            {
+                Log.logger.log( LogService.LOG_DEBUG, "Cannot close replaced journal {0}", new Object[] { this.file, ioe } );
+            }
+            this.index.clear();
+            this.index.putAll( newIndex );
+            this.size = pos;
+            Log.logger.log( LogService.LOG_DEBUG, "Compacted journal {0} to {1} configurations", new Object[]
+                { this.file, newIndex.size() } );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the journal sequentially to build the index. An incomplete record
+     * at the end of the journal is truncated, corrupt records followed by
+     * other records are skipped without modifying the journal.
+     */
+    private void readJournal() throws IOException
+    {
+        final long fileSize = this.channel.size();
+        if ( fileSize > Integer.MAX_VALUE )
+        {
+            throw new IOException( "Journal too large: " + this.file );
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate( ( int ) fileSize );
+        readFully( this.channel, buffer, 0 );
+        final byte[] data = buffer.array();
+        if ( data.length < HEADER_LENGTH || readInt( data, 0 ) != MAGIC )
+        {
+            throw new IOException( "Not a configuration journal: " + this.file );
+        }
+        if ( readInt( data, 4 ) != VERSION )
+        {
+            throw new IOException( "Unsupported journal version " + readInt( data, 4 ) + ": " + this.file );
+        }
+        int pos = HEADER_LENGTH;
+        boolean skipped = false;
+        while ( pos < data.length )
+        {
+            final int remaining = data.length - pos;
+            if ( remaining < RECORD_HEADER_LENGTH || readInt( data, pos ) > remaining - RECORD_HEADER_LENGTH )
+            {
+                // the record runs past the end of the journal: torn write
+                if ( skipped )
+                {
+                    // the length of a skipped record might have been wrong, do not guess
+                    throw new IOException( "Corrupt journal " + this.file + ": incomplete record at offset " + pos
+                        + " following corrupt records" );
+                }
+                Log.logger.log( LogService.LOG_WARNING, "Discarding incomplete record at offset {0} of journal {1}",
+                    new Object[] { pos, this.file } );
+                this.channel.truncate( pos );
+                this.channel.force( true );
+                break;
+            }
+            final Entry entry;
+            try
+            {
+                entry = this.decodeHeader( data, pos );
+            }
+            catch ( final IOException ioe )
+            {
+                final int bodyLength = readInt( data, pos );
+                if ( bodyLength < 3 )
+                {
+                    throw new IOException( "Corrupt journal " + this.file + ": invalid record at offset " + pos, ioe );
+                }
+                Log.logger.log( LogService.LOG_WARNING, "Skipping corrupt record at offset {0} of journal {1}",
+                    new Object[] { pos, this.file, ioe } );
+                skipped = true;
+                pos += RECORD_HEADER_LENGTH + bodyLength;
+                continue;
+            }
+            this.apply( entry.type, entry.pid, pos, entry.length );
+            pos += entry.length;
+        }
+        this.size = pos;
+    }
+
+    private void migrate( final PersistenceManager source ) throws IOException
+    {
+        final List<Pending> batch = new ArrayList<>();
+        final Enumeration configs = source.getDictionaries();
+        while ( configs.hasMoreElements() )
+        {
+            final Dictionary props = ( Dictionary ) configs.nextElement();
+            final Object pid = props.get( Constants.SERVICE_PID );
+            if ( pid instanceof String )
+            {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ConfigurationHandler.write( out, props );
+                batch.add( new Pending( ( String ) pid, encode( TYPE_STORE, ( String ) pid, out.toByteArray() ) ) );
+            }
+        }
+        if ( !batch.isEmpty() )
+        {
+            this.commitLock.lock();
+            try
+            {
+                this.write( batch );
+            }
+            finally
+            {
+                this.commitLock.unlock();
+            }
+            if ( batch.get( 0 ).failure != null )
+            {
+                throw batch.get( 0 ).failure;
+            }
+            Log.logger.log( LogService.LOG_INFO, "Migrated {0} configurations to journal {1}", new Object[]
+                { batch.size(), this.file } );
+        }
+    }
+
+    private void writeHeader( final FileChannel target ) throws IOException
+    {
+        final ByteBuffer header = ByteBuffer.allocate( HEADER_LENGTH );
+        header.putInt( MAGIC ).putInt( VERSION ).flip();
+        writeFully( target, header, 0 );
+        target.force( true );
+    }
+
+    private static byte[] encode( final byte type, final String pid, final byte[] properties ) throws IOException
+    {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream( body );
+        out.writeInt( 0 );
+        out.writeInt( 0 );
+        out.writeByte( type );
+        out.writeUTF( pid );
+        if ( properties != null )
+        {
+            out.write( properties );
+        }
+        out.flush();
+        final byte[] data = body.toByteArray();
+        final CRC32 crc = new CRC32();
+        crc.update( data, RECORD_HEADER_LENGTH, data.length - RECORD_HEADER_LENGTH );
+        final ByteBuffer header = ByteBuffer.wrap( data );
+        header.putInt( data.length - RECORD_HEADER_LENGTH );
+        header.putInt( ( int ) crc.getValue() );
+        return data;
+    }
+
+    /**
+     * Decodes and verifies type and PID of the record at the position
+     */
+    private Entry decodeHeader( final byte[] data, final int pos ) throws IOException
+    {
+        if ( data.length - pos < RECORD_HEADER_LENGTH )
+        {
+            throw new EOFException( "Incomplete record header" );
+        }
+        final int bodyLength = readInt( data, pos );
+        if ( bodyLength < 3 )
+        {
+            throw new IOException( "Invalid record length " + bodyLength );
+        }
+        if ( bodyLength > data.length - pos - RECORD_HEADER_LENGTH )
+        {
+            throw new EOFException( "Incomplete record" );
+        }
+        final CRC32 crc = new CRC32();
+        crc.update( data, pos + RECORD_HEADER_LENGTH, bodyLength );
+        if ( ( int ) crc.getValue() != readInt( data, pos + 4 ) )
+        {
+            throw new IOException( "Checksum mismatch" );
+        }
+        final DataInputStream in = new DataInputStream(
+            new ByteArrayInputStream( data, pos + RECORD_HEADER_LENGTH, bodyLength ) );
+        final Entry entry = new Entry();
+        entry.type = in.readByte();
+        if ( entry.type != TYPE_STORE && entry.type != TYPE_DELETE )
+        {
+            throw new IOException( "Unknown record type " + entry.type );
+        }
+        entry.pid = in.readUTF();
+        entry.length = RECORD_HEADER_LENGTH + bodyLength;
+        entry.propertiesOffset = pos + entry.length - in.available();
+        return entry;
+    }
+
+    private static Dictionary readProperties( final byte[] data, final int pos, final Entry entry ) throws IOException
+    {
+        return ConfigurationHandler.read( new ByteArrayInputStream( data, entry.propertiesOffset,
+            pos + entry.length - entry.propertiesOffset ) );
+    }
+
+    private static int readInt( final byte[] data, final int pos )
+    {
+        return ( ( data[pos] & 0xff ) << 24 ) | ( ( data[pos + 1] & 0xff ) << 16 ) | ( ( data[pos + 2] & 0xff ) << 8 )
+            | ( data[pos + 3] & 0xff );
+    }
+
+    private static FileChannel openChannel( final File file ) throws IOException
+    {
+        return new RandomAccessFile( file, "rw" ).getChannel();
+    }
+
+    private static void readFully( final FileChannel channel, final ByteBuffer buffer, long position )
+        throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            final int read = channel.read( buffer, position );
+            if ( read < 0 )
+            {
+                throw new EOFException( "Unexpected end of journal" );
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully( final FileChannel channel, final ByteBuffer buffer, long position )
+        throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            position += channel.write( buffer, position );
+        }
+    }
+
+    /** Location of a record in the journal */
+    private static final class Record
+    {
+        final long offset;
+
+        final int length;
+
+        Record( final long offset, final int length )
+        {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /** A record waiting to be committed */
+    private static final class Pending
+    {
+        final String pid;
+
+        final byte[] data;
+
+        volatile boolean done;
+
+        volatile IOException failure;
+
+        Pending( final String pid, final byte[] data )
+        {
+            this.pid = pid;
+            this.data = data;
+        }
+    }
+
+    /** A decoded record */
+    private static final class Entry
+    {
+        byte type;
+
+        String pid;
+
+        int length;
+
+        int propertiesOffset;
+    }
+}
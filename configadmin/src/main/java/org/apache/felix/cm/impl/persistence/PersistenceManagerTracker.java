@@ -55,13 +55,18 @@ public class PersistenceManagerTracker
 
     private final ConfigurationAdminStarter starter;
 
+    /** Additional properties to index, might be null */
+    private final String[] indexedProperties;
+
     public PersistenceManagerTracker(final BundleContext bundleContext,
             final ActivatorWorkerQueue workerQueue,
             final ConfigurationAdminStarter starter,
-            final String pmName)
+            final String pmName,
+            final String[] indexedProperties)
             throws BundleException, InvalidSyntaxException
     {
         this.workerQueue = workerQueue;
+        this.indexedProperties = indexedProperties;
         this.starter = starter;
         this.bundleContext = bundleContext;
         this.persistenceManagerTracker = new ServiceTracker<>(bundleContext,
@@ -78,16 +83,17 @@ public class PersistenceManagerTracker
         this.persistenceManagerTracker.close();
     }
 
-    public static ExtPersistenceManager createPersistenceManagerProxy(final PersistenceManager pm)
+    public static ExtPersistenceManager createPersistenceManagerProxy(final PersistenceManager pm,
+            final String[] indexedProperties)
     {
         final ExtPersistenceManager extPM;
         if ( pm instanceof NotCachablePersistenceManager )
         {
-            extPM = new PersistenceManagerProxy( pm );
+            extPM = new PersistenceManagerProxy( new TimedPersistenceManager( pm ) );
         }
         else
         {
-            extPM = new CachingPersistenceManagerProxy( pm );
+            extPM = new CachingPersistenceManagerProxy( new TimedPersistenceManager( pm ), indexedProperties );
         }
         return extPM;
     }
@@ -98,7 +104,7 @@ public class PersistenceManagerTracker
         final PersistenceManager pm = this.bundleContext.getService(reference);
         if ( pm != null )
         {
-            final ExtPersistenceManager extPM = createPersistenceManagerProxy(pm);
+            final ExtPersistenceManager extPM = createPersistenceManagerProxy(pm, this.indexedProperties);
             final Holder holder = new Holder(reference, extPM);
 
             synchronized ( this.holders )
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl.persistence;
+
+import java.io.IOException;
+import java.util.Dictionary;
+import java.util.Enumeration;
+
+import org.apache.felix.cm.ConfigurationAdminMetrics;
+import org.apache.felix.cm.PersistenceManager;
+import org.apache.felix.cm.impl.Metrics;
+
+
+/**
+ * The <code>TimedPersistenceManager</code> records the duration of the
+ * calls to the actual {@link PersistenceManager} in the
+ * {@link ConfigurationAdminMetrics#CATEGORY_PERSISTENCE persistence}
+ * category of the {@link Metrics}, named by the called method.
+ */
+class TimedPersistenceManager implements PersistenceManager
+{
+
+    private final PersistenceManager pm;
+
+    TimedPersistenceManager( final PersistenceManager pm )
+    {
+        this.pm = pm;
+    }
+
+    @Override
+    public boolean exists( final String pid )
+    {
+        final long start = System.nanoTime();
+        try
+        {
+            return pm.exists( pid );
+        }
+        finally
+        {
+            record( "exists", start );
+        }
+    }
+
+    @Override
+    public Dictionary load( final String pid ) throws IOException
+    {
+        final long start = System.nanoTime();
+        try
+        {
+            return pm.load( pid );
+        }
+        finally
+        {
+            record( "load", start );
+        }
+    }
+
+    /**
+     * Returns the dictionaries of the persistence manager. The time spent
+     * iterating the enumeration is added to the time of the call and
+     * recorded once the enumeration is exhausted.
+     */
+    @Override
+    public Enumeration getDictionaries() throws IOException
+    {
+        final long start = System.nanoTime();
+        final Enumeration dictionaries;
+        try
+        {
+            dictionaries = pm.getDictionaries();
+        }
+        catch ( final IOException | RuntimeException e )
+        {
+            record( "getDictionaries", start );
+            throw e;
+        }
+        final long elapsed = System.nanoTime() - start;
+        return new Enumeration()
+        {
+            private long iterating;
+
+            private boolean recorded;
+
+            @Override
+            public boolean hasMoreElements()
+            {
+                final long start = System.nanoTime();
+                final boolean hasMore = dictionaries.hasMoreElements();
+                iterating += System.nanoTime() - start;
+                if ( !hasMore && !recorded )
+                {
+                    recorded = true;
+                    Metrics.metrics.record( ConfigurationAdminMetrics.CATEGORY_PERSISTENCE, "getDictionaries",
+                        elapsed + iterating );
+                }
+                return hasMore;
+            }
+
+            @Override
+            public Object nextElement()
+            {
+                final long start = System.nanoTime();
+                try
+                {
+                    return dictionaries.nextElement();
+                }
+                finally
+                {
+                    iterating += System.nanoTime() - start;
+                }
+            }
+        };
+    }
+
+    @Override
+    public void store( final String pid, final Dictionary properties ) throws IOException
+    {
+        final long start = System.nanoTime();
+        try
+        {
+            pm.store( pid, properties );
+        }
+        finally
+        {
+            record( "store", start );
+        }
+    }
+
+    @Override
+    public void delete( final String pid ) throws IOException
+    {
+        final long start = System.nanoTime();
+        try
+        {
+            pm.delete( pid );
+        }
+        finally
+        {
+            record( "delete", start );
+        }
+    }
+
+    private static void record( final String method, final long start )
+    {
+        Metrics.metrics.recordSince( ConfigurationAdminMetrics.CATEGORY_PERSISTENCE, method, start );
+    }
+}
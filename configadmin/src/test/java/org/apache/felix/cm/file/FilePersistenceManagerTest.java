@@ -27,6 +27,7 @@ import static org.junit.Assert.assertTrue;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
@@ -305,6 +306,47 @@ public class FilePersistenceManagerTest
         }
     }
 
+    @Test
+    public void testGetDictionaries() throws IOException
+    {
+        // enough configurations to be loaded in parallel
+        final int count = 200;
+        for ( int i = 0; i < count; i++ )
+        {
+            Dictionary<String, Object> props = new Hashtable<>();
+            props.put( "service.pid", "pid-" + i );
+            props.put( "index", i );
+            fpm.store( "pid-" + i, props );
+        }
+
+        // temporary and broken files are ignored
+        FileWriter writer = new FileWriter( new File( file, "pid-x.config.tmp" ) );
+        writer.write( "service.pid=\"pid-x\"\n" );
+        writer.close();
+        writer = new FileWriter( new File( file, "broken.config" ) );
+        writer.write( "missing equals sign\n" );
+        writer.close();
+
+        final boolean[] found = new boolean[count];
+        int loaded = 0;
+        for ( Enumeration<?> e = fpm.getDictionaries(); e.hasMoreElements(); )
+        {
+            Dictionary<?, ?> dict = ( Dictionary<?, ?> ) e.nextElement();
+            if ( dict.get( "index" ) == null )
+            {
+                // left over by other tests in nested directories
+                continue;
+            }
+            int index = ( ( Integer ) dict.get( "index" ) ).intValue();
+            assertEquals( "pid-" + index, dict.get( "service.pid" ) );
+            assertFalse( found[index] );
+            found[index] = true;
+            loaded++;
+        }
+        assertEquals( count, loaded );
+    }
+
+
     private void check( String name, Object value ) throws IOException
     {
         Dictionary<String, Object> props = new Hashtable<>();
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl;
+
+
+import java.util.List;
+
+import org.apache.felix.cm.ConfigurationAdminMetrics;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class MetricsTest
+{
+
+    @Test
+    public void testRecord() {
+        final Metrics metrics = new Metrics();
+        metrics.record("plugin", "fast", 10);
+        metrics.record("plugin", "slow", 100);
+        metrics.record("plugin", "slow", 300);
+        metrics.record("delivery", "service", 5);
+
+        final List<ConfigurationAdminMetrics.Timer> timers = metrics.getTimers("plugin");
+        assertEquals(2, timers.size());
+        assertEquals("slow", timers.get(0).getName());
+        assertEquals(2, timers.get(0).getCount());
+        assertEquals(400, timers.get(0).getTotalNanos());
+        assertEquals(300, timers.get(0).getMaxNanos());
+        assertEquals("fast", timers.get(1).getName());
+
+        assertEquals(1, metrics.getTimers("delivery").size());
+        assertTrue(metrics.getTimers("queue").isEmpty());
+
+        metrics.reset();
+        assertTrue(metrics.getTimers("plugin").isEmpty());
+    }
+
+    @Test
+    public void testTimersAreBounded() {
+        final Metrics metrics = new Metrics();
+        for (int i = 0; i < Metrics.MAX_TIMERS + 10; i++) {
+            metrics.record("delivery", "service" + i, 1);
+        }
+        final List<ConfigurationAdminMetrics.Timer> timers = metrics.getTimers("delivery");
+        assertEquals(Metrics.MAX_TIMERS + 1, timers.size());
+        // the overflow is accounted to the other timer
+        assertEquals(Metrics.OTHER, timers.get(0).getName());
+        assertEquals(10, timers.get(0).getCount());
+    }
+}
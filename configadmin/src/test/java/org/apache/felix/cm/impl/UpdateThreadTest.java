@@ -19,11 +19,19 @@
 package org.apache.felix.cm.impl;
 
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 
@@ -50,4 +58,255 @@ public class UpdateThreadTest
             updateThread.terminate();
         }
     }
+
+    @Test
+    public void testUnrelatedKeysRunConcurrently() throws Exception {
+        final UpdateThread updateThread = new UpdateThread(null, "name", 4);
+        updateThread.start();
+        try {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch other = new CountDownLatch(1);
+            updateThread.schedule(new Task("a") {
+                @Override
+                public void run() {
+                    blocked.countDown();
+                    await(release);
+                }
+            });
+            updateThread.schedule(new Task("b") {
+                @Override
+                public void run() {
+                    other.countDown();
+                }
+            });
+
+            assertTrue(blocked.await(1L, TimeUnit.MINUTES));
+            // b is delivered while a is still blocked
+            assertTrue(other.await(1L, TimeUnit.MINUTES));
+            // b is only done after its latch has been counted down
+            final long end = System.currentTimeMillis() + 60000L;
+            while (updateThread.getActiveCount() > 1 && System.currentTimeMillis() < end) {
+                Thread.sleep(10L);
+            }
+            assertEquals(1, updateThread.getActiveCount());
+            release.countDown();
+        } finally {
+            updateThread.terminate();
+        }
+    }
+
+    @Test
+    public void testSameKeyKeepsOrder() throws Exception {
+        final UpdateThread updateThread = new UpdateThread(null, "name", 4);
+        updateThread.start();
+        try {
+            final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+            final CountDownLatch done = new CountDownLatch(COUNT);
+            for (int i = 0; i < COUNT; ++i) {
+                final int index = i;
+                // alternate between a task for the PID only and one also
+                // targeting a service to have overlapping key sets
+                final String[] keys = (i % 2 == 0) ? new String[] {"pid"} : new String[] {"pid", "service:1"};
+                updateThread.schedule(new Task(keys) {
+                    @Override
+                    public void run() {
+                        order.add(index);
+                        done.countDown();
+                    }
+                });
+            }
+            assertTrue(done.await(1L, TimeUnit.MINUTES));
+            for (int i = 0; i < COUNT; ++i) {
+                assertEquals(Integer.valueOf(i), order.get(i));
+            }
+        } finally {
+            updateThread.terminate();
+        }
+    }
+
+    @Test
+    public void testUnorderedTaskIsExclusive() throws Exception {
+        final UpdateThread updateThread = new UpdateThread(null, "name", 4);
+        updateThread.start();
+        try {
+            final AtomicInteger running = new AtomicInteger();
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(2);
+            final boolean[] exclusive = new boolean[1];
+            updateThread.schedule(new Task("a") {
+                @Override
+                public void run() {
+                    running.incrementAndGet();
+                    await(release);
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+            updateThread.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    exclusive[0] = running.get() == 0;
+                    done.countDown();
+                }
+            });
+
+            // the second task must wait for the first one
+            assertFalse(done.await(200L, TimeUnit.MILLISECONDS));
+            assertEquals(1, updateThread.getQueueSize());
+            release.countDown();
+            assertTrue(done.await(1L, TimeUnit.MINUTES));
+            assertTrue(exclusive[0]);
+        } finally {
+            updateThread.terminate();
+        }
+    }
+
+    @Test
+    public void testCoalescingStress() throws Exception {
+        final int pids = 10;
+        final int producers = 4;
+        final int updates = 2500;
+
+        final UpdateThread updateThread = new UpdateThread(null, "name", 4);
+        updateThread.start();
+        try {
+            final AtomicInteger calls = new AtomicInteger();
+            final Map<String, Integer> delivered = new ConcurrentHashMap<String, Integer>();
+
+            // producers push successive revisions for a set of PIDs, as
+            // a file installer rescanning its directory would do
+            final CountDownLatch produced = new CountDownLatch(producers);
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                new Thread() {
+                    @Override
+                    public void run() {
+                        for (int revision = 1; revision <= updates; revision++) {
+                            for (int i = producer; i < pids; i += producers) {
+                                updateThread.schedule(new Update("pid" + i, revision, calls, delivered));
+                            }
+                        }
+                        produced.countDown();
+                    }
+                }.start();
+            }
+            assertTrue(produced.await(1L, TimeUnit.MINUTES));
+
+            // wait for the queue to drain
+            final long end = System.currentTimeMillis() + 60000;
+            while ((updateThread.getQueueSize() > 0 || updateThread.getActiveCount() > 0)
+                && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+
+            // every PID has received its last revision ...
+            for (int i = 0; i < pids; i++) {
+                assertEquals(Integer.valueOf(updates), delivered.get("pid" + i));
+            }
+            // ... with far less calls than updates scheduled
+            final int scheduled = pids * updates;
+            assertEquals(scheduled, calls.get() + updateThread.getCoalescedCount());
+            assertTrue("Expected coalescing of " + scheduled + " updates, got " + calls.get() + " calls",
+                calls.get() < scheduled / 2);
+        } finally {
+            updateThread.terminate();
+        }
+    }
+
+    @Test
+    public void testRunningTaskNotCoalesced() throws Exception {
+        final UpdateThread updateThread = new UpdateThread(null, "name");
+        updateThread.start();
+        try {
+            final AtomicInteger calls = new AtomicInteger();
+            final Map<String, Integer> delivered = new ConcurrentHashMap<String, Integer>();
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            updateThread.schedule(new Update("pid", 1, calls, delivered) {
+                @Override
+                public void run() {
+                    started.countDown();
+                    await(release);
+                    super.run();
+                }
+            });
+            assertTrue(started.await(1L, TimeUnit.MINUTES));
+
+            // the running update is delivered, of the queued ones only the last
+            for (int revision = 2; revision <= 5; revision++) {
+                updateThread.schedule(new Update("pid", revision, calls, delivered));
+            }
+            assertEquals(1, updateThread.getQueueSize());
+            assertEquals(3, updateThread.getCoalescedCount());
+
+            final CountDownLatch done = new CountDownLatch(1);
+            updateThread.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            release.countDown();
+            assertTrue(done.await(1L, TimeUnit.MINUTES));
+            assertEquals(2, calls.get());
+            assertEquals(Integer.valueOf(5), delivered.get("pid"));
+        } finally {
+            updateThread.terminate();
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(1L, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private abstract static class Task implements UpdateThread.OrderedTask {
+        private final String[] keys;
+
+        Task(final String... keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public String[] getOrderingKeys() {
+            return keys;
+        }
+    }
+
+    private static class Update extends Task implements UpdateThread.CoalescingTask {
+        private final String pid;
+        private final int revision;
+        private final AtomicInteger calls;
+        private final Map<String, Integer> delivered;
+
+        Update(final String pid, final int revision, final AtomicInteger calls, final Map<String, Integer> delivered) {
+            super(pid);
+            this.pid = pid;
+            this.revision = revision;
+            this.calls = calls;
+            this.delivered = delivered;
+        }
+
+        @Override
+        public String getCoalescingKey() {
+            return pid;
+        }
+
+        @Override
+        public void run() {
+            calls.incrementAndGet();
+            // simulate a ManagedService taking some time to apply the update
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final Integer previous = delivered.put(pid, revision);
+            assertTrue(previous == null || previous < revision);
+        }
+    }
 }
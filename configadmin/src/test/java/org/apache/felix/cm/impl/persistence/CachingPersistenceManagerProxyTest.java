@@ -23,9 +23,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Dictionary;
+import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Set;
 
@@ -178,4 +180,95 @@ public class CachingPersistenceManagerProxyTest
         assertTrue(pids.contains("new_pid_for_newf1"));
         assertTrue(pids.contains("new_pid_for_newf2"));
     }
-}
\ No newline at end of file
+
+    @Test public void testIndexedQueries() throws Exception
+    {
+        final PersistenceManager pm = this.createAndPopulatePersistenceManager();
+        final Dictionary<String, Object> dict = createConfiguration("tenant-pid", FACTORY_PID_A);
+        dict.put("tenant", "42");
+        pm.store("tenant-pid", dict);
+        final Dictionary<String, Object> other = createConfiguration("tenant-int-pid", FACTORY_PID_A);
+        other.put("tenant", 42);
+        pm.store("tenant-int-pid", other);
+
+        final CachingPersistenceManagerProxy cpm = new CachingPersistenceManagerProxy(pm, new String[] {"tenant"});
+
+        assertEquals(5, cpm.getDictionaries(SimpleFilter.parse("(service.factoryPid=" + FACTORY_PID_A + ")")).size());
+        assertEquals(2, cpm.getDictionaries(SimpleFilter.parse("(SERVICE.FACTORYPID=" + FACTORY_PID_B + ")")).size());
+        assertEquals(0, cpm.getDictionaries(SimpleFilter.parse("(service.factoryPid=unknown)")).size());
+
+        // string and converted values match
+        assertEquals(2, cpm.getDictionaries(SimpleFilter.parse("(tenant=42)")).size());
+        assertEquals(1, cpm.getDictionaries(SimpleFilter.parse("(&(tenant=42)(service.pid=tenant-pid))")).size());
+
+        // non indexed filters
+        assertEquals(3, cpm.getDictionaries(SimpleFilter.parse("(|(service.pid=" + PID_A + ")(service.factoryPid=" + FACTORY_PID_B + "))")).size());
+
+        // index is updated on store and delete
+        cpm.store(FB_PID_A, createConfiguration(FB_PID_A, FACTORY_PID_A));
+        cpm.delete("tenant-int-pid");
+        assertEquals(5, cpm.getDictionaries(SimpleFilter.parse("(service.factoryPid=" + FACTORY_PID_A + ")")).size());
+        assertEquals(1, cpm.getDictionaries(SimpleFilter.parse("(service.factoryPid=" + FACTORY_PID_B + ")")).size());
+        assertEquals(1, cpm.getDictionaries(SimpleFilter.parse("(tenant=42)")).size());
+    }
+
+    @Test public void testSnapshotsAreImmutable() throws Exception
+    {
+        final CachingPersistenceManagerProxy cpm = new CachingPersistenceManagerProxy(this.createAndPopulatePersistenceManager());
+        final Dictionary dict = cpm.getDictionaries(SimpleFilter.parse("(service.pid=" + PID_A + ")")).iterator().next();
+        assertEquals(PREFIX + PID_A, dict.get("value"));
+        dict.put("value", "changed");
+        dict.remove(Constants.SERVICE_PID);
+
+        final Dictionary cached = cpm.getDictionaries(SimpleFilter.parse("(service.pid=" + PID_A + ")")).iterator().next();
+        assertEquals(PREFIX + PID_A, cached.get("value"));
+        assertEquals(PREFIX + PID_A, cpm.load(PID_A).get("value"));
+    }
+
+    @Test public void testWarmUpKeepsConcurrentModifications() throws Exception
+    {
+        final CachingPersistenceManagerProxy[] holder = new CachingPersistenceManagerProxy[1];
+        final PersistenceManager pm = new MockPersistenceManager()
+        {
+            @Override
+            public Enumeration getDictionaries()
+            {
+                // take the state before modifying the configurations
+                // as if they were modified while the files are read
+                final Enumeration loaded = Collections.enumeration(Collections.list(super.getDictionaries()));
+                try
+                {
+                    final Dictionary<String, Object> changed = createConfiguration(PID_A, null);
+                    changed.put("value", "changed");
+                    holder[0].store(PID_A, changed);
+                    holder[0].delete(PID_B);
+                }
+                catch ( final IOException ioe )
+                {
+                    throw new IllegalStateException(ioe);
+                }
+                return loaded;
+            }
+        };
+        pm.store(PID_A, createConfiguration(PID_A, null));
+        pm.store(PID_B, createConfiguration(PID_B, null));
+        pm.store(PID_C, createConfiguration(PID_C, null));
+
+        final CachingPersistenceManagerProxy cpm = new CachingPersistenceManagerProxy(pm);
+        holder[0] = cpm;
+        cpm.warmUp();
+
+        final Collection<Dictionary> all = cpm.getDictionaries((SimpleFilter) null);
+        assertEquals(2, all.size());
+        assertEquals("changed", cpm.load(PID_A).get("value"));
+        assertFalse(cpm.exists(PID_B));
+        assertEquals(PREFIX + PID_C, cpm.load(PID_C).get("value"));
+        final Collection<Object> pids = new ArrayList<>();
+        for ( final Dictionary d : all )
+        {
+            pids.add(d.get(Constants.SERVICE_PID));
+        }
+        assertTrue(pids.contains(PID_A));
+        assertTrue(pids.contains(PID_C));
+    }
+}
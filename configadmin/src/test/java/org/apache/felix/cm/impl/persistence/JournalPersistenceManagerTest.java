@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.felix.cm.file.FilePersistenceManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.framework.Constants;
+
+
+public class JournalPersistenceManagerTest
+{
+    private static final String PID_A = "foo.a";
+    private static final String PID_B = "foo.b";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Dictionary<String, Object> createConfiguration(final String pid, final Object value)
+    {
+        final Dictionary<String, Object> dict = new Hashtable<>();
+        dict.put(Constants.SERVICE_PID, pid);
+        dict.put("value", value);
+        return dict;
+    }
+
+    private JournalPersistenceManager open(final File file) throws IOException
+    {
+        return new JournalPersistenceManager(file, null);
+    }
+
+    @Test public void testStoreLoadDelete() throws Exception
+    {
+        final JournalPersistenceManager pm = open(new File(folder.getRoot(), "config.journal"));
+        assertFalse(pm.exists(PID_A));
+        assertNull(pm.load(PID_A));
+
+        pm.store(PID_A, createConfiguration(PID_A, "a1"));
+        pm.store(PID_B, createConfiguration(PID_B, new int[] {1, 2}));
+        pm.store(PID_A, createConfiguration(PID_A, "a2"));
+
+        assertTrue(pm.exists(PID_A));
+        assertEquals("a2", pm.load(PID_A).get("value"));
+        assertEquals(2, ((int[]) pm.load(PID_B).get("value")).length);
+        assertEquals(2, Collections.list(pm.getDictionaries()).size());
+
+        pm.delete(PID_A);
+        assertFalse(pm.exists(PID_A));
+        assertNull(pm.load(PID_A));
+        assertEquals(1, Collections.list(pm.getDictionaries()).size());
+        pm.close();
+    }
+
+    @Test public void testReopen() throws Exception
+    {
+        final File file = new File(folder.getRoot(), "config.journal");
+        JournalPersistenceManager pm = open(file);
+        pm.store(PID_A, createConfiguration(PID_A, "a1"));
+        pm.store(PID_B, createConfiguration(PID_B, 5L));
+        pm.store(PID_A, createConfiguration(PID_A, "a2"));
+        pm.delete(PID_B);
+        pm.close();
+
+        pm = open(file);
+        assertTrue(pm.exists(PID_A));
+        assertFalse(pm.exists(PID_B));
+        assertEquals("a2", pm.load(PID_A).get("value"));
+        final List<?> dicts = Collections.list(pm.getDictionaries());
+        assertEquals(1, dicts.size());
+        assertEquals("a2", ((Dictionary<?, ?>) dicts.get(0)).get("value"));
+        pm.close();
+    }
+
+    @Test public void testCorruptTailIsDiscarded() throws Exception
+    {
+        final File file = new File(folder.getRoot(), "config.journal");
+        JournalPersistenceManager pm = open(file);
+        pm.store(PID_A, createConfiguration(PID_A, "a1"));
+        pm.store(PID_B, createConfiguration(PID_B, "b1"));
+        pm.close();
+
+        // simulate a crash while writing the last record
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        pm = open(file);
+        assertTrue(pm.exists(PID_A));
+        assertFalse(pm.exists(PID_B));
+
+        // the journal is usable after the recovery
+        pm.store(PID_B, createConfiguration(PID_B, "b2"));
+        pm.close();
+        pm = open(file);
+        assertEquals("b2", pm.load(PID_B).get("value"));
+        pm.close();
+    }
+
+    @Test public void testCorruptRecordIsSkipped() throws Exception
+    {
+        final File file = new File(folder.getRoot(), "config.journal");
+        JournalPersistenceManager pm = open(file);
+        pm.store(PID_A, createConfiguration(PID_A, "a1"));
+        final long offset = file.length();
+        pm.store(PID_B, createConfiguration(PID_B, "b1"));
+        pm.store(PID_A, createConfiguration(PID_A, "a2"));
+        pm.close();
+        final long length = file.length();
+
+        // flip a byte in the body of the second record
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(offset + 10);
+        final int b = raf.read();
+        raf.seek(offset + 10);
+        raf.write(b ^ 0xff);
+        raf.close();
+
+        pm = open(file);
+        assertFalse(pm.exists(PID_B));
+        assertEquals("a2", pm.load(PID_A).get("value"));
+        assertEquals(1, Collections.list(pm.getDictionaries()).size());
+        pm.close();
+
+        // the records following the corrupt record are not discarded
+        assertEquals(length, file.length());
+    }
+
+    @Test public void testCompaction() throws Exception
+    {
+        final File file = new File(folder.getRoot(), "config.journal");
+        final JournalPersistenceManager pm = open(file);
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+        {
+            sb.append('x');
+        }
+        for (int i = 0; i < 500; i++)
+        {
+            pm.store(PID_A, createConfiguration(PID_A, sb.toString() + i));
+        }
+        // without compaction the journal would be larger than 500k
+        assertTrue(file.length() < 200 * 1024);
+        assertEquals(sb.toString() + 499, pm.load(PID_A).get("value"));
+        pm.close();
+
+        final JournalPersistenceManager reopened = open(file);
+        assertEquals(sb.toString() + 499, reopened.load(PID_A).get("value"));
+        reopened.close();
+    }
+
+    @Test public void testGroupCommit() throws Exception
+    {
+        final JournalPersistenceManager pm = open(new File(folder.getRoot(), "config.journal"));
+        final int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> workers = new ArrayList<>();
+        final List<Exception> failures = Collections.synchronizedList(new ArrayList<Exception>());
+        for (int t = 0; t < threads; t++)
+        {
+            final int id = t;
+            final Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        for (int i = 0; i < 50; i++)
+                        {
+                            pm.store("pid." + id + "." + i, createConfiguration("pid." + id + "." + i, i));
+                        }
+                    }
+                    catch (final Exception e)
+                    {
+                        failures.add(e);
+                    }
+                }
+            };
+            workers.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (final Thread thread : workers)
+        {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty());
+        assertEquals(threads * 50, Collections.list(pm.getDictionaries()).size());
+        assertTrue(pm.getCommitCount() <= threads * 50);
+        pm.close();
+    }
+
+    @Test public void testMigration() throws Exception
+    {
+        final FilePersistenceManager filePm = new FilePersistenceManager(folder.newFolder("config").getAbsolutePath());
+        filePm.store(PID_A, createConfiguration(PID_A, "a1"));
+        filePm.store(PID_B, createConfiguration(PID_B, 7));
+
+        final File file = new File(folder.getRoot(), "config.journal");
+        JournalPersistenceManager pm = new JournalPersistenceManager(file, filePm);
+        assertEquals("a1", pm.load(PID_A).get("value"));
+        assertEquals(7, pm.load(PID_B).get("value"));
+        assertEquals(1, pm.getCommitCount());
+        pm.close();
+
+        // existing journals are not migrated again
+        filePm.store("foo.c", createConfiguration("foo.c", "c1"));
+        pm = new JournalPersistenceManager(file, filePm);
+        assertFalse(pm.exists("foo.c"));
+        pm.close();
+    }
+}
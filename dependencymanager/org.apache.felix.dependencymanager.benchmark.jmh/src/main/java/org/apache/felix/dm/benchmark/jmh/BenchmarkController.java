@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.jmh;
+
+import static org.apache.felix.dm.benchmark.scenario.Artist.ALBUMS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.ARTISTS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.TRACKS;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.dm.benchmark.controller.ScenarioController;
+import org.apache.felix.dm.benchmark.scenario.Album;
+import org.apache.felix.dm.benchmark.scenario.Artist;
+import org.apache.felix.dm.benchmark.scenario.Track;
+
+/**
+ * The ScenarioController injected in the scenario components: it counts the started and stopped components,
+ * so the benchmarks can wait for the whole component graph to be started, or stopped.
+ * 
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class BenchmarkController implements ScenarioController {
+    /**
+     * The number of components created by each scenario.
+     */
+    public static final int COMPONENTS = ARTISTS + (ARTISTS * (ALBUMS + (ALBUMS * TRACKS)));
+
+    /**
+     * Latches used to detect when expected services are registered, or unregistered.
+     */
+    private volatile CountDownLatch m_startLatch = new CountDownLatch(0), m_stopLatch = new CountDownLatch(0);
+
+    /**
+     * When a component is called in its start method, we'll perform some processing if the following
+     * attribute is true.
+     */
+    private final boolean m_doProcessingInStart;
+
+    public BenchmarkController(boolean doProcessingInStart) {
+        m_doProcessingInStart = doProcessingInStart;
+    }
+
+    /**
+     * Prepares the controller before the scenario components are started.
+     */
+    public void expectStart() {
+        m_startLatch = new CountDownLatch(COMPONENTS);
+    }
+
+    /**
+     * Prepares the controller before the scenario components are stopped.
+     */
+    public void expectStop() {
+        m_stopLatch = new CountDownLatch(COMPONENTS);
+    }
+
+    /**
+     * Waits for all expected components to be started.
+     */
+    public void awaitStarted(long timeout, TimeUnit unit) throws InterruptedException {
+        if (! m_startLatch.await(timeout, unit)) {
+            throw new IllegalStateException("Could not start components timely: current start latch=" + m_startLatch.getCount());
+        }
+    }
+
+    /**
+     * Waits for all expected components to be stopped.
+     */
+    public void awaitStopped(long timeout, TimeUnit unit) throws InterruptedException {
+        if (! m_stopLatch.await(timeout, unit)) {
+            throw new IllegalStateException("Could not stop components timely: current stop latch=" + m_stopLatch.getCount());
+        }
+    }
+
+    @Override
+    public void artistAdded(Artist artist) {
+        int size = artist.getAlbums().size();
+        if (size != ALBUMS) {
+            throw new IllegalStateException("Artist has not created expected number of albums:" + size);
+        }
+        artist.play();
+        componentAdded();
+    }
+
+    @Override
+    public void artistRemoved(Artist artist) {
+        m_stopLatch.countDown();
+    }
+
+    @Override
+    public void albumAdded(Album album) {
+        int size = album.getMusicTracks().size();
+        if (size != TRACKS) {
+            throw new IllegalStateException("Album does not contain expected number of music tracks:" + size);
+        }
+        componentAdded();
+    }
+
+    @Override
+    public void albumRemoved(Album album) {
+        m_stopLatch.countDown();
+    }
+
+    @Override
+    public void trackAdded(Track track) {
+        componentAdded();
+    }
+
+    @Override
+    public void trackRemoved(Track track) {
+        m_stopLatch.countDown();
+    }
+
+    private void componentAdded() {
+        if (m_doProcessingInStart) {
+            long duration = TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(5));
+            long t1 = System.nanoTime();
+            while (System.nanoTime() - t1 < duration)
+                ;
+        }
+        m_startLatch.countDown();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The component runtimes compared by the benchmarks. Each runtime starts the same Artist/Album/Track
+ * component graph, from a scenario bundle generated by {@link ScenarioBundles}.
+ * 
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public enum ComponentRuntime {
+    /**
+     * Dependency Manager, the components are created synchronously.
+     */
+    DM("org.apache.felix.dependencymanager.jar") {
+        @Override
+        File createScenario(ScenarioBundles bundles) throws IOException {
+            return bundles.dependencyManager(DM_ACTIVATOR);
+        }
+    },
+
+    /**
+     * Dependency Manager, the components are created concurrently using the scenario thread pool.
+     */
+    DM_PARALLEL("org.apache.felix.dependencymanager.jar") {
+        @Override
+        File createScenario(ScenarioBundles bundles) throws IOException {
+            return bundles.dependencyManager(DM_PARALLEL_ACTIVATOR);
+        }
+
+        @Override
+        boolean isParallel() {
+            return true;
+        }
+    },
+
+    /**
+     * Dependency Manager Lambda.
+     */
+    DM_LAMBDA("org.apache.felix.dependencymanager.jar", "org.apache.felix.dependencymanager.lambda.jar") {
+        @Override
+        File createScenario(ScenarioBundles bundles) throws IOException {
+            return bundles.dependencyManager(DM_LAMBDA_ACTIVATOR, "org.apache.felix.dm.lambda", "org.apache.felix.dm.lambda.callbacks");
+        }
+    },
+
+    /**
+     * Declarative Services (Apache Felix SCR).
+     */
+    SCR("org.apache.felix.scr.jar") {
+        @Override
+        File createScenario(ScenarioBundles bundles) throws IOException {
+            return bundles.declarativeServices();
+        }
+    },
+
+    /**
+     * Apache Felix iPOJO.
+     */
+    IPOJO("org.apache.felix.ipojo.jar") {
+        @Override
+        File createScenario(ScenarioBundles bundles) throws IOException {
+            return bundles.ipojo();
+        }
+    };
+
+    /**
+     * The scenario activators of the bnd benchmark project, referred by name since the Dependency Manager classes
+     * are only loaded by the scenario bundles.
+     */
+    private static final String DM_ACTIVATOR = "org.apache.felix.dm.benchmark.dependencymanager.Activator";
+    private static final String DM_PARALLEL_ACTIVATOR = "org.apache.felix.dm.benchmark.dependencymanager.ParallelActivator";
+    private static final String DM_LAMBDA_ACTIVATOR = "org.apache.felix.dm.benchmark.dependencymanager.lambda.Activator";
+
+    private final List<String> m_bundles;
+
+    private ComponentRuntime(String ... bundles) {
+        m_bundles = Collections.unmodifiableList(Arrays.asList(bundles));
+    }
+
+    /**
+     * Returns the file names of the runtime bundles.
+     */
+    List<String> getBundles() {
+        return m_bundles;
+    }
+
+    /**
+     * Generates the scenario bundle, which creates the component graph when it is started.
+     */
+    abstract File createScenario(ScenarioBundles bundles) throws IOException;
+
+    /**
+     * Tells if the components are created using the scenario thread pool.
+     */
+    boolean isParallel() {
+        return false;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.jmh;
+
+import static org.apache.felix.dm.benchmark.scenario.Artist.ALBUMS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.ARTISTS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.TRACKS;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.felix.dm.benchmark.controller.ScenarioController;
+import org.apache.felix.dm.benchmark.scenario.Album;
+import org.apache.felix.dm.benchmark.scenario.Artist;
+import org.apache.felix.dm.benchmark.scenario.Track;
+import org.apache.felix.dm.benchmark.scenario.impl.AlbumImpl;
+import org.apache.felix.dm.benchmark.scenario.impl.ArtistImpl;
+import org.apache.felix.dm.benchmark.scenario.impl.TrackImpl;
+import org.apache.felix.ipojo.manipulator.Pojoization;
+import org.osgi.framework.Constants;
+
+/**
+ * Generates the scenario bundles of each component runtime. All bundles create the same graph of
+ * Artist/Album/Track components when they are started: the Dependency Manager bundles contain the
+ * activators of the bnd benchmark project, the Declarative Services bundle only contains the component
+ * descriptions, and the iPOJO bundle contains the manipulated scenario implementation classes.
+ * 
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class ScenarioBundles {
+    private static final String SCENARIO_IMPORTS = ScenarioController.class.getPackage().getName() + ","
+        + Artist.class.getPackage().getName();
+
+    private static final String SCENARIO_IMPL = ArtistImpl.class.getPackage().getName();
+
+    private static final String DESCRIPTOR = "OSGI-INF/scenario.xml";
+
+    private final Path m_dir;
+
+    /**
+     * The component ids, used to bind Artists to Albums, and Albums to Tracks with the "id" service property.
+     */
+    private long m_nextId;
+
+    /**
+     * @param dir the directory where the bundles are generated
+     */
+    public ScenarioBundles(Path dir) {
+        m_dir = dir;
+    }
+
+    /**
+     * Generates a bundle containing the Dependency Manager activator classes. The activator is referred by name, because
+     * the Dependency Manager classes are only available from the Dependency Manager bundles.
+     * 
+     * @param activator the activator class name; all classes from the activator package are included in the bundle
+     * @param imports the packages imported in addition to the Dependency Manager and scenario packages
+     */
+    public File dependencyManager(String activator, String ... imports) throws IOException {
+        String pkg = activator.substring(0, activator.lastIndexOf('.'));
+        Manifest manifest = manifest(pkg);
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.putValue(Constants.BUNDLE_ACTIVATOR, activator);
+        attributes.putValue(Constants.IMPORT_PACKAGE, Stream.concat(
+            Stream.of("org.apache.felix.dm", SCENARIO_IMPORTS, SCENARIO_IMPL, "org.osgi.framework"), Stream.of(imports))
+            .collect(Collectors.joining(",")));
+        File bundle = m_dir.resolve(pkg + ".jar").toFile();
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(bundle), manifest)) {
+            copyClasses(pkg, jar);
+        }
+        return bundle;
+    }
+
+    /**
+     * Generates a bundle declaring the scenario components with Declarative Services. The components are
+     * immediate, they get the controller injected in their constructor, and the Albums/Tracks using their bind methods.
+     */
+    public File declarativeServices() throws IOException {
+        String bsn = "org.apache.felix.dm.benchmark.scr";
+        StringBuilder components = new StringBuilder();
+        for (int i = 0; i < ARTISTS; i ++) {
+            long[] albums = generateIds(ALBUMS);
+            startComponent(components, "artist" + i, ArtistImpl.class, Artist.class, -1);
+            addReferences(components, "album", Album.class, "addAlbum", albums);
+            components.append("  </scr:component>\n");
+            for (long album : albums) {
+                long[] tracks = generateIds(TRACKS);
+                startComponent(components, "album" + album, AlbumImpl.class, Album.class, album);
+                addReferences(components, "track", Track.class, "addTrack", tracks);
+                components.append("  </scr:component>\n");
+                for (long track : tracks) {
+                    startComponent(components, "track" + track, TrackImpl.class, Track.class, track);
+                    components.append("  </scr:component>\n");
+                }
+            }
+        }
+        String descriptor = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<components xmlns:scr=\"http://www.osgi.org/xmlns/scr/v1.4.0\">\n"
+            + components
+            + "</components>\n";
+
+        Manifest manifest = manifest(bsn);
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.putValue(Constants.IMPORT_PACKAGE, SCENARIO_IMPORTS + "," + SCENARIO_IMPL);
+        attributes.putValue("Service-Component", DESCRIPTOR);
+        File bundle = m_dir.resolve(bsn + ".jar").toFile();
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(bundle), manifest)) {
+            jar.putNextEntry(new JarEntry(DESCRIPTOR));
+            jar.write(descriptor.getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+        }
+        return bundle;
+    }
+
+    /**
+     * Generates a bundle declaring the scenario components with iPOJO. The scenario implementation classes are
+     * manipulated and embedded in the bundle. There is one component type for Artists, Albums and Tracks, the
+     * instances select their Albums and Tracks using the <code>requires.filters</code> instance property.
+     */
+    public File ipojo() throws IOException {
+        String bsn = "org.apache.felix.dm.benchmark.ipojo";
+        StringBuilder metadata = new StringBuilder();
+        metadata.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        // no schema: the iPOJO core schema does not declare the constructor-parameter attribute of service dependencies
+        metadata.append("<ipojo>\n");
+        addType(metadata, "artist", ArtistImpl.class, Artist.class, false, "album", Album.class, "addAlbum", ALBUMS);
+        addType(metadata, "album", AlbumImpl.class, Album.class, true, "track", Track.class, "addTrack", TRACKS);
+        addType(metadata, "track", TrackImpl.class, Track.class, true, null, null, null, 0);
+        for (int i = 0; i < ARTISTS; i ++) {
+            long[] albums = generateIds(ALBUMS);
+            addInstance(metadata, "artist", "artist" + i, -1, "album", albums);
+            for (long album : albums) {
+                long[] tracks = generateIds(TRACKS);
+                addInstance(metadata, "album", "album" + album, album, "track", tracks);
+                for (long track : tracks) {
+                    addInstance(metadata, "track", "track" + track, track, null, new long[0]);
+                }
+            }
+        }
+        metadata.append("</ipojo>\n");
+
+        File input = m_dir.resolve(bsn + "-unmanipulated.jar").toFile();
+        Manifest manifest = manifest(bsn);
+        manifest.getMainAttributes().putValue(Constants.IMPORT_PACKAGE, SCENARIO_IMPORTS);
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(input), manifest)) {
+            copyClasses(SCENARIO_IMPL, jar);
+        }
+        File bundle = m_dir.resolve(bsn + ".jar").toFile();
+        Pojoization pojoization = new Pojoization();
+        try (InputStream in = new ByteArrayInputStream(metadata.toString().getBytes(StandardCharsets.UTF_8))) {
+            pojoization.pojoization(input, bundle, in, ScenarioBundles.class.getClassLoader());
+        }
+        List<String> errors = pojoization.getErrors();
+        if (! errors.isEmpty()) {
+            throw new IllegalStateException("Could not manipulate the iPOJO scenario bundle: " + errors);
+        }
+        return bundle;
+    }
+
+    private long[] generateIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i ++) {
+            ids[i] = ++ m_nextId;
+        }
+        return ids;
+    }
+
+    private static Manifest manifest(String bsn) {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+        attributes.putValue(Constants.BUNDLE_SYMBOLICNAME, bsn);
+        attributes.putValue(Constants.BUNDLE_VERSION, "1.0.0");
+        return manifest;
+    }
+
+    private static void startComponent(StringBuilder components, String name, Class<?> impl, Class<?> service, long id) {
+        components.append("  <scr:component name=\"").append(name)
+            .append("\" immediate=\"true\" init=\"1\" activate=\"start\" deactivate=\"stop\">\n");
+        components.append("    <implementation class=\"").append(impl.getName()).append("\"/>\n");
+        components.append("    <service><provide interface=\"").append(service.getName()).append("\"/></service>\n");
+        if (id != -1) {
+            components.append("    <property name=\"id\" value=\"").append(id).append("\"/>\n");
+        }
+        components.append("    <reference name=\"controller\" interface=\"").append(ScenarioController.class.getName())
+            .append("\" parameter=\"0\"/>\n");
+    }
+
+    private static void addReferences(StringBuilder components, String prefix, Class<?> service, String bind, long[] ids) {
+        for (long id : ids) {
+            components.append("    <reference name=\"").append(prefix).append(id)
+                .append("\" interface=\"").append(service.getName())
+                .append("\" target=\"(id=").append(id).append(")\" bind=\"").append(bind).append("\"/>\n");
+        }
+    }
+
+    private static void addType(StringBuilder metadata, String name, Class<?> impl, Class<?> service, boolean identified,
+        String prefix, Class<?> dependency, String bind, int dependencies)
+    {
+        metadata.append("  <component name=\"").append(name).append("\" classname=\"").append(impl.getName())
+            .append("\" immediate=\"true\">\n");
+        metadata.append("    <requires specification=\"").append(ScenarioController.class.getName())
+            .append("\" constructor-parameter=\"0\"/>\n");
+        for (int i = 0; i < dependencies; i ++) {
+            metadata.append("    <requires specification=\"").append(dependency.getName()).append("\" id=\"")
+                .append(prefix).append(i).append("\">\n");
+            metadata.append("      <callback type=\"bind\" method=\"").append(bind).append("\"/>\n");
+            metadata.append("    </requires>\n");
+        }
+        metadata.append("    <provides specifications=\"").append(service.getName()).append("\">\n");
+        if (identified) {
+            metadata.append("      <property name=\"id\" type=\"java.lang.String\" mandatory=\"true\"/>\n");
+        }
+        metadata.append("    </provides>\n");
+        metadata.append("    <callback transition=\"validate\" method=\"start\"/>\n");
+        metadata.append("    <callback transition=\"invalidate\" method=\"stop\"/>\n");
+        metadata.append("  </component>\n");
+    }
+
+    private static void addInstance(StringBuilder metadata, String component, String name, long id, String prefix, long[] ids) {
+        metadata.append("  <instance component=\"").append(component).append("\" name=\"").append(name).append("\">\n");
+        if (id != -1) {
+            metadata.append("    <property name=\"id\" value=\"").append(id).append("\"/>\n");
+        }
+        if (ids.length > 0) {
+            metadata.append("    <property name=\"requires.filters\">\n");
+            for (int i = 0; i < ids.length; i ++) {
+                metadata.append("      <property name=\"").append(prefix).append(i)
+                    .append("\" value=\"(id=").append(ids[i]).append(")\"/>\n");
+            }
+            metadata.append("    </property>\n");
+        }
+        metadata.append("  </instance>\n");
+    }
+
+    /**
+     * Copies the classes of a package (but not of its sub packages) from the benchmark classpath, which is either the
+     * benchmarks jar or the build output directory.
+     */
+    private static void copyClasses(String pkg, JarOutputStream jar) throws IOException {
+        String dir = pkg.replace('.', '/') + "/";
+        Path source;
+        try {
+            source = Paths.get(ScenarioBundles.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        if (Files.isDirectory(source)) {
+            try (Stream<Path> classes = Files.list(source.resolve(dir))) {
+                for (Path clazz : (Iterable<Path>) classes.filter(p -> p.toString().endsWith(".class"))::iterator) {
+                    jar.putNextEntry(new JarEntry(dir + clazz.getFileName()));
+                    Files.copy(clazz, jar);
+                    jar.closeEntry();
+                }
+            }
+        } else {
+            try (JarFile classes = new JarFile(source.toFile())) {
+                Enumeration<JarEntry> entries = classes.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (name.startsWith(dir) && name.endsWith(".class") && name.indexOf('/', dir.length()) == -1) {
+                        jar.putNextEntry(new JarEntry(name));
+                        try (InputStream in = classes.getInputStream(entry)) {
+                            copy(in, jar);
+                        }
+                        jar.closeEntry();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+    }
+}
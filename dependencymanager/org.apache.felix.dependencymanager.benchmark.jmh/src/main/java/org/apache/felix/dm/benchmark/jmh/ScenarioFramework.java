@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.dm.benchmark.controller.ScenarioController;
+import org.apache.felix.framework.FrameworkFactory;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * An embedded Apache Felix framework running one of the component runtimes.
+ * The runtime bundles are installed from the directory named by the <code>dm.benchmark.bundles</code>
+ * system property, by default the <code>target/bundles</code> directory the build copies them to. 
+ * The scenario classes and the service APIs are exported by the system bundle, such that the benchmarks
+ * share the classes with the scenario bundles.
+ * 
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class ScenarioFramework {
+    public static final String BUNDLES_PROPERTY = "dm.benchmark.bundles";
+
+    private static final String SYSTEM_PACKAGES = "org.apache.felix.dm.benchmark.controller;version=1.0.0,"
+        + "org.apache.felix.dm.benchmark.scenario;version=1.0.0,"
+        + "org.apache.felix.dm.benchmark.scenario.impl;version=1.0.0,"
+        + "org.osgi.service.component;version=1.4.0,"
+        + "org.osgi.service.component.runtime;version=1.4.0,"
+        + "org.osgi.service.component.runtime.dto;version=1.4.0,"
+        + "org.osgi.service.cm;version=1.6.0,"
+        + "org.osgi.service.log;version=1.4.0,"
+        + "org.osgi.service.metatype;version=1.3.0,"
+        + "org.osgi.util.function;version=1.0.0,"
+        + "org.osgi.util.promise;version=1.0.0";
+
+    private final Path m_storage;
+    private final Framework m_framework;
+
+    /**
+     * Starts the framework and the given runtime bundles.
+     * @param bundles the file names of the runtime bundles, in the bundles directory
+     * @param properties additional framework properties
+     */
+    public ScenarioFramework(List<String> bundles, Map<String, String> properties) throws Exception {
+        m_storage = Files.createTempDirectory("dm-benchmark");
+        Map<String, String> config = new HashMap<>(properties);
+        config.put(Constants.FRAMEWORK_STORAGE, m_storage.toString());
+        config.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+        config.put(Constants.FRAMEWORK_SYSTEMPACKAGES_EXTRA, SYSTEM_PACKAGES);
+        // forked JVMs may start several frameworks, do not install the URL handlers
+        config.put("felix.service.urlhandlers", "false");
+        m_framework = new FrameworkFactory().newFramework(config);
+        m_framework.start();
+        try {
+            File dir = new File(System.getProperty(BUNDLES_PROPERTY, "target/bundles"));
+            List<Bundle> installed = new ArrayList<>();
+            for (String bundle : bundles) {
+                File jar = new File(dir, bundle);
+                if (! jar.isFile()) {
+                    throw new IllegalStateException("Bundle " + jar + " not found, set the " + BUNDLES_PROPERTY + " system property");
+                }
+                installed.add(install(jar));
+            }
+            for (Bundle bundle : installed) {
+                bundle.start();
+            }
+        } catch (Exception e) {
+            stop();
+            throw e;
+        }
+    }
+
+    public BundleContext getBundleContext() {
+        return m_framework.getBundleContext();
+    }
+
+    /**
+     * Registers the controller injected in all scenario components.
+     */
+    public void register(ScenarioController controller) {
+        getBundleContext().registerService(ScenarioController.class, controller, null);
+    }
+
+    /**
+     * Installs a bundle, without starting it.
+     */
+    public Bundle install(File jar) throws Exception {
+        return getBundleContext().installBundle(jar.toURI().toString());
+    }
+
+    /**
+     * Stops the framework and removes its storage.
+     */
+    public void stop() throws Exception {
+        try {
+            m_framework.stop();
+            m_framework.waitForStop(TimeUnit.SECONDS.toMillis(60));
+        } finally {
+            delete(m_storage);
+        }
+    }
+
+    static void delete(Path path) throws IOException {
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.jmh;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.dm.benchmark.scenario.Helper;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.osgi.framework.Bundle;
+
+/**
+ * Base class of the benchmarks: a framework running one component runtime, with the scenario bundle installed.
+ * Starting the scenario bundle creates the Artist/Album/Track components, and stopping it disposes them.
+ * 
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+@State(Scope.Benchmark)
+public abstract class ScenarioState {
+    /**
+     * Max time to wait for the components to be started or stopped.
+     */
+    private static final long TIMEOUT = 30;
+
+    @Param({"DM", "DM_PARALLEL", "DM_LAMBDA", "SCR", "IPOJO"})
+    public ComponentRuntime runtime;
+
+    /**
+     * When true, the controller performs some processing each time a component is started.
+     */
+    @Param("false")
+    public boolean processing;
+
+    private Path m_dir;
+    private ScenarioFramework m_framework;
+    private BenchmarkController m_controller;
+    private Bundle m_scenario;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        m_dir = Files.createTempDirectory("dm-benchmark-scenario");
+        Map<String, String> properties = new HashMap<>();
+        properties.put("ipojo.log.level", "WARNING");
+        properties.put("ds.loglevel", "warn");
+        m_framework = new ScenarioFramework(runtime.getBundles(), properties);
+        m_controller = new BenchmarkController(processing);
+        m_framework.register(m_controller);
+        m_scenario = m_framework.install(runtime.createScenario(new ScenarioBundles(m_dir)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try {
+            m_framework.stop();
+        } finally {
+            ScenarioFramework.delete(m_dir);
+        }
+    }
+
+    /**
+     * Starts the scenario bundle and waits for all components to be started.
+     */
+    protected Bundle startScenario() throws Exception {
+        m_controller.expectStart();
+        m_scenario.start();
+        m_controller.awaitStarted(TIMEOUT, TimeUnit.SECONDS);
+        awaitThreadPool();
+        return m_scenario;
+    }
+
+    /**
+     * Stops the scenario bundle and waits for all components to be stopped.
+     */
+    protected Bundle stopScenario() throws Exception {
+        m_controller.expectStop();
+        m_scenario.stop();
+        m_controller.awaitStopped(TIMEOUT, TimeUnit.SECONDS);
+        awaitThreadPool();
+        return m_scenario;
+    }
+
+    /**
+     * Make sure the threadpool is quiescent and has finished to register all components.
+     */
+    private void awaitThreadPool() {
+        if (runtime.isParallel() && ! Helper.getThreadPool().awaitQuiescence(TIMEOUT, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Thread pool is still active after " + TIMEOUT + " seconds");
+        }
+    }
+}
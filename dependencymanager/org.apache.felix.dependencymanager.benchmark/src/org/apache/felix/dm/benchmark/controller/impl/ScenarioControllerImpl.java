@@ -30,24 +30,35 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.util.Arrays;
+import java.util.Dictionary;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
+import org.apache.felix.dm.Component;
+import org.apache.felix.dm.DependencyManager;
 import org.apache.felix.dm.benchmark.controller.ScenarioController;
 import org.apache.felix.dm.benchmark.scenario.Album;
 import org.apache.felix.dm.benchmark.scenario.Artist;
 import org.apache.felix.dm.benchmark.scenario.Helper;
 import org.apache.felix.dm.benchmark.scenario.Track;
 import org.apache.felix.dm.benchmark.scenario.Unchecked;
+import org.apache.felix.dm.benchmark.scenario.impl.AlbumImpl;
+import org.apache.felix.dm.benchmark.scenario.impl.ArtistImpl;
+import org.apache.felix.dm.benchmark.scenario.impl.TrackImpl;
+import org.apache.felix.dm.context.ComponentContext;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceObjects;
+import org.osgi.framework.ServiceReference;
 
 /**
  * The controller which perform microbenchmarks on some scenario bundles.
@@ -60,7 +71,8 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
      */
     final List<String> TESTS = Arrays.asList(
         "org.apache.felix.dependencymanager.benchmark.dependencymanager",
-        "org.apache.felix.dependencymanager.benchmark.dependencymanager.parallel"
+        "org.apache.felix.dependencymanager.benchmark.dependencymanager.parallel",
+        "org.apache.felix.dependencymanager.benchmark.dependencymanager.lambda"
     );
     
     /**
@@ -68,6 +80,11 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
      */
     private volatile BundleContext m_bctx;
     
+    /**
+     * Our injected dependency manager, used to create the component invoking callbacks in the callback benchmark.
+     */
+    private volatile DependencyManager m_dm;
+    
     /**
      * Latches used to detect when expected services are registered, or unregistered.
      */
@@ -117,6 +134,10 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
         m_doProcessingInStartStop = true;
         out.println("\n\t[Starting benchmarks with processing done in components start methods]");
         startStopScenarioBundles(TESTS, 5);
+        
+        // Invoke several times the Artist/Album callbacks, the same way DM does when injecting services.
+        out.println("\n\t[Starting benchmarks of component callbacks invocations]");
+        invokeCallbacks(50, 1000);
     }
 
     @Override
@@ -176,10 +197,89 @@ public class ScenarioControllerImpl implements Runnable, ScenarioController {
                 .sorted().boxed().collect(toList());
             out.println();
             displaySortedResults(sortedResults);
+            out.println("-> " + DependencyManager.getMethodCacheStatistics());
             Unchecked.run(() -> Thread.sleep(500));
         });               
     }
 
+    /**
+     * Measures the time spent by DM to look up and invoke the callbacks of the components graph: each Artist is 
+     * called in its addAlbum callback, and each Album is called in its addTrack callback, using the same 
+     * signatures as the ones used when DM injects a service in a service dependency callback.
+     * @param iterations the number of measures
+     * @param graphs the number of component graphs whose callbacks are invoked in each measure
+     */
+    private void invokeCallbacks(int iterations, int graphs) {
+        ComponentContext component = (ComponentContext) m_dm.createComponent();
+        Object[] artist = { new ArtistImpl(this) };
+        Object[] album = { new AlbumImpl(this) };
+        Album albumService = (Album) album[0];
+        Track trackService = new TrackImpl(this);
+        Class<?>[][] albumSignatures = getServiceCallbackSignatures(Album.class);
+        Class<?>[][] trackSignatures = getServiceCallbackSignatures(Track.class);
+        Supplier<?>[][] albumParams = getServiceCallbackParams(component, albumService);
+        Supplier<?>[][] trackParams = getServiceCallbackParams(component, trackService);
+        
+        out.print("\nBenchmarking callbacks (each measure invokes " + (graphs * ARTISTS * (ALBUMS + (ALBUMS * TRACKS))) + " callbacks) ");
+        List<Long> sortedResults = LongStream.range(0, iterations)
+            .peek(i -> out.print("."))
+            .map(n -> durationOf(() -> {
+                for (int g = 0; g < graphs; g ++) {
+                    ((ArtistImpl) artist[0]).getAlbums().clear();
+                    ((AlbumImpl) album[0]).getMusicTracks().clear();
+                    for (int i = 0; i < ARTISTS * ALBUMS; i ++) {
+                        component.invokeCallback(artist, "addAlbum", albumSignatures, albumParams, true);
+                        for (int j = 0; j < TRACKS; j ++) {
+                            component.invokeCallback(album, "addTrack", trackSignatures, trackParams, true);
+                        }
+                    }
+                }
+            }))
+            .sorted().boxed().collect(toList());
+        out.println();
+        displaySortedResults(sortedResults);
+        out.println("-> " + DependencyManager.getMethodCacheStatistics());
+    }
+    
+    /**
+     * Returns the signatures looked up by DM when invoking a service dependency callback (see ServiceDependencyImpl.invoke).
+     */
+    private Class<?>[][] getServiceCallbackSignatures(Class<?> service) {
+        return new Class[][] {
+            {Component.class, ServiceReference.class, service},
+            {Component.class, ServiceReference.class, Object.class}, 
+            {Component.class, ServiceReference.class},
+            {Component.class, service}, 
+            {Component.class, Object.class}, 
+            {Component.class},
+            {Component.class, Map.class, service},
+            {ServiceReference.class, service},
+            {ServiceReference.class, Object.class}, 
+            {ServiceReference.class},
+            {service}, 
+            {service, Map.class}, 
+            {Map.class, service}, 
+            {service, Dictionary.class}, 
+            {Dictionary.class, service}, 
+            {Object.class},
+            {ServiceObjects.class},
+            {}};
+    }
+    
+    /**
+     * Returns the lazy callback parameters matching the signatures returned by getServiceCallbackSignatures.
+     * Only the service is provided, the other parameters are never used by our scenario components.
+     */
+    private Supplier<?>[][] getServiceCallbackParams(Object component, Object service) {
+        Supplier<?> c = () -> component;
+        Supplier<?> s = () -> service;
+        Supplier<?> none = () -> null;
+        return new Supplier[][] {
+            {c, none, s}, {c, none, s}, {c, none}, {c, s}, {c, s}, {c}, {c, none, s}, {none, s}, {none, s}, {none}, 
+            {s}, {s, none}, {none, s}, {s, none}, {none, s}, {s}, {none}, {}
+        };
+    }
+
     /**
      * Displays meaningful values in the sorted results (first=fastest, midle=average, last entry=slowest)
      * @param sortedResults
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.benchmark.dependencymanager.lambda;
+
+import static org.apache.felix.dm.benchmark.scenario.Artist.ALBUMS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.ARTISTS;
+import static org.apache.felix.dm.benchmark.scenario.Artist.TRACKS;
+import static org.apache.felix.dm.lambda.DependencyManagerActivator.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.apache.felix.dm.Component;
+import org.apache.felix.dm.DependencyManager;
+import org.apache.felix.dm.benchmark.controller.ScenarioController;
+import org.apache.felix.dm.benchmark.scenario.Album;
+import org.apache.felix.dm.benchmark.scenario.Artist;
+import org.apache.felix.dm.benchmark.scenario.Helper;
+import org.apache.felix.dm.benchmark.scenario.Track;
+import org.apache.felix.dm.benchmark.scenario.impl.AlbumImpl;
+import org.apache.felix.dm.benchmark.scenario.impl.ArtistImpl;
+import org.apache.felix.dm.benchmark.scenario.impl.TrackImpl;
+import org.apache.felix.dm.lambda.ComponentBuilder;
+
+/**
+ * Same scenario as the Dependency Manager one, but the components are built using DM lambda.
+ * 
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class Benchmark {
+    volatile DependencyManager m_dm;
+    volatile ScenarioController m_controller;
+    final List<Component> m_components = new ArrayList<>();
+
+    /**
+     * Initialize our Artists, Albums/Tracks.
+     */
+    @SuppressWarnings("unused")
+    private void start() {
+        Helper.debug(() -> "Benchmark.start");
+        IntStream.range(0, ARTISTS).forEach(i -> createArtist());
+        m_components.stream().forEach(m_dm::add);
+    }
+    
+    @SuppressWarnings("unused")
+    private void stop() {
+        m_components.forEach(m_dm::remove);
+    }
+
+    private void createArtist() {
+        long[] albums = generateIds(ALBUMS);
+        ComponentBuilder<?> artist = component(m_dm).impl(new ArtistImpl(m_controller)).provides(Artist.class);
+        for (long id : albums) {
+            artist.withSvc(Album.class, srv -> srv.filter("(id=" + id + ")").required().add("addAlbum"));
+        }
+        m_components.add(artist.build());
+        for (long id : albums) {
+            createAlbum(id);
+        }
+    }
+    
+    private void createAlbum(long id) {
+        long[] tracks = generateIds(TRACKS);
+        ComponentBuilder<?> album = component(m_dm).impl(new AlbumImpl(m_controller))
+            .provides(Album.class, "id", String.valueOf(id));
+        for (long trackId : tracks) {
+            album.withSvc(Track.class, srv -> srv.filter("(id=" + trackId + ")").required().add("addTrack"));
+        }
+        m_components.add(album.build());
+        for (long trackId : tracks) {
+            m_components.add(component(m_dm).impl(new TrackImpl(m_controller))
+                .provides(Track.class, "id", String.valueOf(trackId)).build());
+        }
+    }
+    
+    private long[] generateIds(int count) {
+        return IntStream.range(0, count).mapToLong(i -> Helper.generateId()).toArray();
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.felix.dm.compat.DependencyManagerCompat;
+import org.apache.felix.dm.diagnostics.MethodCacheStatistics;
 import org.apache.felix.dm.impl.AdapterServiceImpl;
 import org.apache.felix.dm.impl.AspectServiceImpl;
 import org.apache.felix.dm.impl.BundleAdapterImpl;
@@ -36,6 +37,7 @@ import org.apache.felix.dm.impl.ComponentImpl;
 import org.apache.felix.dm.impl.ComponentScheduler;
 import org.apache.felix.dm.impl.ConfigurationDependencyImpl;
 import org.apache.felix.dm.impl.FactoryConfigurationAdapterImpl;
+import org.apache.felix.dm.impl.InvocationUtil;
 import org.apache.felix.dm.impl.ResourceAdapterImpl;
 import org.apache.felix.dm.impl.ResourceDependencyImpl;
 import org.apache.felix.dm.impl.ServiceDependencyImpl;
@@ -96,6 +98,15 @@ public class DependencyManager extends DependencyManagerCompat {
         return m_logger;
     }
     
+    /**
+     * Returns the hit/miss counters of the cache used to look up component callback methods.
+     * The size of this cache can be configured using the {@link #METHOD_CACHE_SIZE} system property.
+     * @return a snapshot of the callback method cache statistics
+     */
+    public static MethodCacheStatistics getMethodCacheStatistics() {
+        return InvocationUtil.getMethodCacheStatistics();
+    }
+
     /**
      * Returns the list of currently created dependency managers.
      * @return the list of currently created dependency managers
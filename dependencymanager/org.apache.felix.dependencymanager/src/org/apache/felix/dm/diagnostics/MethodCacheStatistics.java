@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.diagnostics;
+
+/**
+ * A snapshot of the counters of the cache used by the Dependency Manager to look up component callbacks.
+ * Each lookup of a callback signature in a given class either hits the cache (including the signatures
+ * known not to exist in the class), or misses it, in which case the class is introspected.
+ * 
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ *
+ */
+public class MethodCacheStatistics {
+	
+	private final long hits;
+	private final long misses;
+	private final int size;
+	
+	public MethodCacheStatistics(long hits, long misses, int size) {
+		this.hits = hits;
+		this.misses = misses;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the number of callback lookups served by the cache.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of callback lookups which required to introspect a class.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of entries currently in the cache.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the ratio of lookups served by the cache, between 0 and 1.
+	 */
+	public double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+	
+	@Override
+	public String toString() {
+		return "Method cache: " 
+				+ "hits = " + hits + " "
+				+ "misses = " + misses + " "
+				+ "size = " + size + " "
+				+ "hitRate = " + String.format("%.2f", getHitRate());
+	}
+
+}
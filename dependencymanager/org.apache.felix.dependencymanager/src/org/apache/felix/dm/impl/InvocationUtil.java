@@ -18,24 +18,32 @@
  */
 package org.apache.felix.dm.impl;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.util.Arrays;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
 import org.apache.felix.dm.DependencyManager;
+import org.apache.felix.dm.diagnostics.MethodCacheStatistics;
 import org.osgi.service.cm.ConfigurationException;
 
 /**
- * Utility methods for invoking callbacks. Lookups of callbacks are accellerated by using a LRU cache.
+ * Utility methods for invoking callbacks. Lookups of callbacks are accellerated by using a concurrent cache
+ * of method handles, which also remembers the signatures that could not be found.
  * 
  * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
  */
@@ -45,7 +53,20 @@ public class InvocationUtil {
 	 */
     private static final Class<?>[] VOID = new Class[] {};
     
-    private static final Map<Key, Method> m_methodCache;
+    /**
+     * The type all cached method handles are adapted to: (Object target, Object[] args)Object.
+     */
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    /**
+     * Cache entry used for signatures which don't exist in a given class.
+     */
+    private static final CachedMethod NOT_FOUND = new CachedMethod();
+
+    private static final ConcurrentMap<Key, CachedMethod> m_methodCache = new ConcurrentHashMap<>();
+    private static final int m_methodCacheSize;
+    private static final LongAdder m_methodCacheHits = new LongAdder();
+    private static final LongAdder m_methodCacheMisses = new LongAdder();
     static {
         int size = 4096;
         try {
@@ -55,7 +76,7 @@ public class InvocationUtil {
             }
         }
         catch (Exception e) {}
-        m_methodCache = new LRUMap(Math.max(size, 64));
+        m_methodCacheSize = Math.max(size, 64);
     }
     
     /**
@@ -106,17 +127,7 @@ public class InvocationUtil {
      * @throws InvocationTargetException when the method that was invoked throws an exception
      */
     public static Object invokeCallbackMethod(Object instance, String methodName, Class<?>[][] signatures, Object[][] parameters) throws NoSuchMethodException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
-        Class<?> currentClazz = instance.getClass();
-        while (currentClazz != null && currentClazz != Object.class) {
-            try {
-                return invokeMethod(instance, currentClazz, methodName, signatures, parameters, false);
-            }
-            catch (NoSuchMethodException nsme) {
-                // ignore
-            }
-            currentClazz = currentClazz.getSuperclass();
-        }
-        throw new NoSuchMethodException(methodName);
+        return invokeCallbackMethod(instance, methodName, signatures, index -> parameters[index]);
     }
 
     /**
@@ -135,29 +146,7 @@ public class InvocationUtil {
      * @throws InvocationTargetException when the method that was invoked throws an exception
      */
     public static Object invokeMethod(Object object, Class<?> clazz, String name, Class<?>[][] signatures, Object[][] parameters, boolean isSuper) throws NoSuchMethodException, InvocationTargetException, IllegalArgumentException, IllegalAccessException {
-        if (object == null) {
-            throw new IllegalArgumentException("Instance cannot be null");
-        }
-        if (clazz == null) {
-            throw new IllegalArgumentException("Class cannot be null");
-        }
-        
-        // if we're talking to a proxy here, dig one level deeper to expose the
-        // underlying invocation handler (we do the same for injecting instances)
-        if (Proxy.isProxyClass(clazz)) {
-            object = Proxy.getInvocationHandler(object);
-            clazz = object.getClass();
-        }
-        
-        Method m = null;
-        for (int i = 0; i < signatures.length; i++) {
-            Class<?>[] signature = signatures[i];
-            m = getDeclaredMethod(clazz, name, signature, isSuper);
-            if (m != null) {
-                return m.invoke(object, parameters[i]);
-            }
-        }
-        throw new NoSuchMethodException(name);
+        return invokeMethod(object, clazz, name, signatures, index -> parameters[index], isSuper);
     }
     
     /**
@@ -175,17 +164,7 @@ public class InvocationUtil {
      * @throws InvocationTargetException when the method that was invoked throws an exception
      */
     public static Object invokeCallbackMethod(Object instance, String methodName, Class<?>[][] signatures, Supplier<?>[][] parameters) throws NoSuchMethodException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
-        Class<?> currentClazz = instance.getClass();
-        while (currentClazz != null && currentClazz != Object.class) {
-            try {
-                return invokeMethod(instance, currentClazz, methodName, signatures, parameters, false);
-            }
-            catch (NoSuchMethodException nsme) {
-                // ignore
-            }
-            currentClazz = currentClazz.getSuperclass();
-        }
-        throw new NoSuchMethodException(methodName);
+        return invokeCallbackMethod(instance, methodName, signatures, index -> get(parameters[index]));
     }
 
     /**
@@ -204,33 +183,7 @@ public class InvocationUtil {
      * @throws InvocationTargetException when the method that was invoked throws an exception
      */
     public static Object invokeMethod(Object object, Class<?> clazz, String name, Class<?>[][] signatures, Supplier<?>[][] paramsSupplier, boolean isSuper) throws NoSuchMethodException, InvocationTargetException, IllegalArgumentException, IllegalAccessException {
-        if (object == null) {
-            throw new IllegalArgumentException("Instance cannot be null");
-        }
-        if (clazz == null) {
-            throw new IllegalArgumentException("Class cannot be null");
-        }
-        
-        // if we're talking to a proxy here, dig one level deeper to expose the
-        // underlying invocation handler (we do the same for injecting instances)
-        if (Proxy.isProxyClass(clazz)) {
-            object = Proxy.getInvocationHandler(object);
-            clazz = object.getClass();
-        }
-        
-        Method m = null;
-        for (int i = 0; i < signatures.length; i++) {
-            Class<?>[] signature = signatures[i];
-            m = getDeclaredMethod(clazz, name, signature, isSuper);
-            if (m != null) {
-            	Object[] params = new Object[paramsSupplier[i].length];
-            	for (int j = 0; j < params.length; j ++) {
-            		params[j] = paramsSupplier[i][j].get();            		
-            	}
-                return m.invoke(object, params);
-            }
-        }
-        throw new NoSuchMethodException(name);
+        return invokeMethod(object, clazz, name, signatures, index -> get(paramsSupplier[index]), isSuper);
     }
 
     /**
@@ -277,7 +230,6 @@ public class InvocationUtil {
 
     /**
      * Get a method on an instance.
-     * TODO: rework this class to avoid code duplication with invokeMethod !
      * 
      * @param object the instance to invoke the method on
      * @param clazz the class of the instance
@@ -305,11 +257,9 @@ public class InvocationUtil {
     }
     
     /**
-     * Get a method on an instance.
-     * TODO: rework this class to avoid code duplication with invokeMethod !
+     * Get a method on a class.
      * 
-     * @param object the instance to invoke the method on
-     * @param clazz the class of the instance
+     * @param clazz the class to look into
      * @param name the name of the method
      * @param signatures the signatures to look for in order
      * @param isSuper <code>true</code> if this is a superclass and we should therefore not look for private methods
@@ -320,15 +270,20 @@ public class InvocationUtil {
             throw new IllegalArgumentException("Class cannot be null");
         }
                 
-        Method m = null;
         for (int i = 0; i < signatures.length; i++) {
-            Class<?>[] signature = signatures[i];
-            m = getDeclaredMethod(clazz, name, signature, isSuper);
-            if (m != null) {
-            	break;
+            CachedMethod m = getDeclaredMethod(clazz, name, signatures[i], isSuper);
+            if (m != NOT_FOUND) {
+                return m.m_method;
             }
         }
-        return m;
+        return null;
+    }
+
+    /**
+     * Returns a snapshot of the method cache counters.
+     */
+    public static MethodCacheStatistics getMethodCacheStatistics() {
+        return new MethodCacheStatistics(m_methodCacheHits.sum(), m_methodCacheMisses.sum(), m_methodCache.size());
     }
 
     public static ComponentInstance createInstance(Class<?> clazz, CallbackTypeDef ctorArgs) throws Exception {    			
@@ -383,33 +338,162 @@ public class InvocationUtil {
     	throw new InstantiationException("No suitable constructor found for class " + clazz.getName());    	
     }
     
-    private static Method getDeclaredMethod(Class<?> clazz, String name, Class<?>[] signature, boolean isSuper) {
-        // first check our cache
-        Key key = new Key(clazz, name, signature);
-        Method m = null;
-        synchronized (m_methodCache) {
-            m = (Method) m_methodCache.get(key);
-            if (m != null) {
-                return m;
+    private static Object invokeCallbackMethod(Object instance, String methodName, Class<?>[][] signatures, IntFunction<Object[]> parameters) throws NoSuchMethodException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
+        Class<?> currentClazz = instance.getClass();
+        while (currentClazz != null && currentClazz != Object.class) {
+            Object object = instance;
+            Class<?> clazz = currentClazz;
+            
+            // if we're talking to a proxy here, dig one level deeper to expose the
+            // underlying invocation handler (we do the same for injecting instances)
+            if (Proxy.isProxyClass(clazz)) {
+                object = Proxy.getInvocationHandler(object);
+                clazz = object.getClass();
             }
-            else if (m_methodCache.containsKey(key)) {
-                // the key is in our cache, it just happens to have a null value
-                return null;
+            
+            for (int i = 0; i < signatures.length; i++) {
+                CachedMethod m = getDeclaredMethod(clazz, methodName, signatures[i], false);
+                if (m != NOT_FOUND) {
+                    return m.invoke(object, parameters.apply(i));
+                }
+            }
+            currentClazz = currentClazz.getSuperclass();
+        }
+        throw new NoSuchMethodException(methodName);
+    }
+
+    private static Object invokeMethod(Object object, Class<?> clazz, String name, Class<?>[][] signatures, IntFunction<Object[]> parameters, boolean isSuper) throws NoSuchMethodException, InvocationTargetException, IllegalArgumentException, IllegalAccessException {
+        if (object == null) {
+            throw new IllegalArgumentException("Instance cannot be null");
+        }
+        if (clazz == null) {
+            throw new IllegalArgumentException("Class cannot be null");
+        }
+        
+        // if we're talking to a proxy here, dig one level deeper to expose the
+        // underlying invocation handler (we do the same for injecting instances)
+        if (Proxy.isProxyClass(clazz)) {
+            object = Proxy.getInvocationHandler(object);
+            clazz = object.getClass();
+        }
+        
+        for (int i = 0; i < signatures.length; i++) {
+            CachedMethod m = getDeclaredMethod(clazz, name, signatures[i], isSuper);
+            if (m != NOT_FOUND) {
+                return m.invoke(object, parameters.apply(i));
             }
         }
+        throw new NoSuchMethodException(name);
+    }
+    
+    private static Object[] get(Supplier<?>[] paramsSupplier) {
+        Object[] params = new Object[paramsSupplier.length];
+        for (int j = 0; j < params.length; j ++) {
+            params[j] = paramsSupplier[j].get();
+        }
+        return params;
+    }
+    
+    private static CachedMethod getDeclaredMethod(Class<?> clazz, String name, Class<?>[] signature, boolean isSuper) {
+        // first check our cache, which also contains the signatures that don't exist
+        Key key = new Key(clazz, name, signature);
+        CachedMethod m = m_methodCache.get(key);
+        if (m != null) {
+            m_methodCacheHits.increment();
+            return m;
+        }
+        m_methodCacheMisses.increment();
+        
         // then do a lookup
         try {
-            m = clazz.getDeclaredMethod(name, signature);
-            if (!(isSuper && Modifier.isPrivate(m.getModifiers()))) {
-                m.setAccessible(true);
+            Method method = clazz.getDeclaredMethod(name, signature);
+            if (!(isSuper && Modifier.isPrivate(method.getModifiers()))) {
+                method.setAccessible(true);
             }
+            m = new CachedMethod(method);
         }
         catch (NoSuchMethodException e) {
+            m = NOT_FOUND;
         }
-        synchronized (m_methodCache) {
-            m_methodCache.put(key, m);
+        
+        // the cache is not an LRU: once full, it is simply emptied and filled again with the methods in use
+        if (m_methodCache.size() >= m_methodCacheSize) {
+            m_methodCache.clear();
+        }
+        CachedMethod previous = m_methodCache.putIfAbsent(key, m);
+        return previous != null ? previous : m;
+    }
+    
+    /**
+     * A cached callback method, along with a method handle adapted to the (Object, Object[])Object type,
+     * so it can be invoked without going through Method.invoke.
+     */
+    private static final class CachedMethod {
+        final Method m_method;
+        final MethodHandle m_handle;
+        final Class<?>[] m_types;
+        final Class<?>[] m_wrappedTypes;
+        
+        CachedMethod() {
+            m_method = null;
+            m_handle = null;
+            m_types = null;
+            m_wrappedTypes = null;
+        }
+        
+        CachedMethod(Method method) {
+            m_method = method;
+            m_types = method.getParameterTypes();
+            m_wrappedTypes = MethodType.methodType(void.class, m_types).wrap().parameterArray();
+            m_handle = adapt(method);
+        }
+        
+        Object invoke(Object object, Object[] args) throws IllegalAccessException, InvocationTargetException {
+            if (m_handle == null) {
+                // the method is not accessible, let reflection report it
+                return m_method.invoke(object, args);
+            }
+            // check the arguments first, so exceptions thrown by the handle only come from the method itself
+            checkArguments(object, args);
+            try {
+                return m_handle.invokeExact(object, args);
+            }
+            catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+        
+        private void checkArguments(Object object, Object[] args) {
+            if (! Modifier.isStatic(m_method.getModifiers()) && ! m_method.getDeclaringClass().isInstance(object)) {
+                throw new IllegalArgumentException("object is not an instance of declaring class");
+            }
+            int length = args == null ? 0 : args.length;
+            if (length != m_types.length) {
+                throw new IllegalArgumentException("wrong number of arguments");
+            }
+            for (int i = 0; i < length; i ++) {
+                Object arg = args[i];
+                if (arg == null ? m_types[i].isPrimitive() : ! m_wrappedTypes[i].isInstance(arg)) {
+                    throw new IllegalArgumentException("argument type mismatch");
+                }
+            }
+        }
+        
+        private static MethodHandle adapt(Method method) {
+            MethodHandle handle;
+            try {
+                handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+            }
+            catch (IllegalAccessException e) {
+                return null;
+            }
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(INVOKER_TYPE);
         }
-        return m;
     }
     
     public static class Key {
@@ -458,19 +542,6 @@ public class InvocationUtil {
         }
     }
     
-    @SuppressWarnings("serial")
-    public static class LRUMap extends LinkedHashMap<Key, Method> {
-        private final int m_size;
-        
-        public LRUMap(int size) {
-            m_size = size;
-        }
-        
-        protected boolean removeEldestEntry(java.util.Map.Entry<Key, Method> eldest) {
-            return size() > m_size;
-        }
-    }
-    
     /**
      * Invokes a configuration update callback synchronously, but through the component executor queue.
      */
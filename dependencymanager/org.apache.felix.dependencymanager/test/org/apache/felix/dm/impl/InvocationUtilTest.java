@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.dm.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.Supplier;
+
+import org.apache.felix.dm.diagnostics.MethodCacheStatistics;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link InvocationUtil}.
+ */
+public class InvocationUtilTest {
+    static class Base {
+        String m_value;
+
+        private void set(String value) {
+            m_value = "base:" + value;
+        }
+        
+        int add(int a, int b) {
+            return a + b;
+        }
+    }
+
+    static class Sub extends Base {
+        Object m_added;
+
+        void added(Object service) {
+            m_added = service;
+        }
+
+        void fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    @Test
+    public void testInvokeFirstMatchingSignature() throws Exception {
+        Sub sub = new Sub();
+        Object service = new Object();
+        InvocationUtil.invokeCallbackMethod(sub, "added",
+            new Class[][] {{ String.class }, { Object.class }, {}},
+            new Object[][] {{ "service" }, { service }, {}});
+        assertSame(service, sub.m_added);
+    }
+
+    @Test
+    public void testInvokeSuperclassMethods() throws Exception {
+        Sub sub = new Sub();
+        InvocationUtil.invokeCallbackMethod(sub, "set", new Class[][] {{ String.class }}, new Object[][] {{ "value" }});
+        assertEquals("base:value", sub.m_value);
+
+        Object result = InvocationUtil.invokeCallbackMethod(sub, "add", new Class[][] {{ int.class, int.class }},
+            new Supplier<?>[][] {{ () -> 1, () -> 2 }});
+        assertEquals(3, result);
+    }
+
+    @Test
+    public void testMethodNotFound() throws Exception {
+        try {
+            InvocationUtil.invokeCallbackMethod(new Sub(), "removed", new Class[][] {{ Object.class }}, new Object[][] {{ "service" }});
+            fail("NoSuchMethodException expected");
+        }
+        catch (NoSuchMethodException e) {
+            assertEquals("removed", e.getMessage());
+        }
+        assertNull(InvocationUtil.getCallbackMethod(new Sub(), "removed", new Class[][] {{ Object.class }}));
+    }
+
+    @Test
+    public void testExceptionsAreWrapped() throws Exception {
+        try {
+            InvocationUtil.invokeCallbackMethod(new Sub(), "fail", new Class[][] {{ String.class }}, new Object[][] {{ "boom" }});
+            fail("InvocationTargetException expected");
+        }
+        catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("boom", e.getCause().getMessage());
+        }
+
+        try {
+            InvocationUtil.invokeCallbackMethod(new Sub(), "add", new Class[][] {{ int.class, int.class }}, new Object[][] {{ 1, null }});
+            fail("IllegalArgumentException expected");
+        }
+        catch (IllegalArgumentException e) {
+            // the arguments don't match the signature
+        }
+    }
+
+    @Test
+    public void testCacheStatistics() throws Exception {
+        Class<?>[][] signatures = new Class[][] {{ Integer.class }, { Object.class }};
+        Sub sub = new Sub();
+        InvocationUtil.invokeCallbackMethod(sub, "added", signatures, new Object[][] {{ 1 }, { 1 }});
+        MethodCacheStatistics before = InvocationUtil.getMethodCacheStatistics();
+
+        // both the missing and the existing signatures are now served by the cache
+        InvocationUtil.invokeCallbackMethod(sub, "added", signatures, new Object[][] {{ 2 }, { 2 }});
+        MethodCacheStatistics after = InvocationUtil.getMethodCacheStatistics();
+        assertEquals(2, sub.m_added);
+        assertEquals(before.getHits() + 2, after.getHits());
+        assertEquals(before.getMisses(), after.getMisses());
+        assertTrue(after.getHitRate() > 0);
+    }
+}
@@ -23,7 +23,9 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.Executor;
 
 import org.apache.felix.eventadmin.impl.adapter.AbstractAdapter;
 import org.apache.felix.eventadmin.impl.adapter.BundleEventAdapter;
@@ -31,16 +33,22 @@ import org.apache.felix.eventadmin.impl.adapter.FrameworkEventAdapter;
 import org.apache.felix.eventadmin.impl.adapter.LogEventAdapter;
 import org.apache.felix.eventadmin.impl.adapter.ServiceEventAdapter;
 import org.apache.felix.eventadmin.impl.handler.EventAdminImpl;
+import org.apache.felix.eventadmin.impl.jmx.EventAdminStatus;
 import org.apache.felix.eventadmin.impl.security.SecureEventAdminFactory;
 import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
+import org.apache.felix.eventadmin.impl.tasks.QueueLimits;
 import org.apache.felix.eventadmin.impl.util.LogWrapper;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
+import org.osgi.framework.Filter;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.metatype.MetaTypeProvider;
+import org.osgi.util.tracker.ServiceTracker;
 
 
 /**
@@ -116,6 +124,57 @@ import org.osgi.service.metatype.MetaTypeProvider;
  * </p>
  * <p>
  * <p>
+ *      <tt>org.apache.felix.eventadmin.ThreadPoolType</tt> - The backend used
+ *         for the thread pools.
+ * </p>
+ * <p>
+ * The default is <tt>fixed</tt> which uses fixed size thread pools as configured
+ * by the thread pool size. With <tt>virtual</tt> a new virtual thread is used for
+ * each delivery; this requires Java 21 or higher, on older VMs the fixed pools are
+ * used. With <tt>service</tt> events are delivered using a
+ * <tt>java.util.concurrent.Executor</tt> service matching the filter configured
+ * with <tt>org.apache.felix.eventadmin.ExecutorFilter</tt>. As long as no such
+ * service is available, the fixed pools are used.
+ * </p>
+ * <p>
+ * <p>
+ *      <tt>org.apache.felix.eventadmin.ExecutorFilter</tt> - The filter for the
+ *         executor service.
+ * </p>
+ * <p>
+ * The default is <tt>(org.apache.felix.eventadmin.executor=true)</tt>. This is only
+ * used if the thread pool type is <tt>service</tt>.
+ * </p>
+ * <p>
+ * <p>
+ *      <tt>org.apache.felix.eventadmin.AsyncQueueSize</tt> - The maximum number of
+ *         events queued for asynchronous delivery.
+ * </p>
+ * <p>
+ * Events posted by a thread are queued in a queue for this thread; the limit applies
+ * to the events of all queues together. The default is <tt>0</tt> which leaves the
+ * queues unbounded. With <tt>org.apache.felix.eventadmin.AsyncQueueTopicSizes</tt>
+ * additional bounds for the events of specific topics in each queue can be defined. Each value has the form
+ * <tt>topic=size</tt> where the topic uses the same syntax as the ignore topics
+ * configuration. The first matching definition is used.
+ * </p>
+ * <p>
+ * <p>
+ *      <tt>org.apache.felix.eventadmin.AsyncQueuePolicy</tt> - The policy applied
+ *         if a queue is full.
+ * </p>
+ * <p>
+ * With <tt>block</tt> (the default) the posting thread is blocked until space is
+ * available but at most <tt>org.apache.felix.eventadmin.AsyncQueueBlockTimeout</tt>
+ * milliseconds (default 1000, the value must be greater than 0), afterwards the event
+ * is dropped. With <tt>dropNewest</tt> the posted event is dropped, with
+ * <tt>dropOldest</tt> the oldest event queued by the posting thread is dropped. With <tt>coalesce</tt> a queued event with the same topic
+ * and the same value for the property configured with
+ * <tt>org.apache.felix.eventadmin.AsyncQueueCoalesceProperty</tt> is replaced by the
+ * posted event; if there is no such event, the oldest queued event is dropped.
+ * </p>
+ * <p>
+ * <p>
  * These properties are read at startup and serve as a default configuration.
  * If a configuration admin is configured, the event admin can be configured
  * through the config admin.
@@ -135,6 +194,15 @@ public class Configuration
     static final String PROP_IGNORE_TIMEOUT = "org.apache.felix.eventadmin.IgnoreTimeout";
     static final String PROP_IGNORE_TOPIC = "org.apache.felix.eventadmin.IgnoreTopic";
     static final String PROP_LOG_LEVEL = "org.apache.felix.eventadmin.LogLevel";
+    static final String PROP_THREAD_POOL_TYPE = "org.apache.felix.eventadmin.ThreadPoolType";
+    static final String PROP_EXECUTOR_FILTER = "org.apache.felix.eventadmin.ExecutorFilter";
+    static final String PROP_ASYNC_QUEUE_SIZE = "org.apache.felix.eventadmin.AsyncQueueSize";
+    static final String PROP_ASYNC_QUEUE_TOPIC_SIZES = "org.apache.felix.eventadmin.AsyncQueueTopicSizes";
+    static final String PROP_ASYNC_QUEUE_POLICY = "org.apache.felix.eventadmin.AsyncQueuePolicy";
+    static final String PROP_ASYNC_QUEUE_BLOCK_TIMEOUT = "org.apache.felix.eventadmin.AsyncQueueBlockTimeout";
+    static final String PROP_ASYNC_QUEUE_COALESCE_PROPERTY = "org.apache.felix.eventadmin.AsyncQueueCoalesceProperty";
+
+    static final String DEFAULT_EXECUTOR_FILTER = "(org.apache.felix.eventadmin.executor=true)";
 
     /** The bundle context. */
     private final BundleContext m_bundleContext;
@@ -155,6 +223,20 @@ public class Configuration
 
     private int m_logLevel;
 
+    private String m_threadPoolType;
+
+    private String m_executorFilter;
+
+    private int m_asyncQueueSize;
+
+    private String[] m_asyncQueueTopicSizes;
+
+    private QueueLimits.Policy m_asyncQueuePolicy;
+
+    private int m_asyncQueueBlockTimeout;
+
+    private String m_asyncQueueCoalesceProperty;
+
     // The thread pool used - this is a member because we need to close it on stop
     private volatile DefaultThreadPool m_sync_pool;
 
@@ -169,6 +251,17 @@ public class Configuration
     // The registration of the security decorator factory (i.e., the service)
     private volatile ServiceRegistration m_registration;
 
+    // The tracker for the executor service used by the service thread pool type
+    private ServiceTracker<Executor, Executor> m_executorTracker;
+
+    // The filter used by the current executor tracker
+    private String m_executorTrackerFilter;
+
+    // The status bean and its registration
+    private volatile EventAdminStatus m_status;
+
+    private ServiceRegistration<?> m_statusReg;
+
     // all adapters
     private AbstractAdapter[] m_adapters;
 
@@ -329,6 +422,30 @@ public class Configuration
                     m_bundleContext.getProperty(PROP_LOG_LEVEL),
                     LogWrapper.LOG_WARNING, // default log level is WARNING
                     LogWrapper.LOG_ERROR);
+            m_threadPoolType = getThreadPoolType(m_bundleContext.getProperty(PROP_THREAD_POOL_TYPE));
+            m_executorFilter = getStringProperty(m_bundleContext.getProperty(PROP_EXECUTOR_FILTER),
+                    DEFAULT_EXECUTOR_FILTER);
+            m_asyncQueueSize = getIntProperty(PROP_ASYNC_QUEUE_SIZE,
+                    m_bundleContext.getProperty(PROP_ASYNC_QUEUE_SIZE), 0, 0);
+            final String valueTopicSizes = m_bundleContext.getProperty(PROP_ASYNC_QUEUE_TOPIC_SIZES);
+            if ( valueTopicSizes == null )
+            {
+                m_asyncQueueTopicSizes = null;
+            }
+            else
+            {
+                final StringTokenizer st = new StringTokenizer(valueTopicSizes, ",");
+                m_asyncQueueTopicSizes = new String[st.countTokens()];
+                for(int i=0; i<m_asyncQueueTopicSizes.length; i++)
+                {
+                    m_asyncQueueTopicSizes[i] = st.nextToken();
+                }
+            }
+            m_asyncQueuePolicy = getQueuePolicy(m_bundleContext.getProperty(PROP_ASYNC_QUEUE_POLICY));
+            m_asyncQueueBlockTimeout = getIntProperty(PROP_ASYNC_QUEUE_BLOCK_TIMEOUT,
+                    m_bundleContext.getProperty(PROP_ASYNC_QUEUE_BLOCK_TIMEOUT), 1000, 1);
+            m_asyncQueueCoalesceProperty = getStringProperty(
+                    m_bundleContext.getProperty(PROP_ASYNC_QUEUE_COALESCE_PROPERTY), null);
         }
         else
         {
@@ -371,6 +488,28 @@ public class Configuration
                     config.get(PROP_LOG_LEVEL),
                     LogWrapper.LOG_WARNING, // default log level is WARNING
                     LogWrapper.LOG_ERROR);
+            m_threadPoolType = getThreadPoolType(config.get(PROP_THREAD_POOL_TYPE));
+            m_executorFilter = getStringProperty(config.get(PROP_EXECUTOR_FILTER), DEFAULT_EXECUTOR_FILTER);
+            m_asyncQueueSize = getIntProperty(PROP_ASYNC_QUEUE_SIZE, config.get(PROP_ASYNC_QUEUE_SIZE), 0, 0);
+            m_asyncQueueTopicSizes = null;
+            final Object valueQTS = config.get(PROP_ASYNC_QUEUE_TOPIC_SIZES);
+            if ( valueQTS instanceof String )
+            {
+                m_asyncQueueTopicSizes = new String[] {(String)valueQTS};
+            }
+            else if ( valueQTS instanceof String[] )
+            {
+                m_asyncQueueTopicSizes = (String[])valueQTS;
+            }
+            else if ( valueQTS != null )
+            {
+                LogWrapper.getLogger().log(LogWrapper.LOG_WARNING,
+                        "Value for property: " + PROP_ASYNC_QUEUE_TOPIC_SIZES + " is neither a string nor a string array - Using default");
+            }
+            m_asyncQueuePolicy = getQueuePolicy(config.get(PROP_ASYNC_QUEUE_POLICY));
+            m_asyncQueueBlockTimeout = getIntProperty(PROP_ASYNC_QUEUE_BLOCK_TIMEOUT,
+                    config.get(PROP_ASYNC_QUEUE_BLOCK_TIMEOUT), 1000, 1);
+            m_asyncQueueCoalesceProperty = getStringProperty(config.get(PROP_ASYNC_QUEUE_COALESCE_PROPERTY), null);
         }
         // a timeout less or equals to 100 means : disable timeout
         if ( m_timeout <= 100 )
@@ -395,6 +534,18 @@ public class Configuration
             PROP_TIMEOUT + "=" + m_timeout);
         LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
             PROP_REQUIRE_TOPIC + "=" + m_requireTopic);
+        LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
+            PROP_THREAD_POOL_TYPE + "=" + m_threadPoolType);
+        LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
+            PROP_ASYNC_QUEUE_SIZE + "=" + m_asyncQueueSize);
+        LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
+            PROP_ASYNC_QUEUE_POLICY + "=" + m_asyncQueuePolicy.getValue());
+
+        final QueueLimits queueLimits = new QueueLimits(m_asyncQueueSize,
+                m_asyncQueueTopicSizes,
+                m_asyncQueuePolicy,
+                m_asyncQueueBlockTimeout,
+                m_asyncQueueCoalesceProperty);
 
         // Note that this uses a lazy thread pool that will create new threads on
         // demand - in case none of its cached threads is free - until threadPoolSize
@@ -402,21 +553,22 @@ public class Configuration
         // caching of threads.
         if ( m_sync_pool == null )
         {
-            m_sync_pool = new DefaultThreadPool(m_threadPoolSize, true);
+            m_sync_pool = new DefaultThreadPool(m_threadPoolSize, true, m_threadPoolType);
         }
         else
         {
-            m_sync_pool.configure(m_threadPoolSize);
+            m_sync_pool.configure(m_threadPoolSize, m_threadPoolType);
         }
         final int asyncThreadPoolSize = m_asyncThreadPoolSize;
         if ( m_async_pool == null )
         {
-            m_async_pool = new DefaultThreadPool(asyncThreadPoolSize, false);
+            m_async_pool = new DefaultThreadPool(asyncThreadPoolSize, false, m_threadPoolType);
         }
         else
         {
-            m_async_pool.configure(asyncThreadPoolSize);
+            m_async_pool.configure(asyncThreadPoolSize, m_threadPoolType);
         }
+        updateExecutorTracker();
 
         if ( m_admin == null )
         {
@@ -426,7 +578,8 @@ public class Configuration
                     m_timeout,
                     m_ignoreTimeout,
                     m_requireTopic,
-                    m_ignoreTopics);
+                    m_ignoreTopics,
+                    queueLimits);
 
             // Finally, adapt the outside events to our kind of events as per spec
             adaptEvents(m_admin);
@@ -436,10 +589,15 @@ public class Configuration
             // appropriated permissions of each calling bundle
             m_registration = m_bundleContext.registerService(EventAdmin.class.getName(),
                     new SecureEventAdminFactory(m_admin), null);
+
+            m_status = new EventAdminStatus(m_admin, m_sync_pool, m_async_pool);
+            m_status.update(queueLimits);
+            tryToRegisterStatus();
         }
         else
         {
-            m_admin.update(m_timeout, m_ignoreTimeout, m_requireTopic, m_ignoreTopics);
+            m_admin.update(m_timeout, m_ignoreTimeout, m_requireTopic, m_ignoreTopics, queueLimits);
+            m_status.update(queueLimits);
         }
 
     }
@@ -463,6 +621,13 @@ public class Configuration
                 }
                 m_adapters = null;
             }
+            closeExecutorTracker();
+            if ( m_statusReg != null )
+            {
+                m_statusReg.unregister();
+                m_statusReg = null;
+            }
+            m_status = null;
             if ( m_managedServiceReg != null )
             {
                 m_managedServiceReg.unregister();
@@ -504,13 +669,134 @@ public class Configuration
         m_adapters[3] = new LogEventAdapter(m_bundleContext, admin);
     }
 
+    /**
+     * Open, reopen or close the tracker for the executor service depending
+     * on the configured thread pool type.
+     */
+    private void updateExecutorTracker()
+    {
+        if ( DefaultThreadPool.TYPE_SERVICE.equals(m_threadPoolType) )
+        {
+            if ( m_executorTracker != null && m_executorFilter.equals(m_executorTrackerFilter) )
+            {
+                return;
+            }
+            closeExecutorTracker();
+            final Filter filter;
+            try
+            {
+                filter = m_bundleContext.createFilter("(&(" + Constants.OBJECTCLASS + "="
+                        + Executor.class.getName() + ")" + m_executorFilter + ")");
+            }
+            catch ( final InvalidSyntaxException ise )
+            {
+                LogWrapper.getLogger().log(LogWrapper.LOG_WARNING,
+                        "Invalid value for property: " + PROP_EXECUTOR_FILTER + " - Using fixed thread pools", ise);
+                return;
+            }
+            m_executorTrackerFilter = m_executorFilter;
+            m_executorTracker = new ServiceTracker<Executor, Executor>(m_bundleContext, filter, null)
+            {
+
+                @Override
+                public Executor addingService(final ServiceReference<Executor> reference)
+                {
+                    // the service is only tracked once this method returns
+                    final Executor executor = super.addingService(reference);
+                    final ServiceReference<Executor> current = getServiceReference();
+                    if ( executor != null && (current == null || reference.compareTo(current) > 0) )
+                    {
+                        setExecutor(executor);
+                    }
+                    return executor;
+                }
+
+                @Override
+                public void modifiedService(final ServiceReference<Executor> reference, final Executor service)
+                {
+                    setExecutor(getService());
+                }
+
+                @Override
+                public void removedService(final ServiceReference<Executor> reference, final Executor service)
+                {
+                    // the service is still tracked while this method is called
+                    ServiceReference<Executor> best = null;
+                    Executor executor = null;
+                    for(final Map.Entry<ServiceReference<Executor>, Executor> entry : getTracked().entrySet())
+                    {
+                        if ( !entry.getKey().equals(reference) && (best == null || entry.getKey().compareTo(best) > 0) )
+                        {
+                            best = entry.getKey();
+                            executor = entry.getValue();
+                        }
+                    }
+                    super.removedService(reference, service);
+                    setExecutor(executor);
+                }
+            };
+            m_executorTracker.open();
+            setExecutor(m_executorTracker.getService());
+        }
+        else
+        {
+            closeExecutorTracker();
+        }
+    }
+
+    /**
+     * Hand the executor to the thread pools.
+     * @param executor The highest ranked executor or {@code null}
+     */
+    private void setExecutor(final Executor executor)
+    {
+        final DefaultThreadPool syncPool = m_sync_pool;
+        if ( syncPool != null )
+        {
+            syncPool.setExecutor(executor);
+        }
+        final DefaultThreadPool asyncPool = m_async_pool;
+        if ( asyncPool != null )
+        {
+            asyncPool.setExecutor(executor);
+        }
+    }
+
+    private void closeExecutorTracker()
+    {
+        if ( m_executorTracker != null )
+        {
+            m_executorTracker.close();
+            m_executorTracker = null;
+            m_executorTrackerFilter = null;
+        }
+    }
+
+    /**
+     * Register the status bean if JMX is available.
+     */
+    private void tryToRegisterStatus()
+    {
+        try
+        {
+            m_statusReg = m_status.register(m_bundleContext);
+        }
+        catch (final Throwable t)
+        {
+            // we simply ignore this
+        }
+    }
+
     private Object tryToCreateMetaTypeProvider(final Object managedService)
     {
         try
         {
             return new MetaTypeProviderImpl((ManagedService)managedService,
                     m_threadPoolSize, m_timeout, m_requireTopic,
-                    m_ignoreTimeout, m_ignoreTopics, m_asyncToSyncThreadRatio);
+                    m_ignoreTimeout, m_ignoreTopics, m_asyncToSyncThreadRatio,
+                    m_threadPoolType, m_executorFilter,
+                    m_asyncQueueSize, m_asyncQueueTopicSizes, m_asyncQueuePolicy.getValue(),
+                    m_asyncQueueBlockTimeout, m_asyncQueueCoalesceProperty);
         }
         catch (final Throwable t)
         {
@@ -580,6 +866,63 @@ public class Configuration
         return defaultValue;
     }
 
+    /**
+     * Returns the thread pool type from the value of the property if it is one
+     * of the supported types or the default type.
+     */
+    private String getThreadPoolType(final Object value)
+    {
+        if ( value != null )
+        {
+            final String type = value.toString().trim().toLowerCase();
+            if ( DefaultThreadPool.TYPE_FIXED.equals(type)
+                 || DefaultThreadPool.TYPE_VIRTUAL.equals(type)
+                 || DefaultThreadPool.TYPE_SERVICE.equals(type) )
+            {
+                return type;
+            }
+            LogWrapper.getLogger().log(LogWrapper.LOG_WARNING,
+                    "Value for property: " + PROP_THREAD_POOL_TYPE + " is not supported - Using default");
+        }
+        return DefaultThreadPool.TYPE_FIXED;
+    }
+
+    /**
+     * Returns the queue policy from the value of the property if it is one
+     * of the supported policies or the default policy.
+     */
+    private QueueLimits.Policy getQueuePolicy(final Object value)
+    {
+        if ( value != null )
+        {
+            final QueueLimits.Policy policy = QueueLimits.Policy.fromValue(value.toString().trim());
+            if ( policy != null )
+            {
+                return policy;
+            }
+            LogWrapper.getLogger().log(LogWrapper.LOG_WARNING,
+                    "Value for property: " + PROP_ASYNC_QUEUE_POLICY + " is not supported - Using default");
+        }
+        return QueueLimits.Policy.BLOCK;
+    }
+
+    /**
+     * Returns the value of the property as a string if it is set and not empty
+     * or the default.
+     */
+    private String getStringProperty(final Object value, final String defaultValue)
+    {
+        if ( value != null )
+        {
+            final String result = value.toString().trim();
+            if ( result.length() > 0 )
+            {
+                return result;
+            }
+        }
+        return defaultValue;
+    }
+
     /**
      * Returns either the parsed double from the value of the property if it is set and
      * not less then the min value or the default. Additionally, a warning is
@@ -42,6 +42,13 @@ public class MetaTypeProviderImpl
     private final String[] m_ignoreTimeout;
     private final String[] m_ignoreTopic;
     private final double m_asyncThreadPoolRatio;
+    private final String m_threadPoolType;
+    private final String m_executorFilter;
+    private final int m_asyncQueueSize;
+    private final String[] m_asyncQueueTopicSizes;
+    private final String m_asyncQueuePolicy;
+    private final int m_asyncQueueBlockTimeout;
+    private final String m_asyncQueueCoalesceProperty;
 
     private final ManagedService m_delegatee;
 
@@ -50,7 +57,14 @@ public class MetaTypeProviderImpl
             final int timeout, final boolean requireTopic,
             final String[] ignoreTimeout,
             final String[] ignoreTopic,
-            final double asyncThreadPoolRatio)
+            final double asyncThreadPoolRatio,
+            final String threadPoolType,
+            final String executorFilter,
+            final int asyncQueueSize,
+            final String[] asyncQueueTopicSizes,
+            final String asyncQueuePolicy,
+            final int asyncQueueBlockTimeout,
+            final String asyncQueueCoalesceProperty)
     {
         m_threadPoolSize = threadPoolSize;
         m_timeout = timeout;
@@ -59,6 +73,13 @@ public class MetaTypeProviderImpl
         m_ignoreTimeout = ignoreTimeout;
         m_ignoreTopic = ignoreTopic;
         m_asyncThreadPoolRatio = asyncThreadPoolRatio;
+        m_threadPoolType = threadPoolType;
+        m_executorFilter = executorFilter;
+        m_asyncQueueSize = asyncQueueSize;
+        m_asyncQueueTopicSizes = asyncQueueTopicSizes;
+        m_asyncQueuePolicy = asyncQueuePolicy;
+        m_asyncQueueBlockTimeout = asyncQueueBlockTimeout;
+        m_asyncQueueCoalesceProperty = asyncQueueCoalesceProperty;
     }
 
     private ObjectClassDefinition ocd;
@@ -109,6 +130,46 @@ public class MetaTypeProviderImpl
                     "distribution of post to send operations.  Applications with higher number " +
                     "of post operations should have a higher ratio.",
                     m_asyncThreadPoolRatio));
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_THREAD_POOL_TYPE, "Thread Pool Type",
+                    "The backend used for event delivery. With 'fixed' (the default) fixed size thread pools " +
+                    "are used. With 'virtual' a new virtual thread is used for each delivery - this requires " +
+                    "Java 21 or higher, on older VMs fixed size thread pools are used. With 'service' events are " +
+                    "delivered by an executor service matching the executor filter. As long as no such service " +
+                    "is available, fixed size thread pools are used.",
+                    AttributeDefinition.STRING, new String[] {m_threadPoolType}, 0,
+                    new String[] {"Fixed Thread Pool", "Virtual Threads", "Executor Service"},
+                    new String[] {"fixed", "virtual", "service"}));
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_EXECUTOR_FILTER, "Executor Filter",
+                    "The filter selecting the java.util.concurrent.Executor service used if the thread pool type " +
+                    "is 'service'. If several services match, the one with the highest ranking is used.",
+                    AttributeDefinition.STRING, new String[] {m_executorFilter}, 0, null, null));
+
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_ASYNC_QUEUE_SIZE, "Async Queue Size",
+                    "The maximum number of events queued for asynchronous delivery by all posting threads. " +
+                    "The default value 0 leaves the queues unbounded.",
+                    m_asyncQueueSize ) );
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_ASYNC_QUEUE_TOPIC_SIZES, "Async Queue Topic Sizes",
+                    "Additional bounds for the events of specific topics queued by a posting thread. Each value has the form topic=size " +
+                    "where the topic uses the same syntax as the ignore topics. The first matching value is used.",
+                    AttributeDefinition.STRING, m_asyncQueueTopicSizes, Integer.MAX_VALUE, null, null));
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_ASYNC_QUEUE_POLICY, "Async Queue Policy",
+                    "The policy applied if a queue is full. 'block' blocks the posting thread until space is " +
+                    "available or the block timeout expires, afterwards the event is dropped. 'dropNewest' drops " +
+                    "the posted event, 'dropOldest' drops the oldest event queued by the posting thread. 'coalesce' replaces a queued " +
+                    "event with the same topic and the same value for the coalesce property; if there is no such " +
+                    "event, the oldest queued event is dropped.",
+                    AttributeDefinition.STRING, new String[] {m_asyncQueuePolicy}, 0,
+                    new String[] {"Block", "Drop Newest", "Drop Oldest", "Coalesce"},
+                    new String[] {"block", "dropNewest", "dropOldest", "coalesce"}));
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_ASYNC_QUEUE_BLOCK_TIMEOUT, "Async Queue Block Timeout",
+                    "The maximum time in milliseconds a posting thread is blocked if the queue is full " +
+                    "and the policy is 'block'. The value must be greater than 0.",
+                    m_asyncQueueBlockTimeout ) );
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_ASYNC_QUEUE_COALESCE_PROPERTY, "Async Queue Coalesce Property",
+                    "The event property which is compared in addition to the topic if the policy is 'coalesce'. " +
+                    "If not set, events are coalesced by topic only.",
+                    AttributeDefinition.STRING, m_asyncQueueCoalesceProperty == null ? null : new String[] {m_asyncQueueCoalesceProperty},
+                    0, null, null));
 
             adList.add( new AttributeDefinitionImpl( Configuration.PROP_TIMEOUT, "Timeout",
                     "The black-listing timeout in milliseconds. The default value is 5000. Increase or decrease " +
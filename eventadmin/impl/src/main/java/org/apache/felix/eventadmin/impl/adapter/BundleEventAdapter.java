@@ -64,23 +64,6 @@ public class BundleEventAdapter extends AbstractAdapter implements BundleListene
     @Override
     public void bundleChanged(final BundleEvent event)
     {
-        final Dictionary<String, Object> properties = new Hashtable<String, Object>();
-
-        properties.put(EventConstants.EVENT, event);
-
-        properties.put("bundle.id", new Long(event.getBundle()
-            .getBundleId()));
-
-        final String symbolicName = event.getBundle().getSymbolicName();
-
-        if (null != symbolicName)
-        {
-            properties.put(EventConstants.BUNDLE_SYMBOLICNAME,
-                symbolicName);
-        }
-
-        properties.put("bundle", event.getBundle());
-
         final StringBuffer topic = new StringBuffer(BundleEvent.class
             .getName().replace('.', '/')).append('/');
 
@@ -111,10 +94,48 @@ public class BundleEventAdapter extends AbstractAdapter implements BundleListene
                 return; // IGNORE EVENT
         }
 
+        final String eventTopic = topic.toString();
+        if ( !hasHandlers(eventTopic) )
+        {
+            return;
+        }
+
         try {
-            getEventAdmin().postEvent(new Event(topic.toString(), properties));
+            getEventAdmin().postEvent(new Event(eventTopic, new LazyEventProperties()
+            {
+                @Override
+                protected Dictionary<String, Object> createProperties()
+                {
+                    return BundleEventAdapter.createProperties(event);
+                }
+            }));
         } catch (IllegalStateException e) {
             // This is o.k. - indicates that we are stopped.
         }
     }
+
+    /**
+     * Assemble the properties of the event.
+     */
+    static Dictionary<String, Object> createProperties(final BundleEvent event)
+    {
+        final Dictionary<String, Object> properties = new Hashtable<String, Object>();
+
+        properties.put(EventConstants.EVENT, event);
+
+        properties.put("bundle.id", new Long(event.getBundle()
+            .getBundleId()));
+
+        final String symbolicName = event.getBundle().getSymbolicName();
+
+        if (null != symbolicName)
+        {
+            properties.put(EventConstants.BUNDLE_SYMBOLICNAME,
+                symbolicName);
+        }
+
+        properties.put("bundle", event.getBundle());
+
+        return properties;
+    }
 }
@@ -65,6 +65,59 @@ public class FrameworkEventAdapter extends AbstractAdapter implements FrameworkL
      */
     @Override
     public void frameworkEvent(final FrameworkEvent event)
+    {
+        final StringBuffer topic = new StringBuffer(
+            FrameworkEvent.class.getName().replace('.', '/'))
+            .append('/');
+
+        switch (event.getType())
+        {
+            case FrameworkEvent.STARTED:
+                topic.append("STARTED");
+                break;
+            case FrameworkEvent.ERROR:
+                topic.append("ERROR");
+                break;
+            case FrameworkEvent.PACKAGES_REFRESHED:
+                topic.append("PACKAGES_REFRESHED");
+                break;
+            case FrameworkEvent.STARTLEVEL_CHANGED:
+                topic.append("STARTLEVEL_CHANGED");
+                break;
+            case FrameworkEvent.WARNING:
+                topic.append("WARNING");
+                break;
+            case FrameworkEvent.INFO:
+                topic.append("INFO");
+                break;
+            default:
+                return; // IGNORE EVENT
+        }
+
+        final String eventTopic = topic.toString();
+        if ( !hasHandlers(eventTopic) )
+        {
+            return;
+        }
+
+        try {
+            getEventAdmin().postEvent(new Event(eventTopic, new LazyEventProperties()
+            {
+                @Override
+                protected Dictionary<String, Object> createProperties()
+                {
+                    return FrameworkEventAdapter.createProperties(event);
+                }
+            }));
+        } catch (IllegalStateException e) {
+            // This is o.k. - indicates that we are stopped.
+        }
+    }
+
+    /**
+     * Assemble the properties of the event.
+     */
+    static Dictionary<String, Object> createProperties(final FrameworkEvent event)
     {
         final Dictionary<String, Object> properties = new Hashtable<String, Object>();
 
@@ -105,38 +158,6 @@ public class FrameworkEventAdapter extends AbstractAdapter implements FrameworkL
             properties.put(EventConstants.EXCEPTION, thrown);
         }
 
-        final StringBuffer topic = new StringBuffer(
-            FrameworkEvent.class.getName().replace('.', '/'))
-            .append('/');
-
-        switch (event.getType())
-        {
-            case FrameworkEvent.STARTED:
-                topic.append("STARTED");
-                break;
-            case FrameworkEvent.ERROR:
-                topic.append("ERROR");
-                break;
-            case FrameworkEvent.PACKAGES_REFRESHED:
-                topic.append("PACKAGES_REFRESHED");
-                break;
-            case FrameworkEvent.STARTLEVEL_CHANGED:
-                topic.append("STARTLEVEL_CHANGED");
-                break;
-            case FrameworkEvent.WARNING:
-                topic.append("WARNING");
-                break;
-            case FrameworkEvent.INFO:
-                topic.append("INFO");
-                break;
-            default:
-                return; // IGNORE EVENT
-        }
-
-        try {
-            getEventAdmin().postEvent(new Event(topic.toString(), properties));
-        } catch(IllegalStateException e) {
-            // This is o.k. - indicates that we are stopped.
-        }
+        return properties;
     }
 }
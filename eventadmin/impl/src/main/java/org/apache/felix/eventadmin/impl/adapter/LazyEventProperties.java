@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.adapter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.osgi.service.event.EventProperties;
+
+/**
+ * Event properties which are only assembled once they are accessed
+ * for the first time. The adapters use this to avoid creating the
+ * properties of an event if the event is never delivered to a handler.
+ * Like {@link EventProperties}, the properties are immutable.
+ * Note that {@link EventProperties#equals(Object)} of an eagerly created
+ * instance compares the internal maps and therefore never considers a
+ * lazy instance to be equal.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+abstract class LazyEventProperties extends EventProperties
+{
+    /** The assembled properties, created on first access. */
+    private volatile Map<String, Object> m_properties;
+
+    LazyEventProperties()
+    {
+        super(Collections.<String, Object> emptyMap());
+    }
+
+    /**
+     * Assemble the properties of the event.
+     *
+     * @return The properties of the event.
+     */
+    protected abstract Dictionary<String, Object> createProperties();
+
+    private Map<String, Object> getProperties()
+    {
+        Map<String, Object> result = m_properties;
+        if ( result == null )
+        {
+            synchronized ( this )
+            {
+                result = m_properties;
+                if ( result == null )
+                {
+                    final Dictionary<String, Object> dict = createProperties();
+                    final Map<String, Object> map = new HashMap<String, Object>(dict.size() * 2);
+                    for (final Enumeration<String> keys = dict.keys(); keys.hasMoreElements();)
+                    {
+                        final String key = keys.nextElement();
+                        map.put(key, dict.get(key));
+                    }
+                    result = Collections.unmodifiableMap(map);
+                    m_properties = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsKey(final Object key)
+    {
+        return getProperties().containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(final Object value)
+    {
+        return getProperties().containsValue(value);
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet()
+    {
+        return getProperties().entrySet();
+    }
+
+    @Override
+    public Object get(final Object key)
+    {
+        return getProperties().get(key);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return getProperties().isEmpty();
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        return getProperties().keySet();
+    }
+
+    @Override
+    public int size()
+    {
+        return getProperties().size();
+    }
+
+    @Override
+    public Collection<Object> values()
+    {
+        return getProperties().values();
+    }
+
+    @Override
+    public boolean equals(final Object object)
+    {
+        if ( this == object )
+        {
+            return true;
+        }
+        return getProperties().equals(object);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return getProperties().hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return getProperties().toString();
+    }
+}
@@ -47,6 +47,14 @@ import org.osgi.service.event.EventConstants;
  */
 public class LogEventAdapter extends AbstractAdapter implements ServiceListener
 {
+    // The topics of the log events
+    private static final String TOPIC_PREFIX = "org/osgi/service/log/LogEntry/";
+    private static final String TOPIC_LOG_ERROR = TOPIC_PREFIX + "LOG_ERROR";
+    private static final String TOPIC_LOG_WARNING = TOPIC_PREFIX + "LOG_WARNING";
+    private static final String TOPIC_LOG_INFO = TOPIC_PREFIX + "LOG_INFO";
+    private static final String TOPIC_LOG_DEBUG = TOPIC_PREFIX + "LOG_DEBUG";
+    private static final String TOPIC_LOG_OTHER = TOPIC_PREFIX + "LOG_OTHER";
+
     // The internal lock for this object used instead synchronized(this)
     private final Object m_lock = new Object();
 
@@ -153,8 +161,52 @@ public class LogEventAdapter extends AbstractAdapter implements ServiceListener
                 {
                     // This is where the assembly as specified in 133.6.6 OSGi R4
                     // compendium is taking place (i.e., the log entry is adapted to
-                    // an event and posted via the EventAdmin)
+                    // an event and posted via the EventAdmin). The properties are only
+                    // assembled if the event is delivered to a handler.
+                    final String topic;
+                    switch (entry.getLevel())
+                    {
+                        case org.osgi.service.log.LogService.LOG_ERROR:
+                            topic = TOPIC_LOG_ERROR;
+                            break;
+                        case org.osgi.service.log.LogService.LOG_WARNING:
+                            topic = TOPIC_LOG_WARNING;
+                            break;
+                        case org.osgi.service.log.LogService.LOG_INFO:
+                            topic = TOPIC_LOG_INFO;
+                            break;
+                        case org.osgi.service.log.LogService.LOG_DEBUG:
+                            topic = TOPIC_LOG_DEBUG;
+                            break;
+                        default:
+                            topic = TOPIC_LOG_OTHER;
+                            break;
+                    }
+
+                    if ( !hasHandlers(topic) )
+                    {
+                        return;
+                    }
+
+                    try {
+                        getEventAdmin().postEvent(new Event(topic, new LazyEventProperties()
+                        {
+                            @Override
+                            protected Dictionary<String, Object> createProperties()
+                            {
+                                return createLogProperties(entry);
+                            }
+                        }));
+                    } catch(IllegalStateException e) {
+                        // This is o.k. - indicates that we are stopped.
+                    }
+                }
 
+                /**
+                 * Assemble the properties of the log event.
+                 */
+                private Dictionary<String, Object> createLogProperties(final org.osgi.service.log.LogEntry entry)
+                {
                     final Dictionary<String, Object> properties = new Hashtable<String, Object>();
 
                     final Bundle bundle = entry.getBundle();
@@ -258,34 +310,7 @@ public class LogEventAdapter extends AbstractAdapter implements ServiceListener
                         }
                     }
 
-                    final StringBuffer topic = new StringBuffer(
-                        org.osgi.service.log.LogEntry.class.getName().replace(
-                            '.', '/')).append('/');
-
-                    switch (entry.getLevel())
-                    {
-                        case org.osgi.service.log.LogService.LOG_ERROR:
-                            topic.append("LOG_ERROR");
-                            break;
-                        case org.osgi.service.log.LogService.LOG_WARNING:
-                            topic.append("LOG_WARNING");
-                            break;
-                        case org.osgi.service.log.LogService.LOG_INFO:
-                            topic.append("LOG_INFO");
-                            break;
-                        case org.osgi.service.log.LogService.LOG_DEBUG:
-                            topic.append("LOG_DEBUG");
-                            break;
-                        default:
-                            topic.append("LOG_OTHER");
-                            break;
-                    }
-
-                    try {
-                        getEventAdmin().postEvent(new Event(topic.toString(), properties));
-                    } catch(IllegalStateException e) {
-                        // This is o.k. - indicates that we are stopped.
-                    }
+                    return properties;
                 }
             };
 
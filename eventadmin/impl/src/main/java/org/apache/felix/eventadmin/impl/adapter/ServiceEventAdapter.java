@@ -66,6 +66,49 @@ public class ServiceEventAdapter extends AbstractAdapter implements ServiceListe
      */
     @Override
     public void serviceChanged(final ServiceEvent event)
+    {
+        final StringBuffer topic = new StringBuffer(ServiceEvent.class
+            .getName().replace('.', '/')).append('/');
+
+        switch (event.getType())
+        {
+            case ServiceEvent.REGISTERED:
+                topic.append("REGISTERED");
+                break;
+            case ServiceEvent.MODIFIED:
+                topic.append("MODIFIED");
+                break;
+            case ServiceEvent.UNREGISTERING:
+                topic.append("UNREGISTERING");
+                break;
+            default:
+                return; // IGNORE
+        }
+
+        final String eventTopic = topic.toString();
+        if ( !hasHandlers(eventTopic) )
+        {
+            return;
+        }
+
+        try {
+            getEventAdmin().postEvent(new Event(eventTopic, new LazyEventProperties()
+            {
+                @Override
+                protected Dictionary<String, Object> createProperties()
+                {
+                    return ServiceEventAdapter.createProperties(event);
+                }
+            }));
+        } catch (IllegalStateException e) {
+            // This is o.k. - indicates that we are stopped.
+        }
+    }
+
+    /**
+     * Assemble the properties of the event.
+     */
+    static Dictionary<String, Object> createProperties(final ServiceEvent event)
     {
         final Dictionary<String, Object> properties = new Hashtable<String, Object>();
 
@@ -117,28 +160,6 @@ public class ServiceEventAdapter extends AbstractAdapter implements ServiceListe
             }
         }
 
-        final StringBuffer topic = new StringBuffer(ServiceEvent.class
-            .getName().replace('.', '/')).append('/');
-
-        switch (event.getType())
-        {
-            case ServiceEvent.REGISTERED:
-                topic.append("REGISTERED");
-                break;
-            case ServiceEvent.MODIFIED:
-                topic.append("MODIFIED");
-                break;
-            case ServiceEvent.UNREGISTERING:
-                topic.append("UNREGISTERING");
-                break;
-            default:
-                return; // IGNORE
-        }
-
-        try {
-            getEventAdmin().postEvent(new Event(topic.toString(), properties));
-        } catch(IllegalStateException e) {
-            // This is o.k. - indicates that we are stopped.
-        }
+        return properties;
     }
 }
@@ -18,10 +18,15 @@
  */
 package org.apache.felix.eventadmin.impl.handler;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import org.apache.felix.eventadmin.impl.tasks.AsyncDeliverTasks;
 import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
+import org.apache.felix.eventadmin.impl.tasks.QueueLimits;
 import org.apache.felix.eventadmin.impl.tasks.SyncDeliverTasks;
 import org.apache.felix.eventadmin.impl.util.Matchers;
+import org.apache.felix.eventadmin.impl.util.TopicStatistics;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
@@ -53,6 +58,9 @@ public class EventAdminImpl implements EventAdmin
     // matchers for ignore topics
     private Matchers.Matcher[] m_ignoreTopics;
 
+    // the number of posted and sent events per topic
+    private final TopicStatistics m_topicStatistics = new TopicStatistics();
+
     /**
      * The constructor of the <tt>EventAdmin</tt> implementation.
      *
@@ -66,7 +74,8 @@ public class EventAdminImpl implements EventAdmin
                     final int timeout,
                     final String[] ignoreTimeout,
                     final boolean requireTopic,
-                    final String[] ignoreTopics)
+                    final String[] ignoreTopics,
+                    final QueueLimits queueLimits)
     {
         checkNull(syncPool, "syncPool");
         checkNull(asyncPool, "asyncPool");
@@ -76,6 +85,7 @@ public class EventAdminImpl implements EventAdmin
         this.tracker.open();
         m_sendManager = new SyncDeliverTasks(syncPool, timeout);
         m_postManager = new AsyncDeliverTasks(asyncPool, m_sendManager);
+        m_postManager.update(queueLimits);
         m_ignoreTopics = Matchers.createEventTopicMatchers(ignoreTopics);
     }
 
@@ -95,14 +105,14 @@ public class EventAdminImpl implements EventAdmin
     /**
      * Check whether the topic should be delivered at all
      */
-    private boolean checkTopic( final Event event )
+    private boolean checkTopic( final String topic )
     {
         boolean result = true;
         if ( this.m_ignoreTopics != null )
         {
             for(final Matchers.Matcher m : this.m_ignoreTopics)
             {
-                if ( m.match(event.getTopic()) )
+                if ( m.match(topic) )
                 {
                     result = false;
                     break;
@@ -124,7 +134,8 @@ public class EventAdminImpl implements EventAdmin
     @Override
     public void postEvent(final Event event)
     {
-        if ( checkTopic(event) )
+        m_topicStatistics.posted(event.getTopic());
+        if ( checkTopic(event.getTopic()) )
         {
             m_postManager.execute(this.getTracker().getHandlers(event), event);
         }
@@ -142,12 +153,68 @@ public class EventAdminImpl implements EventAdmin
     @Override
     public void sendEvent(final Event event)
     {
-        if ( checkTopic(event) )
+        m_topicStatistics.sent(event.getTopic());
+        if ( checkTopic(event.getTopic()) )
         {
             m_sendManager.execute(this.getTracker().getHandlers(event), event, false);
         }
     }
 
+    /**
+     * Check whether an event with the given topic might be delivered to
+     * any event handler. This only checks the topic subscriptions; event
+     * filters and permissions are evaluated on delivery.
+     *
+     * @param topic The topic
+     * @return {@code true} if there might be a handler for the topic,
+     *         {@code false} if the event admin is stopped or no handler
+     *         subscribed to the topic.
+     */
+    public boolean hasHandlers(final String topic)
+    {
+        final EventHandlerTracker localTracker = tracker;
+        return localTracker != null && checkTopic(topic) && localTracker.hasHandlers(topic);
+    }
+
+    /**
+     * Get the asynchronous event dispatcher.
+     */
+    public AsyncDeliverTasks getAsyncDeliverTasks()
+    {
+        return m_postManager;
+    }
+
+    /**
+     * Get the number of posted and sent events per topic.
+     */
+    public TopicStatistics getTopicStatistics()
+    {
+        return m_topicStatistics;
+    }
+
+    /**
+     * Get the currently tracked event handlers.
+     * @return The handlers, empty if the event admin is stopped.
+     */
+    public Collection<EventHandlerProxy> getHandlers()
+    {
+        final EventHandlerTracker localTracker = tracker;
+        if ( localTracker == null )
+        {
+            return Collections.emptyList();
+        }
+        return localTracker.getProxies();
+    }
+
+    /**
+     * Get the number of times a handler has been blacklisted.
+     */
+    public long getBlacklistCount()
+    {
+        final EventHandlerTracker localTracker = tracker;
+        return localTracker == null ? 0 : localTracker.getBlacklistCount();
+    }
+
     /**
      * This method can be used to stop the delivery of events.
      */
@@ -163,11 +230,13 @@ public class EventAdminImpl implements EventAdmin
     public void update(final int timeout,
                     final String[] ignoreTimeout,
                     final boolean requireTopic,
-                    final String[] ignoreTopics)
+                    final String[] ignoreTopics,
+                    final QueueLimits queueLimits)
     {
         this.tracker.close();
         this.tracker.update(ignoreTimeout, requireTopic);
         this.m_sendManager.update(timeout);
+        this.m_postManager.update(queueLimits);
         this.tracker.open();
         this.m_ignoreTopics = Matchers.createEventTopicMatchers(ignoreTopics);
     }
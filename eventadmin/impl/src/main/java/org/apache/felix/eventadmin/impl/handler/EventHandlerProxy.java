@@ -22,8 +22,11 @@ import java.util.Collection;
 import java.util.Iterator;
 
 import org.apache.felix.eventadmin.impl.security.PermissionsUtil;
+import org.apache.felix.eventadmin.impl.util.EqualityTerm;
+import org.apache.felix.eventadmin.impl.util.LatencyHistogram;
 import org.apache.felix.eventadmin.impl.util.LogWrapper;
 import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
 import org.osgi.framework.Filter;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
@@ -54,6 +57,9 @@ public class EventHandlerProxy {
     /** Optional filter. */
     private volatile Filter filter;
 
+    /** Optional equality term of the filter used for indexing. */
+    private volatile EqualityTerm equalityTerm;
+
     /** Lazy fetched event handler. */
     private volatile EventHandler handler;
 
@@ -66,6 +72,12 @@ public class EventHandlerProxy {
     /** Deliver async ordered. */
     private boolean asyncOrderedDelivery;
 
+    /** The class name of the event handler, once obtained. */
+    private volatile String handlerClassName;
+
+    /** The delivery latencies of this handler. */
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
     /**
      * Create an EventHandlerProxy.
      *
@@ -207,6 +219,7 @@ public class EventHandlerProxy {
             }
         }
         this.filter = handlerFilter;
+        this.equalityTerm = handlerFilter == null ? null : EqualityTerm.find(handlerFilter.toString());
 
         // new in 1.3 - deliver
         this.asyncOrderedDelivery = true;
@@ -286,7 +299,8 @@ public class EventHandlerProxy {
                 this.handler = this.handlerContext.bundleContext.getService(this.reference);
                 if ( this.handler != null )
                 {
-                    this.checkTimeout(this.handler.getClass().getName());
+                    this.handlerClassName = this.handler.getClass().getName();
+                    this.checkTimeout(this.handlerClassName);
                 }
             }
             catch (final IllegalStateException ignore)
@@ -325,6 +339,16 @@ public class EventHandlerProxy {
         return this.topics;
     }
 
+    /**
+     * Get an equality term of the filter which must be satisfied by all
+     * events delivered to this handler.
+     * @return The term or <code>null</code>
+     */
+    public EqualityTerm getEqualityTerm()
+    {
+        return this.equalityTerm;
+    }
+
     /**
      * Check if this handler is allowed to receive the event
      * - blacklisted
@@ -399,6 +423,53 @@ public class EventHandlerProxy {
         this.useTimeout = true;
     }
 
+    /**
+     * Is this handler blacklisted?
+     */
+    public boolean isBlacklisted()
+    {
+        return this.blacklisted;
+    }
+
+    /**
+     * Get the service id of the event handler.
+     */
+    public Long getServiceId()
+    {
+        return (Long) this.reference.getProperty(Constants.SERVICE_ID);
+    }
+
+    /**
+     * Get a description of the event handler: the class name if
+     * the handler has been used already, otherwise the service id.
+     */
+    public String getName()
+    {
+        final String className = this.handlerClassName;
+        if ( className != null )
+        {
+            return className;
+        }
+        return "EventHandler [service.id=" + getServiceId() + "]";
+    }
+
+    /**
+     * Get the symbolic name of the bundle registering the event handler.
+     */
+    public String getBundleSymbolicName()
+    {
+        final Bundle bundle = this.reference.getBundle();
+        return bundle == null ? null : bundle.getSymbolicName();
+    }
+
+    /**
+     * Get the delivery latencies of this handler.
+     */
+    public LatencyHistogram getLatencies()
+    {
+        return this.latencies;
+    }
+
     /**
      * Send the event.
      */
@@ -410,6 +481,7 @@ public class EventHandlerProxy {
             return;
         }
 
+        final long start = System.nanoTime();
         try
         {
             handlerService.handleEvent(event);
@@ -424,6 +496,10 @@ public class EventHandlerProxy {
                                             + this.reference + " | Bundle("
                                             + this.reference.getBundle() + ")]", e);
         }
+        finally
+        {
+            this.latencies.record(System.nanoTime() - start);
+        }
     }
 
     /**
@@ -438,6 +514,7 @@ public class EventHandlerProxy {
 	                        "Blacklisting ServiceReference [" + this.reference + " | Bundle("
 	                                        + this.reference.getBundle() + ")] due to timeout!");
 	        this.blacklisted = true;
+	        this.handlerContext.blacklistCount.incrementAndGet();
 	        // we can free the handler now.
 	        this.release();
     	}
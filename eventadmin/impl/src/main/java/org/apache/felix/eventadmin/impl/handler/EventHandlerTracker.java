@@ -20,11 +20,10 @@ package org.apache.felix.eventadmin.impl.handler;
 
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.felix.eventadmin.impl.util.Matchers;
 import org.osgi.framework.BundleContext;
@@ -41,27 +40,30 @@ import org.osgi.util.tracker.ServiceTracker;
 public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandlerProxy> {
 
     /** The proxies in this list match all events. */
-	private final List<EventHandlerProxy> matchingAllEvents;
+	private final HandlerList matchingAllEvents;
 
     /** This is a map for exact topic matches. The key is the topic,
-     * the value is a list of proxies.
+     * the value is a list of proxies indexed by their filter.
      */
-    private final Map<String, List<EventHandlerProxy>> matchingTopic;
+    private final Map<String, HandlerList> matchingTopic;
 
 	/** This is a map for wildcard topics. The key is the prefix of the topic,
-	 * the value is a list of proxies
+	 * the value is a list of proxies indexed by their filter.
 	 */
-	private final Map<String, List<EventHandlerProxy>> matchingPrefixTopic;
+	private final Map<String, HandlerList> matchingPrefixTopic;
 
 
 	/** The context for the proxies. */
 	private HandlerContext handlerContext;
 
+	/** The number of blacklisted handlers. */
+	private final AtomicLong blacklistCount = new AtomicLong();
+
     public EventHandlerTracker(final BundleContext context) {
 		super(context, EventHandler.class.getName(), null);
 
 		// we start with empty collections
-		this.matchingAllEvents = new CopyOnWriteArrayList<>();
+		this.matchingAllEvents = new HandlerList();
 		this.matchingTopic = new ConcurrentHashMap<>();
 		this.matchingPrefixTopic = new ConcurrentHashMap<>();
 	}
@@ -72,7 +74,7 @@ public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandl
      */
     public void update(final String[] ignoreTimeout, final boolean requireTopic) {
         final Matchers.Matcher[] ignoreTimeoutMatcher = Matchers.createPackageMatchers(ignoreTimeout);
-        this.handlerContext = new HandlerContext(this.context, ignoreTimeoutMatcher, requireTopic);
+        this.handlerContext = new HandlerContext(this.context, ignoreTimeoutMatcher, requireTopic, this.blacklistCount);
     }
 
     /**
@@ -107,15 +109,15 @@ public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandl
         proxy.dispose();
 	}
 
-	private void updateMap(final Map<String, List<EventHandlerProxy>> proxyListMap, final String key, final EventHandlerProxy proxy, final boolean add) {
-        List<EventHandlerProxy> proxies = proxyListMap.get(key);
+	private void updateMap(final Map<String, HandlerList> proxyListMap, final String key, final EventHandlerProxy proxy, final boolean add) {
+        HandlerList proxies = proxyListMap.get(key);
         if (proxies == null)
         {
             if ( !add )
             {
                 return;
             }
-            proxies = new CopyOnWriteArrayList<>();
+            proxies = new HandlerList();
             proxyListMap.put(key, proxies);
         }
 
@@ -126,7 +128,7 @@ public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandl
         else
         {
             proxies.remove(proxy);
-            if ( proxies.size() == 0 )
+            if ( proxies.isEmpty() )
             {
                 proxyListMap.remove(key);
             }
@@ -224,23 +226,59 @@ public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandl
 		return handlers;
 	}
 
+	/**
+	 * Get all tracked handlers.
+	 */
+	public Collection<EventHandlerProxy> getProxies() {
+	    return this.getTracked().values();
+	}
+
+	/**
+	 * Get the number of times a handler has been blacklisted.
+	 */
+	public long getBlacklistCount() {
+	    return this.blacklistCount.get();
+	}
+
+	/**
+	 * Check whether any handler is subscribed to the topic. Filters
+	 * and permissions of the handlers are not evaluated.
+	 *
+	 * @param topic The event topic
+	 * @return {@code true} if at least one handler subscribed to the topic
+	 */
+	public boolean hasHandlers(final String topic) {
+	    if ( !this.matchingAllEvents.isEmpty() || this.matchingTopic.containsKey(topic) )
+	    {
+	        return true;
+	    }
+	    if ( !this.matchingPrefixTopic.isEmpty() )
+	    {
+	        int pos = topic.lastIndexOf('/');
+	        while (pos != -1)
+	        {
+	            final String prefix = topic.substring(0, pos);
+	            if ( this.matchingPrefixTopic.containsKey(prefix) )
+	            {
+	                return true;
+	            }
+	            pos = prefix.lastIndexOf('/');
+	        }
+	    }
+	    return false;
+	}
+
 	/**
 	 * Checks each handler from the proxy list if it can deliver the event
 	 * If the event can be delivered, the proxy is added to the handlers.
 	 */
 	private void checkHandlerAndAdd( final Set<EventHandlerProxy> handlers,
-	        final List<EventHandlerProxy> proxies,
+	        final HandlerList proxies,
 	        final Event event)
 	{
 	    if ( proxies != null )
 	    {
-            for(final EventHandlerProxy p : proxies)
-            {
-                if ( p.canDeliver(event) )
-                {
-                    handlers.add(p);
-                }
-            }
+	        proxies.collect(handlers, event);
 	    }
 	}
 
@@ -258,13 +296,18 @@ public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandl
         /** Is a topic required. */
         public final boolean requireTopic;
 
+        /** The number of blacklisted handlers. */
+        public final AtomicLong blacklistCount;
+
         public HandlerContext(final BundleContext bundleContext,
                 final Matchers.Matcher[] ignoreTimeoutMatcher,
-                final boolean   requireTopic)
+                final boolean   requireTopic,
+                final AtomicLong blacklistCount)
         {
             this.bundleContext = bundleContext;
             this.ignoreTimeoutMatcher = ignoreTimeoutMatcher;
             this.requireTopic = requireTopic;
+            this.blacklistCount = blacklistCount;
         }
     }
 }
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.handler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.felix.eventadmin.impl.util.EqualityTerm;
+import org.osgi.service.event.Event;
+
+/**
+ * The handlers registered for a topic node. Handlers with a filter
+ * containing a simple {@link EqualityTerm equality term} are indexed by
+ * the property name and value of the term, so that only those handlers
+ * whose term can match are checked for an event. All other handlers
+ * are always checked.
+ *
+ * Modifications must be synchronized by the caller, reading is thread safe.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+final class HandlerList
+{
+    /** Handlers without an equality term. */
+    private final List<EventHandlerProxy> unindexed = new CopyOnWriteArrayList<>();
+
+    /** Handlers with an equality term: property name to value to handlers. */
+    private final Map<String, Map<String, List<EventHandlerProxy>>> indexed = new ConcurrentHashMap<>();
+
+    public void add(final EventHandlerProxy proxy)
+    {
+        final EqualityTerm term = proxy.getEqualityTerm();
+        if ( term == null )
+        {
+            this.unindexed.add(proxy);
+        }
+        else
+        {
+            Map<String, List<EventHandlerProxy>> values = this.indexed.get(term.getKey());
+            if ( values == null )
+            {
+                values = new ConcurrentHashMap<>();
+                this.indexed.put(term.getKey(), values);
+            }
+            List<EventHandlerProxy> proxies = values.get(term.getValue());
+            if ( proxies == null )
+            {
+                proxies = new CopyOnWriteArrayList<>();
+                values.put(term.getValue(), proxies);
+            }
+            proxies.add(proxy);
+        }
+    }
+
+    public void remove(final EventHandlerProxy proxy)
+    {
+        final EqualityTerm term = proxy.getEqualityTerm();
+        if ( term == null )
+        {
+            this.unindexed.remove(proxy);
+        }
+        else
+        {
+            final Map<String, List<EventHandlerProxy>> values = this.indexed.get(term.getKey());
+            if ( values != null )
+            {
+                final List<EventHandlerProxy> proxies = values.get(term.getValue());
+                if ( proxies != null )
+                {
+                    proxies.remove(proxy);
+                    if ( proxies.isEmpty() )
+                    {
+                        values.remove(term.getValue());
+                    }
+                }
+                if ( values.isEmpty() )
+                {
+                    this.indexed.remove(term.getKey());
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty()
+    {
+        return this.unindexed.isEmpty() && this.indexed.isEmpty();
+    }
+
+    /**
+     * Add all handlers of this list which can deliver the event.
+     */
+    public void collect(final Set<EventHandlerProxy> handlers, final Event event)
+    {
+        checkAndAdd(handlers, this.unindexed, event);
+        if ( !this.indexed.isEmpty() )
+        {
+            for(final Map.Entry<String, Map<String, List<EventHandlerProxy>>> entry : this.indexed.entrySet())
+            {
+                final Object value = event.getProperty(entry.getKey());
+                if ( value instanceof String )
+                {
+                    checkAndAdd(handlers, entry.getValue().get(value), event);
+                }
+                else if ( value != null )
+                {
+                    // the filter might convert the value, evaluate all filters
+                    for(final List<EventHandlerProxy> proxies : entry.getValue().values())
+                    {
+                        checkAndAdd(handlers, proxies, event);
+                    }
+                }
+                // without the property, no term can match
+            }
+        }
+    }
+
+    private static void checkAndAdd(final Set<EventHandlerProxy> handlers,
+            final List<EventHandlerProxy> proxies,
+            final Event event)
+    {
+        if ( proxies != null )
+        {
+            for(final EventHandlerProxy p : proxies)
+            {
+                if ( p.canDeliver(event) )
+                {
+                    handlers.add(p);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.jmx;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Map;
+
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+import javax.management.openmbean.ArrayType;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.apache.felix.eventadmin.impl.handler.EventAdminImpl;
+import org.apache.felix.eventadmin.impl.handler.EventHandlerProxy;
+import org.apache.felix.eventadmin.impl.tasks.AsyncDeliverTasks;
+import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
+import org.apache.felix.eventadmin.impl.tasks.QueueLimits;
+import org.apache.felix.eventadmin.impl.util.LatencyHistogram;
+import org.apache.felix.eventadmin.impl.util.TopicStatistics;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * Implementation of the {@link EventAdminStatusMBean}. An instance of this class
+ * is registered as a <tt>javax.management.DynamicMBean</tt> service with the
+ * object name {@link #OBJECT_NAME}.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class EventAdminStatus implements EventAdminStatusMBean
+{
+    /** The object name of the MBean. */
+    public static final String OBJECT_NAME = "org.apache.felix.eventadmin:type=EventAdmin";
+
+    private static final String[] TOPIC_ITEMS = {"topic", "posted", "sent", "postRate", "sendRate"};
+
+    private static final String[] HANDLER_ITEMS = {"serviceId", "handler", "bundle", "deliveries",
+        "meanMicros", "maxMicros", "buckets", "blacklisted"};
+
+    private static final TabularType TOPIC_TYPE;
+
+    private static final TabularType HANDLER_TYPE;
+
+    static
+    {
+        try
+        {
+            final CompositeType topicRow = new CompositeType("TopicStatistics", "Events per topic",
+                    TOPIC_ITEMS, TOPIC_ITEMS,
+                    new OpenType<?>[] {SimpleType.STRING, SimpleType.LONG, SimpleType.LONG,
+                        SimpleType.DOUBLE, SimpleType.DOUBLE});
+            TOPIC_TYPE = new TabularType("TopicStatisticsTable", "Events per topic",
+                    topicRow, new String[] {"topic"});
+            final CompositeType handlerRow = new CompositeType("HandlerStatistics", "Deliveries per handler",
+                    HANDLER_ITEMS, HANDLER_ITEMS,
+                    new OpenType<?>[] {SimpleType.LONG, SimpleType.STRING, SimpleType.STRING, SimpleType.LONG,
+                        SimpleType.LONG, SimpleType.LONG, new ArrayType<long[]>(SimpleType.LONG, true),
+                        SimpleType.BOOLEAN});
+            HANDLER_TYPE = new TabularType("HandlerStatisticsTable", "Deliveries per handler",
+                    handlerRow, new String[] {"serviceId"});
+        }
+        catch ( final OpenDataException e )
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final EventAdminImpl m_admin;
+
+    private final DefaultThreadPool m_syncPool;
+
+    private final DefaultThreadPool m_asyncPool;
+
+    private volatile QueueLimits m_limits = QueueLimits.UNBOUNDED;
+
+    public EventAdminStatus(final EventAdminImpl admin,
+            final DefaultThreadPool syncPool,
+            final DefaultThreadPool asyncPool)
+    {
+        m_admin = admin;
+        m_syncPool = syncPool;
+        m_asyncPool = asyncPool;
+    }
+
+    /**
+     * Register this bean as a <tt>javax.management.DynamicMBean</tt> service.
+     * The bean is picked up by any JMX whiteboard implementation.
+     *
+     * @param bundleContext The bundle context used for the registration
+     * @return The service registration
+     * @throws NotCompliantMBeanException If the bean can't be created
+     */
+    public ServiceRegistration<?> register(final BundleContext bundleContext) throws NotCompliantMBeanException
+    {
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put("jmx.objectname", OBJECT_NAME);
+        return bundleContext.registerService(DynamicMBean.class.getName(),
+                new StandardMBean(this, EventAdminStatusMBean.class), props);
+    }
+
+    /**
+     * Update the queue limits reported by this bean.
+     */
+    public void update(final QueueLimits limits)
+    {
+        m_limits = limits;
+    }
+
+    private AsyncDeliverTasks getPostManager()
+    {
+        return m_admin.getAsyncDeliverTasks();
+    }
+
+    @Override
+    public int getAsyncQueueSize()
+    {
+        return getPostManager().getQueueSize();
+    }
+
+    @Override
+    public int getAsyncQueueLimit()
+    {
+        return m_limits.getMaxSize();
+    }
+
+    @Override
+    public String getAsyncQueuePolicy()
+    {
+        return m_limits.getPolicy().getValue();
+    }
+
+    @Override
+    public long getDroppedEventCount()
+    {
+        return getDroppedNewestEventCount() + getDroppedOldestEventCount();
+    }
+
+    @Override
+    public long getDroppedNewestEventCount()
+    {
+        return getPostManager().getDroppedNewestCount();
+    }
+
+    @Override
+    public long getDroppedOldestEventCount()
+    {
+        return getPostManager().getDroppedOldestCount();
+    }
+
+    @Override
+    public long getCoalescedEventCount()
+    {
+        return getPostManager().getCoalescedCount();
+    }
+
+    @Override
+    public long getBlockedPostCount()
+    {
+        return getPostManager().getBlockedCount();
+    }
+
+    @Override
+    public String getThreadPoolType()
+    {
+        return m_asyncPool.getType();
+    }
+
+    @Override
+    public int getSyncPoolActiveCount()
+    {
+        return m_syncPool.getActiveCount();
+    }
+
+    @Override
+    public int getSyncPoolQueueSize()
+    {
+        return m_syncPool.getQueueSize();
+    }
+
+    @Override
+    public double getSyncPoolSaturation()
+    {
+        return m_syncPool.getSaturation();
+    }
+
+    @Override
+    public long getSyncPoolRejectedCount()
+    {
+        return m_syncPool.getRejectedCount();
+    }
+
+    @Override
+    public int getAsyncPoolActiveCount()
+    {
+        return m_asyncPool.getActiveCount();
+    }
+
+    @Override
+    public int getAsyncPoolQueueSize()
+    {
+        return m_asyncPool.getQueueSize();
+    }
+
+    @Override
+    public double getAsyncPoolSaturation()
+    {
+        return m_asyncPool.getSaturation();
+    }
+
+    @Override
+    public long getAsyncPoolRejectedCount()
+    {
+        return m_asyncPool.getRejectedCount();
+    }
+
+    @Override
+    public long getBlacklistCount()
+    {
+        return m_admin.getBlacklistCount();
+    }
+
+    @Override
+    public long getPostedEventCount()
+    {
+        long count = 0;
+        for(final TopicStatistics.Counter counter : m_admin.getTopicStatistics().getCounters().values())
+        {
+            count += counter.getPosted();
+        }
+        return count;
+    }
+
+    @Override
+    public long getSentEventCount()
+    {
+        long count = 0;
+        for(final TopicStatistics.Counter counter : m_admin.getTopicStatistics().getCounters().values())
+        {
+            count += counter.getSent();
+        }
+        return count;
+    }
+
+    @Override
+    public TabularData getTopicStatistics()
+    {
+        final TopicStatistics statistics = m_admin.getTopicStatistics();
+        final double seconds = Math.max(1, System.currentTimeMillis() - statistics.getStartTime()) / 1000.0;
+        final TabularDataSupport result = new TabularDataSupport(TOPIC_TYPE);
+        for(final Map.Entry<String, TopicStatistics.Counter> entry : statistics.getCounters().entrySet())
+        {
+            final long posted = entry.getValue().getPosted();
+            final long sent = entry.getValue().getSent();
+            result.put(row(TOPIC_TYPE.getRowType(), TOPIC_ITEMS,
+                    new Object[] {entry.getKey(), posted, sent, posted / seconds, sent / seconds}));
+        }
+        return result;
+    }
+
+    @Override
+    public TabularData getHandlerStatistics()
+    {
+        final TabularDataSupport result = new TabularDataSupport(HANDLER_TYPE);
+        for(final EventHandlerProxy proxy : m_admin.getHandlers())
+        {
+            final LatencyHistogram latencies = proxy.getLatencies();
+            final String bundle = proxy.getBundleSymbolicName();
+            result.put(row(HANDLER_TYPE.getRowType(), HANDLER_ITEMS,
+                    new Object[] {proxy.getServiceId(), proxy.getName(), bundle == null ? "" : bundle,
+                        latencies.getCount(), latencies.getMeanNanos() / 1000, latencies.getMaxNanos() / 1000,
+                        latencies.getBuckets(), proxy.isBlacklisted()}));
+        }
+        return result;
+    }
+
+    private static CompositeDataSupport row(final CompositeType type, final String[] names, final Object[] values)
+    {
+        try
+        {
+            return new CompositeDataSupport(type, names, values);
+        }
+        catch ( final OpenDataException e )
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String[] getLatencyBuckets()
+    {
+        return LatencyHistogram.getBucketLabels();
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        m_admin.getTopicStatistics().reset();
+        for(final EventHandlerProxy proxy : m_admin.getHandlers())
+        {
+            proxy.getLatencies().reset();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.jmx;
+
+import javax.management.openmbean.TabularData;
+
+/**
+ * The management interface of the event admin exposing statistics
+ * about the event delivery.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public interface EventAdminStatusMBean
+{
+    /** The number of events currently queued for asynchronous delivery. */
+    int getAsyncQueueSize();
+
+    /** The maximum number of queued events of all posting threads, 0 if unbounded. */
+    int getAsyncQueueLimit();
+
+    /** The policy applied if a queue is full. */
+    String getAsyncQueuePolicy();
+
+    /** The total number of dropped events. */
+    long getDroppedEventCount();
+
+    /** The number of posted events dropped because the queue was full. */
+    long getDroppedNewestEventCount();
+
+    /** The number of queued events dropped to make room for newer events. */
+    long getDroppedOldestEventCount();
+
+    /** The number of queued events replaced by newer events. */
+    long getCoalescedEventCount();
+
+    /** The number of times a posting thread was blocked because the queue was full. */
+    long getBlockedPostCount();
+
+    /** The type of the thread pools. */
+    String getThreadPoolType();
+
+    /** The number of tasks currently executed by the sync thread pool. */
+    int getSyncPoolActiveCount();
+
+    /** The number of tasks waiting for the sync thread pool. */
+    int getSyncPoolQueueSize();
+
+    /** The saturation of the sync thread pool. */
+    double getSyncPoolSaturation();
+
+    /** The number of tasks rejected by the sync thread pool. */
+    long getSyncPoolRejectedCount();
+
+    /** The number of tasks currently executed by the async thread pool. */
+    int getAsyncPoolActiveCount();
+
+    /** The number of tasks waiting for the async thread pool. */
+    int getAsyncPoolQueueSize();
+
+    /** The saturation of the async thread pool. */
+    double getAsyncPoolSaturation();
+
+    /** The number of tasks rejected by the async thread pool. */
+    long getAsyncPoolRejectedCount();
+
+    /** The number of handlers blacklisted for exceeding the timeout. */
+    long getBlacklistCount();
+
+    /** The total number of posted events. */
+    long getPostedEventCount();
+
+    /** The total number of sent events. */
+    long getSentEventCount();
+
+    /**
+     * The number of posted and sent events per topic together with the
+     * rates in events per second since the statistics were reset.
+     */
+    TabularData getTopicStatistics();
+
+    /**
+     * The delivery statistics per event handler including the number
+     * of deliveries per {@link #getLatencyBuckets() latency bucket}.
+     */
+    TabularData getHandlerStatistics();
+
+    /** The labels of the latency buckets. */
+    String[] getLatencyBuckets();
+
+    /** Reset the topic and handler statistics. */
+    void resetStatistics();
+}
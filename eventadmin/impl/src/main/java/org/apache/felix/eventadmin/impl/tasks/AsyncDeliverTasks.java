@@ -19,15 +19,26 @@
 package org.apache.felix.eventadmin.impl.tasks;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.felix.eventadmin.impl.handler.EventHandlerProxy;
+import org.apache.felix.eventadmin.impl.util.LogWrapper;
 import org.osgi.service.event.Event;
 
 /**
  * This class does the actual work of the asynchronous event dispatch.
  *
+ * Events are queued per posting thread. The queues can be bounded by
+ * {@link QueueLimits}; the maximum size limits the events of all queues
+ * together while the per topic limits apply to each queue. Once a limit
+ * is reached the configured policy decides whether the poster is blocked,
+ * or which event of its queue is dropped or coalesced.
+ *
  * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
  */
 public class AsyncDeliverTasks
@@ -44,6 +55,12 @@ public class AsyncDeliverTasks
     /** A map of running threads currently delivering async events. */
     private final Map<Long, TaskExecuter> m_running_threads = new ConcurrentHashMap<Long, TaskExecuter>();
 
+    /** The queue limits. */
+    private volatile QueueLimits m_limits = QueueLimits.UNBOUNDED;
+
+    /** The statistics of the queues. */
+    private final QueueStatistics m_statistics = new QueueStatistics();
+
     /**
      * The constructor of the class that will use the asynchronous.
      *
@@ -58,6 +75,54 @@ public class AsyncDeliverTasks
         m_deliver_task = deliverTask;
     }
 
+    /**
+     * Update the queue limits.
+     */
+    public void update(final QueueLimits limits)
+    {
+        m_limits = limits == null ? QueueLimits.UNBOUNDED : limits;
+    }
+
+    /**
+     * Get the number of events currently queued.
+     */
+    public int getQueueSize()
+    {
+        return m_statistics.queued.get();
+    }
+
+    /**
+     * Get the number of posted events dropped as the queue was full.
+     */
+    public long getDroppedNewestCount()
+    {
+        return m_statistics.droppedNewest.get();
+    }
+
+    /**
+     * Get the number of queued events dropped to make room for newer events.
+     */
+    public long getDroppedOldestCount()
+    {
+        return m_statistics.droppedOldest.get();
+    }
+
+    /**
+     * Get the number of queued events replaced by a newer event.
+     */
+    public long getCoalescedCount()
+    {
+        return m_statistics.coalesced.get();
+    }
+
+    /**
+     * Get the number of times a posting thread was blocked.
+     */
+    public long getBlockedCount()
+    {
+        return m_statistics.blocked.get();
+    }
+
     /**
      * This does not block an unrelated thread used to send a synchronous event.
      *
@@ -84,16 +149,21 @@ public class AsyncDeliverTasks
         }
         if ( hasOrdered )
         {*/
-            final TaskInfo info = new TaskInfo(tasks, event);
+            final QueueLimits limits = m_limits;
+            final TaskInfo info = new TaskInfo(tasks, event,
+                    limits.getTopicLimitCount() > 0 ? limits.getTopicLimitIndex(event.getTopic()) : -1);
             final Long currentThreadId = Thread.currentThread().getId();
             TaskExecuter executer = m_running_threads.get(currentThreadId);
             if ( executer == null )
             {
-                executer = new TaskExecuter(currentThreadId, m_running_threads);
+                executer = new TaskExecuter(currentThreadId, m_running_threads, m_statistics);
             }
             synchronized ( executer )
             {
-                executer.add(info);
+                if ( !executer.offer(info, limits) )
+                {
+                    return;
+                }
                 if ( !executer.isActive() )
                 {
                     // reactivate thread
@@ -109,15 +179,72 @@ public class AsyncDeliverTasks
         //}
     }
 
+    /**
+     * The counters shared by all queues.
+     */
+    private static final class QueueStatistics
+    {
+        public final AtomicInteger queued = new AtomicInteger();
+        public final AtomicLong droppedNewest = new AtomicLong();
+        public final AtomicLong droppedOldest = new AtomicLong();
+        public final AtomicLong coalesced = new AtomicLong();
+        public final AtomicLong blocked = new AtomicLong();
+
+        /** The queues with posting threads waiting for space. */
+        public final Set<TaskExecuter> waiting = Collections.newSetFromMap(new ConcurrentHashMap<TaskExecuter, Boolean>());
+
+        /**
+         * Reserve space for an event in the queues.
+         * @param maxSize The maximum number of queued events, 0 for unbounded.
+         * @return {@code true} if the space has been reserved.
+         */
+        public boolean reserve(final int maxSize)
+        {
+            if ( maxSize <= 0 )
+            {
+                queued.incrementAndGet();
+                return true;
+            }
+            int current;
+            do
+            {
+                current = queued.get();
+                if ( current >= maxSize )
+                {
+                    return false;
+                }
+            } while ( !queued.compareAndSet(current, current + 1) );
+            return true;
+        }
+
+        /**
+         * Wake up the posting threads waiting for space.
+         */
+        public void signalSpace()
+        {
+            for(final TaskExecuter queue : waiting)
+            {
+                synchronized ( queue )
+                {
+                    queue.notifyAll();
+                }
+            }
+        }
+    }
+
     private final static class TaskInfo {
-        public final Collection<EventHandlerProxy> tasks;
-        public final Event event;
+        public Collection<EventHandlerProxy> tasks;
+        public Event event;
+
+        /** Index of the matching per topic limit or -1. */
+        public final int topicLimit;
 
         public TaskInfo next;
 
-        public TaskInfo(final Collection<EventHandlerProxy> tasks, final Event event) {
+        public TaskInfo(final Collection<EventHandlerProxy> tasks, final Event event, final int topicLimit) {
             this.tasks = tasks;
             this.event = event;
+            this.topicLimit = topicLimit;
         }
     }
 
@@ -130,10 +257,23 @@ public class AsyncDeliverTasks
 
         private final Map<Long, TaskExecuter> m_running_threads;
 
+        private final QueueStatistics m_statistics;
+
         private final long threadId;
 
-        public TaskExecuter(final long threadId, final Map<Long, TaskExecuter> runningThreads) {
+        /** Number of queued events per topic limit. */
+        private int[] topicCounts = new int[0];
+
+        /** The limits the topic counts are based on. */
+        private QueueLimits countedLimits;
+
+        /** Number of posting threads waiting for space in the queue. */
+        private int waiting;
+
+        public TaskExecuter(final long threadId, final Map<Long, TaskExecuter> runningThreads,
+                final QueueStatistics statistics) {
             m_running_threads = runningThreads;
+            m_statistics = statistics;
             this.threadId = threadId;
         }
 
@@ -162,7 +302,10 @@ public class AsyncDeliverTasks
                     {
                         last = null;
                     }
+                    removed(info);
+                    m_statistics.queued.decrementAndGet();
                 }
+                m_statistics.signalSpace();
                 m_deliver_task.execute(info.tasks, info.event, true);
                 synchronized ( this )
                 {
@@ -176,7 +319,209 @@ public class AsyncDeliverTasks
             } while ( running );
         }
 
-        public void add(final TaskInfo info)
+        /**
+         * Add the task to the queue, applying the limits.
+         * This method must be called while holding the lock of this object.
+         * @return {@code true} if the task has been added.
+         */
+        public boolean offer(final TaskInfo info, final QueueLimits limits)
+        {
+            if ( !limits.isBounded() )
+            {
+                m_statistics.queued.incrementAndGet();
+                add(info);
+                return true;
+            }
+            if ( countedLimits != limits )
+            {
+                recount(limits);
+            }
+            if ( tryAdd(info, limits) )
+            {
+                return true;
+            }
+            switch ( limits.getPolicy() )
+            {
+                case BLOCK:
+                    if ( waitForSpace(info, limits) )
+                    {
+                        return true;
+                    }
+                    m_statistics.droppedNewest.incrementAndGet();
+                    return false;
+
+                case COALESCE:
+                    if ( coalesce(info, limits.getCoalesceProperty()) )
+                    {
+                        m_statistics.coalesced.incrementAndGet();
+                        return false;
+                    }
+                    // fall through - drop the oldest event
+                case DROP_OLDEST:
+                    if ( dropOldest(info, limits) )
+                    {
+                        m_statistics.droppedOldest.incrementAndGet();
+                        add(info);
+                        return true;
+                    }
+                    m_statistics.droppedNewest.incrementAndGet();
+                    return false;
+
+                default:
+                    m_statistics.droppedNewest.incrementAndGet();
+                    return false;
+            }
+        }
+
+        private boolean isTopicFull(final TaskInfo info, final QueueLimits limits)
+        {
+            return info.topicLimit != -1 && topicCounts[info.topicLimit] >= limits.getTopicLimit(info.topicLimit);
+        }
+
+        /**
+         * Add the task if neither its topic limit nor the maximum size of
+         * all queues is reached.
+         */
+        private boolean tryAdd(final TaskInfo info, final QueueLimits limits)
+        {
+            if ( isTopicFull(info, limits) || !m_statistics.reserve(limits.getMaxSize()) )
+            {
+                return false;
+            }
+            add(info);
+            return true;
+        }
+
+        private boolean waitForSpace(final TaskInfo info, final QueueLimits limits)
+        {
+            m_statistics.blocked.incrementAndGet();
+            final long end = System.currentTimeMillis() + limits.getBlockTimeout();
+            // register before checking again, space freed by another queue in the meantime is not signalled
+            if ( waiting++ == 0 )
+            {
+                m_statistics.waiting.add(this);
+            }
+            try
+            {
+                long remaining = limits.getBlockTimeout();
+                while ( !tryAdd(info, limits) )
+                {
+                    if ( remaining <= 0 )
+                    {
+                        return false;
+                    }
+                    this.wait(remaining);
+                    remaining = end - System.currentTimeMillis();
+                }
+                return true;
+            }
+            catch ( final InterruptedException ie )
+            {
+                Thread.currentThread().interrupt();
+                LogWrapper.getLogger().log(
+                        LogWrapper.LOG_WARNING,
+                        "Interrupted while waiting for space in the event queue - Dropping event " + info.event);
+            }
+            finally
+            {
+                if ( --waiting == 0 )
+                {
+                    m_statistics.waiting.remove(this);
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Replace a queued event with the same topic and the same
+         * value for the coalesce property.
+         */
+        private boolean coalesce(final TaskInfo info, final String property)
+        {
+            final String topic = info.event.getTopic();
+            final Object key = property == null ? null : info.event.getProperty(property);
+            TaskInfo current = first;
+            while ( current != null )
+            {
+                if ( current.topicLimit == info.topicLimit
+                     && topic.equals(current.event.getTopic()) )
+                {
+                    final Object currentKey = property == null ? null : current.event.getProperty(property);
+                    if ( key == null ? currentKey == null : key.equals(currentKey) )
+                    {
+                        current.event = info.event;
+                        current.tasks = info.tasks;
+                        return true;
+                    }
+                }
+                current = current.next;
+            }
+            return false;
+        }
+
+        /**
+         * Remove the oldest event of this queue. If the per topic limit is reached
+         * the oldest event for this limit is removed. The space of the removed
+         * event is kept for the posted event.
+         */
+        private boolean dropOldest(final TaskInfo info, final QueueLimits limits)
+        {
+            final boolean topicFull = isTopicFull(info, limits);
+            TaskInfo previous = null;
+            TaskInfo current = first;
+            while ( current != null )
+            {
+                if ( !topicFull || current.topicLimit == info.topicLimit )
+                {
+                    if ( previous == null )
+                    {
+                        first = current.next;
+                    }
+                    else
+                    {
+                        previous.next = current.next;
+                    }
+                    if ( last == current )
+                    {
+                        last = previous;
+                    }
+                    removed(current);
+                    return true;
+                }
+                previous = current;
+                current = current.next;
+            }
+            return false;
+        }
+
+        private void recount(final QueueLimits limits)
+        {
+            countedLimits = limits;
+            topicCounts = new int[limits.getTopicLimitCount()];
+            TaskInfo current = first;
+            while ( current != null )
+            {
+                if ( current.topicLimit != -1 && current.topicLimit < topicCounts.length )
+                {
+                    topicCounts[current.topicLimit]++;
+                }
+                current = current.next;
+            }
+        }
+
+        private void removed(final TaskInfo info)
+        {
+            if ( info.topicLimit != -1 && info.topicLimit < topicCounts.length )
+            {
+                topicCounts[info.topicLimit]--;
+            }
+        }
+
+        /**
+         * Append the task to the queue. The caller has reserved the space in
+         * the queue statistics.
+         */
+        private void add(final TaskInfo info)
         {
             if ( first == null )
             {
@@ -188,6 +533,10 @@ public class AsyncDeliverTasks
                 last.next = info;
                 last = info;
             }
+            if ( info.topicLimit != -1 && info.topicLimit < topicCounts.length )
+            {
+                topicCounts[info.topicLimit]++;
+            }
         }
     }
 }
@@ -16,10 +16,14 @@
  */
 package org.apache.felix.eventadmin.impl.tasks;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.felix.eventadmin.impl.util.LogWrapper;
@@ -29,24 +33,71 @@ import org.apache.felix.eventadmin.impl.util.LogWrapper;
  * A thread pool that allows to execute tasks using pooled threads in order
  * to ease the thread creation overhead.
  *
+ * The pool supports three backends:
+ * <ul>
+ * <li>{@link #TYPE_FIXED} : a fixed size thread pool (the default)</li>
+ * <li>{@link #TYPE_VIRTUAL} : a virtual thread per task. This requires
+ *     Java 21 or higher, on older VMs the fixed pool is used.</li>
+ * <li>{@link #TYPE_SERVICE} : an {@code Executor} provided from the outside
+ *     (usually registered as a service). As long as no executor is available,
+ *     the fixed pool is used.</li>
+ * </ul>
+ *
  * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
  */
 public class DefaultThreadPool
 {
+    /** Use a fixed size thread pool. */
+    public static final String TYPE_FIXED = "fixed";
+
+    /** Use a virtual thread per task if supported by the VM. */
+    public static final String TYPE_VIRTUAL = "virtual";
+
+    /** Use an executor provided from the outside. */
+    public static final String TYPE_SERVICE = "service";
+
+    private volatile ThreadPoolExecutor executor;
 
-    private ExecutorService executor;
+    private volatile ExecutorService virtualExecutor;
+
+    private volatile Executor externalExecutor;
+
+    private volatile String type = TYPE_FIXED;
 
     private final ThreadFactory threadFactory;
 
+    private final boolean syncThreads;
+
     private int oldSize = -1;
 
     private final AtomicLong threadCounter = new AtomicLong(1);
 
+    /** Number of tasks currently executing. */
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    /** Number of tasks which have been scheduled but not started yet. */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /** Number of tasks which could not be scheduled. */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /** Number of executed tasks. */
+    private final AtomicLong completedCount = new AtomicLong();
+
     /**
      * Create a new pool.
      */
     public DefaultThreadPool(final int poolSize, final boolean syncThreads)
     {
+        this(poolSize, syncThreads, TYPE_FIXED);
+    }
+
+    /**
+     * Create a new pool.
+     */
+    public DefaultThreadPool(final int poolSize, final boolean syncThreads, final String type)
+    {
+        this.syncThreads = syncThreads;
         if ( syncThreads )
         {
             threadFactory = new ThreadFactory()
@@ -81,24 +132,90 @@ public class DefaultThreadPool
                 }
             };
         }
-   	    configure(poolSize);
+   	    configure(poolSize, type);
     }
 
     /**
      * Configure a new pool size.
      */
     public synchronized void configure(final int poolSize)
+    {
+        configure(poolSize, this.type);
+    }
+
+    /**
+     * Configure a new pool size and backend type.
+     */
+    public synchronized void configure(final int poolSize, final String poolType)
     {
         if ( oldSize != poolSize)
         {
             oldSize = poolSize;
             final ExecutorService oldService = this.executor;
-            this.executor = Executors.newFixedThreadPool(poolSize, threadFactory);
+            this.executor = new ThreadPoolExecutor(poolSize, poolSize,
+                    0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    threadFactory);
             if ( oldService != null )
             {
                 oldService.shutdown();
             }
         }
+        final String newType = poolType == null ? TYPE_FIXED : poolType;
+        if ( TYPE_VIRTUAL.equals(newType) )
+        {
+            if ( this.virtualExecutor == null )
+            {
+                this.virtualExecutor = createVirtualThreadExecutor();
+                if ( this.virtualExecutor == null )
+                {
+                    LogWrapper.getLogger().log(LogWrapper.LOG_INFO,
+                            "Virtual threads are not supported by this VM - Using fixed thread pool");
+                }
+            }
+        }
+        else if ( this.virtualExecutor != null )
+        {
+            this.virtualExecutor.shutdown();
+            this.virtualExecutor = null;
+        }
+        if ( !TYPE_SERVICE.equals(newType) )
+        {
+            this.externalExecutor = null;
+        }
+        this.type = newType;
+    }
+
+    /**
+     * Set the executor to be used for the {@link #TYPE_SERVICE} backend.
+     * @param executor The executor or {@code null} to fall back to the fixed pool.
+     */
+    public void setExecutor(final Executor executor)
+    {
+        this.externalExecutor = executor;
+    }
+
+    /**
+     * Try to create an executor using a new virtual thread for each task.
+     * Reflection is used as this is only available with Java 21+.
+     * @return The executor or {@code null} if not supported.
+     */
+    private static ExecutorService createVirtualThreadExecutor()
+    {
+        try
+        {
+            return (ExecutorService) java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch ( final Exception e )
+        {
+            // not supported
+        }
+        catch ( final LinkageError e )
+        {
+            // not supported
+        }
+        return null;
     }
 
     /**
@@ -109,13 +226,74 @@ public class DefaultThreadPool
     	return oldSize;
     }
 
+    /**
+     * Returns the configured backend type.
+     */
+    public String getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * Returns the number of tasks currently executing.
+     */
+    public int getActiveCount()
+    {
+        return this.activeCount.get();
+    }
+
+    /**
+     * Returns the number of tasks waiting for execution.
+     */
+    public int getQueueSize()
+    {
+        return this.pendingCount.get();
+    }
+
+    /**
+     * Returns the number of tasks which could not be scheduled.
+     */
+    public long getRejectedCount()
+    {
+        return this.rejectedCount.get();
+    }
+
+    /**
+     * Returns the number of tasks which have been executed.
+     */
+    public long getCompletedCount()
+    {
+        return this.completedCount.get();
+    }
+
+    /**
+     * Returns the saturation of the pool, the ratio of executing tasks to
+     * the pool size. For unbounded backends (virtual threads, external
+     * executors) this might be above 1.
+     */
+    public double getSaturation()
+    {
+        final int size = this.oldSize;
+        if ( size <= 0 )
+        {
+            return 0;
+        }
+        return (double) this.activeCount.get() / size;
+    }
+
     /**
      * Close the pool i.e, stop pooling threads. Note that subsequently, task will
      * still be executed but no pooling is taking place anymore.
      */
-    public void close()
+    public synchronized void close()
     {
         this.executor.shutdownNow();
+        if ( this.virtualExecutor != null )
+        {
+            this.virtualExecutor.shutdownNow();
+            this.virtualExecutor = null;
+        }
+        this.externalExecutor = null;
     }
 
     /**
@@ -125,12 +303,35 @@ public class DefaultThreadPool
      */
     public boolean executeTask(final Runnable task)
     {
+        final Executor external = this.externalExecutor;
+        final ExecutorService virtual = this.virtualExecutor;
+        final Executor target;
+        // the marker is only needed if the task does not run in a SyncThread
+        final boolean markSync;
+        if ( external != null )
+        {
+            target = external;
+            markSync = this.syncThreads;
+        }
+        else if ( virtual != null )
+        {
+            target = virtual;
+            markSync = this.syncThreads;
+        }
+        else
+        {
+            target = this.executor;
+            markSync = false;
+        }
+        pendingCount.incrementAndGet();
         try
         {
-            this.executor.submit(task);
+            target.execute(new MeasuringTask(task, markSync));
         }
         catch ( final RejectedExecutionException ree )
         {
+            pendingCount.decrementAndGet();
+            rejectedCount.incrementAndGet();
             LogWrapper.getLogger().log(
                     LogWrapper.LOG_WARNING,
                     "Exception: " + ree, ree);
@@ -138,10 +339,52 @@ public class DefaultThreadPool
         }
         catch (final Throwable t)
         {
+            pendingCount.decrementAndGet();
+            rejectedCount.incrementAndGet();
             LogWrapper.getLogger().log(
                     LogWrapper.LOG_WARNING,
                     "Exception: " + t, t);
+            return false;
         }
         return true;
     }
+
+    /**
+     * Wrapper for a task maintaining the pool statistics.
+     */
+    private final class MeasuringTask implements Runnable
+    {
+        private final Runnable task;
+
+        private final boolean markSync;
+
+        MeasuringTask(final Runnable task, final boolean markSync)
+        {
+            this.task = task;
+            this.markSync = markSync;
+        }
+
+        @Override
+        public void run()
+        {
+            pendingCount.decrementAndGet();
+            activeCount.incrementAndGet();
+            try
+            {
+                if ( markSync )
+                {
+                    SyncThread.runAsSyncThread(task);
+                }
+                else
+                {
+                    task.run();
+                }
+            }
+            finally
+            {
+                activeCount.decrementAndGet();
+                completedCount.incrementAndGet();
+            }
+        }
+    }
 }
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.felix.eventadmin.impl.util.LogWrapper;
+import org.apache.felix.eventadmin.impl.util.Matchers;
+
+/**
+ * The limits for the asynchronous event queues and the policy applied
+ * once a limit is reached. Instances of this class are immutable.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class QueueLimits
+{
+    /** The policy applied if a queue is full. */
+    public enum Policy
+    {
+        /** Block the posting thread until space is available or the timeout expires. */
+        BLOCK("block"),
+        /** Drop the posted event. */
+        DROP_NEWEST("dropNewest"),
+        /** Drop the oldest queued event. */
+        DROP_OLDEST("dropOldest"),
+        /** Replace a queued event with the same topic and key property, otherwise drop the oldest. */
+        COALESCE("coalesce");
+
+        private final String value;
+
+        Policy(final String value)
+        {
+            this.value = value;
+        }
+
+        public String getValue()
+        {
+            return value;
+        }
+
+        /**
+         * Get the policy for the configuration value.
+         * @return The policy or {@code null}
+         */
+        public static Policy fromValue(final String value)
+        {
+            for(final Policy p : values())
+            {
+                if ( p.value.equalsIgnoreCase(value) )
+                {
+                    return p;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Unbounded queues. */
+    public static final QueueLimits UNBOUNDED = new QueueLimits(0, null, Policy.DROP_NEWEST, 0, null);
+
+    private final int maxSize;
+
+    private final Matchers.Matcher[] topicMatchers;
+
+    private final int[] topicSizes;
+
+    private final Policy policy;
+
+    private final long blockTimeout;
+
+    private final String coalesceProperty;
+
+    /**
+     * Create new limits.
+     *
+     * @param maxSize The maximum number of queued events of all queues, 0 for unbounded.
+     * @param topicSizes Per topic limits for each queue in the form <tt>topic=size</tt>.
+     *        The topic can use the same syntax as the ignore topics configuration.
+     * @param policy The policy applied once a limit is reached.
+     * @param blockTimeout The maximum time in milliseconds a poster is blocked,
+     *        the configuration ensures a value greater than 0.
+     * @param coalesceProperty The event property used as key for coalescing
+     *        in addition to the topic, might be {@code null}.
+     */
+    public QueueLimits(final int maxSize,
+            final String[] topicSizes,
+            final Policy policy,
+            final long blockTimeout,
+            final String coalesceProperty)
+    {
+        this.maxSize = maxSize < 0 ? 0 : maxSize;
+        this.policy = policy;
+        this.blockTimeout = blockTimeout;
+        this.coalesceProperty = coalesceProperty;
+
+        final List<Matchers.Matcher> matchers = new ArrayList<>();
+        final List<Integer> sizes = new ArrayList<>();
+        if ( topicSizes != null )
+        {
+            for(final String value : topicSizes)
+            {
+                final int pos = value == null ? -1 : value.lastIndexOf('=');
+                if ( pos < 1 )
+                {
+                    if ( value != null && value.trim().length() > 0 )
+                    {
+                        LogWrapper.getLogger().log(LogWrapper.LOG_WARNING,
+                                "Invalid queue size definition (topic=size) : " + value + " - Ignoring");
+                    }
+                    continue;
+                }
+                final Matchers.Matcher[] m = Matchers.createEventTopicMatchers(new String[] {value.substring(0, pos)});
+                try
+                {
+                    final int size = Integer.parseInt(value.substring(pos + 1).trim());
+                    if ( m != null && size > 0 )
+                    {
+                        matchers.add(m[0]);
+                        sizes.add(size);
+                    }
+                }
+                catch ( final NumberFormatException nfe )
+                {
+                    LogWrapper.getLogger().log(LogWrapper.LOG_WARNING,
+                            "Invalid queue size definition (topic=size) : " + value + " - Ignoring", nfe);
+                }
+            }
+        }
+        this.topicMatchers = matchers.toArray(new Matchers.Matcher[matchers.size()]);
+        this.topicSizes = new int[sizes.size()];
+        for(int i=0; i<this.topicSizes.length; i++)
+        {
+            this.topicSizes[i] = sizes.get(i);
+        }
+    }
+
+    /**
+     * Are the queues bounded at all?
+     */
+    public boolean isBounded()
+    {
+        return this.maxSize > 0 || this.topicSizes.length > 0;
+    }
+
+    /**
+     * The maximum number of events in all queues, 0 for unbounded.
+     */
+    public int getMaxSize()
+    {
+        return this.maxSize;
+    }
+
+    /**
+     * The number of per topic limits.
+     */
+    public int getTopicLimitCount()
+    {
+        return this.topicSizes.length;
+    }
+
+    /**
+     * Get the index of the first per topic limit matching the topic.
+     * @return The index or {@code -1}
+     */
+    public int getTopicLimitIndex(final String topic)
+    {
+        for(int i=0; i<this.topicMatchers.length; i++)
+        {
+            if ( this.topicMatchers[i].match(topic) )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the per topic limit.
+     */
+    public int getTopicLimit(final int index)
+    {
+        return this.topicSizes[index];
+    }
+
+    public Policy getPolicy()
+    {
+        return this.policy;
+    }
+
+    public long getBlockTimeout()
+    {
+        return this.blockTimeout;
+    }
+
+    public String getCoalesceProperty()
+    {
+        return this.coalesceProperty;
+    }
+}
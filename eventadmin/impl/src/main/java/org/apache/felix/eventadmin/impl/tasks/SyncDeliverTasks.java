@@ -87,8 +87,7 @@ public class SyncDeliverTasks
      */
     public void execute(final Collection<EventHandlerProxy> tasks, final Event event, final boolean filterAsyncUnordered)
     {
-        final Thread sleepingThread = Thread.currentThread();
-        final SyncThread syncThread = sleepingThread instanceof SyncThread ? (SyncThread)sleepingThread : null;
+        final boolean syncThread = SyncThread.isSyncThread();
 
         final Iterator<EventHandlerProxy> i = tasks.iterator();
         final BlacklistLatch handlerLatch = new BlacklistLatch(tasks.size(), this.timeout/2);
@@ -103,7 +102,7 @@ public class SyncDeliverTasks
                 {
                 	handlerTask.runWithoutBlacklistTiming();
                 }
-            	else if ( syncThread != null  )
+            	else if ( syncThread )
                 {
                     // if this is a cascaded event, we directly use this thread
                     // otherwise we could end up in a starvation
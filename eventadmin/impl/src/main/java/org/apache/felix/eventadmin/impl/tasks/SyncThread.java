@@ -23,10 +23,16 @@ package org.apache.felix.eventadmin.impl.tasks;
  * synchronously.
  * It acts like a marker.
  *
+ * If events are delivered by threads not created by the event admin
+ * (virtual threads or an external executor), the marker is kept
+ * in a thread local instead.
+ *
  * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
  */
 public class SyncThread extends Thread
 {
+    /** Marker for threads not being a sync thread but used for sync delivery. */
+    private static final ThreadLocal<Boolean> SYNC_DELIVERY = new ThreadLocal<>();
 
     /**
      * Constructor used by the thread pool.
@@ -35,4 +41,32 @@ public class SyncThread extends Thread
     {
         super(target);
     }
+
+    /**
+     * Is the current thread used for synchronous event delivery?
+     */
+    public static boolean isSyncThread()
+    {
+        return Thread.currentThread() instanceof SyncThread || SYNC_DELIVERY.get() != null;
+    }
+
+    /**
+     * Run the task marking the current thread as a sync thread.
+     */
+    static void runAsSyncThread(final Runnable task)
+    {
+        final Boolean previous = SYNC_DELIVERY.get();
+        SYNC_DELIVERY.set(Boolean.TRUE);
+        try
+        {
+            task.run();
+        }
+        finally
+        {
+            if ( previous == null )
+            {
+                SYNC_DELIVERY.remove();
+            }
+        }
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.util;
+
+/**
+ * A simple equality term <code>(key=value)</code> of an LDAP filter.
+ * An event can only match a filter containing such a term on the top
+ * level if the event has the property with the given value. This
+ * allows to select the handlers for an event without evaluating the
+ * filter of each handler.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public final class EqualityTerm
+{
+    private final String key;
+
+    private final String value;
+
+    private EqualityTerm(final String key, final String value)
+    {
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * The property name of the term
+     */
+    public String getKey()
+    {
+        return key;
+    }
+
+    /**
+     * The unescaped value of the term
+     */
+    public String getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Find an equality term which must be satisfied by all events matching
+     * the filter. This is either the filter itself or the first simple
+     * equality term of a top level <code>and</code>.
+     *
+     * @param filter The filter string
+     * @return The term or <code>null</code> if the filter has no such term.
+     */
+    public static EqualityTerm find(final String filter)
+    {
+        if ( filter == null || filter.length() < 2 )
+        {
+            return null;
+        }
+        if ( filter.startsWith("(&") && filter.endsWith(")") )
+        {
+            int pos = 2;
+            while ( pos < filter.length() - 1 )
+            {
+                if ( Character.isWhitespace(filter.charAt(pos)) )
+                {
+                    pos++;
+                    continue;
+                }
+                final int end = findEnd(filter, pos);
+                if ( end == -1 )
+                {
+                    return null;
+                }
+                final EqualityTerm term = parse(filter.substring(pos, end + 1));
+                if ( term != null )
+                {
+                    return term;
+                }
+                pos = end + 1;
+            }
+            return null;
+        }
+        return parse(filter);
+    }
+
+    /**
+     * Find the index of the closing parenthesis for the component
+     * starting at the position.
+     */
+    private static int findEnd(final String filter, final int start)
+    {
+        if ( filter.charAt(start) != '(' )
+        {
+            return -1;
+        }
+        int depth = 0;
+        for(int i = start; i < filter.length(); i++)
+        {
+            final char c = filter.charAt(i);
+            if ( c == '\\' )
+            {
+                i++;
+            }
+            else if ( c == '(' )
+            {
+                depth++;
+            }
+            else if ( c == ')' )
+            {
+                depth--;
+                if ( depth == 0 )
+                {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parse a simple equality term without wildcards.
+     */
+    private static EqualityTerm parse(final String term)
+    {
+        if ( term.length() < 4 || term.charAt(0) != '(' || term.charAt(term.length() - 1) != ')' )
+        {
+            return null;
+        }
+        final char op = term.charAt(1);
+        if ( op == '&' || op == '|' || op == '!' )
+        {
+            return null;
+        }
+        final int eq = term.indexOf('=');
+        if ( eq < 2 )
+        {
+            return null;
+        }
+        final char prev = term.charAt(eq - 1);
+        if ( prev == '~' || prev == '<' || prev == '>' )
+        {
+            return null;
+        }
+        final String key = term.substring(1, eq).trim();
+        if ( key.length() == 0 )
+        {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        for(int i = eq + 1; i < term.length() - 1; i++)
+        {
+            char c = term.charAt(i);
+            if ( c == '*' || c == '(' || c == ')' )
+            {
+                // substring, presence or invalid term
+                return null;
+            }
+            if ( c == '\\' )
+            {
+                i++;
+                if ( i == term.length() - 1 )
+                {
+                    return null;
+                }
+                c = term.charAt(i);
+            }
+            sb.append(c);
+        }
+        final String value = sb.toString();
+        // leading or trailing whitespace might be ignored by the filter implementation
+        if ( value.length() == 0 || !value.equals(value.trim()) )
+        {
+            return null;
+        }
+        return new EqualityTerm(key, value);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies with fixed buckets. Recording a value does
+ * not allocate any objects and does not block.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class LatencyHistogram
+{
+    /**
+     * The upper bounds (exclusive) of the buckets in nanoseconds.
+     * The last bucket holds all values larger than the last bound.
+     */
+    private static final long[] BUCKET_BOUNDS = {
+        TimeUnit.MICROSECONDS.toNanos(100),
+        TimeUnit.MILLISECONDS.toNanos(1),
+        TimeUnit.MILLISECONDS.toNanos(10),
+        TimeUnit.MILLISECONDS.toNanos(100),
+        TimeUnit.SECONDS.toNanos(1),
+        TimeUnit.SECONDS.toNanos(10)
+    };
+
+    /** The labels for the buckets. */
+    private static final String[] BUCKET_LABELS = {
+        "< 0.1ms", "< 1ms", "< 10ms", "< 100ms", "< 1s", "< 10s", ">= 10s"
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record a latency.
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(final long nanos)
+    {
+        int index = 0;
+        while ( index < BUCKET_BOUNDS.length && nanos >= BUCKET_BOUNDS[index] )
+        {
+            index++;
+        }
+        buckets.incrementAndGet(index);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while ( nanos > max && !maxNanos.compareAndSet(max, nanos) )
+        {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * The number of recorded values.
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * The sum of all recorded values in nanoseconds.
+     */
+    public long getTotalNanos()
+    {
+        return totalNanos.get();
+    }
+
+    /**
+     * The largest recorded value in nanoseconds.
+     */
+    public long getMaxNanos()
+    {
+        return maxNanos.get();
+    }
+
+    /**
+     * The mean of the recorded values in nanoseconds.
+     */
+    public long getMeanNanos()
+    {
+        final long c = count.get();
+        return c == 0 ? 0 : totalNanos.get() / c;
+    }
+
+    /**
+     * A copy of the bucket counts. The labels of the buckets
+     * are returned by {@link #getBucketLabels()}.
+     */
+    public long[] getBuckets()
+    {
+        final long[] result = new long[buckets.length()];
+        for(int i=0; i<result.length; i++)
+        {
+            result[i] = buckets.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * The labels of the buckets.
+     */
+    public static String[] getBucketLabels()
+    {
+        return BUCKET_LABELS.clone();
+    }
+
+    /**
+     * Reset all values.
+     */
+    public void reset()
+    {
+        for(int i=0; i<buckets.length(); i++)
+        {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the posted and sent events per topic. To limit the memory
+ * usage, at most {@link #MAX_TOPICS} topics are counted individually.
+ * Events for any further topic are counted for {@link #OTHER_TOPICS}.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public class TopicStatistics
+{
+    /** The maximum number of topics counted individually. */
+    public static final int MAX_TOPICS = 1000;
+
+    /** The name used for all topics exceeding the maximum. */
+    public static final String OTHER_TOPICS = "*";
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private volatile long startTime = System.currentTimeMillis();
+
+    /**
+     * The counter for a single topic.
+     */
+    public static final class Counter
+    {
+        private final AtomicLong posted = new AtomicLong();
+
+        private final AtomicLong sent = new AtomicLong();
+
+        public long getPosted()
+        {
+            return posted.get();
+        }
+
+        public long getSent()
+        {
+            return sent.get();
+        }
+    }
+
+    /**
+     * Count a posted event.
+     */
+    public void posted(final String topic)
+    {
+        getCounter(topic).posted.incrementAndGet();
+    }
+
+    /**
+     * Count a sent event.
+     */
+    public void sent(final String topic)
+    {
+        getCounter(topic).sent.incrementAndGet();
+    }
+
+    private Counter getCounter(final String topic)
+    {
+        Counter counter = counters.get(topic);
+        if ( counter == null && counters.size() >= MAX_TOPICS )
+        {
+            counter = counters.get(OTHER_TOPICS);
+        }
+        if ( counter == null )
+        {
+            final String key = counters.size() >= MAX_TOPICS ? OTHER_TOPICS : topic;
+            counter = new Counter();
+            final Counter old = counters.putIfAbsent(key, counter);
+            if ( old != null )
+            {
+                counter = old;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * The counters per topic.
+     */
+    public Map<String, Counter> getCounters()
+    {
+        return counters;
+    }
+
+    /**
+     * The time the counting started.
+     */
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * Reset all counters.
+     */
+    public void reset()
+    {
+        counters.clear();
+        startTime = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.eventadmin.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.felix.framework.Felix;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+public class ConfigurationTest {
+
+    private File storage;
+
+    private Felix framework;
+
+    private Configuration configuration;
+
+    @Before public void setup() throws Exception
+    {
+        storage = File.createTempFile("eventadmin", "framework");
+        storage.delete();
+        final Map<String, Object> props = new HashMap<String, Object>();
+        props.put(Constants.FRAMEWORK_STORAGE, storage.getAbsolutePath());
+        props.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+        props.put("felix.service.urlhandlers", "false");
+        props.put(Configuration.PROP_THREAD_POOL_TYPE, "service");
+        framework = new Felix(props);
+        framework.start();
+        configuration = new Configuration(framework.getBundleContext());
+    }
+
+    @After public void tearDown() throws Exception
+    {
+        configuration.destroy();
+        framework.stop();
+        framework.waitForStop(10000);
+        delete(storage);
+    }
+
+    private static void delete(final File file)
+    {
+        final File[] children = file.listFiles();
+        if ( children != null )
+        {
+            for(final File child : children)
+            {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static class CountingExecutor implements Executor
+    {
+        public final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void execute(final Runnable command)
+        {
+            count.incrementAndGet();
+            command.run();
+        }
+    }
+
+    private ServiceRegistration<Executor> register(final Executor executor, final int ranking)
+    {
+        final Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("org.apache.felix.eventadmin.executor", Boolean.TRUE);
+        props.put(Constants.SERVICE_RANKING, ranking);
+        return framework.getBundleContext().registerService(Executor.class, executor, props);
+    }
+
+    private void post()
+    {
+        final BundleContext context = framework.getBundleContext();
+        final ServiceReference<EventAdmin> ref = context.getServiceReference(EventAdmin.class);
+        context.getService(ref).postEvent(new Event("a/b", Collections.<String, Object> emptyMap()));
+        context.ungetService(ref);
+    }
+
+    @Test public void testExecutorRegisteredAfterTrackerIsOpened()
+    {
+        final CountingExecutor first = new CountingExecutor();
+        final ServiceRegistration<Executor> firstReg = register(first, 0);
+        post();
+        assertEquals(1, first.count.get());
+
+        // a higher ranked executor replaces the current one
+        final CountingExecutor second = new CountingExecutor();
+        final ServiceRegistration<Executor> secondReg = register(second, 10);
+        post();
+        assertEquals(1, first.count.get());
+        assertEquals(1, second.count.get());
+
+        // the remaining executor is used once the current one goes away
+        secondReg.unregister();
+        post();
+        assertEquals(2, first.count.get());
+        assertEquals(1, second.count.get());
+
+        firstReg.unregister();
+    }
+}
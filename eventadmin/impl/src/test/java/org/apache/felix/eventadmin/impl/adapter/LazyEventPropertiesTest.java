@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.eventadmin.impl.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+public class LazyEventPropertiesTest {
+
+    @Test public void testPropertiesAreCreatedOnFirstAccess()
+    {
+        final AtomicInteger count = new AtomicInteger();
+        final Event event = new Event("org/apache/felix/Test", new LazyEventProperties()
+        {
+            @Override
+            protected Dictionary<String, Object> createProperties()
+            {
+                count.incrementAndGet();
+                final Dictionary<String, Object> props = new Hashtable<String, Object>();
+                props.put("a", "1");
+                props.put("b", 2);
+                return props;
+            }
+        });
+        assertEquals(0, count.get());
+        assertEquals("org/apache/felix/Test", event.getTopic());
+        assertEquals(0, count.get());
+
+        assertEquals("1", event.getProperty("a"));
+        assertEquals(2, event.getProperty("b"));
+        assertTrue(event.containsProperty("a"));
+        assertEquals(3, event.getPropertyNames().length);
+        assertEquals(1, count.get());
+    }
+
+    @Test public void testEquals()
+    {
+        final Event lazy = new Event("org/apache/felix/Test", new LazyEventProperties()
+        {
+            @Override
+            protected Dictionary<String, Object> createProperties()
+            {
+                final Dictionary<String, Object> props = new Hashtable<String, Object>();
+                props.put("a", "1");
+                return props;
+            }
+        });
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put("a", "1");
+        final Event eager = new Event("org/apache/felix/Test", props);
+        assertEquals(lazy, eager);
+        assertEquals(eager.hashCode(), lazy.hashCode());
+    }
+}
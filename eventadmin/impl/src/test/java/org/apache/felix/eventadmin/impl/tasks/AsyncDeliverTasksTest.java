@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.eventadmin.impl.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.apache.felix.eventadmin.impl.handler.EventHandlerProxy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+public class AsyncDeliverTasksTest {
+
+    private DefaultThreadPool pool;
+
+    /** Tasks scheduled but never run, keeping the queue filled. */
+    private final List<Runnable> scheduled = new ArrayList<Runnable>();
+
+    private AsyncDeliverTasks tasks;
+
+    @Before public void setup()
+    {
+        pool = new DefaultThreadPool(2, false, DefaultThreadPool.TYPE_SERVICE);
+        pool.setExecutor(new Executor()
+        {
+            @Override
+            public void execute(final Runnable command)
+            {
+                scheduled.add(command);
+            }
+        });
+        tasks = new AsyncDeliverTasks(pool, new SyncDeliverTasks(pool, 0));
+    }
+
+    @After public void tearDown()
+    {
+        pool.close();
+    }
+
+    private void post(final String topic, final String key)
+    {
+        final Map<String, Object> props = new HashMap<String, Object>();
+        if ( key != null )
+        {
+            props.put("key", key);
+        }
+        tasks.execute(Collections.<EventHandlerProxy> emptyList(), new Event(topic, props));
+    }
+
+    @Test public void testUnbounded()
+    {
+        for(int i=0;i<10;i++)
+        {
+            post("a/b", null);
+        }
+        assertEquals(10, tasks.getQueueSize());
+        assertEquals(1, scheduled.size());
+    }
+
+    @Test public void testDropNewest()
+    {
+        tasks.update(new QueueLimits(2, null, QueueLimits.Policy.DROP_NEWEST, 0, null));
+        for(int i=0;i<5;i++)
+        {
+            post("a/b", null);
+        }
+        assertEquals(2, tasks.getQueueSize());
+        assertEquals(3, tasks.getDroppedNewestCount());
+        assertEquals(0, tasks.getDroppedOldestCount());
+    }
+
+    @Test public void testDropOldest()
+    {
+        tasks.update(new QueueLimits(2, null, QueueLimits.Policy.DROP_OLDEST, 0, null));
+        for(int i=0;i<5;i++)
+        {
+            post("a/b", null);
+        }
+        assertEquals(2, tasks.getQueueSize());
+        assertEquals(3, tasks.getDroppedOldestCount());
+        assertEquals(0, tasks.getDroppedNewestCount());
+    }
+
+    @Test public void testTopicLimit()
+    {
+        tasks.update(new QueueLimits(0, new String[] {"a*=1"}, QueueLimits.Policy.DROP_NEWEST, 0, null));
+        for(int i=0;i<3;i++)
+        {
+            post("a/b", null);
+            post("c/d", null);
+        }
+        assertEquals(4, tasks.getQueueSize());
+        assertEquals(2, tasks.getDroppedNewestCount());
+    }
+
+    @Test public void testCoalesce()
+    {
+        tasks.update(new QueueLimits(2, null, QueueLimits.Policy.COALESCE, 0, "key"));
+        post("a/b", "1");
+        post("a/b", "2");
+        post("a/b", "1");
+        post("a/b", "2");
+        assertEquals(2, tasks.getQueueSize());
+        assertEquals(2, tasks.getCoalescedCount());
+
+        post("a/b", "3");
+        assertEquals(2, tasks.getQueueSize());
+        assertEquals(1, tasks.getDroppedOldestCount());
+    }
+
+    private Thread postInThread(final String topic)
+    {
+        final Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                post(topic, null);
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    @Test public void testLimitIsSharedByPostingThreads() throws Exception
+    {
+        tasks.update(new QueueLimits(2, null, QueueLimits.Policy.DROP_OLDEST, 0, null));
+        post("a/b", null);
+        post("a/b", null);
+        postInThread("c/d").join();
+        assertEquals(2, tasks.getQueueSize());
+        // the queue of the other thread is empty, the posted event is dropped
+        assertEquals(1, tasks.getDroppedNewestCount());
+        assertEquals(0, tasks.getDroppedOldestCount());
+    }
+
+    @Test public void testBlockedPosterIsSignalledByOtherQueue() throws Exception
+    {
+        tasks.update(new QueueLimits(1, null, QueueLimits.Policy.BLOCK, 10000, null));
+        post("a/b", null);
+        final Thread thread = postInThread("c/d");
+        while ( tasks.getBlockedCount() == 0 )
+        {
+            Thread.sleep(1);
+        }
+        // deliver the event of this thread
+        scheduled.remove(0).run();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertEquals(1, tasks.getQueueSize());
+        assertEquals(0, tasks.getDroppedNewestCount());
+    }
+
+    @Test public void testBlockTimeout()
+    {
+        tasks.update(new QueueLimits(1, null, QueueLimits.Policy.BLOCK, 10, null));
+        post("a/b", null);
+        post("a/b", null);
+        assertEquals(1, tasks.getQueueSize());
+        assertEquals(1, tasks.getBlockedCount());
+        assertEquals(1, tasks.getDroppedNewestCount());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.eventadmin.impl.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class DefaultThreadPoolTest {
+
+    @Test public void testFixedPool() throws Exception
+    {
+        final DefaultThreadPool pool = new DefaultThreadPool(2, false);
+        try
+        {
+            final CountDownLatch latch = new CountDownLatch(1);
+            assertTrue(pool.executeTask(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    latch.countDown();
+                }
+            }));
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(DefaultThreadPool.TYPE_FIXED, pool.getType());
+            assertEquals(2, pool.getPoolSize());
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+
+    @Test public void testServiceExecutorMarksSyncThread() throws Exception
+    {
+        final DefaultThreadPool pool = new DefaultThreadPool(2, true, DefaultThreadPool.TYPE_SERVICE);
+        try
+        {
+            pool.setExecutor(new Executor()
+            {
+                @Override
+                public void execute(final Runnable command)
+                {
+                    command.run();
+                }
+            });
+            final AtomicBoolean sync = new AtomicBoolean();
+            assertTrue(pool.executeTask(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    sync.set(SyncThread.isSyncThread());
+                }
+            }));
+            assertTrue(sync.get());
+            assertFalse(SyncThread.isSyncThread());
+            assertEquals(1, pool.getCompletedCount());
+            assertEquals(0, pool.getActiveCount());
+            assertEquals(0, pool.getQueueSize());
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+
+    @Test public void testRejectedTasksAreCounted()
+    {
+        final DefaultThreadPool pool = new DefaultThreadPool(2, false, DefaultThreadPool.TYPE_SERVICE);
+        try
+        {
+            pool.setExecutor(new Executor()
+            {
+                @Override
+                public void execute(final Runnable command)
+                {
+                    throw new RejectedExecutionException();
+                }
+            });
+            assertFalse(pool.executeTask(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    // nothing to do
+                }
+            }));
+            assertEquals(1, pool.getRejectedCount());
+            assertEquals(0, pool.getQueueSize());
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+
+    @Test public void testFailingExecutorIsCountedAsRejected()
+    {
+        final DefaultThreadPool pool = new DefaultThreadPool(2, false, DefaultThreadPool.TYPE_SERVICE);
+        try
+        {
+            pool.setExecutor(new Executor()
+            {
+                @Override
+                public void execute(final Runnable command)
+                {
+                    throw new IllegalStateException();
+                }
+            });
+            assertFalse(pool.executeTask(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    // nothing to do
+                }
+            }));
+            assertEquals(1, pool.getRejectedCount());
+            assertEquals(0, pool.getQueueSize());
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+
+    @Test public void testVirtualFallsBackOnOlderVMs() throws Exception
+    {
+        final DefaultThreadPool pool = new DefaultThreadPool(2, false, DefaultThreadPool.TYPE_VIRTUAL);
+        try
+        {
+            final CountDownLatch latch = new CountDownLatch(1);
+            assertTrue(pool.executeTask(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    latch.countDown();
+                }
+            }));
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.eventadmin.impl.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class EqualityTermTest {
+
+    @Test public void testSimpleTerm()
+    {
+        final EqualityTerm t = EqualityTerm.find("(tenant=42)");
+        assertNotNull(t);
+        assertEquals("tenant", t.getKey());
+        assertEquals("42", t.getValue());
+    }
+
+    @Test public void testEscapedValue()
+    {
+        final EqualityTerm t = EqualityTerm.find("(name=a\\(b\\)\\*)");
+        assertNotNull(t);
+        assertEquals("a(b)*", t.getValue());
+    }
+
+    @Test public void testAnd()
+    {
+        final EqualityTerm t = EqualityTerm.find("(&(|(a=1)(b=2))(c>=3)(tenant=42)(d=4))");
+        assertNotNull(t);
+        assertEquals("tenant", t.getKey());
+        assertEquals("42", t.getValue());
+    }
+
+    @Test public void testNotIndexable()
+    {
+        assertNull(EqualityTerm.find(null));
+        assertNull(EqualityTerm.find("(tenant=*)"));
+        assertNull(EqualityTerm.find("(tenant=4*)"));
+        assertNull(EqualityTerm.find("(tenant~=42)"));
+        assertNull(EqualityTerm.find("(tenant<=42)"));
+        assertNull(EqualityTerm.find("(tenant>=42)"));
+        assertNull(EqualityTerm.find("(tenant= 42)"));
+        assertNull(EqualityTerm.find("(|(tenant=42)(tenant=43))"));
+        assertNull(EqualityTerm.find("(!(tenant=42))"));
+        assertNull(EqualityTerm.find("(&(!(tenant=42))(a>=1))"));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.eventadmin.impl.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test public void testBuckets()
+    {
+        final LatencyHistogram h = new LatencyHistogram();
+        h.record(TimeUnit.MICROSECONDS.toNanos(50));
+        h.record(TimeUnit.MICROSECONDS.toNanos(100));
+        h.record(TimeUnit.MILLISECONDS.toNanos(5));
+        h.record(TimeUnit.SECONDS.toNanos(20));
+
+        assertArrayEquals(new long[] {1, 1, 1, 0, 0, 0, 1}, h.getBuckets());
+        assertEquals(LatencyHistogram.getBucketLabels().length, h.getBuckets().length);
+        assertEquals(4, h.getCount());
+        assertEquals(TimeUnit.SECONDS.toNanos(20), h.getMaxNanos());
+    }
+
+    @Test public void testMeanAndReset()
+    {
+        final LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getMeanNanos());
+        h.record(100);
+        h.record(300);
+        assertEquals(200, h.getMeanNanos());
+        assertEquals(400, h.getTotalNanos());
+
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMaxNanos());
+        assertArrayEquals(new long[7], h.getBuckets());
+    }
+
+    @Test public void testTopicStatisticsOverflow()
+    {
+        final TopicStatistics s = new TopicStatistics();
+        for(int i = 0; i < TopicStatistics.MAX_TOPICS + 5; i++)
+        {
+            s.posted("topic/" + i);
+        }
+        s.sent("topic/0");
+        s.sent("another/topic");
+
+        assertEquals(TopicStatistics.MAX_TOPICS + 1, s.getCounters().size());
+        assertEquals(5, s.getCounters().get(TopicStatistics.OTHER_TOPICS).getPosted());
+        assertEquals(1, s.getCounters().get(TopicStatistics.OTHER_TOPICS).getSent());
+        assertEquals(1, s.getCounters().get("topic/0").getSent());
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.log;
+
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogLevel;
+
+/**
+ * A copy of the code the loggers used to create log entries before
+ * formatting and location capture were deferred, the baseline of the
+ * benchmarks.  The message is formatted and the location is resolved while
+ * logging, using the original formatter and entry implementation.
+ */
+final class LegacyLogger {
+
+    private static final String ESCAPE = "\\";
+    private static final String MAX_CHAR = "\uFFFF";
+    private static final String BRACE_CLOSE = "}";
+    private static final String BRACE_OPEN = "{";
+
+    private final LoggerImpl m_logger;
+    private final boolean m_printf;
+
+    /**
+     * @param logger the logger providing the name, the bundle, the log and the level
+     * @param printf whether the format uses the <code>java.util.Formatter</code> syntax
+     */
+    LegacyLogger(LoggerImpl logger, boolean printf) {
+        m_logger = logger;
+        m_printf = printf;
+    }
+
+    void info(String format, Object... arguments) {
+        LogParameters logParameters = getLogParameters(arguments);
+        String message = m_printf ? printf(format, logParameters) : format(format, logParameters);
+        if (!m_logger.isInfoEnabled()) return;
+        m_logger.m_log.addEntry(new LegacyLogEntry(
+            m_logger.m_name, m_logger.m_bundle, logParameters.sr, LogLevel.INFO, message, logParameters.t,
+            getStackTraceElement()));
+    }
+
+    private static LogParameters getLogParameters(Object... arguments) {
+        if (arguments == null || arguments.length == 0) {
+            return new LogParameters(null, null, null);
+        }
+        ServiceReference<?> sr = null;
+        Throwable t = null;
+        List<Object> args = new ArrayList<>();
+        for (Object arg : arguments) {
+            if (t == null && arg instanceof Throwable) {
+                t = (Throwable)arg;
+            }
+            else if (sr == null && arg instanceof ServiceReference) {
+                sr = (ServiceReference<?>)arg;
+            }
+            else if (arg != null) {
+                args.add(arg);
+            }
+        }
+        return new LogParameters(args.toArray(), sr, t);
+    }
+
+    private static String format(String format, LogParameters logParameters) {
+        if (logParameters.isEmpty()) {
+            return format;
+        }
+        StringBuilder sb = new StringBuilder();
+        int offset = 0;
+        int length = format.length();
+        String previous = MAX_CHAR;
+        boolean escape = false;
+        int argIndex = 0;
+        while (offset < length) {
+            int curChar = format.codePointAt(offset);
+            offset += Character.charCount(curChar);
+            String cur = new String(Character.toChars(curChar));
+
+            if (argIndex == logParameters.args.length) {
+                sb.append(cur);
+            }
+            else if (escape) {
+                escape = false;
+                sb.append(cur);
+                previous = MAX_CHAR;
+            }
+            else if (ESCAPE.equals(cur)) {
+                escape = true;
+                previous = ESCAPE;
+            }
+            else if (BRACE_OPEN.equals(cur)) {
+                if (BRACE_OPEN.equals(previous)) {
+                    sb.append(previous);
+                }
+                previous = BRACE_OPEN;
+            }
+            else if (BRACE_CLOSE.equals(cur) && BRACE_OPEN.equals(previous)) {
+                sb.append(logParameters.args[argIndex++]);
+                previous = MAX_CHAR;
+            }
+            else {
+                sb.append(cur);
+                previous = MAX_CHAR;
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static String printf(String format, LogParameters logParameters) {
+        StringBuilder sb = new StringBuilder();
+
+        try (Formatter formatter = new Formatter(sb, Locale.getDefault())) {
+            formatter.format(format, logParameters.args);
+
+            return sb.toString();
+        }
+    }
+
+    private static StackTraceElement getStackTraceElement() {
+        StackTraceElement[] elements = Thread.currentThread().getStackTrace();
+        if (elements.length == 0) {
+            return null;
+        }
+        for (int i = 1; i < elements.length; i++) {
+            if (!elements[i].getClassName().startsWith("org.apache.felix.log")) {
+                return elements[i];
+            }
+        }
+        return elements[1];
+    }
+
+    private static final class LogParameters {
+        LogParameters(Object[] args, ServiceReference<?> sr, Throwable t) {
+            this.args = args;
+            this.sr = sr;
+            this.t = t;
+        }
+        boolean isEmpty() {
+            return (args == null) || (args.length == 0);
+        }
+        final Object[] args;
+        final ServiceReference<?> sr;
+        final Throwable t;
+    }
+
+    /**
+     * The log entry holding the formatted message and the resolved location.
+     */
+    private static final class LegacyLogEntry implements LogEntry {
+
+        private static final AtomicLong m_sequenceGenerator = new AtomicLong();
+
+        private final String m_name;
+        private final Bundle m_bundle;
+        private final Throwable m_exception;
+        private final LogLevel m_level;
+        private final int m_legacyLevel;
+        private final String m_message;
+        private final ServiceReference<?> m_serviceReference;
+        private final long m_time;
+        private final long m_sequence;
+        private final String m_threadInfo;
+        private final StackTraceElement m_stackTraceElement;
+
+        LegacyLogEntry(
+            final String name,
+            final Bundle bundle,
+            final ServiceReference<?> sr,
+            final LogLevel level,
+            final String message,
+            final Throwable exception,
+            final StackTraceElement stackTraceElement)
+        {
+            this.m_name = name;
+            this.m_bundle = bundle;
+            this.m_exception = LogException.getException(exception);
+            this.m_level = level;
+            this.m_legacyLevel = level.ordinal();
+            this.m_message = message;
+            this.m_serviceReference = sr;
+            this.m_time = System.currentTimeMillis();
+            this.m_sequence = m_sequenceGenerator.getAndIncrement();
+            this.m_threadInfo = Thread.currentThread().getName();
+            this.m_stackTraceElement = stackTraceElement;
+        }
+
+        @Override
+        public Bundle getBundle() {
+            return m_bundle;
+        }
+
+        @Override
+        public ServiceReference<?> getServiceReference() {
+            return m_serviceReference;
+        }
+
+        @Override
+        public int getLevel() {
+            return m_legacyLevel;
+        }
+
+        @Override
+        public String getMessage() {
+            return m_message;
+        }
+
+        @Override
+        public Throwable getException() {
+            return m_exception;
+        }
+
+        @Override
+        public long getTime() {
+            return m_time;
+        }
+
+        @Override
+        public LogLevel getLogLevel() {
+            return m_level;
+        }
+
+        @Override
+        public String getLoggerName() {
+            return m_name;
+        }
+
+        @Override
+        public long getSequence() {
+            return m_sequence;
+        }
+
+        @Override
+        public String getThreadInfo() {
+            return m_threadInfo;
+        }
+
+        @Override
+        public StackTraceElement getLocation() {
+            return m_stackTraceElement;
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.log;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Version;
+import org.osgi.service.log.FormatterLogger;
+import org.osgi.service.log.LogLevel;
+import org.osgi.service.log.Logger;
+
+/**
+ * Measures the throughput of parameterized logging.
+ * <p>
+ * The <code>legacy</code> benchmarks run a copy of the code the loggers used
+ * before formatting and location capture were deferred, see
+ * {@link LegacyLogger}: the message is formatted and the location is resolved
+ * while logging.  The <code>deferred</code> benchmarks use the loggers, which
+ * leave both to the first consumer reading the entry.  All arguments are
+ * immutable, so the loggers do not format the messages while logging.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class LoggingBenchmark {
+
+    private static final String FORMAT = "Processed {} items for {} in {} ms";
+    private static final String PRINTF_FORMAT = "Processed %d items for %s in %d ms";
+
+    @Param({"100", "0"})
+    public int maxSize;
+
+    private Log m_log;
+    private LoggerImpl m_logger;
+    private LoggerImpl m_formatterLogger;
+    private LegacyLogger m_legacyLogger;
+    private LegacyLogger m_legacyFormatterLogger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        m_log = new Log(maxSize, false, -1, false, 100);
+        LoggerAdminImpl loggerAdmin = new LoggerAdminImpl(LogLevel.INFO.name(), m_log);
+        Bundle bundle = createBundle();
+        m_logger = (LoggerImpl)loggerAdmin.getLogger(bundle, "benchmark", Logger.class);
+        m_formatterLogger = (LoggerImpl)loggerAdmin.getLogger(bundle, "benchmark", FormatterLogger.class);
+        m_legacyLogger = new LegacyLogger(m_logger, false);
+        m_legacyFormatterLogger = new LegacyLogger(m_formatterLogger, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        m_log.close();
+    }
+
+    @Benchmark
+    public void disabled() {
+        m_logger.debug(FORMAT, 42, "benchmark", 7L);
+    }
+
+    @Benchmark
+    public void deferred() {
+        m_logger.info(FORMAT, 42, "benchmark", 7L);
+    }
+
+    @Benchmark
+    public void deferredFormatter() {
+        m_formatterLogger.info(PRINTF_FORMAT, 42, "benchmark", 7L);
+    }
+
+    @Benchmark
+    public void deferredConsumed(Blackhole blackhole) {
+        LoggerImpl.LogParameters logParameters = m_logger.getLogParameters(42, "benchmark", 7L);
+        LogEntryImpl entry = new LogEntryImpl(
+            "benchmark", null, logParameters.sr, LogLevel.INFO,
+            new LoggerImpl.DeferredMessage(m_logger, FORMAT, logParameters), logParameters.t, Log.captureLocation());
+        m_log.addEntry(entry);
+        blackhole.consume(entry.getMessage());
+        blackhole.consume(entry.getLocation());
+    }
+
+    @Benchmark
+    public void legacy() {
+        m_legacyLogger.info(FORMAT, 42, "benchmark", 7L);
+    }
+
+    @Benchmark
+    public void legacyFormatter() {
+        m_legacyFormatterLogger.info(PRINTF_FORMAT, 42, "benchmark", 7L);
+    }
+
+    private static Bundle createBundle() {
+        return (Bundle)Proxy.newProxyInstance(
+            LoggingBenchmark.class.getClassLoader(), new Class<?>[] {Bundle.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    switch (method.getName()) {
+                        case "getSymbolicName":
+                        case "getLocation":
+                        case "toString":
+                            return "benchmark";
+                        case "getVersion":
+                            return Version.emptyVersion;
+                        case "getBundleId":
+                            return 1L;
+                        case "hashCode":
+                            return 1;
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                }
+            });
+    }
+
+}
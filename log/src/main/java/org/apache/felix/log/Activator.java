@@ -47,11 +47,30 @@ import org.osgi.service.log.admin.LoggerContext;
  *   <dd>Determines the maximum size of the log used to maintain historic
  *       log information.  A value of -1 means the log has no maximum size;
  *       a value of 0 means that no historic log information will be maintained.
- *       The default value is 100.</dd>
+ *       A bounded log is allocated up front. The default value is 100.</dd>
  *
  *   <dt>org.apache.felix.log.storeDebug</dt>
  *   <dd>Determines whether or not debug messages will be stored as part of
  *       the historic log information. The default value is false.</dd>
+ *
+ *   <dt>org.apache.felix.log.listener.queueSize</dt>
+ *   <dd>Determines the maximum number of log entries waiting to be delivered
+ *       to each log listener.  A value of -1 means the queue has no maximum
+ *       size; 0 and other values below -1 are invalid and ignored.  The
+ *       default value is 10000.</dd>
+ *
+ *   <dt>org.apache.felix.log.listener.queuePolicy</dt>
+ *   <dd>Determines what happens to a log entry if the queue of a log listener
+ *       is full: <code>drop</code> drops and counts the entry for this
+ *       listener, <code>block</code> blocks the logging thread until the
+ *       listener catches up.  Entries logged while delivering to a listener
+ *       are always dropped.  Dropped entries are reported with a warning in
+ *       the log once the listener catches up.  The default value is drop.</dd>
+ *
+ *   <dt>org.apache.felix.log.listener.batchSize</dt>
+ *   <dd>Determines the maximum number of log entries delivered at once to a
+ *       {@link org.apache.felix.log.listener.BatchLogListener}.  The default
+ *       value is 100.</dd>
  * </dl>
  */
 public final class Activator implements BundleActivator
@@ -64,6 +83,18 @@ public final class Activator implements BundleActivator
     private static final String STORE_DEBUG_PROPERTY = "org.apache.felix.log.storeDebug";
     /** The default value for the store debug property. */
     private static final boolean DEFAULT_STORE_DEBUG = false;
+    /** The name of the property that defines the listener queue size. */
+    private static final String LISTENER_QUEUE_SIZE_PROPERTY = "org.apache.felix.log.listener.queueSize";
+    /** The default value for the listener queue size property. */
+    private static final int DEFAULT_LISTENER_QUEUE_SIZE = 10000;
+    /** The name of the property that defines the listener queue policy. */
+    private static final String LISTENER_QUEUE_POLICY_PROPERTY = "org.apache.felix.log.listener.queuePolicy";
+    /** The listener queue policy blocking the logging thread. */
+    private static final String LISTENER_QUEUE_POLICY_BLOCK = "block";
+    /** The name of the property that defines the listener batch size. */
+    private static final String LISTENER_BATCH_SIZE_PROPERTY = "org.apache.felix.log.listener.batchSize";
+    /** The default value for the listener batch size property. */
+    private static final int DEFAULT_LISTENER_BATCH_SIZE = 100;
     /** The log. */
     private Log m_log;
     /** The LoggerAdmin. */
@@ -78,14 +109,26 @@ public final class Activator implements BundleActivator
      */
     private static int getMaxSize(final BundleContext context)
     {
-        int maxSize = DEFAULT_MAX_SIZE;
+        return getIntProperty(context, MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Returns an integer property.
+     * @param context the bundle context (used to look up a property)
+     * @param name the name of the property
+     * @param defaultValue the value if the property is missing or invalid
+     * @return the value of the property
+     */
+    private static int getIntProperty(final BundleContext context, final String name, final int defaultValue)
+    {
+        int value = defaultValue;
 
-        String maxSizePropValue = context.getProperty(MAX_SIZE_PROPERTY);
-        if (maxSizePropValue != null)
+        String propValue = context.getProperty(name);
+        if (propValue != null)
         {
             try
             {
-                maxSize = Integer.parseInt(maxSizePropValue);
+                value = Integer.parseInt(propValue);
             }
             catch (NumberFormatException e)
             {
@@ -93,7 +136,23 @@ public final class Activator implements BundleActivator
             }
         }
 
-        return maxSize;
+        return value;
+    }
+
+    /**
+     * Returns the maximum number of entries queued per log listener.
+     * @param context the bundle context (used to look up a property)
+     * @return the maximum queue size, -1 for no maximum
+     */
+    private static int getListenerQueueSize(final BundleContext context)
+    {
+        final int queueSize = getIntProperty(context, LISTENER_QUEUE_SIZE_PROPERTY, DEFAULT_LISTENER_QUEUE_SIZE);
+        // a queue without room would drop every entry or block forever
+        if (queueSize == 0 || queueSize < -1)
+        {
+            return DEFAULT_LISTENER_QUEUE_SIZE;
+        }
+        return queueSize;
     }
 
     /**
@@ -133,12 +192,18 @@ public final class Activator implements BundleActivator
     public void start(final BundleContext context) throws Exception
     {
         // create the log instance
-        m_log = new Log(getMaxSize(context), getStoreDebug(context));
+        m_log = new Log(
+            getMaxSize(context),
+            getStoreDebug(context),
+            getListenerQueueSize(context),
+            LISTENER_QUEUE_POLICY_BLOCK.equalsIgnoreCase(context.getProperty(LISTENER_QUEUE_POLICY_PROPERTY)),
+            getIntProperty(context, LISTENER_BATCH_SIZE_PROPERTY, DEFAULT_LISTENER_BATCH_SIZE));
         // create the LoggerAdmin instance
         m_loggerAdmin = new LoggerAdminImpl(getDefaultLogLevel(context), m_log);
 
         // register the listeners
         context.addBundleListener(m_log);
+        context.addBundleListener(m_loggerAdmin);
         context.addFrameworkListener(m_log);
         context.addServiceListener(m_log);
 
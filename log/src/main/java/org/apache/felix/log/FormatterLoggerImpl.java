@@ -32,14 +32,17 @@ public class FormatterLoggerImpl extends LoggerImpl implements FormatterLogger {
         super(name, bundle, log, loggerAdmin);
     }
 
-    String format(String format, LogParameters logParameters) {
-        StringBuilder sb = new StringBuilder();
+    String format(String format, LogParameters logParameters, Locale locale) {
+        StringBuilder sb = acquireBuffer();
 
-        try (Formatter formatter = new Formatter(sb, Locale.getDefault())) {
+        try (Formatter formatter = new Formatter(sb, locale)) {
             formatter.format(format, logParameters.args);
 
             return sb.toString();
         }
+        finally {
+            releaseBuffer(sb);
+        }
     }
 
 }
@@ -18,6 +18,8 @@
  */
 package org.apache.felix.log;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 
 import org.osgi.framework.Bundle;
@@ -41,16 +43,16 @@ import org.osgi.service.log.LogListener;
  */
 final class Log implements BundleListener, FrameworkListener, ServiceListener
 {
-    /** The first log entry. */
-    private LogNode m_head;
-    /** The last log entry. */
-    private LogNode m_tail;
-    /** The log size. */
-    private int m_size;
-    /** The log listener thread. */
-    private LogListenerThread listenerThread;
-    /** The maximum size for the log. */
-    private final int m_maxSize;
+    /** The historic log entries, <code>null</code> if no history is kept. */
+    private final LogHistory m_history;
+    /** The log listener threads, one per listener. */
+    private volatile LogListenerThread[] m_listenerThreads = new LogListenerThread[0];
+    /** The maximum number of entries queued per listener, -1 for no maximum. */
+    private final int m_listenerQueueSize;
+    /** Whether to block the logging thread if a listener queue is full. */
+    private final boolean m_listenerQueueBlock;
+    /** The maximum number of entries delivered to a listener at once. */
+    private final int m_listenerBatchSize;
     /** Whether or not to store debug messages. */
     private final boolean m_storeDebug;
 
@@ -58,11 +60,21 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
      * Create a new instance.
      * @param maxSize the maximum size for the log
      * @param storeDebug whether or not to store debug messages
+     * @param listenerQueueSize the maximum number of entries queued per
+     *        listener, -1 for no maximum; values below 1 mean no maximum
+     * @param listenerQueueBlock whether to block the logging thread rather
+     *        than dropping the entry if a listener queue is full
+     * @param listenerBatchSize the maximum number of entries delivered to a
+     *        listener at once
      */
-    Log(final int maxSize, final boolean storeDebug)
+    Log(final int maxSize, final boolean storeDebug,
+        final int listenerQueueSize, final boolean listenerQueueBlock, final int listenerBatchSize)
     {
-        this.m_maxSize = maxSize;
+        this.m_history = (maxSize == 0) ? null : new LogHistory(maxSize);
         this.m_storeDebug = storeDebug;
+        this.m_listenerQueueSize = listenerQueueSize;
+        this.m_listenerQueueBlock = listenerQueueBlock;
+        this.m_listenerBatchSize = listenerBatchSize;
     }
 
     /**
@@ -70,15 +82,21 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
      */
     void close()
     {
-        if (listenerThread != null)
+        final LogListenerThread[] threads;
+        synchronized (this)
         {
-            listenerThread.shutdown();
-            listenerThread = null;
+            threads = m_listenerThreads;
+            m_listenerThreads = new LogListenerThread[0];
+        }
+        for (LogListenerThread thread : threads)
+        {
+            thread.shutdown();
         }
 
-        m_head = null;
-        m_tail = null;
-        m_size = 0;
+        if (m_history != null)
+        {
+            m_history.clear();
+        }
     }
 
     void log(
@@ -89,60 +107,29 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
         final String message,
         final Throwable exception) {
 
-        addEntry(new LogEntryImpl(name, bundle, sr, level, message, exception, getStackTraceElement()));
+        addEntry(new LogEntryImpl(name, bundle, sr, level, message, exception, captureLocation()));
     }
 
     /**
-     * Adds the entry to the log.
+     * Adds the entry to the log.  The entry is added to the lock-free history
+     * and queued for the listeners.  This method only blocks if the queue of
+     * a listener is full and the <code>block</code> queue policy is
+     * configured; with the default <code>drop</code> policy it never blocks.
+     * The listener delivery threads never block, their entries are dropped.
      * @param entry the entry to add to the log
      */
-    synchronized void addEntry(final LogEntry entry)
+    void addEntry(final LogEntry entry)
     {
-        if (m_maxSize != 0)
+        // add the entry to the historic log
+        if (m_history != null && (m_storeDebug || entry.getLogLevel() != LogLevel.DEBUG))
         {
-            // add the entry to the historic log
-            if (m_storeDebug || entry.getLogLevel() != LogLevel.DEBUG)
-            {
-                // create a new node for the entry
-                LogNode node = new LogNode(entry);
-
-                // add to the front of the linked list
-                node.setNextNode(m_head);
-                if (m_head != null)
-                {
-                    m_head.setPreviousNode(node);
-                }
-
-                // and store the node
-                m_head = node;
-
-                // bump the size of the list
-                ++m_size;
-
-                // if no tail node - add the node to the tail
-                if (m_tail == null)
-                {
-                    m_tail = node;
-                }
-            }
-
-            // ensure the historic log doesn't grow beyond a certain size
-            if (m_maxSize != -1)
-            {
-                if (m_size > m_maxSize)
-                {
-                    LogNode last = m_tail.getPreviousNode();
-                    last.setNextNode(null);
-                    m_tail = last;
-                    --m_size;
-                }
-            }
+            m_history.add(entry);
         }
 
         // notify any listeners
-        if (listenerThread != null)
+        for (LogListenerThread thread : m_listenerThreads)
         {
-            listenerThread.addEntry(entry);
+            thread.addEntry(entry);
         }
     }
 
@@ -152,14 +139,14 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
      */
     synchronized void addListener(final LogListener listener)
     {
-        if (listenerThread == null)
-        {
-            // create a new listener thread if necessary:
-            // the listener thread only runs if there are any registered listeners
-            listenerThread = new LogListenerThread();
-            listenerThread.start();
-        }
-        listenerThread.addListener(listener);
+        // each listener has its own thread delivering the entries
+        LogListenerThread thread = new LogListenerThread(
+            this, listener, m_listenerQueueSize, m_listenerQueueBlock, m_listenerBatchSize);
+        thread.start();
+
+        LogListenerThread[] threads = Arrays.copyOf(m_listenerThreads, m_listenerThreads.length + 1);
+        threads[threads.length - 1] = thread;
+        m_listenerThreads = threads;
     }
 
     /**
@@ -168,26 +155,34 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
      */
     synchronized void removeListener(final LogListener listener)
     {
-        if (listenerThread != null)
+        for (int i = 0; i < m_listenerThreads.length; i++)
         {
-            listenerThread.removeListener(listener);
-
-            // shutdown the thread if there are no listeners
-            if (listenerThread.getListenerCount() == 0)
+            if (m_listenerThreads[i].getListener().equals(listener))
             {
-                listenerThread.shutdown();
-                listenerThread = null;
+                m_listenerThreads[i].shutdown();
+
+                LogListenerThread[] threads = new LogListenerThread[m_listenerThreads.length - 1];
+                System.arraycopy(m_listenerThreads, 0, threads, 0, i);
+                System.arraycopy(m_listenerThreads, i + 1, threads, i, threads.length - i);
+                m_listenerThreads = threads;
+                return;
             }
         }
     }
 
     /**
      * Returns an enumeration of all the entries in the log most recent first.
+     * The enumeration is a snapshot of the log taken without blocking any
+     * thread adding entries.
      * @return an enumeration of all the entries in the log most recent first
      */
-    synchronized Enumeration<LogEntry> getEntries()
+    Enumeration<LogEntry> getEntries()
     {
-        return new LogNodeEnumeration(m_head, m_tail);
+        if (m_history == null)
+        {
+            return Collections.emptyEnumeration();
+        }
+        return Collections.enumeration(m_history.snapshot());
     }
 
     /** The messages returned for the framework events. */
@@ -273,17 +268,35 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
         }
     }
 
-    public static StackTraceElement getStackTraceElement() {
-        StackTraceElement[] elements = Thread.currentThread().getStackTrace();
+    /**
+     * Captures the call stack of the current thread.  Only the native call
+     * stack is recorded; the stack trace elements are created when the
+     * location of the entry is first read.
+     * @return the captured call stack
+     */
+    static Throwable captureLocation() {
+        return new Throwable();
+    }
+
+    /**
+     * Returns the first element of the call stack outside of the log service.
+     * @param callStack the call stack captured by {@link #captureLocation()}
+     * @return the location where the message was logged
+     */
+    static StackTraceElement getStackTraceElement(final Throwable callStack) {
+        if (callStack == null) {
+            return null;
+        }
+        StackTraceElement[] elements = callStack.getStackTrace();
         if (elements.length == 0) {
             return null;
         }
-        for (int i = 1; i < elements.length; i++) {
+        for (int i = 0; i < elements.length; i++) {
             if (!elements[i].getClassName().startsWith("org.apache.felix.log")) {
                 return elements[i];
             }
         }
-        return elements[1];
+        return elements[0];
     }
 
     /** The messages returned for the service events. */
@@ -55,8 +55,11 @@ final class LogEntryImpl implements LogEntry
     /** The severity level of this LogEntry object. */
     private final LogLevel m_level;
     private final int m_legacyLevel;
-    /** The message associated with this LogEntry object. */
-    private final String m_message;
+    /**
+     * The message associated with this LogEntry object, or a
+     * {@link LoggerImpl.DeferredMessage} until the message is first read.
+     */
+    private volatile Object m_message;
     /** The service reference associated with this LogEntry object. */
     private final ServiceReference<?> m_serviceReference;
     /** The system time in milliseconds when this LogEntry object was created. */
@@ -65,8 +68,11 @@ final class LogEntryImpl implements LogEntry
     private final long m_sequence;
     /** The information about the Thread which logged the message. */
     private final String m_threadInfo;
-    /** The StackTraceElement where the message was originally logged. */
-    private final StackTraceElement m_stackTraceElement;
+    /**
+     * The StackTraceElement where the message was originally logged, the
+     * captured call stack until the location is first read.
+     */
+    private volatile Object m_location;
 
     private volatile String _toString;
 
@@ -78,15 +84,16 @@ final class LogEntryImpl implements LogEntry
      * @param level the severity level for this LogEntry object
      * @param message the message to associate with this LogEntry object
      * @param exception the exception to associate with this LogEntry object
+     * @param callStack the call stack captured where the message was logged
      */
     LogEntryImpl(
         final String name,
         final Bundle bundle,
         final ServiceReference<?> sr,
         final LogLevel level,
-        final String message,
+        final Object message,
         final Throwable exception,
-        final StackTraceElement stackTraceElement)
+        final Throwable callStack)
     {
         this.m_name = name;
         this.m_bundle = bundle;
@@ -98,7 +105,7 @@ final class LogEntryImpl implements LogEntry
         this.m_time = System.currentTimeMillis();
         this.m_sequence = m_sequenceGenerator.getAndIncrement();
         this.m_threadInfo = Thread.currentThread().getName();
-        this.m_stackTraceElement = stackTraceElement;
+        this.m_location = callStack;
     }
 
     @SuppressWarnings("deprecation")
@@ -107,9 +114,9 @@ final class LogEntryImpl implements LogEntry
         final Bundle bundle,
         final ServiceReference<?> sr,
         final int legacyLevel,
-        final String message,
+        final Object message,
         final Throwable exception,
-        final StackTraceElement stackTraceElement)
+        final Throwable callStack)
     {
         this.m_name = name;
         this.m_bundle = bundle;
@@ -135,7 +142,7 @@ final class LogEntryImpl implements LogEntry
         this.m_time = System.currentTimeMillis();
         this.m_sequence = m_sequenceGenerator.getAndIncrement();
         this.m_threadInfo = Thread.currentThread().getName();
-        this.m_stackTraceElement = stackTraceElement;
+        this.m_location = callStack;
     }
 
     /**
@@ -186,7 +193,14 @@ final class LogEntryImpl implements LogEntry
      */
     public String getMessage()
     {
-        return m_message;
+        Object message = m_message;
+        if (message instanceof LoggerImpl.DeferredMessage)
+        {
+            // formatting twice in a race yields the same message
+            message = ((LoggerImpl.DeferredMessage) message).format();
+            m_message = message;
+        }
+        return (String) message;
     }
 
     /**
@@ -240,16 +254,22 @@ final class LogEntryImpl implements LogEntry
 
     @Override
     public StackTraceElement getLocation() {
-        return m_stackTraceElement;
+        Object location = m_location;
+        if (location instanceof Throwable) {
+            location = Log.getStackTraceElement((Throwable) location);
+            m_location = location;
+        }
+        return (StackTraceElement) location;
     }
 
     @Override
     public String toString() {
         if (_toString == null) {
+            StackTraceElement location = getLocation();
             _toString = m_time + "#" + m_sequence + " [" + m_threadInfo + "] " + m_level +
                 " (" + m_legacyLevel + ") [" + m_bundle.getBundleId() + ":" + m_name + "] " +
-                    m_stackTraceElement.getClassName() + ":" +
-                    m_stackTraceElement.getLineNumber() + " > " + m_message +
+                    location.getClassName() + ":" +
+                    location.getLineNumber() + " > " + getMessage() +
                         (m_exception != null ? "\n" + exceptionString(m_exception) : "");
         }
         return _toString;
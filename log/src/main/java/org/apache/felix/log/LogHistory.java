@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.osgi.service.log.LogEntry;
+
+/**
+ * The historic log entries.  A bounded history is kept in a pre-allocated
+ * ring buffer: each producer claims a sequence number and publishes its
+ * entry into the slot of that sequence number without taking a lock.  An
+ * unbounded history is kept in a concurrent linked list.
+ * <p>
+ * A snapshot of the history never blocks producers.  It contains the
+ * entries published when it is taken; entries being written concurrently
+ * or overwritten while the snapshot is taken are left out.
+ */
+final class LogHistory
+{
+    /** The sequence number of a slot being written. */
+    private static final long BUSY = -1;
+
+    /** The number of slots of the ring buffer. */
+    private final int m_capacity;
+    /** The sequence number of the entry in each slot, 0 for an empty slot. */
+    private final AtomicLongArray m_sequences;
+    /** The entry in each slot. */
+    private final AtomicReferenceArray<LogEntry> m_entries;
+    /** The last claimed sequence number. */
+    private final AtomicLong m_sequence = new AtomicLong();
+    /** The entries of an unbounded history, most recent first. */
+    private final ConcurrentLinkedDeque<LogEntry> m_unbounded;
+
+    /**
+     * Create a new instance.
+     * @param maxSize the maximum number of entries, -1 for no maximum
+     */
+    LogHistory(final int maxSize)
+    {
+        if (maxSize < 0)
+        {
+            m_capacity = 0;
+            m_sequences = null;
+            m_entries = null;
+            m_unbounded = new ConcurrentLinkedDeque<>();
+        }
+        else
+        {
+            m_capacity = maxSize;
+            m_sequences = new AtomicLongArray(maxSize);
+            m_entries = new AtomicReferenceArray<>(maxSize);
+            m_unbounded = null;
+        }
+    }
+
+    /**
+     * Adds the entry to the history, overwriting the oldest entry if the
+     * history is full.
+     * @param entry the entry to add
+     */
+    void add(final LogEntry entry)
+    {
+        if (m_unbounded != null)
+        {
+            m_unbounded.addFirst(entry);
+            return;
+        }
+
+        final long sequence = m_sequence.incrementAndGet();
+        final int slot = slot(sequence);
+        for (;;)
+        {
+            final long current = m_sequences.get(slot);
+            if (current == BUSY)
+            {
+                // another producer wraps around the ring at the same time
+                Thread.yield();
+            }
+            else if (current > sequence)
+            {
+                // a more recent entry already took the slot
+                return;
+            }
+            else if (m_sequences.compareAndSet(slot, current, BUSY))
+            {
+                m_entries.set(slot, entry);
+                m_sequences.set(slot, sequence);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the history.
+     * @return the entries of the history most recent first
+     */
+    List<LogEntry> snapshot()
+    {
+        if (m_unbounded != null)
+        {
+            return new ArrayList<>(m_unbounded);
+        }
+
+        final long last = m_sequence.get();
+        final long first = Math.max(1, last - m_capacity + 1);
+        final List<LogEntry> entries = new ArrayList<>((int) (last - first + 1));
+        for (long sequence = last; sequence >= first; --sequence)
+        {
+            final int slot = slot(sequence);
+            if (m_sequences.get(slot) == sequence)
+            {
+                final LogEntry entry = m_entries.get(slot);
+                // the entry is only valid if the slot was not rewritten meanwhile
+                if (entry != null && m_sequences.get(slot) == sequence)
+                {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Removes all entries from the history.
+     */
+    void clear()
+    {
+        if (m_unbounded != null)
+        {
+            m_unbounded.clear();
+            return;
+        }
+
+        for (int slot = 0; slot < m_capacity; ++slot)
+        {
+            for (;;)
+            {
+                final long current = m_sequences.get(slot);
+                if (current == BUSY)
+                {
+                    Thread.yield();
+                }
+                else if (m_sequences.compareAndSet(slot, current, BUSY))
+                {
+                    // keep the sequence number so it only ever grows
+                    m_entries.set(slot, null);
+                    m_sequences.set(slot, current);
+                    break;
+                }
+            }
+        }
+    }
+
+    private int slot(final long sequence)
+    {
+        return (int) ((sequence - 1) % m_capacity);
+    }
+}
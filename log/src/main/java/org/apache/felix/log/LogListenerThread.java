@@ -18,76 +18,124 @@
  */
 package org.apache.felix.log;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
+import org.apache.felix.log.listener.BatchLogListener;
 import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogLevel;
 import org.osgi.service.log.LogListener;
 
 /**
  * This class is responsible for asynchronously delivering log messages to
- * any {@link LogListener} subscribers.  A subscriber can be added using the
+ * a {@link LogListener} subscriber.  A subscriber can be added using the
  * {@link org.osgi.service.log.LogReaderService#addLogListener(LogListener)}
- * method.
+ * method.  Each subscriber has its own thread and queue, so a slow
+ * subscriber does not delay the delivery to other subscribers.
+ * <p>
+ * The queue may be bounded.  When it is full, new entries are either
+ * dropped and counted or the logging thread blocks until the listener
+ * catches up.  Entries logged by a delivery thread are always dropped,
+ * including the warnings about dropped entries.  Dropped entries are reported with a warning in the log
+ * once the listener catches up.  A {@link BatchLogListener} receives all
+ * pending entries at once.
  */
 final class LogListenerThread extends Thread
 {
-    // The list of entries waiting to be delivered to the log listeners.
-    private final List<LogEntry> m_entriesToDeliver = new ArrayList<>();
-    // The list of listeners.
-    private final List<LogListener> m_listeners = new ArrayList<>();
-
-    LogListenerThread() {
-        super("FelixLogListener");
-    }
+    // The log, used to report dropped entries.
+    private final Log m_log;
+    // The entries waiting to be delivered to the log listener.
+    private final ArrayDeque<LogEntry> m_entriesToDeliver = new ArrayDeque<>();
+    // The listener.
+    private final LogListener m_listener;
+    // The maximum number of entries waiting to be delivered, -1 for no maximum.
+    private final int m_queueSize;
+    // Whether to block the logging thread if the queue is full.
+    private final boolean m_block;
+    // The maximum number of entries delivered at once.
+    private final int m_batchSize;
+    // The number of entries dropped because the queue was full.
+    private long m_dropped;
+    // The number of dropped entries already reported to the listener.
+    private long m_reportedDropped;
+    // Whether the thread has been asked to stop.
+    private boolean m_shutdown;
 
     /**
-     * Add an entry to the list of messages to deliver.
-     * @param entry the log entry to deliver
+     * Create a new instance.
+     * @param log the log reporting dropped entries
+     * @param listener the listener to deliver to
+     * @param queueSize the maximum number of entries waiting to be delivered,
+     *        -1 for no maximum; values below 1 mean no maximum
+     * @param block whether to block the logging thread if the queue is full
+     *        rather than dropping the entry
+     * @param batchSize the maximum number of entries delivered at once
      */
-    void addEntry(final LogEntry entry)
+    LogListenerThread(final Log log, final LogListener listener, final int queueSize, final boolean block,
+        final int batchSize)
     {
-        synchronized (m_entriesToDeliver)
-        {
-            m_entriesToDeliver.add(entry);
-            m_entriesToDeliver.notifyAll();
-        }
+        super("FelixLogListener");
+        m_log = log;
+        m_listener = listener;
+        // a queue without room would drop every entry or block forever
+        m_queueSize = queueSize > 0 ? queueSize : -1;
+        m_block = block;
+        m_batchSize = Math.max(1, batchSize);
     }
 
     /**
-     * Add a listener to the list of listeners that are subscribed.
-     * @param listener the listener to add to the list of subscribed listeners
+     * Returns the listener this thread delivers to.
+     * @return the listener
      */
-    void addListener(final LogListener listener)
+    LogListener getListener()
     {
-        synchronized (m_listeners)
-        {
-            m_listeners.add(listener);
-        }
+        return m_listener;
     }
 
     /**
-     * Remove a listener from the list of listeners that are subscribed.
-     * @param listener the listener to remove from the list of subscribed listeners
+     * Add an entry to the list of messages to deliver.
+     * @param entry the log entry to deliver
      */
-    void removeListener(final LogListener listener)
+    void addEntry(final LogEntry entry)
     {
-        synchronized (m_listeners)
+        synchronized (m_entriesToDeliver)
         {
-            m_listeners.remove(listener);
+            while (m_queueSize >= 0 && m_entriesToDeliver.size() >= m_queueSize)
+            {
+                // never block a delivery thread, a listener logging from its
+                // logged method would wait for itself or for another listener
+                // waiting for it
+                if (!m_block || m_shutdown || Thread.currentThread() instanceof LogListenerThread)
+                {
+                    m_dropped++;
+                    return;
+                }
+                try
+                {
+                    m_entriesToDeliver.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    m_dropped++;
+                    return;
+                }
+            }
+            m_entriesToDeliver.add(entry);
+            m_entriesToDeliver.notifyAll();
         }
     }
 
     /**
-     * Returns the number of listeners that are currently registered.
-     * @return the number of listeners that are currently registered
+     * Returns the number of entries dropped because the queue was full.
+     * @return the number of dropped entries
      */
-    int getListenerCount()
+    long getDroppedCount()
     {
-        synchronized (m_listeners)
+        synchronized (m_entriesToDeliver)
         {
-            return m_listeners.size();
+            return m_dropped;
         }
     }
 
@@ -98,19 +146,22 @@ final class LogListenerThread extends Thread
     {
         synchronized (m_entriesToDeliver)
         {
+            m_shutdown = true;
+            m_entriesToDeliver.notifyAll();
             interrupt();
         }
     }
 
     /**
      * The main method of the thread: waits for new messages to be receieved
-     * and then delivers them to any registered log listeners.
+     * and then delivers them to the log listener.
      */
     public void run()
     {
+        final List<LogEntry> entriesToDeliver = new ArrayList<>();
         while (!isInterrupted())
         {
-            List<LogEntry> entriesToDeliver = new ArrayList<>();
+            long dropped = 0;
             synchronized (m_entriesToDeliver)
             {
                 if (m_entriesToDeliver.isEmpty())
@@ -128,44 +179,71 @@ final class LogListenerThread extends Thread
                 }
                 else
                 {
-                    // Copy all current entries and deliver them in a single go...
-                    entriesToDeliver.addAll(m_entriesToDeliver);
-                    m_entriesToDeliver.clear();
+                    // take the next batch and wake up any blocked logging thread
+                    while (entriesToDeliver.size() < m_batchSize && !m_entriesToDeliver.isEmpty())
+                    {
+                        entriesToDeliver.add(m_entriesToDeliver.poll());
+                    }
+                    dropped = m_dropped - m_reportedDropped;
+                    m_reportedDropped = m_dropped;
+                    m_entriesToDeliver.notifyAll();
                 }
             }
 
             if (!entriesToDeliver.isEmpty())
             {
-                // Take a snapshot of all current listeners and deliver all
-                // pending messages to them...
-                List<LogListener> listeners = new ArrayList<>();
-                synchronized (m_listeners)
-                {
-                    listeners.addAll(m_listeners);
-                }
+                deliver(entriesToDeliver, dropped);
+                entriesToDeliver.clear();
+            }
+            if (dropped > 0)
+            {
+                // queued for all listeners, including this one
+                m_log.log(LogListenerThread.class.getName(), null, null, LogLevel.WARN,
+                    "Dropped " + dropped + " log entries (" + getDroppedCount()
+                        + " in total) because the queue of log listener " + m_listener + " was full",
+                    null);
+            }
+        }
 
-                Iterator<LogEntry> entriesIt = entriesToDeliver.iterator();
-                while (entriesIt.hasNext())
-                {
-                    LogEntry entry = entriesIt.next();
+        final long dropped;
+        synchronized (m_entriesToDeliver)
+        {
+            dropped = m_dropped - m_reportedDropped;
+        }
+        if (dropped > 0)
+        {
+            // the log is being closed, so the drops can no longer be logged
+            System.err.println("Dropped " + dropped + " log entries for slow listener " + m_listener);
+        }
+    }
 
-                    Iterator<LogListener> listenerIt = listeners.iterator();
-                    while (listenerIt.hasNext())
-                    {
-                        LogListener listener = listenerIt.next();
+    private void deliver(final List<LogEntry> entries, final long dropped)
+    {
+        if (m_listener instanceof BatchLogListener)
+        {
+            try
+            {
+                ((BatchLogListener) m_listener).logged(entries, dropped);
+            }
+            catch (Throwable t)
+            {
+                System.err.println("Logger failed to log with " + t.getMessage());
+                t.printStackTrace(System.err);
+            }
+            return;
+        }
 
-                        try
-                        {
-                            listener.logged(entry);
-                        }
-                        catch (Throwable t)
-                        {
-                            System.err.println("Logger failed to log with " + t.getMessage());
-                            t.printStackTrace(System.err);
-                        }
-                    }
-                }
+        for (final LogEntry entry : entries)
+        {
+            try
+            {
+                m_listener.logged(entry);
+            }
+            catch (Throwable t)
+            {
+                System.err.println("Logger failed to log with " + t.getMessage());
+                t.printStackTrace(System.err);
             }
         }
     }
-}
\ No newline at end of file
+}
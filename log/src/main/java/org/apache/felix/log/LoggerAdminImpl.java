@@ -23,19 +23,23 @@ import java.util.Dictionary;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
 import org.osgi.service.log.FormatterLogger;
 import org.osgi.service.log.Logger;
 import org.osgi.service.log.admin.LoggerAdmin;
 import org.osgi.service.log.admin.LoggerContext;
 
-public class LoggerAdminImpl implements LoggerAdmin {
+public class LoggerAdminImpl implements LoggerAdmin, SynchronousBundleListener {
 
     private final Log m_log;
     private final LoggerContext m_rootContext;
     private final ConcurrentMap<String, LoggerContext> m_contexts = new ConcurrentHashMap<>();
     private final ConcurrentMap<LoggerKey, Logger> _loggers = new ConcurrentHashMap<>();
+    private final AtomicInteger m_generation = new AtomicInteger();
 
     public LoggerAdminImpl(final String defaultLogLevelString, final Log log) {
         m_rootContext = new RootLoggerContextImpl(defaultLogLevelString, this);
@@ -104,6 +108,29 @@ public class LoggerAdminImpl implements LoggerAdmin {
         return logger;
     }
 
+    /**
+     * Returns the current generation of the log levels. Loggers cache their
+     * effective log level and recompute it when the generation changes.
+     */
+    int getGeneration() {
+        return m_generation.get();
+    }
+
+    void logLevelsChanged() {
+        m_generation.incrementAndGet();
+    }
+
+    /**
+     * The logger context of a bundle depends on its version, so the cached
+     * log levels are recomputed when a bundle is updated.
+     */
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        if (event.getType() == BundleEvent.UPDATED) {
+            logLevelsChanged();
+        }
+    }
+
     LoggerContext getLoggerContext(Bundle bundle, String name) {
         String loggerContextName = String.format(
             "%s|%s|%s", bundle.getSymbolicName(), bundle.getVersion(), bundle.getLocation());
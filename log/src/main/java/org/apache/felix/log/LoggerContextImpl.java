@@ -92,6 +92,7 @@ public class LoggerContextImpl implements LoggerContext {
         try {
             _levels = new HashMap<>(logLevels);
             _loggerAdminImpl.keepLoggerContext(_name, this);
+            _loggerAdminImpl.logLevelsChanged();
         }
         finally {
             _lock.unlock();
@@ -102,6 +103,7 @@ public class LoggerContextImpl implements LoggerContext {
         _lock.lock();
         try {
             _levels = null;
+            _loggerAdminImpl.logLevelsChanged();
         }
         finally {
             _lock.unlock();
@@ -138,6 +140,7 @@ public class LoggerContextImpl implements LoggerContext {
                 }
             }
             _loggerAdminImpl.keepLoggerContext(_name, this);
+            _loggerAdminImpl.logLevelsChanged();
         }
         finally {
             _lock.unlock();
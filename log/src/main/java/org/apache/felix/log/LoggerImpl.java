@@ -18,8 +18,14 @@
  */
 package org.apache.felix.log;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IllegalFormatException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
 
 import org.osgi.framework.Bundle;
 import org.osgi.framework.ServiceReference;
@@ -29,16 +35,29 @@ import org.osgi.service.log.LoggerConsumer;
 
 public class LoggerImpl implements Logger {
 
-    private static final String ESCAPE = "\\";
-    private static final String MAX_CHAR = "\uFFFF";
-    private static final String BRACE_CLOSE = "}";
-    private static final String BRACE_OPEN = "{";
+    private static final char ESCAPE = '\\';
+    private static final char BRACE_CLOSE = '}';
+    private static final char BRACE_OPEN = '{';
+    private static final int NONE = -1;
+
+    /** Formatting buffers larger than this are not kept for reuse. */
+    private static final int MAX_BUFFER_CAPACITY = 4096;
+
+    /** The formatting buffer of each thread, <code>null</code> while in use. */
+    private static final ThreadLocal<StringBuilder> m_buffer = new ThreadLocal<>();
+
+    /** The argument types whose values cannot change after logging. */
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+        String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class,
+        Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class, UUID.class, Class.class));
 
     protected final String m_name;
     protected final Bundle m_bundle;
     protected final Log m_log;
     protected final LoggerAdminImpl m_loggerAdmin;
 
+    private volatile EffectiveLogLevel m_effectiveLogLevel;
+
     public LoggerImpl(final String name, final Bundle bundle, final Log log, final LoggerAdminImpl loggerAdmin) {
         m_name = name;
         m_bundle = bundle;
@@ -51,9 +70,25 @@ public class LoggerImpl implements Logger {
         return m_name;
     }
 
+    /**
+     * Returns the effective log level of this logger. The level is cached
+     * until the log levels of any logger context change, so checking for a
+     * disabled level does not need to resolve the logger context again.
+     */
+    LogLevel getEffectiveLogLevel() {
+        EffectiveLogLevel effectiveLogLevel = m_effectiveLogLevel;
+        int generation = m_loggerAdmin.getGeneration();
+        if (effectiveLogLevel == null || effectiveLogLevel.generation != generation) {
+            effectiveLogLevel = new EffectiveLogLevel(
+                m_loggerAdmin.getLoggerContext(m_bundle, m_name).getEffectiveLogLevel(m_name), generation);
+            m_effectiveLogLevel = effectiveLogLevel;
+        }
+        return effectiveLogLevel.level;
+    }
+
     @Override
     public boolean isTraceEnabled() {
-        return m_loggerAdmin.getLoggerContext(m_bundle, m_name).getEffectiveLogLevel(m_name).implies(LogLevel.TRACE);
+        return getEffectiveLogLevel().implies(LogLevel.TRACE);
     }
 
     void trace(String message, ServiceReference<?> serviceReference, Throwable t) {
@@ -68,20 +103,20 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void trace(String format, Object arg) {
-        LogParameters logParameters = getLogParameters(arg);
-        trace(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isTraceEnabled()) return;
+        log(LogLevel.TRACE, format, getLogParameters(arg));
     }
 
     @Override
     public void trace(String format, Object arg1, Object arg2) {
-        LogParameters logParameters = getLogParameters(arg1, arg2);
-        trace(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isTraceEnabled()) return;
+        log(LogLevel.TRACE, format, getLogParameters(arg1, arg2));
     }
 
     @Override
     public void trace(String format, Object... arguments) {
-        LogParameters logParameters = getLogParameters(arguments);
-        trace(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isTraceEnabled()) return;
+        log(LogLevel.TRACE, format, getLogParameters(arguments));
     }
 
     @Override
@@ -93,7 +128,7 @@ public class LoggerImpl implements Logger {
 
     @Override
     public boolean isDebugEnabled() {
-        return m_loggerAdmin.getLoggerContext(m_bundle, m_name).getEffectiveLogLevel(m_name).implies(LogLevel.DEBUG);
+        return getEffectiveLogLevel().implies(LogLevel.DEBUG);
     }
 
     void debug(String message, ServiceReference<?> serviceReference, Throwable t) {
@@ -108,20 +143,20 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void debug(String format, Object arg) {
-        LogParameters logParameters = getLogParameters(arg);
-        debug(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isDebugEnabled()) return;
+        log(LogLevel.DEBUG, format, getLogParameters(arg));
     }
 
     @Override
     public void debug(String format, Object arg1, Object arg2) {
-        LogParameters logParameters = getLogParameters(arg1, arg2);
-        debug(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isDebugEnabled()) return;
+        log(LogLevel.DEBUG, format, getLogParameters(arg1, arg2));
     }
 
     @Override
     public void debug(String format, Object... arguments) {
-        LogParameters logParameters = getLogParameters(arguments);
-        debug(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isDebugEnabled()) return;
+        log(LogLevel.DEBUG, format, getLogParameters(arguments));
     }
 
     @Override
@@ -133,7 +168,7 @@ public class LoggerImpl implements Logger {
 
     @Override
     public boolean isInfoEnabled() {
-        return m_loggerAdmin.getLoggerContext(m_bundle, m_name).getEffectiveLogLevel(m_name).implies(LogLevel.INFO);
+        return getEffectiveLogLevel().implies(LogLevel.INFO);
     }
 
     void info(String message, ServiceReference<?> serviceReference, Throwable t) {
@@ -148,20 +183,20 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void info(String format, Object arg) {
-        LogParameters logParameters = getLogParameters(arg);
-        info(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isInfoEnabled()) return;
+        log(LogLevel.INFO, format, getLogParameters(arg));
     }
 
     @Override
     public void info(String format, Object arg1, Object arg2) {
-        LogParameters logParameters = getLogParameters(arg1, arg2);
-        info(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isInfoEnabled()) return;
+        log(LogLevel.INFO, format, getLogParameters(arg1, arg2));
     }
 
     @Override
     public void info(String format, Object... arguments) {
-        LogParameters logParameters = getLogParameters(arguments);
-        info(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isInfoEnabled()) return;
+        log(LogLevel.INFO, format, getLogParameters(arguments));
     }
 
     @Override
@@ -173,7 +208,7 @@ public class LoggerImpl implements Logger {
 
     @Override
     public boolean isWarnEnabled() {
-        return m_loggerAdmin.getLoggerContext(m_bundle, m_name).getEffectiveLogLevel(m_name).implies(LogLevel.WARN);
+        return getEffectiveLogLevel().implies(LogLevel.WARN);
     }
 
     void warn(String message, ServiceReference<?> serviceReference, Throwable t) {
@@ -188,20 +223,20 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void warn(String format, Object arg) {
-        LogParameters logParameters = getLogParameters(arg);
-        warn(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isWarnEnabled()) return;
+        log(LogLevel.WARN, format, getLogParameters(arg));
     }
 
     @Override
     public void warn(String format, Object arg1, Object arg2) {
-        LogParameters logParameters = getLogParameters(arg1, arg2);
-        warn(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isWarnEnabled()) return;
+        log(LogLevel.WARN, format, getLogParameters(arg1, arg2));
     }
 
     @Override
     public void warn(String format, Object... arguments) {
-        LogParameters logParameters = getLogParameters(arguments);
-        warn(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isWarnEnabled()) return;
+        log(LogLevel.WARN, format, getLogParameters(arguments));
     }
 
     @Override
@@ -213,7 +248,7 @@ public class LoggerImpl implements Logger {
 
     @Override
     public boolean isErrorEnabled() {
-        return m_loggerAdmin.getLoggerContext(m_bundle, m_name).getEffectiveLogLevel(m_name).implies(LogLevel.ERROR);
+        return getEffectiveLogLevel().implies(LogLevel.ERROR);
     }
 
     void error(String message, ServiceReference<?> serviceReference, Throwable t) {
@@ -228,20 +263,20 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void error(String format, Object arg) {
-        LogParameters logParameters = getLogParameters(arg);
-        error(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isErrorEnabled()) return;
+        log(LogLevel.ERROR, format, getLogParameters(arg));
     }
 
     @Override
     public void error(String format, Object arg1, Object arg2) {
-        LogParameters logParameters = getLogParameters(arg1, arg2);
-        error(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isErrorEnabled()) return;
+        log(LogLevel.ERROR, format, getLogParameters(arg1, arg2));
     }
 
     @Override
     public void error(String format, Object... arguments) {
-        LogParameters logParameters = getLogParameters(arguments);
-        error(format(format, logParameters), logParameters.sr, logParameters.t);
+        if (!isErrorEnabled()) return;
+        log(LogLevel.ERROR, format, getLogParameters(arguments));
     }
 
     @Override
@@ -262,20 +297,17 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void audit(String format, Object arg) {
-        LogParameters logParameters = getLogParameters(arg);
-        audit(format(format, logParameters), logParameters.sr, logParameters.t);
+        log(LogLevel.AUDIT, format, getLogParameters(arg));
     }
 
     @Override
     public void audit(String format, Object arg1, Object arg2) {
-        LogParameters logParameters = getLogParameters(arg1, arg2);
-        audit(format(format, logParameters), logParameters.sr, logParameters.t);
+        log(LogLevel.AUDIT, format, getLogParameters(arg1, arg2));
     }
 
     @Override
     public void audit(String format, Object... arguments) {
-        LogParameters logParameters = getLogParameters(arguments);
-        audit(format(format, logParameters), logParameters.sr, logParameters.t);
+        log(LogLevel.AUDIT, format, getLogParameters(arguments));
     }
 
     public void log(
@@ -284,7 +316,23 @@ public class LoggerImpl implements Logger {
         final ServiceReference<?> sr,
         final Throwable exception) {
 
-        m_log.addEntry(new LogEntryImpl(m_name, m_bundle, sr, level, message, exception, Log.getStackTraceElement()));
+        m_log.addEntry(new LogEntryImpl(m_name, m_bundle, sr, level, message, exception, Log.captureLocation()));
+    }
+
+    /**
+     * Adds an entry whose message is formatted from the format and the
+     * arguments only when the message is read.  The message is read later,
+     * possibly by a listener thread, so if an argument might be modified in
+     * the meantime or is not safe to format from another thread, the message
+     * is formatted right away.  Either way the message is formatted with the
+     * default locale at the time of logging.
+     */
+    void log(LogLevel level, String format, LogParameters logParameters) {
+        Locale locale = Locale.getDefault();
+        Object message = logParameters.isImmutable() ?
+            new DeferredMessage(this, format, logParameters, locale) : format(format, logParameters, locale);
+        m_log.addEntry(new LogEntryImpl(
+            m_name, m_bundle, logParameters.sr, level, message, logParameters.t, Log.captureLocation()));
     }
 
     LogParameters getLogParameters(Object arg) {
@@ -305,7 +353,8 @@ public class LoggerImpl implements Logger {
         }
         ServiceReference<?> sr = null;
         Throwable t = null;
-        List<Object> args = new ArrayList<>();
+        Object[] args = new Object[arguments.length];
+        int count = 0;
         for (Object arg : arguments) {
             if (t == null && arg instanceof Throwable) {
                 t = (Throwable)arg;
@@ -314,56 +363,114 @@ public class LoggerImpl implements Logger {
                 sr = (ServiceReference<?>)arg;
             }
             else if (arg != null) {
-                args.add(arg);
+                args[count++] = arg;
             }
         }
-        return new LogParameters(args.toArray(), sr, t);
+        return new LogParameters((count == args.length) ? args : Arrays.copyOf(args, count), sr, t);
     }
 
-    String format(String format, LogParameters logParameters) {
+    String format(String format, LogParameters logParameters, Locale locale) {
         if (logParameters.isEmpty()) {
             return format;
         }
-        StringBuilder sb = new StringBuilder();
-        int offset = 0;
-        int length = format.length();
-        String previous = MAX_CHAR;
-        boolean escape = false;
-        int argIndex = 0;
-        while (offset < length) {
-            int curChar = format.codePointAt(offset);
-            offset += Character.charCount(curChar);
-            String cur = new String(Character.toChars(curChar));
-
-            if (argIndex == logParameters.args.length) {
-                sb.append(cur);
-            }
-            else if (escape) {
-                escape = false;
-                sb.append(cur);
-                previous = MAX_CHAR;
-            }
-            else if (ESCAPE.equals(cur)) {
-                escape = true;
-                previous = ESCAPE;
-            }
-            else if (BRACE_OPEN.equals(cur)) {
-                if (BRACE_OPEN.equals(previous)) {
-                    sb.append(previous);
+        StringBuilder sb = acquireBuffer();
+        try {
+            int length = format.length();
+            int previous = NONE;
+            boolean escape = false;
+            int argIndex = 0;
+            for (int offset = 0; offset < length; offset++) {
+                char cur = format.charAt(offset);
+
+                if (argIndex == logParameters.args.length) {
+                    sb.append(cur);
+                }
+                else if (escape) {
+                    escape = false;
+                    sb.append(cur);
+                    previous = NONE;
+                }
+                else if (cur == ESCAPE) {
+                    escape = true;
+                    previous = ESCAPE;
+                }
+                else if (cur == BRACE_OPEN) {
+                    if (previous == BRACE_OPEN) {
+                        sb.append(BRACE_OPEN);
+                    }
+                    previous = BRACE_OPEN;
+                }
+                else if (cur == BRACE_CLOSE && previous == BRACE_OPEN) {
+                    sb.append(logParameters.args[argIndex++]);
+                    previous = NONE;
+                }
+                else {
+                    sb.append(cur);
+                    previous = NONE;
                 }
-                previous = BRACE_OPEN;
             }
-            else if (BRACE_CLOSE.equals(cur) && BRACE_OPEN.equals(previous)) {
-                sb.append(logParameters.args[argIndex++]);
-                previous = MAX_CHAR;
+
+            return sb.toString();
+        }
+        finally {
+            releaseBuffer(sb);
+        }
+    }
+
+    /**
+     * Returns the formatting buffer of the current thread. The buffer is
+     * taken out of the thread local while in use, so formatting an argument
+     * which formats another message gets a buffer of its own.
+     */
+    static StringBuilder acquireBuffer() {
+        StringBuilder sb = m_buffer.get();
+        if (sb == null) {
+            return new StringBuilder();
+        }
+        m_buffer.set(null);
+        return sb;
+    }
+
+    static void releaseBuffer(StringBuilder sb) {
+        if (sb.capacity() <= MAX_BUFFER_CAPACITY) {
+            sb.setLength(0);
+            m_buffer.set(sb);
+        }
+    }
+
+    /**
+     * A message formatted by the logger when it is first read.  Only used if
+     * all arguments are immutable.  As the logging call has returned by then,
+     * an invalid format yields the format followed by the arguments.
+     */
+    static final class DeferredMessage {
+        public DeferredMessage(LoggerImpl logger, String format, LogParameters logParameters, Locale locale) {
+            this.logger = logger;
+            this.format = format;
+            this.logParameters = logParameters;
+            this.locale = locale;
+        }
+        String format() {
+            try {
+                return logger.format(format, logParameters, locale);
             }
-            else {
-                sb.append(cur);
-                previous = MAX_CHAR;
+            catch (IllegalFormatException e) {
+                return logParameters.isEmpty() ? format : format + " " + Arrays.toString(logParameters.args);
             }
         }
+        final LoggerImpl logger;
+        final String format;
+        final LogParameters logParameters;
+        final Locale locale;
+    }
 
-        return sb.toString();
+    static class EffectiveLogLevel {
+        public EffectiveLogLevel(LogLevel level, int generation) {
+            this.level = level;
+            this.generation = generation;
+        }
+        final LogLevel level;
+        final int generation;
     }
 
     static class LogParameters {
@@ -375,6 +482,21 @@ public class LoggerImpl implements Logger {
         public boolean isEmpty() {
             return (args == null) || (args.length == 0);
         }
+        /**
+         * Returns whether the message formatted from the arguments cannot
+         * change, that is all arguments are strings, primitive wrappers or
+         * other immutable values.
+         */
+        boolean isImmutable() {
+            if (args != null) {
+                for (Object arg : args) {
+                    if (!IMMUTABLE_TYPES.contains(arg.getClass()) && !(arg instanceof Enum)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
         final Object[] args;
         final ServiceReference<?> sr;
         final Throwable t;
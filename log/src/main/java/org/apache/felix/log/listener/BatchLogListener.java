@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.log.listener;
+
+import java.util.List;
+
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogListener;
+
+/**
+ * A {@link LogListener} receiving the log entries in batches.  When a
+ * listener registered with the {@link org.osgi.service.log.LogReaderService}
+ * implements this interface, the Apache Felix Log Service calls
+ * {@link #logged(List, long)} with all entries pending for the listener
+ * instead of calling {@link LogListener#logged(LogEntry)} for each entry.
+ * <p>
+ * Each listener is called from its own thread, so a slow listener does not
+ * delay the delivery to other listeners.
+ */
+public interface BatchLogListener extends LogListener
+{
+    /**
+     * Called with the next batch of log entries.
+     * @param entries the log entries in the order they were logged; the list
+     *        must not be used after the method returns
+     * @param dropped the number of log entries which were dropped for this
+     *        listener since the previous batch because its queue was full
+     */
+    void logged(List<LogEntry> entries, long dropped);
+}
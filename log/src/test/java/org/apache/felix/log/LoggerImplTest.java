@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.log;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Version;
+import org.osgi.service.log.LogLevel;
+import org.osgi.service.log.Logger;
+
+public class LoggerImplTest {
+
+    private Log m_log;
+
+    private LoggerAdminImpl m_loggerAdmin;
+
+    private Bundle m_bundle;
+
+    private Logger m_logger;
+
+    @Before
+    public void setUp() {
+        m_log = new Log(0, false, 10, false, 10);
+        m_loggerAdmin = new LoggerAdminImpl(LogLevel.WARN.name(), m_log);
+
+        m_bundle = Mockito.mock(Bundle.class);
+        Mockito.when(m_bundle.getBundleId()).thenReturn(1L);
+        Mockito.when(m_bundle.getSymbolicName()).thenReturn("bsn");
+        Mockito.when(m_bundle.getVersion()).thenReturn(new Version(1, 0, 0));
+        Mockito.when(m_bundle.getLocation()).thenReturn("location");
+
+        m_logger = m_loggerAdmin.getLogger(m_bundle, "foo.bar", Logger.class);
+    }
+
+    @After
+    public void tearDown() {
+        m_log.close();
+    }
+
+    @Test
+    public void testLevelChangesWithConfiguration() {
+        assertFalse(m_logger.isInfoEnabled());
+
+        Dictionary<String, Object> properties = new Hashtable<>();
+        properties.put("foo", LogLevel.INFO.name());
+        m_loggerAdmin.updateConfiguration("bsn", properties);
+        assertTrue(m_logger.isInfoEnabled());
+        assertFalse(m_logger.isDebugEnabled());
+
+        properties.put("foo.bar", LogLevel.DEBUG.name());
+        m_loggerAdmin.updateConfiguration("bsn", properties);
+        assertTrue(m_logger.isDebugEnabled());
+
+        m_loggerAdmin.getLoggerContext("bsn").clear();
+        assertFalse(m_logger.isInfoEnabled());
+    }
+
+    @Test
+    public void testLevelChangesWithRootContext() {
+        assertFalse(m_logger.isInfoEnabled());
+
+        m_loggerAdmin.getLoggerContext(null).setLogLevels(
+            Collections.singletonMap("ROOT", LogLevel.INFO));
+        assertTrue(m_logger.isInfoEnabled());
+    }
+
+    @Test
+    public void testLevelChangesWithBundleUpdate() {
+        m_loggerAdmin.getLoggerContext("bsn|1.0.0").setLogLevels(
+            Collections.singletonMap("foo", LogLevel.INFO));
+        assertTrue(m_logger.isInfoEnabled());
+
+        // the context of the old version does not apply to the new one
+        Mockito.when(m_bundle.getVersion()).thenReturn(new Version(2, 0, 0));
+        m_loggerAdmin.bundleChanged(new BundleEvent(BundleEvent.UPDATED, m_bundle));
+        assertFalse(m_logger.isInfoEnabled());
+    }
+}
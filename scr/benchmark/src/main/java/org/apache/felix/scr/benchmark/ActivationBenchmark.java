@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.apache.felix.scr.benchmark.components.AbstractConsumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+
+/**
+ * Measures the time to start a bundle declaring <code>components</code>
+ * immediate components with <code>references</code> mandatory static
+ * references each, until all components are active.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ActivationBenchmark
+{
+    @Param({"100", "1000"})
+    public int components;
+
+    @Param({"0", "1", "8"})
+    public int references;
+
+    @Param({"method", "field"})
+    public String injection;
+
+    /** The value of <code>ds.parallel.activation.threads</code> */
+    @Param({"1", "4"})
+    public int threads;
+
+    private ScrFramework framework;
+
+    private ComponentBundle componentBundle;
+
+    private Bundle bundle;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        framework = new ScrFramework(Collections.singletonMap("ds.parallel.activation.threads", String.valueOf(threads)));
+        componentBundle = new ComponentBundle("activation");
+        for (int i = 0; i < references; i++)
+        {
+            componentBundle.provider("provider." + i, i);
+        }
+        for (int i = 0; i < components; i++)
+        {
+            componentBundle.consumer("consumer." + i, injection, references);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        framework.stop();
+    }
+
+    @Benchmark
+    public void activate() throws Exception
+    {
+        bundle = componentBundle.install(framework.getBundleContext());
+        bundle.start();
+        ScrFramework.await(active(components));
+    }
+
+    @TearDown(Level.Iteration)
+    public void deactivate() throws Exception
+    {
+        bundle.uninstall();
+        ScrFramework.await(active(0));
+    }
+
+    private static BooleanSupplier active(final int count)
+    {
+        return new BooleanSupplier()
+        {
+            @Override
+            public boolean getAsBoolean()
+            {
+                return AbstractConsumer.ACTIVE.get() == count;
+            }
+        };
+    }
+}
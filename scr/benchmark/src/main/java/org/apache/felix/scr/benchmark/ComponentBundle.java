@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.apache.felix.scr.benchmark.components.ConfiguredComponent;
+import org.apache.felix.scr.benchmark.components.FieldConsumer;
+import org.apache.felix.scr.benchmark.components.MethodConsumer;
+import org.apache.felix.scr.benchmark.components.Service;
+import org.apache.felix.scr.benchmark.components.ServiceImpl;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+
+/**
+ * Generates a bundle declaring the benchmark components. The bundle only
+ * contains the component descriptions, the implementation classes are
+ * imported from the system bundle.
+ */
+public class ComponentBundle
+{
+    /** The property set on the services matched by the multiple references */
+    public static final String CHURN = "churn";
+
+    /** The property set on the provided services matched by the unary references */
+    public static final String INDEX = "index";
+
+    private static final String DESCRIPTOR = "OSGI-INF/components.xml";
+
+    private final String symbolicName;
+
+    private final StringBuilder components = new StringBuilder();
+
+    public ComponentBundle(String symbolicName)
+    {
+        this.symbolicName = symbolicName;
+    }
+
+    /**
+     * Adds a component providing the {@link Service} with the given index.
+     */
+    public ComponentBundle provider(String name, int index)
+    {
+        startComponent(name, ServiceImpl.class.getName(), "");
+        components.append("    <service><provide interface=\"").append(Service.class.getName()).append("\"/></service>\n");
+        components.append("    <property name=\"").append(INDEX).append("\" type=\"Integer\" value=\"").append(index).append("\"/>\n");
+        components.append("  </scr:component>\n");
+        return this;
+    }
+
+    /**
+     * Adds an immediate component with the given number of mandatory unary
+     * static references, each matching the provider with the same index.
+     *
+     * @param injection <code>method</code> or <code>field</code>
+     */
+    public ComponentBundle consumer(String name, String injection, int references)
+    {
+        if (references > FieldConsumer.MAX_REFERENCES)
+        {
+            throw new IllegalArgumentException("At most " + FieldConsumer.MAX_REFERENCES + " references supported");
+        }
+        startConsumer(name, injection);
+        for (int i = 0; i < references; i++)
+        {
+            components.append("    <reference name=\"r").append(i)
+                .append("\" interface=\"").append(Service.class.getName())
+                .append("\" target=\"(").append(INDEX).append('=').append(i).append(")\" ")
+                .append(inject(injection, "s" + i, "replace")).append("/>\n");
+        }
+        components.append("  </scr:component>\n");
+        return this;
+    }
+
+    /**
+     * Adds an immediate component with an optional multiple reference
+     * matching the services with the {@link #CHURN} property.
+     *
+     * @param injection <code>method</code> or <code>field</code>
+     * @param policy <code>static</code> or <code>dynamic</code>
+     * @param policyOption <code>reluctant</code> or <code>greedy</code>
+     */
+    public ComponentBundle multipleConsumer(String name, String injection, String policy, String policyOption)
+    {
+        startConsumer(name, injection);
+        components.append("    <reference name=\"services\" interface=\"").append(Service.class.getName())
+            .append("\" cardinality=\"0..n\" policy=\"").append(policy)
+            .append("\" policy-option=\"").append(policyOption)
+            .append("\" target=\"(").append(CHURN).append("=true)\" ")
+            .append(inject(injection, "services", "replace")).append("/>\n");
+        components.append("  </scr:component>\n");
+        return this;
+    }
+
+    /**
+     * Adds a component with an optional configuration, the configuration
+     * PID is the name of the component.
+     */
+    public ComponentBundle configured(String name)
+    {
+        startComponent(name, ConfiguredComponent.class.getName(),
+            " configuration-policy=\"optional\" activate=\"activate\" modified=\"modified\" deactivate=\"deactivate\"");
+        components.append("  </scr:component>\n");
+        return this;
+    }
+
+    /**
+     * Installs the bundle, the bundle still needs to be started.
+     */
+    public Bundle install(BundleContext context) throws BundleException, IOException
+    {
+        Path jar = Files.createTempFile(symbolicName, ".jar");
+        try
+        {
+            Files.write(jar, toJar());
+            return context.installBundle(jar.toUri().toString());
+        }
+        finally
+        {
+            Files.delete(jar);
+        }
+    }
+
+    private void startConsumer(String name, String injection)
+    {
+        String implementation = "field".equals(injection) ? FieldConsumer.class.getName() : MethodConsumer.class.getName();
+        startComponent(name, implementation, " immediate=\"true\" activate=\"activate\" deactivate=\"deactivate\"");
+    }
+
+    private void startComponent(String name, String implementation, String attributes)
+    {
+        components.append("  <scr:component name=\"").append(name).append('"').append(attributes).append(">\n");
+        components.append("    <implementation class=\"").append(implementation).append("\"/>\n");
+    }
+
+    private static String inject(String injection, String field, String fieldOption)
+    {
+        if ("field".equals(injection))
+        {
+            return "field=\"" + field + "\" field-option=\"" + fieldOption + "\"";
+        }
+        return "bind=\"bind\" unbind=\"unbind\"";
+    }
+
+    private byte[] toJar() throws IOException
+    {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+        attributes.putValue(Constants.BUNDLE_SYMBOLICNAME, symbolicName);
+        attributes.putValue(Constants.IMPORT_PACKAGE, Service.class.getPackage().getName());
+        attributes.putValue("Service-Component", DESCRIPTOR);
+
+        String descriptor = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<components xmlns:scr=\"http://www.osgi.org/xmlns/scr/v1.3.0\">\n"
+            + components
+            + "</components>\n";
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JarOutputStream jar = new JarOutputStream(out, manifest))
+        {
+            jar.putNextEntry(new JarEntry(DESCRIPTOR));
+            jar.write(descriptor.getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+        }
+        return out.toByteArray();
+    }
+}
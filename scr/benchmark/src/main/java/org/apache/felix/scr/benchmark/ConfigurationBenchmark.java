@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.benchmark;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.apache.felix.scr.benchmark.components.ConfiguredComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+
+/**
+ * Measures the latency from updating a configuration until the
+ * <code>modified</code> method of the component has been called with it,
+ * with <code>components</code> configurable components in the framework.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigurationBenchmark
+{
+    @Param({"100", "1000"})
+    public int components;
+
+    private ScrFramework framework;
+
+    private Configuration[] configurations;
+
+    private long generation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        framework = new ScrFramework(Collections.<String, String> emptyMap());
+
+        ComponentBundle componentBundle = new ComponentBundle("configuration");
+        for (int i = 0; i < components; i++)
+        {
+            componentBundle.configured(name(i));
+        }
+        componentBundle.install(framework.getBundleContext()).start();
+
+        ConfigurationAdmin configurationAdmin = framework.getService(ConfigurationAdmin.class);
+        configurations = new Configuration[components];
+        for (int i = 0; i < components; i++)
+        {
+            configurations[i] = configurationAdmin.getConfiguration(name(i), "?");
+            update(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        framework.stop();
+    }
+
+    @Benchmark
+    public void update() throws Exception
+    {
+        update((int) (generation % components));
+    }
+
+    private void update(int index) throws Exception
+    {
+        final String name = name(index);
+        final long next = ++generation;
+        Dictionary<String, Object> properties = new Hashtable<>();
+        properties.put(ConfiguredComponent.GENERATION, next);
+        configurations[index].update(properties);
+        ScrFramework.await(new BooleanSupplier()
+        {
+            @Override
+            public boolean getAsBoolean()
+            {
+                return ConfiguredComponent.getGeneration(name) == next;
+            }
+        });
+    }
+
+    private static String name(int index)
+    {
+        return "configured." + index;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.benchmark;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.apache.felix.scr.benchmark.components.AbstractConsumer;
+import org.apache.felix.scr.benchmark.components.Service;
+import org.apache.felix.scr.benchmark.components.ServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * Measures registering and unregistering a service matched by an optional
+ * multiple reference of <code>components</code> active components. Static
+ * greedy references reactivate the components on each change, dynamic
+ * references bind and unbind the service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReferenceChurnBenchmark
+{
+    @Param({"100"})
+    public int components;
+
+    @Param({"static", "static-greedy", "dynamic", "dynamic-greedy"})
+    public String reference;
+
+    @Param({"method", "field"})
+    public String injection;
+
+    private ScrFramework framework;
+
+    private BundleContext context;
+
+    private Dictionary<String, Object> properties;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        framework = new ScrFramework(Collections.<String, String> emptyMap());
+        context = framework.getBundleContext();
+
+        String[] policy = reference.split("-");
+        ComponentBundle componentBundle = new ComponentBundle("churn");
+        for (int i = 0; i < components; i++)
+        {
+            componentBundle.multipleConsumer("consumer." + i, injection, policy[0],
+                policy.length > 1 ? policy[1] : "reluctant");
+        }
+        componentBundle.install(context).start();
+        ScrFramework.await(new BooleanSupplier()
+        {
+            @Override
+            public boolean getAsBoolean()
+            {
+                return AbstractConsumer.ACTIVE.get() == components;
+            }
+        });
+
+        properties = new Hashtable<>();
+        properties.put(ComponentBundle.CHURN, Boolean.TRUE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        framework.stop();
+    }
+
+    @Benchmark
+    public void churn()
+    {
+        ServiceRegistration<Service> registration = context.registerService(Service.class, new ServiceImpl(), properties);
+        registration.unregister();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.benchmark;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.apache.felix.scr.benchmark.components.AbstractConsumer;
+import org.apache.felix.scr.benchmark.components.Service;
+import org.apache.felix.scr.benchmark.components.ServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.runtime.ServiceComponentRuntime;
+import org.osgi.service.component.runtime.dto.ComponentDescriptionDTO;
+
+/**
+ * Measures reading the description and configuration DTOs of all
+ * <code>components</code> components the way health checks and the web
+ * console poll them. With <code>changing</code> set, an unrelated service
+ * is registered and unregistered before each poll, such that the runtime
+ * sees a service change between the polls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuntimeDtoBenchmark
+{
+    @Param({"100", "1000"})
+    public int components;
+
+    @Param({"false", "true"})
+    public boolean changing;
+
+    private ScrFramework framework;
+
+    private BundleContext context;
+
+    private ServiceComponentRuntime runtime;
+
+    private Dictionary<String, Object> properties;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        framework = new ScrFramework(Collections.<String, String> emptyMap());
+        context = framework.getBundleContext();
+
+        ComponentBundle componentBundle = new ComponentBundle("dto").provider("provider", 0);
+        for (int i = 0; i < components; i++)
+        {
+            componentBundle.consumer("consumer." + i, "method", 1);
+        }
+        componentBundle.install(context).start();
+        ScrFramework.await(new BooleanSupplier()
+        {
+            @Override
+            public boolean getAsBoolean()
+            {
+                return AbstractConsumer.ACTIVE.get() == components;
+            }
+        });
+        runtime = framework.getService(ServiceComponentRuntime.class);
+
+        properties = new Hashtable<>();
+        properties.put(ComponentBundle.INDEX, -1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        framework.stop();
+    }
+
+    @Benchmark
+    public void dtos(Blackhole blackhole)
+    {
+        if (changing)
+        {
+            context.registerService(Service.class, new ServiceImpl(), properties).unregister();
+        }
+        for (ComponentDescriptionDTO description : runtime.getComponentDescriptionDTOs())
+        {
+            blackhole.consume(runtime.getComponentConfigurationDTOs(description));
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import org.apache.felix.framework.FrameworkFactory;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * An embedded Apache Felix framework running the Declarative Services
+ * implementation and the Configuration Admin service.
+ * <p>
+ * The bundles are installed from the directory named by the
+ * <code>scr.benchmark.bundles</code> system property, by default the
+ * <code>target/bundles</code> directory the build copies them to. The
+ * benchmark components and the service APIs are exported by the system
+ * bundle, such that the benchmarks share the classes with the bundles.
+ */
+public class ScrFramework
+{
+    public static final String BUNDLES_PROPERTY = "scr.benchmark.bundles";
+
+    private static final String SYSTEM_PACKAGES = "org.apache.felix.scr.benchmark.components;version=1.0.0,"
+        + "org.osgi.service.component;version=1.4.0,"
+        + "org.osgi.service.component.runtime;version=1.4.0,"
+        + "org.osgi.service.component.runtime.dto;version=1.4.0,"
+        + "org.osgi.service.cm;version=1.6.0,"
+        + "org.osgi.service.log;version=1.4.0,"
+        + "org.osgi.util.function;version=1.0.0,"
+        + "org.osgi.util.promise;version=1.0.0";
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(60);
+
+    private final Path storage;
+
+    private final Framework framework;
+
+    /**
+     * Starts the framework with the given additional framework properties,
+     * for example the configuration of the Declarative Services implementation.
+     */
+    public ScrFramework(Map<String, String> properties) throws Exception
+    {
+        storage = Files.createTempDirectory("scr-benchmark");
+        Map<String, String> config = new HashMap<>(properties);
+        config.put(Constants.FRAMEWORK_STORAGE, storage.toString());
+        config.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+        config.put(Constants.FRAMEWORK_SYSTEMPACKAGES_EXTRA, SYSTEM_PACKAGES);
+        // several frameworks are started in the same JVM, do not install the URL handlers
+        config.put("felix.service.urlhandlers", "false");
+        if (!config.containsKey("ds.loglevel"))
+        {
+            config.put("ds.loglevel", "warn");
+        }
+        framework = new FrameworkFactory().newFramework(config);
+        framework.start();
+        try
+        {
+            startBundles();
+        }
+        catch (Exception e)
+        {
+            stop();
+            throw e;
+        }
+    }
+
+    private void startBundles() throws BundleException
+    {
+        File[] jars = new File(System.getProperty(BUNDLES_PROPERTY, "target/bundles")).listFiles();
+        if (jars == null || jars.length == 0)
+        {
+            throw new IllegalStateException("No bundles found, set the " + BUNDLES_PROPERTY + " system property");
+        }
+        Arrays.sort(jars);
+        List<Bundle> bundles = new ArrayList<>();
+        for (File jar : jars)
+        {
+            bundles.add(getBundleContext().installBundle(jar.toURI().toString()));
+        }
+        for (Bundle bundle : bundles)
+        {
+            bundle.start();
+        }
+    }
+
+    public BundleContext getBundleContext()
+    {
+        return framework.getBundleContext();
+    }
+
+    /**
+     * Returns the service of the given type, waiting for it to be registered.
+     */
+    public <T> T getService(Class<T> type)
+    {
+        final BundleContext context = getBundleContext();
+        await(new BooleanSupplier()
+        {
+            @Override
+            public boolean getAsBoolean()
+            {
+                return context.getServiceReference(type) != null;
+            }
+        });
+        ServiceReference<T> reference = context.getServiceReference(type);
+        return context.getService(reference);
+    }
+
+    /**
+     * Stops the framework and removes its storage.
+     */
+    public void stop() throws Exception
+    {
+        try
+        {
+            framework.stop();
+            framework.waitForStop(TimeUnit.NANOSECONDS.toMillis(TIMEOUT));
+        }
+        finally
+        {
+            delete(storage);
+        }
+    }
+
+    /**
+     * Waits for the condition to become true.
+     * @throws IllegalStateException If the condition is not met in time
+     */
+    public static void await(BooleanSupplier condition)
+    {
+        long start = System.nanoTime();
+        while (!condition.getAsBoolean())
+        {
+            if (System.nanoTime() - start > TIMEOUT)
+            {
+                throw new IllegalStateException("Timed out waiting for the components");
+            }
+            LockSupport.parkNanos(10000);
+        }
+    }
+
+    private static void delete(Path path) throws IOException
+    {
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+            {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException
+            {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.benchmark.components;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class of the consumer components counting the active instances,
+ * such that the benchmarks can wait for the components to be activated.
+ */
+public abstract class AbstractConsumer
+{
+    /** The number of active consumer components */
+    public static final AtomicInteger ACTIVE = new AtomicInteger();
+
+    protected void activate()
+    {
+        ACTIVE.incrementAndGet();
+    }
+
+    protected void deactivate()
+    {
+        ACTIVE.decrementAndGet();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.benchmark.components;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Component recording the <code>generation</code> property of its latest
+ * configuration, such that the benchmarks can wait for a configuration
+ * update to arrive.
+ */
+public class ConfiguredComponent
+{
+    /** The property holding the generation of the configuration */
+    public static final String GENERATION = "generation";
+
+    private static final Map<String, Long> GENERATIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the generation of the configuration last seen by the component
+     * with the given name, <code>-1</code> if not active.
+     */
+    public static long getGeneration(String name)
+    {
+        Long generation = GENERATIONS.get(name);
+        return generation == null ? -1 : generation;
+    }
+
+    protected void activate(Map<String, Object> properties)
+    {
+        modified(properties);
+    }
+
+    protected void modified(Map<String, Object> properties)
+    {
+        Object generation = properties.get(GENERATION);
+        GENERATIONS.put((String) properties.get("component.name"),
+            generation instanceof Long ? (Long) generation : 0L);
+    }
+
+    protected void deactivate(Map<String, Object> properties)
+    {
+        GENERATIONS.remove(properties.get("component.name"));
+    }
+}
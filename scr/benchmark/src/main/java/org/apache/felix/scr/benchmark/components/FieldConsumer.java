@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.benchmark.components;
+
+import java.util.List;
+
+/**
+ * Consumer component with a field for each of its unary references and
+ * a list field for a multiple reference.
+ */
+public class FieldConsumer extends AbstractConsumer
+{
+    /** The maximum number of unary references of a consumer */
+    public static final int MAX_REFERENCES = 8;
+
+    private volatile Service s0;
+    private volatile Service s1;
+    private volatile Service s2;
+    private volatile Service s3;
+    private volatile Service s4;
+    private volatile Service s5;
+    private volatile Service s6;
+    private volatile Service s7;
+
+    private volatile List<Service> services;
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.felix.scr.impl.manager.ComponentHolder;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
+import org.apache.felix.scr.impl.metadata.ServiceMetadata;
+
+/**
+ * The <code>ActivationGraph</code> orders the components of a bundle for
+ * parallel enabling. A component depends on another component of the same
+ * bundle if one of its references names a service interface provided by
+ * the other component.
+ * <p>
+ * The components are split into waves: the providers of all services
+ * referenced by a component are in earlier waves, so the components of a
+ * wave are independent of each other and may be enabled concurrently once
+ * the previous waves are done. Components depending on each other in a
+ * cycle, and the components depending on those, are not part of any wave;
+ * they are returned separately to be enabled sequentially.
+ */
+final class ActivationGraph
+{
+
+    private final List<List<ComponentHolder<?>>> m_waves = new ArrayList<>();
+
+    private final List<ComponentHolder<?>> m_cyclic = new ArrayList<>();
+
+    ActivationGraph( final List<ComponentHolder<?>> holders )
+    {
+        final int size = holders.size();
+
+        // the components providing each service interface
+        final Map<String, List<Integer>> providers = new HashMap<>();
+        for ( int i = 0; i < size; i++ )
+        {
+            final ServiceMetadata service = holders.get( i ).getComponentMetadata().getServiceMetadata();
+            if ( service != null && service.getProvides() != null )
+            {
+                for ( final String provide : service.getProvides() )
+                {
+                    List<Integer> list = providers.get( provide );
+                    if ( list == null )
+                    {
+                        list = new ArrayList<>();
+                        providers.put( provide, list );
+                    }
+                    list.add( i );
+                }
+            }
+        }
+
+        // edges from each provider to the components referencing its services
+        final List<Set<Integer>> consumers = new ArrayList<>( size );
+        final int[] pending = new int[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            consumers.add( new LinkedHashSet<Integer>() );
+        }
+        for ( int i = 0; i < size; i++ )
+        {
+            final ComponentMetadata metadata = holders.get( i ).getComponentMetadata();
+            final Set<Integer> dependsOn = new LinkedHashSet<>();
+            for ( final ReferenceMetadata reference : metadata.getDependencies() )
+            {
+                final List<Integer> list = providers.get( reference.getInterface() );
+                if ( list != null )
+                {
+                    dependsOn.addAll( list );
+                }
+            }
+            dependsOn.remove( i );
+            for ( final Integer provider : dependsOn )
+            {
+                consumers.get( provider ).add( i );
+            }
+            pending[i] = dependsOn.size();
+        }
+
+        // peel off the components whose providers are all enabled
+        final boolean[] done = new boolean[size];
+        List<Integer> wave = new ArrayList<>();
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( pending[i] == 0 )
+            {
+                wave.add( i );
+            }
+        }
+        while ( !wave.isEmpty() )
+        {
+            final List<ComponentHolder<?>> waveHolders = new ArrayList<>( wave.size() );
+            final List<Integer> next = new ArrayList<>();
+            for ( final Integer i : wave )
+            {
+                done[i] = true;
+                waveHolders.add( holders.get( i ) );
+                for ( final Integer consumer : consumers.get( i ) )
+                {
+                    if ( --pending[consumer] == 0 )
+                    {
+                        next.add( consumer );
+                    }
+                }
+            }
+            m_waves.add( waveHolders );
+            wave = next;
+        }
+
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( !done[i] )
+            {
+                m_cyclic.add( holders.get( i ) );
+            }
+        }
+    }
+
+    /**
+     * Returns the waves of independent components in enabling order.
+     */
+    List<List<ComponentHolder<?>>> getWaves()
+    {
+        return Collections.unmodifiableList( m_waves );
+    }
+
+    /**
+     * Returns the components on or behind a dependency cycle in their
+     * original order.
+     */
+    List<ComponentHolder<?>> getCyclic()
+    {
+        return Collections.unmodifiableList( m_cyclic );
+    }
+
+    /**
+     * Returns the size of the largest wave.
+     */
+    int getMaxWaveSize()
+    {
+        int max = 0;
+        for ( final List<ComponentHolder<?>> wave : m_waves )
+        {
+            max = Math.max( max, wave.size() );
+        }
+        return max;
+    }
+}
@@ -41,6 +41,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.felix.scr.impl.config.ScrConfigurationImpl;
+import org.apache.felix.scr.impl.inject.internal.Annotations;
 import org.apache.felix.scr.impl.inject.internal.ClassUtils;
 import org.apache.felix.scr.impl.logger.InternalLogger.Level;
 import org.apache.felix.scr.impl.logger.ScrLogManager;
@@ -50,6 +51,7 @@ import org.apache.felix.scr.impl.metadata.ComponentMetadata;
 import org.apache.felix.scr.impl.metadata.MetadataStoreHelper.MetaDataReader;
 import org.apache.felix.scr.impl.metadata.MetadataStoreHelper.MetaDataWriter;
 import org.apache.felix.scr.impl.runtime.ServiceComponentRuntimeImpl;
+import org.apache.felix.scr.info.ComponentChanges;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
@@ -94,6 +96,8 @@ public class Activator extends AbstractExtender
 
     private ServiceRegistration<ServiceComponentRuntime> m_runtime_reg;
 
+    private ServiceRegistration<ComponentChanges> m_changes_reg;
+
     private ComponentCommands m_componentCommands;
 
     private ConcurrentMap<Long, List<ComponentMetadata>> m_componentMetadataStore;
@@ -183,20 +187,19 @@ public class Activator extends AbstractExtender
                 runtime,
                 m_componentRegistry.getServiceRegistrationProperties() );
         m_componentRegistry.setRegistration(m_runtime_reg);
+        m_changes_reg = m_context.registerService( ComponentChanges.class, runtime, null );
 
         // log SCR startup
         logger.log(Level.INFO, " Version = {0}",
             null, m_bundle.getVersion().toString() );
 
         // create and start the component actor
-        m_componentActor = new ComponentActorThread( this.logger );
-        Thread t = new Thread( m_componentActor, "SCR Component Actor" );
-        t.setDaemon( true );
-        t.start();
+        m_componentActor = new ComponentActorThread( this.logger, m_configuration.actorThreads() );
 
         super.doStart();
 
-        m_componentCommands = new ComponentCommands(m_context, runtime, m_configuration);
+        m_componentCommands = new ComponentCommands(m_context, runtime, m_configuration,
+            m_componentRegistry.getLockStatistics(), m_componentActor);
         m_componentCommands.register();
         m_componentCommands.updateProvideScrInfoService(m_configuration.infoAsService());
         m_configuration.setScrCommand(m_componentCommands);
@@ -361,6 +364,11 @@ public class Activator extends AbstractExtender
         {
             m_componentCommands.unregister();
         }
+        if ( m_changes_reg != null )
+        {
+            m_changes_reg.unregister();
+            m_changes_reg = null;
+        }
         if ( m_runtime_reg != null )
         {
             m_runtime_reg.unregister();
@@ -379,6 +387,7 @@ public class Activator extends AbstractExtender
             m_componentActor = null;
         }
         ClassUtils.close();
+        Annotations.clearPropertyTypes();
     }
 
     //---------- Component Management -----------------------------------------
@@ -617,6 +626,7 @@ public class Activator extends AbstractExtender
                 logger.log(Level.ERROR, "Error while disposing components of {0}", e,
                     bundle);
             }
+            Annotations.clearPropertyTypes();
         }
     }
 
@@ -29,8 +29,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
@@ -46,6 +52,7 @@ import org.apache.felix.scr.impl.manager.ComponentHolder;
 import org.apache.felix.scr.impl.manager.DependencyManager;
 import org.apache.felix.scr.impl.manager.ExtendedServiceEvent;
 import org.apache.felix.scr.impl.manager.ExtendedServiceListener;
+import org.apache.felix.scr.impl.manager.LockStatistics;
 import org.apache.felix.scr.impl.manager.RegionConfigurationSupport;
 import org.apache.felix.scr.impl.manager.ScrConfiguration;
 import org.apache.felix.scr.impl.metadata.ComponentMetadata;
@@ -287,49 +294,162 @@ public class BundleComponentActivator implements ComponentActivator
      */
     void initialEnable()
     {
-        //enable all the enabled components
-        for ( ComponentHolder<?> componentHolder : m_holders )
+        final int threads = m_configuration == null ? 1 : m_configuration.parallelActivationThreads();
+        if ( threads > 1 && m_holders.size() > 1 )
         {
-            logger.log(Level.DEBUG,
-                "BundleComponentActivator : May enable component holder {0}", null,
-                componentHolder.getComponentMetadata().getName() );
-
-            if ( componentHolder.getComponentMetadata().isEnabled() )
+            enableConcurrently( threads );
+        }
+        else
+        {
+            //enable all the enabled components
+            for ( ComponentHolder<?> componentHolder : m_holders )
             {
-                logger.log(Level.DEBUG,
-                    "BundleComponentActivator :Enabling component holder {0}", null,
-                    componentHolder.getComponentMetadata().getName() );
+                enable( componentHolder );
+            }
+        }
+    }
 
-                try
+    /**
+     * Enables the components of the bundle on up to <code>threads</code>
+     * threads. The components are enabled in the waves computed by the
+     * {@link ActivationGraph}, each wave only being started once the
+     * previous one has completed, such that providers are enabled before
+     * the components referencing their services. Each component manager
+     * still serializes its own state changes through its state lock.
+     * Components on dependency cycles are enabled sequentially at the end.
+     */
+    private void enableConcurrently( final int threads )
+    {
+        final ActivationGraph graph = new ActivationGraph( m_holders );
+        final int poolSize = Math.min( threads, graph.getMaxWaveSize() );
+        final ExecutorService executor = poolSize > 1 ? Executors.newFixedThreadPool( poolSize, new ThreadFactory()
+        {
+            private final AtomicInteger m_count = new AtomicInteger();
+
+            @Override
+            public Thread newThread( final Runnable r )
+            {
+                final Thread thread = new Thread( r, "SCR Component Activator #" + m_count.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } ) : null;
+        boolean interrupted = false;
+        try
+        {
+            for ( final List<ComponentHolder<?>> wave : graph.getWaves() )
+            {
+                if ( executor == null || interrupted || wave.size() == 1 )
                 {
-                    componentHolder.enableComponents( false );
+                    for ( final ComponentHolder<?> componentHolder : wave )
+                    {
+                        enable( componentHolder );
+                    }
+                    continue;
                 }
-                catch ( Throwable t )
-                {
-                    // caught on unhandled RuntimeException or Error
-                    // (e.g. ClassDefNotFoundError)
 
-                    // make sure the component is properly disabled, just in case
-                    try
+                final List<Future<?>> futures = new ArrayList<>( wave.size() );
+                for ( final ComponentHolder<?> componentHolder : wave )
+                {
+                    futures.add( executor.submit( new Runnable()
                     {
-                        componentHolder.disableComponents( false );
-                    }
-                    catch ( Throwable ignore )
+                        @Override
+                        public void run()
+                        {
+                            enable( componentHolder );
+                        }
+                    } ) );
+                }
+                for ( final Future<?> future : futures )
+                {
+                    // the later waves depend on this one, so wait for it
+                    // even if interrupted
+                    while ( true )
                     {
+                        try
+                        {
+                            future.get();
+                            break;
+                        }
+                        catch ( InterruptedException ie )
+                        {
+                            if ( !interrupted )
+                            {
+                                logger.log( Level.WARN,
+                                    "BundleComponentActivator : Interrupted while enabling components concurrently, enabling the remaining components sequentially", null );
+                                interrupted = true;
+                            }
+                        }
+                        catch ( ExecutionException ee )
+                        {
+                            // not expected, enable handles all failures
+                            logger.log( Level.ERROR,
+                                "BundleComponentActivator : Unexpected failure enabling components concurrently", ee.getCause() );
+                            break;
+                        }
                     }
-
-                    logger.log(Level.ERROR,
-                        "BundleComponentActivator : Unexpected failure enabling component holder {0}", t,
-                        componentHolder.getComponentMetadata().getName() );
                 }
             }
-            else
+
+            for ( final ComponentHolder<?> componentHolder : graph.getCyclic() )
             {
-                logger.log(Level.DEBUG,
-                    "BundleComponentActivator : Will not enable component holder {0}", null,
+                enable( componentHolder );
+            }
+        }
+        finally
+        {
+            if ( executor != null )
+            {
+                executor.shutdown();
+            }
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void enable( final ComponentHolder<?> componentHolder )
+    {
+        logger.log(Level.DEBUG,
+            "BundleComponentActivator : May enable component holder {0}", null,
+            componentHolder.getComponentMetadata().getName() );
+
+        if ( componentHolder.getComponentMetadata().isEnabled() )
+        {
+            logger.log(Level.DEBUG,
+                "BundleComponentActivator :Enabling component holder {0}", null,
+                componentHolder.getComponentMetadata().getName() );
+
+            try
+            {
+                componentHolder.enableComponents( false );
+            }
+            catch ( Throwable t )
+            {
+                // caught on unhandled RuntimeException or Error
+                // (e.g. ClassDefNotFoundError)
+
+                // make sure the component is properly disabled, just in case
+                try
+                {
+                    componentHolder.disableComponents( false );
+                }
+                catch ( Throwable ignore )
+                {
+                }
+
+                logger.log(Level.ERROR,
+                    "BundleComponentActivator : Unexpected failure enabling component holder {0}", t,
                     componentHolder.getComponentMetadata().getName() );
             }
         }
+        else
+        {
+            logger.log(Level.DEBUG,
+                "BundleComponentActivator : Will not enable component holder {0}", null,
+                componentHolder.getComponentMetadata().getName() );
+        }
     }
 
     /**
@@ -553,6 +673,12 @@ public class BundleComponentActivator implements ComponentActivator
         return m_configuration;
     }
 
+    @Override
+    public LockStatistics getLockStatistics()
+    {
+        return m_componentRegistry.getLockStatistics();
+    }
+
     /**
      * Implements the <code>ComponentContext.enableComponent(String)</code>
      * method by first finding the component(s) for the <code>name</code> and
@@ -673,13 +799,43 @@ public class BundleComponentActivator implements ComponentActivator
      */
     @Override
     public void schedule(Runnable task)
+    {
+        schedule( null, task );
+    }
+
+    /**
+     * Schedules the given <code>task</code> for asynchrounous execution after
+     * all tasks scheduled with the same <code>key</code> or synchronously runs
+     * the task if the thread is not running. If this instance is
+     * {@link #isActive() not active}, the task is not executed.
+     *
+     * @param key The key of the task, usually the component manager
+     * @param task The component task to execute
+     */
+    @Override
+    public void schedule(Object key, Runnable task)
+    {
+        schedule( key, task, 0 );
+    }
+
+    /**
+     * Schedules the given <code>task</code> like {@link #schedule(Object, Runnable)}
+     * once the delay has passed. If the thread is not running, the task is
+     * run synchronously without delay.
+     *
+     * @param key The key of the task, usually the component manager
+     * @param task The component task to execute
+     * @param delayMillis The delay in milliseconds
+     */
+    @Override
+    public void schedule(Object key, Runnable task, long delayMillis)
     {
         if ( isActive() )
         {
             ComponentActorThread cat = m_componentActor;
             if ( cat != null )
             {
-                cat.schedule( task );
+                cat.schedule( key, task, delayMillis );
             }
             else
             {
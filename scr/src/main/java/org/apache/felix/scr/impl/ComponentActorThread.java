@@ -19,129 +19,141 @@
 package org.apache.felix.scr.impl;
 
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.felix.scr.impl.logger.InternalLogger.Level;
 import org.apache.felix.scr.impl.logger.ScrLogger;
 
 
 /**
- * The <code>ComponentActorThread</code> is the thread used to act upon registered
+ * The <code>ComponentActorThread</code> is used to act upon registered
  * components of the service component runtime.
+ * <p>
+ * Tasks are scheduled with a key, usually the component manager they act
+ * upon. Tasks with the same key are run one after the other in the order
+ * they have been scheduled, while tasks with different keys are run
+ * concurrently on a work-stealing pool of up to the configured number of
+ * threads. With a single thread the keys are ignored and all tasks are run
+ * in scheduling order as with a dedicated thread.
  */
-class ComponentActorThread implements Runnable
+class ComponentActorThread
 {
 
-    // sentinel task to terminate this thread
-    private static final Runnable TERMINATION_TASK = new Runnable()
+    // key of tasks scheduled without a key
+    private static final Object DEFAULT_KEY = new Object()
     {
-        @Override
-        public void run()
-        {
-        }
-
-
         @Override
         public String toString()
         {
-            return "Component Actor Terminator";
+            return "default";
         }
     };
 
-    // the queue of Runnable instances  to be run
-    private final LinkedList<Runnable> tasks = new LinkedList<>();
+    // the queues of tasks not run yet per key, guarded by itself
+    private final Map<Object, KeyQueue> queues = new HashMap<>();
 
     private final ScrLogger logger;
 
+    private final ForkJoinPool pool;
 
-    ComponentActorThread( final ScrLogger log )
-    {
-        logger = log;
-    }
+    // whether all tasks are run in scheduling order, regardless of their key
+    private final boolean ordered;
 
+    // number of tasks scheduled and not finished yet, guarded by queues
+    private int pending;
 
-    // waits on Runnable instances coming into the queue. As instances come
-    // in, this method calls the Runnable.run method, logs any exception
-    // happening and keeps on waiting for the next Runnable. If the Runnable
-    // taken from the queue is this thread instance itself, the thread
-    // terminates.
-    @Override
-    public void run()
-    {
-        logger.log(Level.DEBUG, "Starting ComponentActorThread", null);
+    // whether terminate has been called, guarded by queues
+    private boolean terminated;
 
-        for ( ;; )
-        {
-            final Runnable task;
-            synchronized ( tasks )
-            {
-                while ( tasks.isEmpty() )
-                {
-                    boolean interrupted = Thread.interrupted();
-                    try
-                    {
-                        tasks.wait();
-                    }
-                    catch ( InterruptedException ie )
-                    {
-                        interrupted = true;
-                        // don't care
-                    }
-                    finally
-                    {
-                        if (interrupted)
-                        { // restore interrupt status
-                            Thread.currentThread().interrupt();
-                        }
-                    }
-                }
+    // timer for delayed tasks, created on demand, guarded by queues
+    private Timer timer;
 
-                task = tasks.removeFirst();
-            }
+    // delayed tasks not due yet, guarded by queues
+    private final Set<DelayedTask> delayed = new HashSet<>();
 
-            try
-            {
-                // return if the task is this thread itself
-                if ( task == TERMINATION_TASK )
-                {
-                    logger.log(Level.DEBUG, "Shutting down ComponentActorThread",
-                        null);
-                    return;
-                }
+    // number of tasks queued and not started yet
+    private final AtomicInteger queueDepth = new AtomicInteger();
 
-                // otherwise execute the task, log any issues
-                logger.log(Level.DEBUG, "Running task: " + task, null);
-                task.run();
-            }
-            catch ( Throwable t )
-            {
-                logger.log(Level.ERROR, "Unexpected problem executing task " + task,
-                    t);
-            }
-            finally
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    private final AtomicLong completedTasks = new AtomicLong();
+
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private final AtomicLong totalRunNanos = new AtomicLong();
+
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+
+    ComponentActorThread( final ScrLogger log, final int threads )
+    {
+        logger = log;
+        ordered = threads <= 1;
+        pool = new ForkJoinPool( Math.max( 1, threads ), new ForkJoinPool.ForkJoinWorkerThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public ForkJoinWorkerThread newThread( final ForkJoinPool pool )
             {
-                synchronized ( tasks )
+                final ForkJoinWorkerThread thread = new ForkJoinWorkerThread( pool )
                 {
-                    tasks.notifyAll();
-                }
+                };
+                final int n = count.incrementAndGet();
+                thread.setName( n == 1 ? "SCR Component Actor" : "SCR Component Actor #" + n );
+                thread.setDaemon( true );
+                return thread;
             }
-        }
+        }, null, true );
+        logger.log(Level.DEBUG, "Starting ComponentActorThread with {0} thread(s)", null,
+            pool.getParallelism());
     }
 
 
-    // cause this thread to terminate by adding this thread to the end
-    // of the queue
+    // cause the actor to terminate after all tasks scheduled so far,
+    // including the tasks scheduled by these tasks, have been run;
+    // delayed tasks not due yet are run right away
     void terminate()
     {
-        schedule( TERMINATION_TASK );
-        synchronized ( tasks )
+        final List<DelayedTask> due;
+        synchronized ( queues )
+        {
+            terminated = true;
+            if ( timer != null )
+            {
+                timer.cancel();
+                timer = null;
+            }
+            due = new ArrayList<>( delayed );
+            delayed.clear();
+        }
+        for ( final DelayedTask task : due )
+        {
+            schedule( task.key, task.task );
+        }
+        synchronized ( queues )
         {
-            while ( !tasks.isEmpty() )
+            while ( pending > 0 )
             {
                 boolean interrupted = Thread.interrupted();
                 try
                 {
-                    tasks.wait();
+                    queues.wait();
                 }
                 catch ( InterruptedException e )
                 {
@@ -158,22 +170,296 @@ class ComponentActorThread implements Runnable
                 }
             }
         }
+        pool.shutdown();
+        logger.log(Level.DEBUG,
+            "Shutting down ComponentActorThread after {0} tasks, average wait {1}us, max wait {2}us, average run {3}us, max run {4}us, max queue depth {5}",
+            null, getCompletedTasks(), getAverageWaitMicros(), getMaxWaitMicros(),
+            getAverageRunMicros(), getMaxRunMicros(), getMaxQueueDepth());
+    }
+
+
+    // queue the given runnable to be run as soon as possible after
+    // all tasks scheduled without a key
+    void schedule( final Runnable task )
+    {
+        schedule( DEFAULT_KEY, task );
+    }
+
+
+    // queue the given runnable to be run as soon as possible after
+    // all tasks scheduled with the same key
+    void schedule( final Object key, final Runnable task )
+    {
+        final Object queueKey = ordered || key == null ? DEFAULT_KEY : key;
+        final KeyQueue queue;
+        synchronized ( queues )
+        {
+            if ( terminated && pending == 0 )
+            {
+                logger.log(Level.DEBUG,
+                    "ComponentActorThread terminated, running task {0} synchronously", null, task);
+                runSynchronously( task );
+                return;
+            }
+
+            KeyQueue existing = queues.get( queueKey );
+            if ( existing == null )
+            {
+                existing = new KeyQueue( queueKey );
+                queues.put( queueKey, existing );
+            }
+            queue = existing;
+            queue.tasks.add( new Task( task ) );
+            pending++;
+            final int depth = queueDepth.incrementAndGet();
+            updateMax( maxQueueDepth, depth );
+
+            logger.log(Level.DEBUG, "Adding task [{0}] as #{1} in the queue of {2}", null,
+                    task, queue.tasks.size(), queueKey);
+
+            if ( queue.running )
+            {
+                return;
+            }
+            queue.running = true;
+        }
+        submit( queue );
+    }
+
+
+    // queue the given runnable with the given key once the delay has
+    // passed; the runnable is queued without delay if the actor terminates
+    void schedule( final Object key, final Runnable task, final long delayMillis )
+    {
+        synchronized ( queues )
+        {
+            if ( delayMillis > 0 && !terminated )
+            {
+                if ( timer == null )
+                {
+                    timer = new Timer( "SCR Component Actor Timer", true );
+                }
+                final DelayedTask delayedTask = new DelayedTask( key, task );
+                delayed.add( delayedTask );
+                timer.schedule( delayedTask, delayMillis );
+                return;
+            }
+        }
+        schedule( key, task );
+    }
+
+
+    private void submit( final KeyQueue queue )
+    {
+        try
+        {
+            pool.execute( queue );
+        }
+        catch ( RejectedExecutionException ree )
+        {
+            // the pool has been shut down concurrently, run in this thread
+            queue.run();
+        }
+    }
+
+
+    private void runSynchronously( final Runnable task )
+    {
+        try
+        {
+            task.run();
+        }
+        catch ( Throwable t )
+        {
+            logger.log(Level.ERROR, "Unexpected problem executing task " + task, t);
+        }
+    }
+
+
+    int getThreads()
+    {
+        return pool.getParallelism();
+    }
+
+
+    long getCompletedTasks()
+    {
+        return completedTasks.get();
+    }
+
+
+    int getQueueDepth()
+    {
+        return queueDepth.get();
+    }
+
+
+    int getMaxQueueDepth()
+    {
+        return maxQueueDepth.get();
+    }
+
+
+    long getAverageWaitMicros()
+    {
+        final long completed = completedTasks.get();
+        return completed == 0 ? 0 : totalWaitNanos.get() / completed / 1000;
+    }
+
+
+    long getMaxWaitMicros()
+    {
+        return maxWaitNanos.get() / 1000;
+    }
+
+
+    long getAverageRunMicros()
+    {
+        final long completed = completedTasks.get();
+        return completed == 0 ? 0 : totalRunNanos.get() / completed / 1000;
+    }
+
+
+    long getMaxRunMicros()
+    {
+        return maxRunNanos.get() / 1000;
+    }
+
+
+    private static void updateMax( final AtomicInteger max, final int value )
+    {
+        int current;
+        while ( value > ( current = max.get() ) && !max.compareAndSet( current, value ) )
+        {
+            // retry
+        }
+    }
+
+
+    private static void updateMax( final AtomicLong max, final long value )
+    {
+        long current;
+        while ( value > ( current = max.get() ) && !max.compareAndSet( current, value ) )
+        {
+            // retry
+        }
+    }
+
+
+    private final class DelayedTask extends TimerTask
+    {
+        final Object key;
+
+        final Runnable task;
+
+        DelayedTask( final Object key, final Runnable task )
+        {
+            this.key = key;
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            synchronized ( queues )
+            {
+                if ( !delayed.remove( this ) )
+                {
+                    // already queued by terminate
+                    return;
+                }
+            }
+            schedule( key, task );
+        }
     }
 
 
-    // queue the given runnable to be run as soon as possible
-    void schedule( Runnable task )
+    private static final class Task
     {
-        synchronized ( tasks )
+        final Runnable runnable;
+
+        final long scheduled = System.nanoTime();
+
+        Task( final Runnable runnable )
+        {
+            this.runnable = runnable;
+        }
+    }
+
+
+    // the tasks of a key; runs the queued tasks until the queue is empty,
+    // tasks scheduled meanwhile with the same key are run by the same loop
+    private final class KeyQueue implements Runnable
+    {
+        final Object key;
+
+        final ArrayDeque<Task> tasks = new ArrayDeque<>();
+
+        // whether this queue is submitted to or running in the pool, guarded by queues
+        boolean running;
+
+        KeyQueue( final Object key )
+        {
+            this.key = key;
+        }
+
+        @Override
+        public void run()
+        {
+            while ( true )
+            {
+                final Task task;
+                synchronized ( queues )
+                {
+                    task = tasks.poll();
+                    if ( task == null )
+                    {
+                        running = false;
+                        queues.remove( key );
+                        return;
+                    }
+                }
+                runTask( task );
+            }
+        }
+
+        private void runTask( final Task task )
         {
-            // append to the task queue
-            tasks.add( task );
+            queueDepth.decrementAndGet();
 
-            logger.log(Level.DEBUG, "Adding task [{0}] as #{1} in the queue", null,
-                    task, tasks.size());
+            final long start = System.nanoTime();
+            final long wait = start - task.scheduled;
+            totalWaitNanos.addAndGet( wait );
+            updateMax( maxWaitNanos, wait );
+            try
+            {
+                logger.log(Level.DEBUG, "Running task: " + task.runnable, null);
+                task.runnable.run();
+            }
+            catch ( Throwable t )
+            {
+                logger.log(Level.ERROR, "Unexpected problem executing task " + task.runnable,
+                    t);
+            }
+            finally
+            {
+                final long run = System.nanoTime() - start;
+                totalRunNanos.addAndGet( run );
+                updateMax( maxRunNanos, run );
+                completedTasks.incrementAndGet();
+
+                synchronized ( queues )
+                {
+                    pending--;
+                    queues.notifyAll();
+                }
+            }
+        }
 
-            // notify the waiting thread
-            tasks.notifyAll();
+        @Override
+        public String toString()
+        {
+            return "Component Actor queue of " + key;
         }
     }
 }
@@ -38,6 +38,7 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import org.apache.felix.scr.impl.manager.LockStatistics;
 import org.apache.felix.scr.impl.manager.ScrConfiguration;
 import org.apache.felix.scr.info.ScrInfo;
 import org.apache.felix.service.command.Converter;
@@ -70,6 +71,8 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
     private final BundleContext context;
     private final ServiceComponentRuntime scr;
     private final ScrConfiguration scrConfig;
+    private final LockStatistics lockStatistics;
+    private final ComponentActorThread componentActor;
     private final ServiceTracker<Object, ServiceRegistration<?>> gogoRuntimeTracker;
 
     private final Comparator<ComponentConfigurationDTO> configDtoComparator = new Comparator<ComponentConfigurationDTO>() {
@@ -104,7 +107,8 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
                 "disable",
                 "enable",
                 "info",
-                "list"
+                "list",
+                "locks"
         });
         svcProps.put(Constants.SERVICE_DESCRIPTION, "SCR Gogo Shell Support");
         svcProps.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
@@ -133,10 +137,13 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
         }
     }
 
-    protected ComponentCommands(BundleContext context, ServiceComponentRuntime scr, ScrConfiguration scrConfig) {
+    protected ComponentCommands(BundleContext context, ServiceComponentRuntime scr, ScrConfiguration scrConfig,
+            LockStatistics lockStatistics, ComponentActorThread componentActor) {
         this.context = context;
         this.scr = scr;
         this.scrConfig = scrConfig;
+        this.lockStatistics = lockStatistics;
+        this.componentActor = componentActor;
         this.gogoRuntimeTracker = new ServiceTracker<>(context, "org.apache.felix.service.command.CommandProcessor", this);
     }
 
@@ -188,6 +195,11 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
         return matches.get(0);
     }
 
+    @Descriptor("Show the lock wait histogram and the most recent lock timeouts with the threads holding the locks")
+    public String locks() {
+        return lockStatistics.toString();
+    }
+
     @Descriptor("Dump information of a component configuration")
     public ComponentConfigurationDTO info(@Descriptor("ID of the component configuration") long id) {
         for (ComponentDescriptionDTO descDto : scr.getComponentDescriptionDTOs()) {
@@ -224,7 +236,7 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
     }
 
     @SuppressWarnings("deprecation")
-    @Descriptor("Show the current SCR configuration")
+    @Descriptor("Show the current SCR configuration and the component actor statistics")
     public String config() {
         Map<String,String> out = new LinkedHashMap<>();
         out.put("Log Level", scrConfig.getLogLevel().toString());
@@ -234,6 +246,14 @@ public class ComponentCommands implements ServiceTrackerCustomizer<Object, Servi
         out.put("Stop timeout ms", Long.toString(scrConfig.stopTimeout()));
         out.put("Global extender", Boolean.toString(scrConfig.globalExtender()));
         out.put("Info Service registered", scrConfig.infoAsService() ? "Supported" : "Unsupported");
+        out.put("Component actor threads", Integer.toString(componentActor.getThreads()));
+        out.put("Component actor completed tasks", Long.toString(componentActor.getCompletedTasks()));
+        out.put("Component actor queue depth (current/max)",
+            componentActor.getQueueDepth() + "/" + componentActor.getMaxQueueDepth());
+        out.put("Component actor wait us (average/max)",
+            componentActor.getAverageWaitMicros() + "/" + componentActor.getMaxWaitMicros());
+        out.put("Component actor run us (average/max)",
+            componentActor.getAverageRunMicros() + "/" + componentActor.getMaxRunMicros());
 
         StringBuilder builder = new StringBuilder();
         printColumnsAligned("SCR Configuration", out, '=', builder);
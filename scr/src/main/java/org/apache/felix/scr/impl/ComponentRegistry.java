@@ -25,6 +25,7 @@ import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +45,7 @@ import org.apache.felix.scr.impl.manager.ComponentActivator;
 import org.apache.felix.scr.impl.manager.ComponentHolder;
 import org.apache.felix.scr.impl.manager.ConfigurableComponentHolder;
 import org.apache.felix.scr.impl.manager.DependencyManager;
+import org.apache.felix.scr.impl.manager.LockStatistics;
 import org.apache.felix.scr.impl.manager.RegionConfigurationSupport;
 import org.apache.felix.scr.impl.manager.ScrConfiguration;
 import org.apache.felix.scr.impl.metadata.ComponentMetadata;
@@ -557,14 +559,34 @@ public class ComponentRegistry
      * Schedule late binding of now-available reference on a different thread.  The late binding cannot occur on this thread
      * due to service registry circular reference detection. We cannot wait for the late binding before returning from the initial
      * getService call because of synchronization in the service registry.
+     * The late binding is scheduled per component manager to keep it in order
+     * with the other asynchronous tasks of the component.
      * @param serviceReference
      * @param actor
      */
     public synchronized <T> void missingServicePresent( final ServiceReference<T> serviceReference, ComponentActorThread actor )
     {
-        final List<Entry<?, ?>> dependencyManagers = m_missingDependencies.remove( serviceReference );
-        if ( dependencyManagers != null )
+        final List<Entry<?, ?>> missing = m_missingDependencies.remove( serviceReference );
+        if ( missing == null )
         {
+            return;
+        }
+
+        final Map<AbstractComponentManager<?>, List<Entry<?, ?>>> byComponent = new LinkedHashMap<>();
+        for ( Entry<?, ?> entry : missing )
+        {
+            List<Entry<?, ?>> entries = byComponent.get( entry.getDm().getComponentManager() );
+            if ( entries == null )
+            {
+                entries = new ArrayList<>();
+                byComponent.put( entry.getDm().getComponentManager(), entries );
+            }
+            entries.add( entry );
+        }
+
+        for ( final Map.Entry<AbstractComponentManager<?>, List<Entry<?, ?>>> component : byComponent.entrySet() )
+        {
+            final List<Entry<?, ?>> dependencyManagers = component.getValue();
 
             Runnable runnable = new Runnable()
             {
@@ -590,7 +612,7 @@ public class ComponentRegistry
             } ;
             m_logger.log(Level.DEBUG,
                 "Scheduling runnable {0} asynchronously", null, runnable);
-            actor.schedule( runnable );
+            actor.schedule( component.getKey(), runnable );
         }
     }
 
@@ -704,6 +726,8 @@ public class ComponentRegistry
 
     private final AtomicLong changeCount = new AtomicLong();
 
+    private final LockStatistics lockStatistics = new LockStatistics();
+
     private volatile Timer changeCountTimer;
 
     private final Object changeCountTimerLock = new Object();
@@ -723,11 +747,29 @@ public class ComponentRegistry
         this.registration = reg;
     }
 
+    /**
+     * Returns the statistics of the component locks
+     * @return The lock statistics
+     */
+    public LockStatistics getLockStatistics()
+    {
+        return this.lockStatistics;
+    }
+
+    /**
+     * Returns the current change count of the components
+     * @return The change count
+     */
+    public long getChangeCount()
+    {
+        return this.changeCount.get();
+    }
+
     public void updateChangeCount()
     {
+        final long count = this.changeCount.incrementAndGet();
         if ( registration != null )
         {
-            final long count = this.changeCount.incrementAndGet();
 
             final Timer timer;
             synchronized ( this.changeCountTimerLock ) {
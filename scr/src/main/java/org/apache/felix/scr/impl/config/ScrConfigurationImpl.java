@@ -59,6 +59,8 @@ public class ScrConfigurationImpl implements ScrConfiguration
 
     private static final String VALUE_TRUE = Boolean.TRUE.toString();
 
+    private static final String VALUE_FALSE = Boolean.FALSE.toString();
+
     private static final String LOG_LEVEL_DEBUG = "debug";
 
     private static final String LOG_LEVEL_INFO = "info";
@@ -90,6 +92,12 @@ public class ScrConfigurationImpl implements ScrConfiguration
 
     private long serviceChangecountTimeout = DEFAULT_SERVICE_CHANGECOUNT_TIMEOUT_MILLISECONDS;
 
+    private int parallelActivationThreads = 1;
+
+    private int actorThreads = 1;
+
+    private boolean lockFairness = true;
+
     private Boolean globalExtender;
 
     private volatile BundleContext bundleContext;
@@ -180,6 +188,9 @@ public class ScrConfigurationImpl implements ScrConfiguration
                         newGlobalExtender = false;
                         cacheMetadata = false;
                         logExtension = false;
+                        parallelActivationThreads = 1;
+                        actorThreads = 1;
+                        lockFairness = true;
                     }
                     else
                     {
@@ -193,6 +204,9 @@ public class ScrConfigurationImpl implements ScrConfiguration
                         newGlobalExtender = getDefaultGlobalExtender();
                         cacheMetadata = getDefaultCacheMetadata();
                         logExtension = getDefaultLogExtension();
+                        parallelActivationThreads = getDefaultParallelActivationThreads();
+                        actorThreads = getThreads( bundleContext.getProperty( PROP_ACTOR_THREADS ) );
+                        lockFairness = getDefaultLockFairness();
                     }
                 }
                 else
@@ -214,6 +228,9 @@ public class ScrConfigurationImpl implements ScrConfiguration
                 cacheMetadata = VALUE_TRUE.equalsIgnoreCase(
                     String.valueOf(config.get(PROP_CACHE_METADATA)));
                 logExtension = VALUE_TRUE.equalsIgnoreCase(String.valueOf(config.get(PROP_LOG_EXTENSION)));
+                parallelActivationThreads = getThreads( config.get( PROP_PARALLEL_ACTIVATION_THREADS ) );
+                actorThreads = getThreads( config.get( PROP_ACTOR_THREADS ) );
+                lockFairness = !VALUE_FALSE.equalsIgnoreCase( String.valueOf( config.get( PROP_LOCK_FAIRNESS ) ) );
             }
             if ( scrCommand != null )
             {
@@ -291,6 +308,24 @@ public class ScrConfigurationImpl implements ScrConfiguration
         return serviceChangecountTimeout;
     }
 
+    @Override
+    public int parallelActivationThreads()
+    {
+        return parallelActivationThreads;
+    }
+
+    @Override
+    public int actorThreads()
+    {
+        return actorThreads;
+    }
+
+    @Override
+    public boolean lockFairness()
+    {
+        return lockFairness;
+    }
+
     private boolean getDefaultFactoryEnabled()
     {
         return VALUE_TRUE.equals( bundleContext.getProperty( PROP_FACTORY_ENABLED ) );
@@ -323,6 +358,36 @@ public class ScrConfigurationImpl implements ScrConfiguration
         return Long.parseLong( val );
     }
 
+    private boolean getDefaultLockFairness()
+    {
+        return !VALUE_FALSE.equalsIgnoreCase( bundleContext.getProperty( PROP_LOCK_FAIRNESS ) );
+    }
+
+    private int getDefaultParallelActivationThreads()
+    {
+        return getThreads( bundleContext.getProperty( PROP_PARALLEL_ACTIVATION_THREADS ) );
+    }
+
+    private int getThreads( final Object value )
+    {
+        if ( value instanceof Number )
+        {
+            return Math.max( 1, ( ( Number ) value ).intValue() );
+        }
+        if ( value != null )
+        {
+            try
+            {
+                return Math.max( 1, Integer.parseInt( value.toString().trim() ) );
+            }
+            catch ( NumberFormatException nfe )
+            {
+                // fall back to a single thread
+            }
+        }
+        return 1;
+    }
+
     private long getDefaultStopTimeout()
     {
         String val = bundleContext.getProperty( PROP_STOP_TIMEOUT);
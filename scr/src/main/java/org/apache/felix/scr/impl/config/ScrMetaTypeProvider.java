@@ -109,6 +109,13 @@ class ScrMetaTypeProvider implements MetaTypeProvider
                 new String[] { String.valueOf(this.configuration.lockTimeout())},
                 0, null, null) );
 
+        adList.add( new AttributeDefinitionImpl(
+                ScrConfiguration.PROP_LOCK_FAIRNESS,
+                "Fair component locks",
+                "Whether the state locks of the components are granted in arrival order. Fair locks prevent "
+                    + "starvation but reduce throughput under contention. Applies to components created afterwards.",
+                this.configuration.lockFairness() ) );
+
         adList.add( new AttributeDefinitionImpl(
                 ScrConfiguration.PROP_STOP_TIMEOUT,
                 "Stop timeout milliseconds",
@@ -117,6 +124,26 @@ class ScrMetaTypeProvider implements MetaTypeProvider
                 new String[] { String.valueOf(this.configuration.stopTimeout())},
                 0, null, null) );
 
+        adList.add( new AttributeDefinitionImpl(
+                ScrConfiguration.PROP_PARALLEL_ACTIVATION_THREADS,
+                "Parallel activation threads",
+                "Number of threads enabling the components of a bundle concurrently. Components referencing "
+                    + "services of other components of the same bundle are enabled after these. The default of 1 "
+                    + "enables the components sequentially.",
+                AttributeDefinition.INTEGER,
+                new String[] { String.valueOf(this.configuration.parallelActivationThreads())},
+                0, null, null) );
+
+        adList.add( new AttributeDefinitionImpl(
+                ScrConfiguration.PROP_ACTOR_THREADS,
+                "Component actor threads",
+                "Number of threads running asynchronous component tasks. Tasks of the same component are run in "
+                    + "order, tasks of different components run concurrently with more than one thread. Changes "
+                    + "take effect when SCR is restarted.",
+                AttributeDefinition.INTEGER,
+                new String[] { String.valueOf(this.configuration.actorThreads())},
+                0, null, null) );
+
         adList.add( new AttributeDefinitionImpl(
                 ScrConfiguration.PROP_GLOBAL_EXTENDER,
                 "Global Extender",
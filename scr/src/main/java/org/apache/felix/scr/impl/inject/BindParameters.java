@@ -18,19 +18,51 @@
  */
 package org.apache.felix.scr.impl.inject;
 
+import java.util.Map;
+
 public class BindParameters extends BaseParameter
 {
 
     private final RefPair<?, ?> refPair;
 
+    private final Map<Object, Runnable> deferredUpdates;
+
     public BindParameters(ScrComponentContext componentContext, RefPair<?, ?> refPair)
+    {
+        this(componentContext, refPair, null);
+    }
+
+    /**
+     * @param deferredUpdates Collects updates deferred to the end of a batch
+     *      of bind, updated and unbind calls, <code>null</code> if not batching
+     */
+    public BindParameters(ScrComponentContext componentContext, RefPair<?, ?> refPair,
+        Map<Object, Runnable> deferredUpdates)
     {
         super(componentContext);
         this.refPair = refPair;
+        this.deferredUpdates = deferredUpdates;
     }
 
     public RefPair<?, ?> getRefPair()
     {
         return refPair;
     }
+
+    /**
+     * Defers the update to the end of the current batch if batching. A
+     * later update with the same key replaces an earlier one.
+     *
+     * @return <code>true</code> if the update has been deferred and must
+     *      not be applied by the caller
+     */
+    public boolean defer(Object key, Runnable update)
+    {
+        if (deferredUpdates == null)
+        {
+            return false;
+        }
+        deferredUpdates.put(key, update);
+        return true;
+    }
 }
@@ -19,6 +19,7 @@
 package org.apache.felix.scr.impl.inject.field;
 
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
@@ -38,6 +39,7 @@ import org.apache.felix.scr.impl.inject.ValueUtils;
 import org.apache.felix.scr.impl.inject.ValueUtils.ValueType;
 import org.apache.felix.scr.impl.inject.field.FieldUtils.FieldSearchResult;
 import org.apache.felix.scr.impl.inject.internal.ClassUtils;
+import org.apache.felix.scr.impl.inject.internal.Invokers;
 import org.apache.felix.scr.impl.logger.ComponentLogger;
 import org.apache.felix.scr.impl.logger.InternalLogger.Level;
 import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
@@ -58,6 +60,10 @@ public class FieldHandler
     /** The field used for the injection. */
     private volatile Field field;
 
+    /** The handles reading and writing the field, <code>null</code> to use reflection. */
+    private volatile MethodHandle fieldGetter;
+    private volatile MethodHandle fieldSetter;
+
     /** Value type. */
     private volatile ValueType valueType;
 
@@ -171,6 +177,36 @@ public class FieldHandler
         return objects;
     }
 
+    /**
+     * Sets the field to a new collection of the bound values. Within a batch
+     * the field is only set once at the end of the batch.
+     */
+    private void replaceFieldValue(final Object componentInstance, final BindParameters bp)
+        throws InvocationTargetException
+    {
+        final boolean deferred = bp.defer(componentInstance, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    setFieldValue(componentInstance, getReplaceCollection(bp));
+                }
+                catch ( final InvocationTargetException ite )
+                {
+                    bp.getComponentContext().getLogger().log(Level.ERROR,
+                        "The {0} field has thrown an exception", ite.getCause(),
+                        metadata.getField() );
+                }
+            }
+        });
+        if ( !deferred )
+        {
+            this.setFieldValue(componentInstance, getReplaceCollection(bp));
+        }
+    }
+
     private MethodResult updateField(final METHOD_TYPE mType,
                                      final Object componentInstance,
                                      final BindParameters bp)
@@ -234,7 +270,7 @@ public class FieldHandler
                 bp.getComponentContext().getBoundValues(metadata.getName()).put(refPair, obj);
                 if ( metadata.isReplace() )
                 {
-                    this.setFieldValue(componentInstance, getReplaceCollection(bp));
+                    this.replaceFieldValue(componentInstance, bp);
                 }
                 else
                 {
@@ -251,7 +287,7 @@ public class FieldHandler
                     final Object obj = bp.getComponentContext().getBoundValues(metadata.getName()).remove(refPair);
                     if ( metadata.isReplace() )
                     {
-                        this.setFieldValue(componentInstance, getReplaceCollection(bp));
+                        this.replaceFieldValue(componentInstance, bp);
                     }
                     else
                     {
@@ -274,7 +310,7 @@ public class FieldHandler
 
 	                    if ( metadata.isReplace() )
 	                    {
-	                        this.setFieldValue(componentInstance, getReplaceCollection(bp));
+	                        this.replaceFieldValue(componentInstance, bp);
 	                    }
 	                    else
 	                    {
@@ -299,6 +335,19 @@ public class FieldHandler
     private void setFieldValue(final Object componentInstance, final Object value)
     throws InvocationTargetException
     {
+        final MethodHandle setter = fieldSetter;
+        if ( setter != null )
+        {
+            try
+            {
+                setter.invokeExact(componentInstance, value);
+            }
+            catch ( final Throwable t )
+            {
+                throw new InvocationTargetException(t);
+            }
+            return;
+        }
         try
         {
             field.set(componentInstance, value);
@@ -316,6 +365,18 @@ public class FieldHandler
     private Object getFieldValue(final Object componentInstance)
     throws InvocationTargetException
     {
+        final MethodHandle getter = fieldGetter;
+        if ( getter != null )
+        {
+            try
+            {
+                return (Object) getter.invokeExact(componentInstance);
+            }
+            catch ( final Throwable t )
+            {
+                throw new InvocationTargetException(t);
+            }
+        }
         try
         {
             return field.get(componentInstance);
@@ -444,6 +505,8 @@ public class FieldHandler
         if (result == null)
         {
             field = null;
+            fieldGetter = null;
+            fieldSetter = null;
             valueType = null;
             state = NotFound.INSTANCE;
             // TODO - will component really fail?
@@ -453,6 +516,8 @@ public class FieldHandler
         else
         {
             field = result.field;
+            fieldGetter = Invokers.getter(result.field);
+            fieldSetter = Invokers.setter(result.field);
             if (!result.usable)
             {
                 valueType = ValueType.ignore;
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.inject.internal;
+
+import java.util.Map;
+
+/**
+ * Base class of the implementations of component property types generated
+ * by {@link PropertyTypes}. The generated classes hold the coerced values
+ * in final fields and implement the accessor methods; this class implements
+ * the methods of {@link Object} and {@link java.lang.annotation.Annotation}
+ * like the proxy created by {@link Annotations#toObject}.
+ * <p>
+ * This class must be public as it is extended by classes defined in
+ * other class loaders.
+ */
+public abstract class AbstractPropertyType
+{
+    private final Class<?> type;
+
+    private final Map<String, Object> values;
+
+    protected AbstractPropertyType(final Class<?> type, final Map<String, Object> values)
+    {
+        this.type = type;
+        this.values = values;
+    }
+
+    Map<String, Object> getValues()
+    {
+        return values;
+    }
+
+    /**
+     * Implements {@code Annotation.annotationType()} for generated annotation
+     * types.
+     */
+    @SuppressWarnings("rawtypes")
+    public Class annotationType()
+    {
+        final Object value = Annotations.getValue(values, "annotationType");
+        return value != null ? (Class) value : type;
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+        final Object value = Annotations.getValue(values, "equals");
+        return value != null ? (Boolean) value : Annotations.equals(type, values, this, other);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        final Object value = Annotations.getValue(values, "hashCode");
+        return value != null ? (Integer) value : Annotations.hashCode(values);
+    }
+
+    @Override
+    public String toString()
+    {
+        final Object value = Annotations.getValue(values, "toString");
+        return value != null ? (String) value : Annotations.toString(type, values);
+    }
+}
@@ -59,6 +59,15 @@ public class Annotations
     /** Constant for the prefix constant. */
     private static final String PREFIX_CONSTANT = "PREFIX_";
 
+    /**
+     * Drops the implementations generated for component property types, so
+     * the class loaders of disposed bundles and of SCR are not kept alive.
+     */
+    public static void clearPropertyTypes()
+    {
+        PropertyTypes.clear();
+    }
+
     /**
      * Check whether the provided type is a single element annotation.
      * A single element annotation has a method named "value" and all
@@ -234,10 +243,82 @@ public class Annotations
             }
         }
 
+        if (!containsInvalid(m))
+        {
+            final T generated = PropertyTypes.newInstance(clazz, m);
+            if (generated != null)
+            {
+                return generated;
+            }
+        }
+
         final InvocationHandler h = new Handler(m, clazz);
         return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[] { clazz }, h);
     }
 
+    private static boolean containsInvalid(final Map<String, Object> values)
+    {
+        for (final Object value : values.values())
+        {
+            if (value instanceof Invalid)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value for the method name, throwing a
+     * {@code ComponentException} if the value is invalid.
+     */
+    static Object getValue(final Map<String, Object> values, final String name)
+    {
+        final Object value = values.get(name);
+        if (value instanceof Invalid)
+        {
+            throw new ComponentException(((Invalid)value).getMessage());
+        }
+        return value;
+    }
+
+    static int hashCode(final Map<String, Object> values)
+    {
+        int hashCode = 0;
+        for (final Map.Entry<String, Object> entry : values.entrySet()) {
+            hashCode += (127 * entry.getKey().hashCode()) ^ entry.getValue().hashCode();
+        }
+        return hashCode;
+    }
+
+    static boolean equals(final Class<?> type, final Map<String, Object> values, final Object self, final Object other)
+    {
+        if (self == other)
+        {
+            return true;
+        }
+        if (type.isInstance(other))
+        {
+            if (other instanceof AbstractPropertyType)
+            {
+                return ((AbstractPropertyType)other).getValues().equals(values);
+            }
+            if (Proxy.isProxyClass(other.getClass()))
+            {
+                final InvocationHandler ih = Proxy.getInvocationHandler(other);
+                if (ih instanceof Handler) {
+                    return ((Handler)ih).values.equals(values);
+                }
+            }
+        }
+        return false;
+    }
+
+    static String toString(final Class<?> type, final Map<String, Object> values)
+    {
+        return type.getName() + " : " + values;
+    }
+
     private static Map<String, List<Map<String, Object>>> extractSubMaps(Collection<String> keys, Map<String, Object> map)
     {
         Map<String, List<Map<String, Object>>> result = new HashMap<>();
@@ -373,50 +454,24 @@ public class Annotations
         @Override
         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
         {
-            Object value = values.get(method.getName());
-            if (value instanceof Invalid)
-            {
-                throw new ComponentException(((Invalid)value).getMessage());
-            }
+            Object value = getValue(values, method.getName());
             if ( value == null )
             {
                 // check for methods of the Annotations class like hashCode, toString, equals etc.
                 if (method.getName().equals("hashCode") &&
                     method.getParameterTypes().length == 0 )
                 {
-                    int hashCode = 0;
-                    for (final Map.Entry<String, Object> entry : values.entrySet()) {
-                        if (value instanceof Invalid) {
-                            continue;
-                        }
-                        hashCode += (127 * entry.getKey().hashCode()) ^ entry.getValue().hashCode();
-                    }
-                    value = hashCode;
+                    value = Annotations.hashCode(values);
                 }
                 else if (method.getName().equals("equals")
                          && method.getParameterTypes().length == 1)
                 {
-                    final Object other = args[0];
-                    if (proxy == other)
-                    {
-                        value = true;
-                    }
-                    else
-                    {
-                        value = false;
-                        if (type.isInstance(other) && Proxy.isProxyClass(other.getClass()))
-                        {
-                            final InvocationHandler ih = Proxy.getInvocationHandler(other);
-                            if (ih instanceof Handler) {
-                                value = ((Handler)ih).values.equals(values);
-                            }
-                        }
-                    }
+                    value = Annotations.equals(type, values, proxy, args[0]);
                 }
                 else if (method.getName().equals("toString")
                         && method.getParameterTypes().length == 0 )
                 {
-                    value = type.getName() + " : " + values;
+                    value = Annotations.toString(type, values);
                 }
                 else if (method.getName().equals("annotationType")
                          && method.getParameterTypes().length == 0 )
@@ -428,7 +483,7 @@ public class Annotations
         }
     }
 
-    private final static class Invalid
+    final static class Invalid
     {
         private final String message;
 
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.inject.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+
+/**
+ * Utility methods creating {@link MethodHandle}s for component methods and
+ * fields. The handles are adapted to generic signatures, so callers invoke
+ * them with <code>invokeExact</code> without knowing the actual signature:
+ * <ul>
+ * <li>methods: <code>(Object instance, Object[] parameters)Object</code></li>
+ * <li>field getters: <code>(Object instance)Object</code></li>
+ * <li>field setters: <code>(Object instance, Object value)void</code></li>
+ * </ul>
+ * Each method returns <code>null</code> if no handle can be created for the
+ * member, in which case callers fall back to reflection.
+ */
+public class Invokers
+{
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType( Object.class, Object.class, Object[].class );
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType( Object.class, Object.class );
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType( void.class, Object.class, Object.class );
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+
+    /**
+     * Returns a handle invoking the method with the parameters spread from
+     * an array. Primitive parameters are unboxed and a <code>void</code>
+     * result is returned as <code>null</code>.
+     *
+     * @param method The method, which must be accessible
+     * @return The handle or <code>null</code>
+     */
+    public static MethodHandle invoker( final Method method )
+    {
+        try
+        {
+            return LOOKUP.unreflect( method )
+                .asSpreader( Object[].class, method.getParameterTypes().length )
+                .asType( INVOKER_TYPE );
+        }
+        catch ( final IllegalAccessException | RuntimeException e )
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Returns a handle reading the field.
+     *
+     * @param field The field, which must be accessible
+     * @return The handle or <code>null</code>
+     */
+    public static MethodHandle getter( final Field field )
+    {
+        try
+        {
+            return LOOKUP.unreflectGetter( field ).asType( GETTER_TYPE );
+        }
+        catch ( final IllegalAccessException | RuntimeException e )
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Returns a handle writing the field.
+     *
+     * @param field The field, which must be accessible
+     * @return The handle or <code>null</code>
+     */
+    public static MethodHandle setter( final Field field )
+    {
+        try
+        {
+            return LOOKUP.unreflectSetter( field ).asType( SETTER_TYPE );
+        }
+        catch ( final IllegalAccessException | RuntimeException e )
+        {
+            return null;
+        }
+    }
+}
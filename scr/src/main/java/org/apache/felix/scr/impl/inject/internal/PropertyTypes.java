@@ -0,0 +1,589 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.inject.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The <code>PropertyTypes</code> class generates implementations of
+ * component property types, which hold the coerced property values in
+ * final fields and return them from the accessor methods without any
+ * dispatch or lookup.
+ * <p>
+ * For each property type a class extending {@link AbstractPropertyType}
+ * is spun and defined in a class loader delegating to the class loader of
+ * the property type. The generated classes are cached by property type in
+ * SCR until the components of a bundle are disposed or SCR stops, so a
+ * cached class neither outlives the bundle of the property type nor SCR.
+ * Property types which cannot be implemented this way, for example because
+ * they are not public or have overloaded methods, are not supported and
+ * {@link Annotations#toObject} falls back to a {@link java.lang.reflect.Proxy}.
+ */
+class PropertyTypes
+{
+    /** Marker for property types not supported */
+    private static final Factory UNSUPPORTED = new Factory(null, new String[0], new Class<?>[0]);
+
+    private static final String BASE_NAME = AbstractPropertyType.class.getName();
+
+    private static final String CLASS_PREFIX = "org.apache.felix.scr.impl.inject.generated.PropertyType";
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    /**
+     * The factories by property type, guarded by itself. The generated class
+     * of a factory references the property type through its class loader,
+     * so entries are only removed by {@link #clear()}.
+     */
+    private static final Map<Class<?>, Factory> FACTORIES = new WeakHashMap<>();
+
+    private PropertyTypes()
+    {
+    }
+
+    /**
+     * Returns a new instance of the generated implementation of the property
+     * type or <code>null</code> if the property type is not supported or the
+     * values cannot be held by the generated implementation.
+     *
+     * @param type The property type
+     * @param values The coerced values by method name, must not contain
+     *        invalid values
+     */
+    static <T> T newInstance(final Class<T> type, final Map<String, Object> values)
+    {
+        Factory factory;
+        synchronized (FACTORIES)
+        {
+            factory = FACTORIES.get(type);
+        }
+        if (factory == null)
+        {
+            // generate without holding the lock, the first factory wins
+            factory = createFactory(type);
+            synchronized (FACTORIES)
+            {
+                final Factory existing = FACTORIES.get(type);
+                if (existing != null)
+                {
+                    factory = existing;
+                }
+                else
+                {
+                    FACTORIES.put(type, factory);
+                }
+            }
+        }
+        if (factory == UNSUPPORTED)
+        {
+            return null;
+        }
+        return type.cast(factory.newInstance(type, values));
+    }
+
+    /**
+     * Drops all generated implementations. A property type may be loaded
+     * from any bundle, so the whole cache is cleared whenever components are
+     * disposed; the implementations still in use are regenerated on demand.
+     */
+    static void clear()
+    {
+        synchronized (FACTORIES)
+        {
+            FACTORIES.clear();
+        }
+    }
+
+    private static Factory createFactory(final Class<?> type)
+    {
+        if (!type.isInterface() || !Modifier.isPublic(type.getModifiers()) || type.getClassLoader() == null)
+        {
+            return UNSUPPORTED;
+        }
+
+        final List<Method> accessors = new ArrayList<>();
+        final Set<String> names = new HashSet<>();
+        for (final Method method : type.getMethods())
+        {
+            if (isBaseMethod(method))
+            {
+                continue;
+            }
+            if (!names.add(method.getName()) || !isPublic(method.getReturnType()))
+            {
+                return UNSUPPORTED;
+            }
+            for (final Class<?> parameterType : method.getParameterTypes())
+            {
+                if (!isPublic(parameterType))
+                {
+                    return UNSUPPORTED;
+                }
+            }
+            accessors.add(method);
+        }
+
+        final String className = CLASS_PREFIX + COUNTER.incrementAndGet();
+        try
+        {
+            final byte[] bytes = generate(className.replace('.', '/'), type, accessors);
+            final Class<?> generated = new Loader(type.getClassLoader()).define(className, bytes);
+            final String[] accessorNames = new String[accessors.size()];
+            final Class<?>[] accessorTypes = new Class<?>[accessors.size()];
+            for (int i = 0; i < accessorNames.length; i++)
+            {
+                accessorNames[i] = accessors.get(i).getName();
+                accessorTypes[i] = accessors.get(i).getReturnType();
+            }
+            return new Factory(generated.getConstructor(Class.class, Map.class, Object[].class), accessorNames, accessorTypes);
+        }
+        catch (final Throwable t)
+        {
+            // e.g. a LinkageError or SecurityException, use the proxy
+            return UNSUPPORTED;
+        }
+    }
+
+    // methods implemented by AbstractPropertyType; other methods with these
+    // names make the property type unsupported
+    private static boolean isBaseMethod(final Method method)
+    {
+        final String name = method.getName();
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        if (name.equals("equals"))
+        {
+            return parameterTypes.length == 1 && parameterTypes[0] == Object.class;
+        }
+        return parameterTypes.length == 0
+            && (name.equals("hashCode") || name.equals("toString") || name.equals("annotationType"));
+    }
+
+    private static boolean isPublic(final Class<?> type)
+    {
+        if (type.isArray())
+        {
+            return isPublic(type.getComponentType());
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    //---------- class generation
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int AALOAD = 0x32;
+    private static final int IRETURN = 0xac;
+    private static final int LRETURN = 0xad;
+    private static final int FRETURN = 0xae;
+    private static final int DRETURN = 0xaf;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int CHECKCAST = 0xc0;
+
+    private static final String CONSTRUCTOR_DESCRIPTOR = "(Ljava/lang/Class;Ljava/util/Map;[Ljava/lang/Object;)V";
+
+    private static final String SUPER_DESCRIPTOR = "(Ljava/lang/Class;Ljava/util/Map;)V";
+
+    /**
+     * Generates a class extending {@link AbstractPropertyType} and
+     * implementing the property type. The constructor takes the property
+     * type, the values map and the values of the accessors as an array,
+     * which are unboxed if needed and stored in one final field per
+     * accessor. As the code has no branches no stack map frames are needed.
+     */
+    static byte[] generate(final String className, final Class<?> type, final List<Method> accessors) throws IOException
+    {
+        final ConstantPool pool = new ConstantPool();
+        final int thisClass = pool.classRef(className);
+        final int superClass = pool.classRef(BASE_NAME.replace('.', '/'));
+        final int interfaceClass = pool.classRef(type.getName().replace('.', '/'));
+        final int code = pool.utf8("Code");
+
+        final ByteArrayOutputStream fieldBytes = new ByteArrayOutputStream();
+        final DataOutputStream fields = new DataOutputStream(fieldBytes);
+        final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+        final DataOutputStream methods = new DataOutputStream(methodBytes);
+
+        // constructor
+        final ByteArrayOutputStream ctorCode = new ByteArrayOutputStream();
+        ctorCode.write(ALOAD_0);
+        ctorCode.write(ALOAD_1);
+        ctorCode.write(ALOAD_2);
+        writeInstruction(ctorCode, INVOKESPECIAL, pool.methodRef(superClass, "<init>", SUPER_DESCRIPTOR));
+        for (int i = 0; i < accessors.size(); i++)
+        {
+            final Class<?> fieldType = accessors.get(i).getReturnType();
+            final int field = pool.fieldRef(thisClass, "f" + i, descriptor(fieldType));
+            ctorCode.write(ALOAD_0);
+            ctorCode.write(ALOAD_3);
+            if (i <= 5)
+            {
+                ctorCode.write(ICONST_0 + i);
+            }
+            else if (i <= Byte.MAX_VALUE)
+            {
+                ctorCode.write(BIPUSH);
+                ctorCode.write(i);
+            }
+            else
+            {
+                ctorCode.write(SIPUSH);
+                ctorCode.write(i >> 8);
+                ctorCode.write(i);
+            }
+            ctorCode.write(AALOAD);
+            if (fieldType.isPrimitive())
+            {
+                final Class<?> wrapper = wrapper(fieldType);
+                final int wrapperClass = pool.classRef(wrapper.getName().replace('.', '/'));
+                writeInstruction(ctorCode, CHECKCAST, wrapperClass);
+                writeInstruction(ctorCode, INVOKEVIRTUAL,
+                    pool.methodRef(wrapperClass, fieldType.getName() + "Value", "()" + descriptor(fieldType)));
+            }
+            else if (fieldType != Object.class)
+            {
+                writeInstruction(ctorCode, CHECKCAST, pool.classRef(internalName(fieldType)));
+            }
+            writeInstruction(ctorCode, PUTFIELD, field);
+
+            fields.writeShort(ACC_PRIVATE | ACC_FINAL);
+            fields.writeShort(pool.utf8("f" + i));
+            fields.writeShort(pool.utf8(descriptor(fieldType)));
+            fields.writeShort(0);
+        }
+        ctorCode.write(RETURN);
+        writeMethod(methods, pool, code, "<init>", CONSTRUCTOR_DESCRIPTOR, 4, 4, ctorCode.toByteArray());
+
+        // accessors
+        for (int i = 0; i < accessors.size(); i++)
+        {
+            final Method accessor = accessors.get(i);
+            final Class<?> returnType = accessor.getReturnType();
+            final StringBuilder methodDescriptor = new StringBuilder("(");
+            int locals = 1;
+            for (final Class<?> parameterType : accessor.getParameterTypes())
+            {
+                methodDescriptor.append(descriptor(parameterType));
+                locals += (parameterType == long.class || parameterType == double.class) ? 2 : 1;
+            }
+            methodDescriptor.append(')').append(descriptor(returnType));
+
+            final ByteArrayOutputStream accessorCode = new ByteArrayOutputStream();
+            accessorCode.write(ALOAD_0);
+            writeInstruction(accessorCode, GETFIELD, pool.fieldRef(thisClass, "f" + i, descriptor(returnType)));
+            accessorCode.write(returnInstruction(returnType));
+            writeMethod(methods, pool, code, accessor.getName(), methodDescriptor.toString(), 2, locals,
+                accessorCode.toByteArray());
+        }
+
+        final ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(classBytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0); // minor version
+        out.writeShort(51); // Java 7
+        pool.write(out);
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(interfaceClass);
+        out.writeShort(accessors.size());
+        fields.flush();
+        fieldBytes.writeTo(out);
+        out.writeShort(accessors.size() + 1);
+        methods.flush();
+        methodBytes.writeTo(out);
+        out.writeShort(0); // attributes
+        out.flush();
+        return classBytes.toByteArray();
+    }
+
+    private static void writeInstruction(final ByteArrayOutputStream code, final int opcode, final int index)
+    {
+        code.write(opcode);
+        code.write(index >> 8);
+        code.write(index);
+    }
+
+    private static void writeMethod(final DataOutputStream methods,
+            final ConstantPool pool,
+            final int codeAttribute,
+            final String name,
+            final String descriptor,
+            final int maxStack,
+            final int maxLocals,
+            final byte[] code) throws IOException
+    {
+        methods.writeShort(ACC_PUBLIC);
+        methods.writeShort(pool.utf8(name));
+        methods.writeShort(pool.utf8(descriptor));
+        methods.writeShort(1);
+        methods.writeShort(codeAttribute);
+        methods.writeInt(12 + code.length);
+        methods.writeShort(maxStack);
+        methods.writeShort(maxLocals);
+        methods.writeInt(code.length);
+        methods.write(code);
+        methods.writeShort(0); // exception table
+        methods.writeShort(0); // attributes
+    }
+
+    private static int returnInstruction(final Class<?> type)
+    {
+        if (type == long.class)
+        {
+            return LRETURN;
+        }
+        if (type == float.class)
+        {
+            return FRETURN;
+        }
+        if (type == double.class)
+        {
+            return DRETURN;
+        }
+        return type.isPrimitive() ? IRETURN : ARETURN;
+    }
+
+    private static Class<?> wrapper(final Class<?> type)
+    {
+        if (type == boolean.class)
+        {
+            return Boolean.class;
+        }
+        if (type == byte.class)
+        {
+            return Byte.class;
+        }
+        if (type == char.class)
+        {
+            return Character.class;
+        }
+        if (type == short.class)
+        {
+            return Short.class;
+        }
+        if (type == int.class)
+        {
+            return Integer.class;
+        }
+        if (type == long.class)
+        {
+            return Long.class;
+        }
+        if (type == float.class)
+        {
+            return Float.class;
+        }
+        return Double.class;
+    }
+
+    private static String internalName(final Class<?> type)
+    {
+        return type.isArray() ? descriptor(type) : type.getName().replace('.', '/');
+    }
+
+    private static String descriptor(final Class<?> type)
+    {
+        if (type.isPrimitive())
+        {
+            if (type == boolean.class)
+            {
+                return "Z";
+            }
+            if (type == long.class)
+            {
+                return "J";
+            }
+            return String.valueOf(Character.toUpperCase(type.getName().charAt(0)));
+        }
+        if (type.isArray())
+        {
+            return type.getName().replace('.', '/');
+        }
+        return "L" + type.getName().replace('.', '/') + ";";
+    }
+
+    private static final class ConstantPool
+    {
+        private final Map<String, Integer> entries = new HashMap<>();
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private int count = 1;
+
+        int utf8(final String value) throws IOException
+        {
+            final String key = "U" + value;
+            Integer index = entries.get(key);
+            if (index == null)
+            {
+                out.writeByte(1);
+                out.writeUTF(value);
+                index = add(key);
+            }
+            return index;
+        }
+
+        int classRef(final String internalName) throws IOException
+        {
+            return ref("C", 7, utf8(internalName), -1);
+        }
+
+        int fieldRef(final int classRef, final String name, final String descriptor) throws IOException
+        {
+            return ref("F", 9, classRef, nameAndType(name, descriptor));
+        }
+
+        int methodRef(final int classRef, final String name, final String descriptor) throws IOException
+        {
+            return ref("M", 10, classRef, nameAndType(name, descriptor));
+        }
+
+        private int nameAndType(final String name, final String descriptor) throws IOException
+        {
+            return ref("N", 12, utf8(name), utf8(descriptor));
+        }
+
+        private int ref(final String kind, final int tag, final int first, final int second) throws IOException
+        {
+            final String key = kind + first + ":" + second;
+            Integer index = entries.get(key);
+            if (index == null)
+            {
+                out.writeByte(tag);
+                out.writeShort(first);
+                if (second >= 0)
+                {
+                    out.writeShort(second);
+                }
+                index = add(key);
+            }
+            return index;
+        }
+
+        private Integer add(final String key)
+        {
+            final Integer index = count++;
+            entries.put(key, index);
+            return index;
+        }
+
+        void write(final DataOutputStream classFile) throws IOException
+        {
+            out.flush();
+            classFile.writeShort(count);
+            bytes.writeTo(classFile);
+        }
+    }
+
+    //---------- instantiation
+
+    private static final class Factory
+    {
+        private final Constructor<?> constructor;
+
+        private final String[] names;
+
+        private final Class<?>[] types;
+
+        Factory(final Constructor<?> constructor, final String[] names, final Class<?>[] types)
+        {
+            this.constructor = constructor;
+            this.names = names;
+            this.types = types;
+        }
+
+        Object newInstance(final Class<?> type, final Map<String, Object> values)
+        {
+            final Object[] args = new Object[names.length];
+            for (int i = 0; i < names.length; i++)
+            {
+                final Object value = values.get(names[i]);
+                final Class<?> boxed = types[i].isPrimitive() ? wrapper(types[i]) : types[i];
+                if (value == null ? types[i].isPrimitive() : !boxed.isInstance(value))
+                {
+                    // cannot be held in the field, use the proxy
+                    return null;
+                }
+                args[i] = value;
+            }
+            try
+            {
+                return constructor.newInstance(type, values, args);
+            }
+            catch (final Exception e)
+            {
+                return null;
+            }
+        }
+    }
+
+    private static final class Loader extends ClassLoader
+    {
+        Loader(final ClassLoader parent)
+        {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException
+        {
+            if (BASE_NAME.equals(name))
+            {
+                return AbstractPropertyType.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        Class<?> define(final String name, final byte[] bytes)
+        {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
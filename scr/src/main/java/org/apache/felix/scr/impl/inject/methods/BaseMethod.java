@@ -19,6 +19,7 @@
 package org.apache.felix.scr.impl.inject.methods;
 
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -30,6 +31,7 @@ import java.util.Map;
 import org.apache.felix.scr.impl.inject.BaseParameter;
 import org.apache.felix.scr.impl.inject.MethodResult;
 import org.apache.felix.scr.impl.inject.internal.ClassUtils;
+import org.apache.felix.scr.impl.inject.internal.Invokers;
 import org.apache.felix.scr.impl.logger.ComponentLogger;
 import org.apache.felix.scr.impl.logger.InternalLogger.Level;
 import org.apache.felix.scr.impl.metadata.DSVersion;
@@ -49,6 +51,12 @@ public abstract class BaseMethod<P extends BaseParameter, T>
 
     private volatile Method m_method;
 
+    /**
+     * The handle invoking {@link #m_method} or <code>null</code> if the
+     * method is invoked reflectively.
+     */
+    private volatile MethodHandle m_invoker;
+
     private final boolean m_methodRequired;
 
     private volatile State m_state;
@@ -106,6 +114,7 @@ public abstract class BaseMethod<P extends BaseParameter, T>
     synchronized void setMethod(MethodInfo<T> methodInfo, ComponentLogger logger)
     {
         this.m_method = methodInfo == null ? null : methodInfo.getMethod();
+        this.m_invoker = m_method == null ? null : Invokers.invoker( m_method );
 
         if (m_method != null)
         {
@@ -241,9 +250,12 @@ public abstract class BaseMethod<P extends BaseParameter, T>
                         getMethodNamePrefix(),
                             getMethodName(), Arrays.asList(getParametersForLogging(params)));
                 }
-                final Object result = m_method.invoke(componentInstance, params);
-                logger.log(Level.DEBUG, "invoked {0}: {1}", null,
-                        getMethodNamePrefix(), getMethodName() );
+                final Object result = invoke(componentInstance, params);
+                if (logger.isLogEnabled(Level.DEBUG))
+                {
+                    logger.log(Level.DEBUG, "invoked {0}: {1}", null,
+                            getMethodNamePrefix(), getMethodName() );
+                }
                 return new MethodResult((m_method.getReturnType() != Void.TYPE), (Map<String, Object>) result);
             }
             else
@@ -282,6 +294,29 @@ public abstract class BaseMethod<P extends BaseParameter, T>
         return MethodResult.VOID;
     }
 
+    /**
+     * Calls the method through its method handle, falling back to
+     * reflection if no handle is available. Any exception thrown by the
+     * method is wrapped in an <code>InvocationTargetException</code>.
+     */
+    private Object invoke(final Object componentInstance, final Object[] params)
+            throws IllegalAccessException, InvocationTargetException
+    {
+        final MethodHandle invoker = m_invoker;
+        if ( invoker == null )
+        {
+            return m_method.invoke( componentInstance, params );
+        }
+        try
+        {
+            return (Object) invoker.invokeExact( componentInstance, params );
+        }
+        catch ( final Throwable t )
+        {
+            throw new InvocationTargetException( t );
+        }
+    }
+
     protected boolean returnValue()
     {
         // allow returning Map if declared as DS 1.2-Felix or newer
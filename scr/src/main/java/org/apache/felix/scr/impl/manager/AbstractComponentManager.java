@@ -20,6 +20,7 @@ package org.apache.felix.scr.impl.manager;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.text.MessageFormat;
 import java.lang.reflect.InvocationTargetException;
 import java.security.Permission;
 import java.util.ArrayList;
@@ -122,6 +123,43 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     }
 
+    private static final String STATE_LOCK = "state lock";
+
+    private static final String ACTIVATION_LOCK = "activation lock";
+
+    /**
+     * State lock exposing the thread holding it for diagnostics.
+     */
+    static final class StateLock extends ReentrantLock
+    {
+        private static final long serialVersionUID = 1L;
+
+        StateLock(boolean fair)
+        {
+            super(fair);
+        }
+
+        @Override
+        protected Thread getOwner()
+        {
+            return super.getOwner();
+        }
+    }
+
+    /**
+     * Activation lock exposing the thread holding the write lock for diagnostics.
+     */
+    static final class ActivationLock extends ReentrantReadWriteLock
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected Thread getOwner()
+        {
+            return super.getOwner();
+        }
+    }
+
     protected final ComponentContainer<S> m_container;
 
     //true for normal spec factory instances. False for "persistent" factory instances and obsolete use of factory component with factory configurations.
@@ -139,7 +177,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     private final AtomicInteger m_trackingCount = new AtomicInteger();
 
-    private final ReentrantLock m_stateLock;
+    private final StateLock m_stateLock;
 
     /**
      * This latch prevents concurrent enable, disable, and reconfigure.  Since the enable and disable operations may use
@@ -159,7 +197,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
     private final Condition m_missingCondition = m_missingLock.newCondition();
     private final Set<Integer> m_missing = new TreeSet<>();
 
-    protected final ReentrantReadWriteLock m_activationLock = new ReentrantReadWriteLock();
+    protected final ActivationLock m_activationLock = new ActivationLock();
 
     private volatile String failureReason;
 
@@ -193,7 +231,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
         m_dependencyManagers = loadDependencyManagers(metadata);
 
-        m_stateLock = new ReentrantLock(true);
+        m_stateLock = new StateLock(getLockFairness());
 
         // dump component details
         if (m_container.getLogger().isLogEnabled(Level.DEBUG))
@@ -232,14 +270,40 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
         return ScrConfiguration.DEFAULT_LOCK_TIMEOUT_MILLISECONDS;
     }
 
-    private void obtainLock(Lock lock)
+    private boolean getLockFairness()
+    {
+        //for tests....
+        if (m_container.getActivator().getConfiguration() != null)
+        {
+            return m_container.getActivator().getConfiguration().lockFairness();
+        }
+        return true;
+    }
+
+    private void obtainLock(Lock lock, String name)
     {
+        final LockStatistics statistics = m_container.getActivator().getLockStatistics();
+        if (!Thread.currentThread().isInterrupted())
+        {
+            try
+            {
+                // unlike tryLock() a zero timeout respects the fairness of the lock
+                if (lock.tryLock(0, TimeUnit.NANOSECONDS))
+                {
+                    return;
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        final long start = System.nanoTime();
         try
         {
             if (!lock.tryLock(getLockTimeout(), TimeUnit.MILLISECONDS))
             {
-                dumpThreads();
-                throw new IllegalStateException("Could not obtain lock");
+                lockTimedOut(name, statistics);
             }
         }
         catch (InterruptedException e)
@@ -248,8 +312,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
             {
                 if (!lock.tryLock(getLockTimeout(), TimeUnit.MILLISECONDS))
                 {
-                    dumpThreads();
-                    throw new IllegalStateException("Could not obtain lock");
+                    lockTimedOut(name, statistics);
                 }
             }
             catch (InterruptedException e1)
@@ -259,11 +322,36 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
             }
             Thread.currentThread().interrupt();
         }
+        if (statistics != null)
+        {
+            statistics.waited(System.nanoTime() - start);
+        }
+    }
+
+    private void lockTimedOut(String name, LockStatistics statistics)
+    {
+        final Thread owner = STATE_LOCK.equals(name) ? m_stateLock.getOwner() : m_activationLock.getOwner();
+        final String description = MessageFormat.format("Could not obtain {0} of component {1} (id {2}) within {3}ms",
+            name, getComponentMetadata().getName(), getId(), getLockTimeout());
+        // the stack trace of the holder shows what it is blocked on
+        final String holder = owner == null ? null : ThreadDump.dump(owner);
+        if (statistics != null)
+        {
+            statistics.timedOut(description, holder);
+        }
+        if (holder != null)
+        {
+            m_container.getLogger().log(Level.WARN, "{0}, held by {1}", null, description, holder);
+        }
+        dumpThreads();
+        throw new IllegalStateException(holder == null
+            ? description
+            : description + ", held by " + holder);
     }
 
     final void obtainActivationReadLock()
     {
-        obtainLock(m_activationLock.readLock());
+        obtainLock(m_activationLock.readLock(), ACTIVATION_LOCK);
     }
 
     final void releaseActivationReadLock()
@@ -273,7 +361,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     final void obtainActivationWriteLock()
     {
-        obtainLock(m_activationLock.writeLock());
+        obtainLock(m_activationLock.writeLock(), ACTIVATION_LOCK);
     }
 
     final void releaseActivationWriteeLock()
@@ -286,7 +374,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     final void obtainStateLock()
     {
-        obtainLock(m_stateLock);
+        obtainLock(m_stateLock, STATE_LOCK);
     }
 
     final void releaseStateLock()
@@ -448,7 +536,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
         if (async)
         {
             final Deferred<Void> latch = enableLatch;
-            m_container.getActivator().schedule(new Runnable()
+            m_container.getActivator().schedule(this, new Runnable()
             {
 
                 long count = taskCounter.incrementAndGet();
@@ -540,7 +628,7 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
         if (async)
         {
             final Deferred<Void> latch = enableLatch;
-            m_container.getActivator().schedule(new Runnable()
+            m_container.getActivator().schedule(this, new Runnable()
             {
 
                 long count = taskCounter.incrementAndGet();
@@ -34,8 +34,25 @@ public interface ComponentActivator extends ExtendedServiceListenerContext<Exten
 
     ScrConfiguration getConfiguration();
 
+    /**
+     * Returns the statistics the components record their lock waits in.
+     */
+    LockStatistics getLockStatistics();
+
     void schedule(Runnable runnable);
 
+    /**
+     * Schedules the runnable after all runnables scheduled with the same key.
+     * Runnables scheduled with different keys may run concurrently.
+     */
+    void schedule(Object key, Runnable runnable);
+
+    /**
+     * Schedules the runnable like {@link #schedule(Object, Runnable)} once
+     * the delay has passed.
+     */
+    void schedule(Object key, Runnable runnable, long delayMillis);
+
     long registerComponentId(AbstractComponentManager<?> sAbstractComponentManager);
 
     void unregisterComponentId(AbstractComponentManager<?> sAbstractComponentManager);
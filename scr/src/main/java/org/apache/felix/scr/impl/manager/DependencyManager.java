@@ -19,9 +19,12 @@
 package org.apache.felix.scr.impl.manager;
 
 import java.security.Permission;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
@@ -79,6 +82,10 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
 
     private volatile int m_minCardinality;
 
+    // the updates deferred to the end of the batch being flushed by the
+    // current thread, null if service events are not coalesced
+    private final ThreadLocal<Map<Object, Runnable>> m_deferredUpdates;
+
     /**
      * Constructor that receives several parameters.
      * @param dependency An object that contains data about the dependency
@@ -89,6 +96,7 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         m_componentManager = componentManager;
         m_dependencyMetadata = dependency;
         m_index = index;
+        m_deferredUpdates = dependency.getCoalesceWindow() > 0 ? new ThreadLocal<Map<Object, Runnable>>() : null;
         m_customizer = newCustomizer();
 
         m_minCardinality = defaultMinimumCardinality(dependency);
@@ -132,6 +140,11 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
 
         void close();
 
+        /**
+         * Applies the changes waiting for the coalescing window to pass, if any.
+         */
+        void flushPendingChanges();
+
         Collection<RefPair<S, T>> getRefs(AtomicInteger trackingCount);
 
         boolean isSatisfied();
@@ -194,6 +207,12 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
                 null, getName());
         }
 
+        @Override
+        public void flushPendingChanges()
+        {
+            // only dynamic multiple references coalesce changes
+        }
+
         protected void deactivateTracker()
         {
             ServiceTracker<T, RefPair<S, T>, ExtendedServiceEvent> tracker = getTracker();
@@ -297,12 +316,180 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         }
     }
 
+    /**
+     * The kinds of changes coalesced for dynamic multiple references.
+     */
+    private enum ChangeType
+    {
+        BIND, UPDATED
+    }
+
+    /**
+     * A change of a dynamic multiple reference waiting to be applied.
+     */
+    private static final class PendingChange<S, T>
+    {
+        final ChangeType type;
+        final RefPair<S, T> refPair;
+        final int trackingCount;
+
+        PendingChange(ChangeType type, RefPair<S, T> refPair, int trackingCount)
+        {
+            this.type = type;
+            this.refPair = refPair;
+            this.trackingCount = trackingCount;
+        }
+
+        @Override
+        public String toString()
+        {
+            return type + " " + refPair + "@" + trackingCount;
+        }
+    }
+
     private class MultipleDynamicCustomizer extends AbstractCustomizer
     {
 
         private RefPair<S, T> lastRefPair;
         private int lastRefPairTrackingCount;
 
+        // changes waiting for the coalescing window to pass, guarded by itself
+        private final ArrayDeque<PendingChange<S, T>> pendingChanges = new ArrayDeque<>();
+
+        // whether a flush of the pending changes is scheduled, guarded by pendingChanges
+        private boolean flushScheduled;
+
+        private boolean isCoalescing()
+        {
+            return m_deferredUpdates != null;
+        }
+
+        /**
+         * Queues the change to be applied with the other changes arriving
+         * within the coalescing window.
+         */
+        private void coalesce(final ChangeType type, final RefPair<S, T> refPair, final int trackingCount)
+        {
+            synchronized (pendingChanges)
+            {
+                pendingChanges.add(new PendingChange<>(type, refPair, trackingCount));
+                if (flushScheduled)
+                {
+                    return;
+                }
+                flushScheduled = true;
+            }
+            m_componentManager.getActivator().schedule(m_componentManager, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    flushPendingChanges();
+                }
+
+                @Override
+                public String toString()
+                {
+                    return "Coalesced changes of reference " + getName() + " of " + m_componentManager;
+                }
+            }, m_dependencyMetadata.getCoalesceWindow());
+        }
+
+        /**
+         * Applies the pending changes in arrival order as one batch while
+         * holding the state lock of the component, so the batch is neither
+         * interleaved with other batches nor with a deactivation. Fields
+         * replaced on each change are only set once at the end of the batch.
+         */
+        @Override
+        public void flushPendingChanges()
+        {
+            synchronized (pendingChanges)
+            {
+                flushScheduled = false;
+                if (pendingChanges.isEmpty())
+                {
+                    return;
+                }
+            }
+            m_componentManager.obtainStateLock();
+            try
+            {
+                m_componentManager.getLogger().log(Level.DEBUG,
+                    "dm {0} MultipleDynamic applying coalesced changes", null, getName());
+                final Map<Object, Runnable> deferred = new IdentityHashMap<>();
+                m_deferredUpdates.set(deferred);
+                try
+                {
+                    // the changes are taken one by one, so a removed service
+                    // can discard its changes which have not been applied yet
+                    PendingChange<S, T> change;
+                    while ((change = nextPendingChange()) != null)
+                    {
+                        switch (change.type)
+                        {
+                            case BIND:
+                                m_componentManager.invokeBindMethod(DependencyManager.this, change.refPair,
+                                    change.trackingCount);
+                                if (change.refPair.isFailed())
+                                {
+                                    m_componentManager.registerMissingDependency(DependencyManager.this,
+                                        change.refPair.getRef(), change.trackingCount);
+                                }
+                                break;
+                            case UPDATED:
+                                m_componentManager.invokeUpdatedMethod(DependencyManager.this, change.refPair,
+                                    change.trackingCount);
+                                break;
+                        }
+                    }
+                }
+                finally
+                {
+                    m_deferredUpdates.remove();
+                    for (final Runnable update : deferred.values())
+                    {
+                        update.run();
+                    }
+                }
+            }
+            finally
+            {
+                m_componentManager.releaseStateLock();
+            }
+        }
+
+        private PendingChange<S, T> nextPendingChange()
+        {
+            synchronized (pendingChanges)
+            {
+                return pendingChanges.poll();
+            }
+        }
+
+        /**
+         * Discards the pending changes of a removed service.
+         * @return <code>true</code> if the bind of the service is still pending,
+         *      that is the service has never been bound
+         */
+        private boolean discardPendingChanges(final RefPair<S, T> refPair)
+        {
+            boolean bindPending = false;
+            synchronized (pendingChanges)
+            {
+                for (final Iterator<PendingChange<S, T>> i = pendingChanges.iterator(); i.hasNext();)
+                {
+                    final PendingChange<S, T> change = i.next();
+                    if (change.refPair == refPair)
+                    {
+                        bindPending |= change.type == ChangeType.BIND;
+                        i.remove();
+                    }
+                }
+            }
+            return bindPending;
+        }
+
         @Override
         public RefPair<S, T> addingService(ServiceReference<T> serviceReference)
         {
@@ -329,11 +516,18 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
                     m_componentManager.getLogger().log(Level.DEBUG,
                         "dm {0} tracking {1} MultipleDynamic already active, binding {2}",
                         null, getName(), trackingCount, serviceReference );
-                    m_componentManager.invokeBindMethod(DependencyManager.this, refPair, trackingCount);
-                    if (refPair.isFailed())
+                    if (isCoalescing())
                     {
-                        m_componentManager.registerMissingDependency(DependencyManager.this, serviceReference,
-                            trackingCount);
+                        coalesce(ChangeType.BIND, refPair, trackingCount);
+                    }
+                    else
+                    {
+                        m_componentManager.invokeBindMethod(DependencyManager.this, refPair, trackingCount);
+                        if (refPair.isFailed())
+                        {
+                            m_componentManager.registerMissingDependency(DependencyManager.this, serviceReference,
+                                trackingCount);
+                        }
                     }
                 }
                 else if (isTrackerOpened() && cardinalityJustSatisfied(serviceCount))
@@ -370,7 +564,14 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
                     null, getName(), trackingCount, serviceReference );
             if (isActive())
             {
-                m_componentManager.invokeUpdatedMethod(DependencyManager.this, refPair, trackingCount);
+                if (isCoalescing())
+                {
+                    coalesce(ChangeType.UPDATED, refPair, trackingCount);
+                }
+                else
+                {
+                    m_componentManager.invokeUpdatedMethod(DependencyManager.this, refPair, trackingCount);
+                }
             }
             m_componentManager.getLogger().log(Level.DEBUG,
                 "dm {0} tracking {1} MultipleDynamic modified {2} (exit)",
@@ -391,7 +592,13 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
             {
                 if (isActive())
                 {
-                    m_componentManager.invokeUnbindMethod(DependencyManager.this, refPair, trackingCount);
+                    // the service must be unbound before it is gone, so it is
+                    // unbound right away like an uncoalesced change, without
+                    // taking the state lock in the service event callback
+                    if (!isCoalescing() || !discardPendingChanges(refPair))
+                    {
+                        m_componentManager.invokeUnbindMethod(DependencyManager.this, refPair, trackingCount);
+                    }
                 }
                 m_componentManager.getLogger().log(Level.DEBUG,
                     "dm {0} tracking {1} MultipleDynamic removed (unbind) {2}",
@@ -400,6 +607,7 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
             }
             else
             {
+                // the deactivation applies the pending changes before unbinding
                 lastRefPair = refPair;
                 lastRefPairTrackingCount = trackingCount;
                 tracked(trackingCount);
@@ -451,6 +659,13 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         @Override
         public void close()
         {
+            synchronized (pendingChanges)
+            {
+                // the pending changes have been applied before the tracked
+                // services were unbound on deactivation, the rest is obsolete
+                pendingChanges.clear();
+                flushScheduled = false;
+            }
             AtomicInteger trackingCount = new AtomicInteger();
             for (RefPair<S, T> ref : getRefs(trackingCount))
             {
@@ -1396,6 +1611,11 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         {
         }
 
+        @Override
+        public void flushPendingChanges()
+        {
+        }
+
         @Override
         public Collection<RefPair<S, T>> getRefs(AtomicInteger trackingCount)
         {
@@ -1501,6 +1721,15 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         m_customizer.close();
     }
 
+    /**
+     * Applies the service events of a reference with a coalescing window
+     * which are still waiting for the window to pass.
+     */
+    void flushPendingChanges()
+    {
+        m_customizer.flushPendingChanges();
+    }
+
     /**
      * Returns the number of services currently registered in the system,
      * which match the service criteria (interface and optional target filter)
@@ -1725,6 +1954,14 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         return m_dependencyMetadata.getName();
     }
 
+    /**
+     * Returns the component manager this dependency manager belongs to.
+     */
+    public AbstractComponentManager<S> getComponentManager()
+    {
+        return m_componentManager;
+    }
+
     public ReferenceMetadata getReferenceMetadata()
     {
         return m_dependencyMetadata;
@@ -1854,6 +2091,10 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
      */
     void close(ComponentContextImpl<S> componentContext, EdgeInfo edgeInfo)
     {
+        // apply changes coalesced since the deactivation started, so the
+        // services unbound below are exactly the services which have been bound
+        flushPendingChanges();
+
         // only invoke the unbind method if there is an instance (might be null
         // in the delayed component situation) and the unbind method is declared.
         boolean doUnbind =
@@ -1997,6 +2238,12 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
         }
     }
 
+    private BindParameters newBindParameters(ComponentContextImpl<S> componentContext, RefPair<S, T> refPair)
+    {
+        return new BindParameters(componentContext, refPair,
+            m_deferredUpdates == null ? null : m_deferredUpdates.get());
+    }
+
     private boolean doInvokeBindMethod(ComponentContextImpl<S> componentContext,
             final ReferenceMethod bindMethod,
             RefPair<S, T> refPair,
@@ -2011,7 +2258,7 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
 
         }
         MethodResult result = bindMethod.invoke(componentContext.getImplementationObject(false),
-            new BindParameters(componentContext, refPair), MethodResult.VOID);
+            newBindParameters(componentContext, refPair), MethodResult.VOID);
         if (result == null)
         {
             return false;
@@ -2063,7 +2310,7 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
 
             }
             final MethodResult methodResult = m_bindMethods.getUpdated().invoke(
-                componentContext.getImplementationObject(false), new BindParameters(componentContext, refPair), MethodResult.VOID);
+                componentContext.getImplementationObject(false), newBindParameters(componentContext, refPair), MethodResult.VOID);
             if (methodResult != null)
             {
                 m_componentManager.setServiceProperties(methodResult, trackingCount);
@@ -2137,7 +2384,7 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
 
             }
             MethodResult methodResult = m_bindMethods.getUnbind().invoke(
-                componentContext.getImplementationObject(false), new BindParameters(componentContext, refPair), MethodResult.VOID);
+                componentContext.getImplementationObject(false), newBindParameters(componentContext, refPair), MethodResult.VOID);
             if (methodResult != null)
             {
                 m_componentManager.setServiceProperties(methodResult, trackingCount);
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The <code>LockStatistics</code> collects how long the components waited
+ * for their locks, as a histogram, and keeps the most recent lock timeouts
+ * together with the thread holding the lock at that time.
+ */
+public class LockStatistics
+{
+    /** Maximum number of lock timeouts kept */
+    private static final int MAX_TIMEOUTS = 10;
+
+    /** Upper bounds of the histogram buckets in microseconds */
+    private static final long[] BOUNDS = { 10, 100, 1000, 10000, 100000, 1000000 };
+
+    private static final String[] LABELS = { "< 10us", "< 100us", "< 1ms", "< 10ms", "< 100ms", "< 1s",
+            ">= 1s" };
+
+    // locks obtained without waiting are not counted, so the fast path
+    // does not contend on a shared counter
+    private final AtomicLongArray m_waits = new AtomicLongArray( BOUNDS.length + 1 );
+
+    private final AtomicLong m_timeouts = new AtomicLong();
+
+    private final Deque<String> m_recentTimeouts = new ArrayDeque<>();
+
+    /**
+     * Records a lock obtained after waiting for the given time.
+     */
+    void waited( final long nanos )
+    {
+        final long micros = nanos / 1000;
+        int bucket = 0;
+        while ( bucket < BOUNDS.length && micros >= BOUNDS[bucket] )
+        {
+            bucket++;
+        }
+        m_waits.incrementAndGet( bucket );
+    }
+
+    /**
+     * Records a lock which could not be obtained in time.
+     *
+     * @param description Description of the component and lock
+     * @param holder The stack trace of the thread holding the lock or
+     *      <code>null</code> if not known
+     */
+    void timedOut( final String description, final String holder )
+    {
+        m_timeouts.incrementAndGet();
+        final String timeout = description + ( holder == null ? "" : " held by " + holder );
+        synchronized ( m_recentTimeouts )
+        {
+            if ( m_recentTimeouts.size() == MAX_TIMEOUTS )
+            {
+                m_recentTimeouts.removeFirst();
+            }
+            m_recentTimeouts.addLast( timeout );
+        }
+    }
+
+    /**
+     * Returns the number of locks obtained per histogram bucket, that is
+     * the locks obtained after waiting less than 10us, 100us, 1ms, 10ms,
+     * 100ms, 1s and longer. Locks obtained without waiting are not counted.
+     */
+    public long[] getWaits()
+    {
+        final long[] waits = new long[m_waits.length()];
+        for ( int i = 0; i < waits.length; i++ )
+        {
+            waits[i] = m_waits.get( i );
+        }
+        return waits;
+    }
+
+    /**
+     * Returns the number of locks which could not be obtained in time.
+     */
+    public long getTimeouts()
+    {
+        return m_timeouts.get();
+    }
+
+    /**
+     * Returns the most recent lock timeouts, oldest first, including the
+     * stack trace of the thread holding the lock.
+     */
+    public List<String> getRecentTimeouts()
+    {
+        synchronized ( m_recentTimeouts )
+        {
+            return new ArrayList<>( m_recentTimeouts );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder b = new StringBuilder( "Lock waits:" );
+        final long[] waits = getWaits();
+        for ( int i = 0; i < waits.length; i++ )
+        {
+            b.append( "\n  " ).append( LABELS[i] ).append( ": " ).append( waits[i] );
+        }
+        b.append( "\nLock timeouts: " ).append( getTimeouts() );
+        for ( final String timeout : getRecentTimeouts() )
+        {
+            b.append( "\n\n" ).append( timeout );
+        }
+        return b.toString();
+    }
+}
@@ -74,6 +74,21 @@ public interface ScrConfiguration
     String PROP_SERVICE_CHANGECOUNT_TIMEOUT = "ds.service.changecount.timeout";
 
     String PROP_CACHE_METADATA = "ds.cache.metadata";
+
+    /**
+     * See {@link #parallelActivationThreads()}
+     */
+    String PROP_PARALLEL_ACTIVATION_THREADS = "ds.parallel.activation.threads";
+
+    /**
+     * See {@link #actorThreads()}
+     */
+    String PROP_ACTOR_THREADS = "ds.actor.threads";
+
+    /**
+     * See {@link #lockFairness()}
+     */
+    String PROP_LOCK_FAIRNESS = "ds.lock.fair";
     
 
     /**
@@ -107,6 +122,40 @@ public interface ScrConfiguration
 
     boolean cacheMetadata();
 
+    /**
+     * Returns the number of threads used to enable the components of a
+     * bundle concurrently. Components of a bundle referencing services
+     * provided by other components of the same bundle are only enabled
+     * once these other components have been enabled. A value of
+     * <code>1</code> or less enables the components sequentially in
+     * declaration order, which is the default.
+     *
+     * @since 2.2
+     */
+    int parallelActivationThreads();
+
+    /**
+     * Returns the number of threads running asynchronous component tasks
+     * like enabling and disabling components. Tasks of the same component
+     * are always run in order, tasks of different components are run
+     * concurrently if more than one thread is configured. The default is
+     * <code>1</code>. Changes only take effect when SCR is restarted.
+     *
+     * @since 2.2
+     */
+    int actorThreads();
+
+    /**
+     * Returns whether the state locks of the components are fair, that is
+     * granted to the waiting threads in arrival order. Fair locks prevent
+     * starvation but considerably reduce throughput under contention. The
+     * default is <code>true</code>. Changes only apply to components
+     * created afterwards.
+     *
+     * @since 2.2
+     */
+    boolean lockFairness();
+
 
     /**
      * If true, use a logging extension. The extension can be incompatible with the OSGi specification.
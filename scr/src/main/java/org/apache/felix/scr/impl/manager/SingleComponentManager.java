@@ -62,17 +62,18 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
     private volatile ComponentContextImpl<S> m_componentContext;
 
     // Merged properties from xml descriptor and all configurations
-    private Map<String, Object> m_configurationProperties;
+    private volatile Map<String, Object> m_configurationProperties;
 
     // optional properties provided in the ComponentFactory.newInstance method
-    private Map<String, Object> m_factoryProperties;
+    private volatile Map<String, Object> m_factoryProperties;
 
-    // the component properties, also used as service properties
-    private Map<String, Object> m_properties;
+    // the component properties, also used as service properties;
+    // published once complete, such that readers need no lock
+    private volatile Map<String, Object> m_properties;
 
     // properties supplied ot ExtComponentContext.updateProperties
     // null if properties are not to be overwritten
-    private Dictionary<String, Object> m_serviceProperties;
+    private volatile Dictionary<String, Object> m_serviceProperties;
 
     /**
      * The constructor receives both the activator and the metadata
@@ -409,6 +410,11 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
     protected void disposeImplementationObject( ComponentContextImpl<S> componentContext,
             int reason )
     {
+        // apply coalesced reference changes before the component is deactivated
+        for ( DependencyManager<S, ?> md: getDependencyManagers() )
+        {
+            md.flushPendingChanges();
+        }
         componentContext.setImplementationAccessible( false );
         S implementationObject = componentContext.getImplementationObject( false );
 
@@ -501,21 +507,26 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
     @Override
     public Map<String, Object> getProperties()
     {
-        if ( m_properties == null )
+        // read the volatile fields once, they may be reset concurrently
+        Map<String, Object> properties = m_properties;
+        if ( properties == null )
         {
+            final Map<String, Object> configurationProperties = m_configurationProperties;
+            final Map<String, Object> factoryProperties = m_factoryProperties;
+
             // 1. Merge all the config properties
             Map<String, Object> props = new HashMap<>();
-            if ( m_configurationProperties != null )
+            if ( configurationProperties != null )
             {
-                props.putAll(m_configurationProperties);
+                props.putAll(configurationProperties);
             }
-            if ( m_factoryProperties != null)
+            if ( factoryProperties != null)
             {
-                props.putAll(m_factoryProperties);
-                if (getComponentMetadata().getDSVersion().isDS13() && m_factoryProperties.containsKey(Constants.SERVICE_PID))
+                props.putAll(factoryProperties);
+                if (getComponentMetadata().getDSVersion().isDS13() && factoryProperties.containsKey(Constants.SERVICE_PID))
                 {
                     final List<String> servicePids = new ArrayList<>();
-                    final Object configPropServicePids = m_configurationProperties.get(Constants.SERVICE_PID);
+                    final Object configPropServicePids = configurationProperties.get(Constants.SERVICE_PID);
                     if ( configPropServicePids instanceof List )
                     {
                         servicePids.addAll((List)configPropServicePids);
@@ -524,9 +535,9 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
                     {
                         servicePids.add(configPropServicePids.toString());
                     }
-                    if (m_factoryProperties.get(Constants.SERVICE_PID) instanceof String)
+                    if (factoryProperties.get(Constants.SERVICE_PID) instanceof String)
                     {
-                        servicePids.add((String)m_factoryProperties.get(Constants.SERVICE_PID));
+                        servicePids.add((String)factoryProperties.get(Constants.SERVICE_PID));
                     }
 
                     if ( servicePids.size() == 1 )
@@ -544,10 +555,11 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
             props.put( ComponentConstants.COMPONENT_NAME, getComponentMetadata().getName() );
             props.put( ComponentConstants.COMPONENT_ID, getId() );
 
-            m_properties = props;
+            properties = props;
+            m_properties = properties;
         }
 
-        return m_properties;
+        return properties;
     }
 
     @Override
@@ -559,10 +571,12 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
         }
         else
         {
-            m_serviceProperties = copyToDictionary( serviceProperties, false );
+            final Dictionary<String, Object> props = copyToDictionary( serviceProperties, false );
             // set component.name and component.id
-            m_serviceProperties.put( ComponentConstants.COMPONENT_NAME, getComponentMetadata().getName() );
-            m_serviceProperties.put( ComponentConstants.COMPONENT_ID, getId() );
+            props.put( ComponentConstants.COMPONENT_NAME, getComponentMetadata().getName() );
+            props.put( ComponentConstants.COMPONENT_ID, getId() );
+            // publish the complete dictionary only
+            m_serviceProperties = props;
         }
 
         updateServiceRegistration();
@@ -589,9 +603,10 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
     @Override
     public Dictionary<String, Object> getServiceProperties()
     {
-        if ( m_serviceProperties != null )
+        final Dictionary<String, Object> serviceProperties = m_serviceProperties;
+        if ( serviceProperties != null )
         {
-            return m_serviceProperties;
+            return serviceProperties;
         }
         return super.getServiceProperties();
     }
@@ -682,6 +697,8 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
         m_configurationProperties = configuration;
 
         reconfigure(configurationDeleted);
+        // the properties of the component have changed
+        getActivator().updateChangeCount();
     }
 
     void reconfigure(boolean configurationDeleted)
@@ -48,4 +48,19 @@ public class ThreadDump implements Callable<String>
         return b.toString();
     }
 
+    /**
+     * Returns the name, state and stack trace of the given thread.
+     */
+    public static String dump( final Thread thread )
+    {
+        StringBuilder b = new StringBuilder( "Thread " ).append( thread.getId() ).append( " : name: " )
+            .append( thread.getName() ).append( " State: " ).append( thread.getState() );
+        StackTraceElement[] stackTrace = thread.getStackTrace();
+        for (int j = 0; j < stackTrace.length; j++ )
+        {
+            b.append( "\n  " ).append( stackTrace[j] );
+        }
+        return b.toString();
+    }
+
 }
@@ -144,6 +144,12 @@ public class ReferenceMetadata
     // (optional, since DS 1.4)
     private Integer m_parameterIndex;
 
+    // Coalescing window in milliseconds (optional, Felix extension)
+    private String m_coalesce_window;
+
+    // Coalescing window, set based on {@code m_coalesce_window} after validation
+    private long m_coalesceWindow;
+
     // Flags that store the values passed as strings
     private boolean m_isStatic = true;
     private boolean m_isOptional = false;
@@ -386,6 +392,21 @@ public class ReferenceMetadata
         m_collection_type = valuetype;
     }
 
+    /**
+     * Setter for the coalescing window of a dynamic multiple reference
+     * in milliseconds (Felix extension)
+     * @param window the coalescing window
+     */
+    public void setCoalesceWindow( final String window )
+    {
+        if ( m_validated )
+        {
+            return;
+        }
+
+        m_coalesce_window = window;
+    }
+
     public void setScope(String scopeName) {
         if ( m_validated )
         {
@@ -545,6 +566,20 @@ public class ReferenceMetadata
         return m_collection_type;
     }
 
+    /**
+     * Get the window in milliseconds within which service events of a
+     * dynamic multiple reference are coalesced into a single batch of
+     * bind, updated and unbind calls. A value of zero disables coalescing.
+     * Pending changes are applied early when a bound service goes away and
+     * before the component is deactivated; they are never dropped.
+     *
+     * @return the coalescing window in milliseconds
+     */
+    public long getCoalesceWindow()
+    {
+        return m_coalesceWindow;
+    }
+
     /**
      * Get the parameter index, if specified.
      * This method returns the correct value only after this metadata object has been validated
@@ -773,6 +808,27 @@ public class ReferenceMetadata
             }
         }
 
+        if ( m_coalesce_window != null )
+        {
+            try
+            {
+                m_coalesceWindow = Long.parseLong( m_coalesce_window.trim() );
+            }
+            catch ( final NumberFormatException nfe )
+            {
+                throw componentMetadata.validationFailure( "Reference coalesce window is not a number: " + m_coalesce_window );
+            }
+            if ( m_coalesceWindow < 0 )
+            {
+                throw componentMetadata.validationFailure( "Reference coalesce window must be zero or higher: " + m_coalesce_window );
+            }
+            // only dynamic multiple references are coalesced
+            if ( m_isStatic || !m_isMultiple )
+            {
+                m_coalesceWindow = 0;
+            }
+        }
+
         if ( m_parameter != null )
         {
             // parameter requires DS 1.4
@@ -879,6 +935,7 @@ public class ReferenceMetadata
         metaDataWriter.writeString(m_target, out);
         metaDataWriter.writeString(m_unbind, out);
         metaDataWriter.writeString(m_updated, out);
+        out.writeLong(m_coalesceWindow);
     }
 
     static ReferenceMetadata load(DataInputStream in, MetaDataReader metaDataReader)
@@ -909,6 +966,7 @@ public class ReferenceMetadata
         result.m_target = metaDataReader.readString(in);
         result.m_unbind = metaDataReader.readString(in);
         result.m_updated = metaDataReader.readString(in);
+        result.m_coalesceWindow = in.readLong();
 
         // only stored valid metadata
         result.m_validated = true;
@@ -19,13 +19,19 @@
 package org.apache.felix.scr.impl.runtime;
 
 import java.lang.ref.SoftReference;
+import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.felix.scr.impl.ComponentRegistry;
 import org.apache.felix.scr.impl.manager.ComponentHolder;
@@ -33,6 +39,7 @@ import org.apache.felix.scr.impl.manager.ComponentManager;
 import org.apache.felix.scr.impl.manager.ReferenceManager;
 import org.apache.felix.scr.impl.metadata.ComponentMetadata;
 import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
+import org.apache.felix.scr.info.ComponentChanges;
 import org.osgi.dto.DTO;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -53,7 +60,7 @@ import org.osgi.service.component.runtime.dto.UnsatisfiedReferenceDTO;
 import org.osgi.util.promise.Promise;
 import org.osgi.util.promise.Promises;
 
-public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, ServiceListener, BundleListener
+public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, ComponentChanges, ServiceListener, BundleListener
 {
     private static final String[] EMPTY = {};
 
@@ -62,6 +69,15 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
 
     private volatile SoftReference<ConcurrentHashMap<Long, ServiceReferenceDTO[]>> dtoCache = new SoftReference<>(new ConcurrentHashMap<Long, ServiceReferenceDTO[]>());
 
+    /** Number of service and bundle events which might have changed the service reference DTOs */
+    private final AtomicLong serviceChangeCount = new AtomicLong();
+
+    /** DTO snapshots per component holder */
+    private final ConcurrentHashMap<ComponentHolder<?>, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /** The interfaces referenced by the components, to ignore the events of unrelated services */
+    private volatile ReferencedInterfaces referencedInterfaces;
+
     public ServiceComponentRuntimeImpl(final BundleContext context, final ComponentRegistry componentRegistry)
     {
         this.context = context;
@@ -89,10 +105,47 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
         List<ComponentDescriptionDTO> result = new ArrayList<>(holders.size());
         for (ComponentHolder<?> holder: holders)
         {
-            ComponentDescriptionDTO dto = holderToDescription(holder);
-            if ( dto != null )
+            Snapshot snapshot = getSnapshot(holder);
+            if ( snapshot != null )
             {
-                result.add(dto);
+                result.add(copy(snapshot.description));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @see org.apache.felix.scr.info.ComponentChanges#getChangeCount()
+     */
+    @Override
+    public long getChangeCount()
+    {
+        return componentRegistry.getChangeCount() + serviceChangeCount.get();
+    }
+
+    /**
+     * @see org.apache.felix.scr.info.ComponentChanges#getChangedComponentDescriptionDTOs(long, org.osgi.framework.Bundle[])
+     */
+    @Override
+    public Collection<ComponentDescriptionDTO> getChangedComponentDescriptionDTOs(long changeCount, Bundle... bundles)
+    {
+        List<ComponentHolder<?>> holders;
+        if (bundles == null || bundles.length == 0)
+        {
+            holders = componentRegistry.getComponentHolders();
+        }
+        else
+        {
+            holders = componentRegistry.getComponentHolders(bundles);
+        }
+
+        List<ComponentDescriptionDTO> result = new ArrayList<>();
+        for (ComponentHolder<?> holder: holders)
+        {
+            Snapshot snapshot = getSnapshot(holder);
+            if ( snapshot != null && snapshot.lastModified > changeCount )
+            {
+                result.add(copy(snapshot.description));
             }
         }
         return result;
@@ -107,7 +160,8 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
         ComponentHolder<?> holder = componentRegistry.getComponentHolder(bundle, name);
         if ( holder != null )
         {
-            return holderToDescription(holder);
+            Snapshot snapshot = getSnapshot(holder);
+            return snapshot == null ? null : copy(snapshot.description);
         }
         else
         {
@@ -128,17 +182,16 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
         try
         {
             ComponentHolder<?> holder = getHolderFromDescription( description);
-            // Get a fully filled out valid description DTO
-            description = holderToDescription(holder);
-            if ( description == null)
+            Snapshot snapshot = holder == null ? null : getSnapshot(holder);
+            if ( snapshot == null)
             {
                 return Collections.emptyList();
             }
-            List<? extends ComponentManager<?>> managers = holder.getComponents();
-            List<ComponentConfigurationDTO> result = new ArrayList<>(managers.size());
-            for (ComponentManager<?> manager: managers)
+            final ComponentDescriptionDTO copiedDescription = copy(snapshot.description);
+            final List<ComponentConfigurationDTO> result = new ArrayList<>(snapshot.configurations.size());
+            for (ComponentConfigurationDTO configuration: snapshot.configurations)
             {
-                result.add(managerToConfiguration(manager, description));
+                result.add(copy(configuration, copiedDescription));
             }
             return result;
         }
@@ -209,6 +262,53 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
         }
     }
 
+    /**
+     * Returns the DTO snapshot of the component, creating a new one if
+     * the change count has changed since the last snapshot was taken.
+     * @param holder The component holder
+     * @return The snapshot or <code>null</code> if the bundle of the component is not active anymore
+     */
+    private Snapshot getSnapshot(final ComponentHolder<?> holder)
+    {
+        final long changeCount = getChangeCount();
+        final Snapshot previous = snapshots.get(holder);
+        if ( previous != null && previous.changeCount == changeCount )
+        {
+            return previous;
+        }
+
+        // Get a fully filled out valid description DTO
+        final ComponentDescriptionDTO description = holderToDescription(holder);
+        if ( description == null )
+        {
+            snapshots.remove(holder);
+            return null;
+        }
+        final List<? extends ComponentManager<?>> managers = holder.getComponents();
+        final List<ComponentConfigurationDTO> configurations = new ArrayList<>(managers.size());
+        for (ComponentManager<?> manager: managers)
+        {
+            configurations.add(managerToConfiguration(manager, description));
+        }
+
+        // the component might have changed while the DTOs were built; the
+        // snapshot keeps the count read before, so it is rebuilt on the next
+        // call, but a change is stamped with the count read afterwards
+        final long builtChangeCount = Math.max(changeCount, getChangeCount());
+        final long lastModified;
+        if ( previous != null && previous.isSame(description, configurations) )
+        {
+            lastModified = previous.lastModified;
+        }
+        else
+        {
+            lastModified = builtChangeCount;
+        }
+        final Snapshot snapshot = new Snapshot(changeCount, lastModified, description, configurations);
+        snapshots.put(holder, snapshot);
+        return snapshot;
+    }
+
     private ComponentConfigurationDTO managerToConfiguration(final ComponentManager<?> manager, final ComponentDescriptionDTO description)
     {
         final ComponentConfigurationDTO dto = new ComponentConfigurationDTO();
@@ -450,6 +550,150 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
         return dtos;
     }
 
+    /**
+     * Returns a copy of a description DTO of a snapshot. The snapshots are
+     * kept to detect changes, callers get their own copy of the DTOs.
+     */
+    private static ComponentDescriptionDTO copy(final ComponentDescriptionDTO source)
+    {
+        final ComponentDescriptionDTO dto = new ComponentDescriptionDTO();
+        dto.activate = source.activate;
+        dto.bundle = copy(source.bundle);
+        dto.configurationPid = copy(source.configurationPid);
+        dto.configurationPolicy = source.configurationPolicy;
+        dto.deactivate = source.deactivate;
+        dto.defaultEnabled = source.defaultEnabled;
+        dto.factory = source.factory;
+        dto.immediate = source.immediate;
+        dto.implementationClass = source.implementationClass;
+        dto.modified = source.modified;
+        dto.name = source.name;
+        dto.properties = copy(source.properties);
+        dto.references = new ReferenceDTO[source.references.length];
+        for (int i = 0; i < dto.references.length; i++)
+        {
+            dto.references[i] = copy(source.references[i]);
+        }
+        dto.scope = source.scope;
+        dto.serviceInterfaces = copy(source.serviceInterfaces);
+        dto.factoryProperties = copy(source.factoryProperties);
+        dto.activationFields = copy(source.activationFields);
+        dto.init = source.init;
+        return dto;
+    }
+
+    private static ComponentConfigurationDTO copy(final ComponentConfigurationDTO source, final ComponentDescriptionDTO description)
+    {
+        final ComponentConfigurationDTO dto = new ComponentConfigurationDTO();
+        dto.satisfiedReferences = new SatisfiedReferenceDTO[source.satisfiedReferences.length];
+        for (int i = 0; i < dto.satisfiedReferences.length; i++)
+        {
+            final SatisfiedReferenceDTO ref = new SatisfiedReferenceDTO();
+            ref.name = source.satisfiedReferences[i].name;
+            ref.target = source.satisfiedReferences[i].target;
+            ref.boundServices = copy(source.satisfiedReferences[i].boundServices);
+            dto.satisfiedReferences[i] = ref;
+        }
+        dto.unsatisfiedReferences = new UnsatisfiedReferenceDTO[source.unsatisfiedReferences.length];
+        for (int i = 0; i < dto.unsatisfiedReferences.length; i++)
+        {
+            final UnsatisfiedReferenceDTO ref = new UnsatisfiedReferenceDTO();
+            ref.name = source.unsatisfiedReferences[i].name;
+            ref.target = source.unsatisfiedReferences[i].target;
+            ref.targetServices = copy(source.unsatisfiedReferences[i].targetServices);
+            dto.unsatisfiedReferences[i] = ref;
+        }
+        dto.description = description;
+        dto.id = source.id;
+        dto.properties = copy(source.properties);
+        dto.state = source.state;
+        dto.service = copy(source.service);
+        dto.failure = source.failure;
+        return dto;
+    }
+
+    private static ReferenceDTO copy(final ReferenceDTO source)
+    {
+        final ReferenceDTO dto = new ReferenceDTO();
+        dto.bind = source.bind;
+        dto.cardinality = source.cardinality;
+        dto.field = source.field;
+        dto.fieldOption = source.fieldOption;
+        dto.interfaceName = source.interfaceName;
+        dto.name = source.name;
+        dto.policy = source.policy;
+        dto.policyOption = source.policyOption;
+        dto.scope = source.scope;
+        dto.target = source.target;
+        dto.unbind = source.unbind;
+        dto.updated = source.updated;
+        dto.parameter = source.parameter;
+        dto.collectionType = source.collectionType;
+        return dto;
+    }
+
+    private static ServiceReferenceDTO[] copy(final ServiceReferenceDTO[] source)
+    {
+        final ServiceReferenceDTO[] dtos = new ServiceReferenceDTO[source.length];
+        for (int i = 0; i < dtos.length; i++)
+        {
+            dtos[i] = copy(source[i]);
+        }
+        return dtos;
+    }
+
+    private static ServiceReferenceDTO copy(final ServiceReferenceDTO source)
+    {
+        if (source == null)
+        {
+            return null;
+        }
+        final ServiceReferenceDTO dto = new ServiceReferenceDTO();
+        dto.bundle = source.bundle;
+        dto.id = source.id;
+        dto.properties = copy(source.properties);
+        dto.usingBundles = source.usingBundles == null ? null : source.usingBundles.clone();
+        return dto;
+    }
+
+    private static BundleDTO copy(final BundleDTO source)
+    {
+        final BundleDTO dto = new BundleDTO();
+        dto.id = source.id;
+        dto.lastModified = source.lastModified;
+        dto.state = source.state;
+        dto.symbolicName = source.symbolicName;
+        dto.version = source.version;
+        return dto;
+    }
+
+    private static String[] copy(final String[] source)
+    {
+        return source == null ? null : source.clone();
+    }
+
+    private static Map<String, Object> copy(final Map<String, Object> source)
+    {
+        if (source == null)
+        {
+            return null;
+        }
+        final Map<String, Object> result = new HashMap<>(source.size());
+        for (Map.Entry<String, Object> entry: source.entrySet())
+        {
+            Object value = entry.getValue();
+            if (value != null && value.getClass().isArray())
+            {
+                final int length = Array.getLength(value);
+                final Object array = Array.newInstance(value.getClass().getComponentType(), length);
+                System.arraycopy(value, 0, array, 0, length);
+                value = array;
+            }
+            result.put(entry.getKey(), value);
+        }
+        return result;
+    }
+
     private BundleDTO bundleToDTO(BundleContext bundleContext)
     {
         if (bundleContext == null)
@@ -479,6 +723,18 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
 
     @Override
     public void bundleChanged(final BundleEvent event) {
+        serviceChangeCount.incrementAndGet();
+        if ( event.getType() == BundleEvent.STOPPED || event.getType() == BundleEvent.UNINSTALLED )
+        {
+            final long bundleId = event.getBundle().getBundleId();
+            for (final Iterator<Snapshot> i = snapshots.values().iterator(); i.hasNext();)
+            {
+                if ( i.next().description.bundle.id == bundleId )
+                {
+                    i.remove();
+                }
+            }
+        }
         ConcurrentHashMap<Long, ServiceReferenceDTO[]> cache = dtoCache.get();
         if (cache != null)
         {
@@ -489,6 +745,10 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
     @Override
     public void serviceChanged(final ServiceEvent event) {
         if (event.getServiceReference() != null) {
+            if (isReferenced(event.getServiceReference()))
+            {
+                serviceChangeCount.incrementAndGet();
+            }
             ConcurrentHashMap<Long, ServiceReferenceDTO[]> cache = dtoCache.get();
             if (cache != null)
             {
@@ -499,5 +759,152 @@ public class ServiceComponentRuntimeImpl implements ServiceComponentRuntime, Ser
         }
     }
 
+    /**
+     * Returns whether the service might be bound to a component, that is
+     * whether one of its interfaces is referenced by a component. Events of
+     * other services do not change the component DTOs.
+     */
+    private boolean isReferenced(final ServiceReference<?> ref)
+    {
+        final Object objectClass = ref.getProperty(Constants.OBJECTCLASS);
+        if (!(objectClass instanceof String[]))
+        {
+            return true;
+        }
+        final Set<String> interfaces = getReferencedInterfaces();
+        for (final String name : (String[]) objectClass)
+        {
+            if (interfaces.contains(name))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the interfaces referenced by the registered components,
+     * collected again whenever the component registry has changed.
+     */
+    private Set<String> getReferencedInterfaces()
+    {
+        final long changeCount = componentRegistry.getChangeCount();
+        ReferencedInterfaces current = referencedInterfaces;
+        if (current == null || current.changeCount != changeCount)
+        {
+            final Set<String> interfaces = new HashSet<>();
+            for (final ComponentHolder<?> holder : componentRegistry.getComponentHolders())
+            {
+                for (final ReferenceMetadata reference : holder.getComponentMetadata().getDependencies())
+                {
+                    interfaces.add(reference.getInterface());
+                }
+            }
+            current = new ReferencedInterfaces(changeCount, interfaces);
+            referencedInterfaces = current;
+        }
+        return current.interfaces;
+    }
+
+    private static final class ReferencedInterfaces
+    {
+        final long changeCount;
+
+        final Set<String> interfaces;
+
+        ReferencedInterfaces(final long changeCount, final Set<String> interfaces)
+        {
+            this.changeCount = changeCount;
+            this.interfaces = interfaces;
+        }
+    }
+
+    /**
+     * The DTOs of a component taken at a given change count. The snapshots
+     * are only used to detect changes; callers are always handed copies.
+     */
+    private static final class Snapshot
+    {
+        /** The change count at which the snapshot has been taken */
+        final long changeCount;
+
+        /** The change count at which the DTOs have last changed */
+        final long lastModified;
+
+        final ComponentDescriptionDTO description;
+
+        final List<ComponentConfigurationDTO> configurations;
+
+        Snapshot(final long changeCount, final long lastModified,
+            final ComponentDescriptionDTO description,
+            final List<ComponentConfigurationDTO> configurations)
+        {
+            this.changeCount = changeCount;
+            this.lastModified = lastModified;
+            this.description = description;
+            this.configurations = configurations;
+        }
+
+        boolean isSame(final ComponentDescriptionDTO otherDescription,
+            final List<ComponentConfigurationDTO> otherConfigurations)
+        {
+            if ( description.bundle.state != otherDescription.bundle.state
+                || description.bundle.lastModified != otherDescription.bundle.lastModified
+                || configurations.size() != otherConfigurations.size() )
+            {
+                return false;
+            }
+            for ( int i = 0; i < configurations.size(); i++ )
+            {
+                final ComponentConfigurationDTO c = configurations.get(i);
+                final ComponentConfigurationDTO o = otherConfigurations.get(i);
+                if ( c.id != o.id || c.state != o.state
+                    || !equals(c.failure, o.failure)
+                    || !equals(c.properties, o.properties)
+                    || serviceId(c.service) != serviceId(o.service)
+                    || !Arrays.equals(boundServices(c), boundServices(o)) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean equals(final Object a, final Object b)
+        {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        private static long serviceId(final ServiceReferenceDTO dto)
+        {
+            return dto == null ? -1 : dto.id;
+        }
+
+        /**
+         * Returns the names of the references with the ids of their services
+         */
+        private static String[] boundServices(final ComponentConfigurationDTO dto)
+        {
+            final List<String> result = new ArrayList<>();
+            for ( final SatisfiedReferenceDTO ref : dto.satisfiedReferences )
+            {
+                result.add(ref.name + '=' + Arrays.toString(serviceIds(ref.boundServices)));
+            }
+            for ( final UnsatisfiedReferenceDTO ref : dto.unsatisfiedReferences )
+            {
+                result.add('!' + ref.name + '=' + Arrays.toString(serviceIds(ref.targetServices)));
+            }
+            return result.toArray(new String[result.size()]);
+        }
 
+        private static long[] serviceIds(final ServiceReferenceDTO[] dtos)
+        {
+            final long[] ids = new long[dtos.length];
+            for ( int i = 0; i < dtos.length; i++ )
+            {
+                ids[i] = serviceId(dtos[i]);
+            }
+            return ids;
+        }
+    }
 }
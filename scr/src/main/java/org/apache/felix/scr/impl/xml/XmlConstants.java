@@ -98,6 +98,8 @@ public abstract class XmlConstants
 
     public static final String ATTR_DELAYED_KEEP_INSTANCES = "delayedKeepInstances";
 
+    public static final String ATTR_COALESCE_WINDOW = "coalesceWindow";
+
     // mapping of namespace URI to namespace code
     public static final Map<String, DSVersion> NAMESPACE_CODE_MAP;
 
@@ -405,6 +405,9 @@ public class XmlHandler extends DefaultHandler
                     ref.setFieldOption( attributes.getValue( XmlConstants.NAMESPACE_URI_EMPTY, "field-option" ) );
                     ref.setFieldCollectionType( attributes.getValue( XmlConstants.NAMESPACE_URI_EMPTY, "field-collection-type" ) );
 
+                    // Felix extension: coalesce service events of dynamic multiple references
+                    ref.setCoalesceWindow( attributes.getValue( XmlConstants.NAMESPACE_URI_1_0_FELIX_EXTENSIONS, XmlConstants.ATTR_COALESCE_WINDOW ) );
+
                     // DS 1.4 : references as parameter of the activator (method or constructor)
                     if ( attributes.getValue( XmlConstants.NAMESPACE_URI_EMPTY, "parameter" ) != null)
                     {
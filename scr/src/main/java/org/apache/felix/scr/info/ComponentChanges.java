@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.info;
+
+import java.util.Collection;
+
+import org.osgi.framework.Bundle;
+import org.osgi.service.component.runtime.dto.ComponentDescriptionDTO;
+
+/**
+ * Allows polling the component descriptions which have changed since a
+ * previous poll, without building the DTOs of all components.
+ * <p>
+ * The service is registered together with the
+ * <code>ServiceComponentRuntime</code> service.
+ */
+public interface ComponentChanges
+{
+
+    /**
+     * Returns the change count of the component DTOs. The change count
+     * increases whenever the state of a component changes, and whenever a
+     * service event or a bundle event might have changed the services bound
+     * to the components.
+     * @return The current change count
+     */
+    long getChangeCount();
+
+    /**
+     * Returns the description DTOs of the components whose description or
+     * configurations have changed after the given change count. Components
+     * removed in the meantime are not reported; they are missing from a full
+     * query of the <code>ServiceComponentRuntime</code>.
+     * @param changeCount The change count returned by {@link #getChangeCount()}
+     *            when the caller last polled the components
+     * @param bundles The bundles to return the descriptions for, all bundles
+     *            if none are given
+     * @return The changed component description DTOs, owned by the caller
+     */
+    Collection<ComponentDescriptionDTO> getChangedComponentDescriptionDTOs(long changeCount, Bundle... bundles);
+
+}
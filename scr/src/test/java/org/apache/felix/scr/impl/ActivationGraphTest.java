@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.felix.scr.impl.manager.ComponentHolder;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.DSVersion;
+import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
+import org.apache.felix.scr.impl.metadata.ServiceMetadata;
+import org.mockito.Mockito;
+
+import junit.framework.TestCase;
+
+public class ActivationGraphTest extends TestCase
+{
+
+    public void test_independent_components_single_wave()
+    {
+        final ComponentHolder<?> a = holder( "a", "A" );
+        final ComponentHolder<?> b = holder( "b", "B" );
+        final ComponentHolder<?> c = holder( "c", null );
+
+        final ActivationGraph graph = new ActivationGraph( Arrays.<ComponentHolder<?>> asList( a, b, c ) );
+        assertEquals( 1, graph.getWaves().size() );
+        assertEquals( Arrays.asList( a, b, c ), graph.getWaves().get( 0 ) );
+        assertTrue( graph.getCyclic().isEmpty() );
+        assertEquals( 3, graph.getMaxWaveSize() );
+    }
+
+    public void test_providers_before_consumers()
+    {
+        final ComponentHolder<?> consumer = holder( "consumer", null, "A", "B" );
+        final ComponentHolder<?> b = holder( "b", "B", "A" );
+        final ComponentHolder<?> a = holder( "a", "A" );
+        final ComponentHolder<?> other = holder( "other", null, "org.example.External" );
+
+        final ActivationGraph graph = new ActivationGraph( Arrays.<ComponentHolder<?>> asList( consumer, b, a, other ) );
+        final List<List<ComponentHolder<?>>> waves = graph.getWaves();
+        assertEquals( 3, waves.size() );
+        assertEquals( Arrays.asList( a, other ), waves.get( 0 ) );
+        assertEquals( Arrays.asList( b ), waves.get( 1 ) );
+        assertEquals( Arrays.asList( consumer ), waves.get( 2 ) );
+        assertTrue( graph.getCyclic().isEmpty() );
+    }
+
+    public void test_self_reference_ignored()
+    {
+        final ComponentHolder<?> a = holder( "a", "A", "A" );
+
+        final ActivationGraph graph = new ActivationGraph( Arrays.<ComponentHolder<?>> asList( a ) );
+        assertEquals( 1, graph.getWaves().size() );
+        assertTrue( graph.getCyclic().isEmpty() );
+    }
+
+    public void test_cycle_enabled_sequentially()
+    {
+        final ComponentHolder<?> a = holder( "a", "A", "B" );
+        final ComponentHolder<?> b = holder( "b", "B", "A" );
+        final ComponentHolder<?> c = holder( "c", null, "A" );
+        final ComponentHolder<?> d = holder( "d", "D" );
+
+        final ActivationGraph graph = new ActivationGraph( Arrays.<ComponentHolder<?>> asList( a, b, c, d ) );
+        assertEquals( 1, graph.getWaves().size() );
+        assertEquals( Arrays.asList( d ), graph.getWaves().get( 0 ) );
+        assertEquals( Arrays.asList( a, b, c ), graph.getCyclic() );
+    }
+
+    private static ComponentHolder<?> holder( final String name, final String provides, final String... references )
+    {
+        final ComponentMetadata metadata = new ComponentMetadata( DSVersion.DS13 );
+        metadata.setName( name );
+        metadata.setImplementationClassName( "org.example." + name );
+        metadata.setImmediate( true );
+        if ( provides != null )
+        {
+            final ServiceMetadata service = new ServiceMetadata();
+            service.addProvide( provides );
+            metadata.setService( service );
+        }
+        for ( final String reference : references )
+        {
+            final ReferenceMetadata ref = new ReferenceMetadata();
+            ref.setName( reference );
+            ref.setInterface( reference );
+            metadata.addDependency( ref );
+        }
+
+        final ComponentHolder<?> holder = Mockito.mock( ComponentHolder.class );
+        Mockito.when( holder.getComponentMetadata() ).thenReturn( metadata );
+        return holder;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.scr.impl.logger.ScrLogger;
+import org.mockito.Mockito;
+
+import junit.framework.TestCase;
+
+public class ComponentActorThreadTest extends TestCase
+{
+
+    public void test_same_key_runs_in_order() throws Exception
+    {
+        final ComponentActorThread actor = new ComponentActorThread( Mockito.mock( ScrLogger.class ), 4 );
+        final List<Integer> order = Collections.synchronizedList( new ArrayList<Integer>() );
+        final Object key = new Object();
+        for ( int i = 0; i < 100; i++ )
+        {
+            final int n = i;
+            actor.schedule( key, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    order.add( n );
+                }
+            } );
+        }
+        actor.terminate();
+
+        assertEquals( 100, order.size() );
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertEquals( Integer.valueOf( i ), order.get( i ) );
+        }
+        assertEquals( 100, actor.getCompletedTasks() );
+        assertEquals( 0, actor.getQueueDepth() );
+        assertTrue( actor.getMaxQueueDepth() >= 1 );
+    }
+
+    public void test_single_thread_keeps_order_across_keys() throws Exception
+    {
+        final ComponentActorThread actor = new ComponentActorThread( Mockito.mock( ScrLogger.class ), 1 );
+        final List<String> order = Collections.synchronizedList( new ArrayList<String>() );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        // block the actor so all following tasks are queued
+        actor.schedule( "a", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    release.await( 10, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                order.add( "a0" );
+            }
+        } );
+        final String[][] tasks = { { "a", "a1" }, { "b", "b1" }, { "a", "a2" }, { "c", "c1" }, { "b", "b2" } };
+        for ( final String[] task : tasks )
+        {
+            actor.schedule( task[0], new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    order.add( task[1] );
+                }
+            } );
+        }
+        release.countDown();
+        actor.terminate();
+
+        assertEquals( Arrays.asList( "a0", "a1", "b1", "a2", "c1", "b2" ), order );
+    }
+
+    public void test_blocked_key_does_not_stall_others() throws Exception
+    {
+        final ComponentActorThread actor = new ComponentActorThread( Mockito.mock( ScrLogger.class ), 2 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final CountDownLatch other = new CountDownLatch( 1 );
+        actor.schedule( "blocked", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    release.await( 10, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } );
+        actor.schedule( "other", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                other.countDown();
+            }
+        } );
+
+        assertTrue( "Task of other key has not run", other.await( 5, TimeUnit.SECONDS ) );
+        release.countDown();
+        actor.terminate();
+        assertEquals( 2, actor.getCompletedTasks() );
+    }
+
+    public void test_terminate_runs_tasks_scheduled_by_tasks() throws Exception
+    {
+        final ComponentActorThread actor = new ComponentActorThread( Mockito.mock( ScrLogger.class ), 1 );
+        final List<String> ran = Collections.synchronizedList( new ArrayList<String>() );
+        actor.schedule( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ran.add( "first" );
+                actor.schedule( "nested", new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        ran.add( "nested" );
+                    }
+                } );
+            }
+        } );
+        actor.terminate();
+        assertEquals( 2, ran.size() );
+
+        // after termination tasks are run synchronously
+        actor.schedule( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ran.add( "late" );
+            }
+        } );
+        assertEquals( 3, ran.size() );
+    }
+
+    public void test_terminate_runs_delayed_tasks() throws Exception
+    {
+        final ComponentActorThread actor = new ComponentActorThread( Mockito.mock( ScrLogger.class ), 1 );
+        final List<String> ran = Collections.synchronizedList( new ArrayList<String>() );
+        actor.schedule( "key", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ran.add( "delayed" );
+            }
+        }, 60000 );
+        assertTrue( ran.isEmpty() );
+
+        // delayed tasks are not dropped, but run without waiting for the delay
+        actor.terminate();
+        assertEquals( Arrays.asList( "delayed" ), ran );
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.inject.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class InvokersTest extends TestCase
+{
+
+    public static class Target
+    {
+        int reason;
+        String value;
+
+        void activate(int reason, String value)
+        {
+            this.reason = reason;
+            this.value = value;
+        }
+
+        Map<String, Object> modified()
+        {
+            return Collections.<String, Object>singletonMap("reason", reason);
+        }
+
+        void fail()
+        {
+            throw new IllegalStateException("failed");
+        }
+    }
+
+    public void testInvokerSpreadsAndUnboxesParameters() throws Throwable
+    {
+        final Method activate = Target.class.getDeclaredMethod("activate", int.class, String.class);
+        activate.setAccessible(true);
+        final MethodHandle invoker = Invokers.invoker(activate);
+        assertNotNull(invoker);
+
+        final Target target = new Target();
+        final Object result = (Object) invoker.invokeExact((Object) target, new Object[] {3, "value"});
+        assertNull(result);
+        assertEquals(3, target.reason);
+        assertEquals("value", target.value);
+    }
+
+    public void testInvokerReturnsResult() throws Throwable
+    {
+        final Method modified = Target.class.getDeclaredMethod("modified");
+        modified.setAccessible(true);
+        final MethodHandle invoker = Invokers.invoker(modified);
+
+        final Target target = new Target();
+        target.reason = 5;
+        final Object result = (Object) invoker.invokeExact((Object) target, new Object[0]);
+        assertEquals(Collections.singletonMap("reason", 5), result);
+    }
+
+    public void testInvokerThrowsUnwrappedException() throws Throwable
+    {
+        final Method fail = Target.class.getDeclaredMethod("fail");
+        fail.setAccessible(true);
+        final MethodHandle invoker = Invokers.invoker(fail);
+        try
+        {
+            final Object result = (Object) invoker.invokeExact((Object) new Target(), new Object[0]);
+            fail("Expected IllegalStateException, got " + result);
+        }
+        catch (IllegalStateException ise)
+        {
+            assertEquals("failed", ise.getMessage());
+        }
+    }
+
+    public void testFieldHandles() throws Throwable
+    {
+        final Field value = Target.class.getDeclaredField("value");
+        value.setAccessible(true);
+        final MethodHandle getter = Invokers.getter(value);
+        final MethodHandle setter = Invokers.setter(value);
+
+        final Target target = new Target();
+        setter.invokeExact((Object) target, (Object) "set");
+        assertEquals("set", target.value);
+        assertEquals("set", (Object) getter.invokeExact((Object) target));
+    }
+}
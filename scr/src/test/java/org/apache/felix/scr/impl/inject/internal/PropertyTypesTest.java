@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.inject.internal;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mockito.Mockito;
+import org.osgi.framework.Bundle;
+import org.osgi.service.component.ComponentException;
+
+import junit.framework.TestCase;
+
+public class PropertyTypesTest extends TestCase
+{
+
+    public @interface Config
+    {
+        long timeout() default 1000;
+
+        double ratio();
+
+        boolean enabled();
+
+        String[] names();
+
+        String name();
+    }
+
+    public interface ConfigInterface
+    {
+        int port();
+
+        String host(String ignored);
+    }
+
+    interface HiddenConfig
+    {
+        int port();
+    }
+
+    public interface Overloaded
+    {
+        int port();
+
+        int port(int defaultPort);
+    }
+
+    private Bundle bundle()
+    {
+        return Mockito.mock(Bundle.class);
+    }
+
+    public void testGeneratedAnnotation() throws Exception
+    {
+        final Map<String, Object> values = new HashMap<>();
+        values.put("timeout", "5000");
+        values.put("ratio", 0.5f);
+        values.put("enabled", "true");
+        values.put("names", new String[] {"a", "b"});
+        values.put("name", 42);
+
+        final Config config = Annotations.toObject(Config.class, values, bundle(), true);
+        assertTrue("expected a generated implementation", config instanceof AbstractPropertyType);
+        assertEquals(5000L, config.timeout());
+        assertEquals(0.5d, config.ratio());
+        assertTrue(config.enabled());
+        assertEquals(2, config.names().length);
+        assertEquals("b", config.names()[1]);
+        assertEquals("42", config.name());
+        assertEquals(Config.class, config.annotationType());
+
+        // the generated class is cached per type
+        final Config other = Annotations.toObject(Config.class, values, bundle(), true);
+        assertSame(config.getClass(), other.getClass());
+    }
+
+    public void testClearPropertyTypes() throws Exception
+    {
+        final Map<String, Object> values = new HashMap<>();
+        values.put("port", "8080");
+
+        final ConfigInterface config = Annotations.toObject(ConfigInterface.class, values, bundle(), true);
+        Annotations.clearPropertyTypes();
+
+        // the implementation is generated again after the cache is cleared
+        final ConfigInterface other = Annotations.toObject(ConfigInterface.class, values, bundle(), true);
+        assertTrue("expected a generated implementation", other instanceof AbstractPropertyType);
+        assertNotSame(config.getClass(), other.getClass());
+        assertEquals(8080, other.port());
+    }
+
+    public void testGeneratedInterface() throws Exception
+    {
+        final Map<String, Object> values = new HashMap<>();
+        values.put("port", "8080");
+        values.put("host", "localhost");
+
+        final ConfigInterface config = Annotations.toObject(ConfigInterface.class, values, bundle(), true);
+        assertTrue("expected a generated implementation", config instanceof AbstractPropertyType);
+        assertEquals(8080, config.port());
+        assertEquals("localhost", config.host("ignored"));
+        assertTrue(config.toString().startsWith(ConfigInterface.class.getName()));
+
+        final ConfigInterface same = Annotations.toObject(ConfigInterface.class, values, bundle(), true);
+        assertEquals(config, same);
+        assertEquals(config.hashCode(), same.hashCode());
+
+        values.put("port", 8081);
+        assertFalse(config.equals(Annotations.toObject(ConfigInterface.class, values, bundle(), true)));
+    }
+
+    public void testProxyFallback() throws Exception
+    {
+        final Map<String, Object> values = new HashMap<>();
+        values.put("port", "8080");
+
+        final HiddenConfig hidden = Annotations.toObject(HiddenConfig.class, values, bundle(), true);
+        assertTrue(Proxy.isProxyClass(hidden.getClass()));
+        assertEquals(8080, hidden.port());
+
+        final Overloaded overloaded = Annotations.toObject(Overloaded.class, values, bundle(), true);
+        assertTrue(Proxy.isProxyClass(overloaded.getClass()));
+    }
+
+    public void testInvalidValueUsesProxy() throws Exception
+    {
+        final Map<String, Object> values = new HashMap<>();
+        values.put("port", "not a number");
+
+        final ConfigInterface config = Annotations.toObject(ConfigInterface.class, values, bundle(), true);
+        assertTrue(Proxy.isProxyClass(config.getClass()));
+        try
+        {
+            config.port();
+            fail("expected ComponentException");
+        }
+        catch (ComponentException expected)
+        {
+            // expected
+        }
+    }
+}
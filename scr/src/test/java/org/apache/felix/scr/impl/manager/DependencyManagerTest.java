@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.felix.scr.impl.inject.RefPair;
+import org.apache.felix.scr.impl.inject.internal.ComponentMethodsImpl;
+import org.apache.felix.scr.impl.logger.BundleLogger;
+import org.apache.felix.scr.impl.logger.ComponentLogger;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.DSVersion;
+import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.component.ComponentConstants;
+
+public class DependencyManagerTest
+{
+
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+
+    private ExtendedServiceListener<ExtendedServiceEvent> listener;
+
+    private SingleComponentManager<Object> manager;
+
+    private DependencyManager<Object, Object> dependencyManager;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception
+    {
+        ReferenceMetadata reference = new ReferenceMetadata();
+        reference.setName("ref");
+        reference.setInterface("foo.bar.Service");
+        reference.setCardinality("0..n");
+        reference.setPolicy("dynamic");
+        reference.setBind("bind");
+        reference.setCoalesceWindow("100");
+
+        ComponentMetadata cm = new ComponentMetadata(DSVersion.DS13);
+        cm.setImplementationClassName("foo.bar.SomeClass");
+        cm.addDependency(reference);
+        cm.validate();
+
+        ComponentActivator activator = Mockito.mock(ComponentActivator.class);
+        Mockito.when(activator.getBundleContext()).thenReturn(Mockito.mock(BundleContext.class));
+        Mockito.when(activator.getLogger()).thenReturn(Mockito.mock(BundleLogger.class));
+        Mockito.doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation)
+            {
+                listener = invocation.getArgument(1);
+                return null;
+            }
+        }).when(activator).addServiceListener(Mockito.anyString(), Mockito.any(ExtendedServiceListener.class));
+        Mockito.doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation)
+            {
+                scheduled.add((Runnable) invocation.getArgument(1));
+                return null;
+            }
+        }).when(activator).schedule(Mockito.any(), Mockito.any(Runnable.class), Mockito.anyLong());
+
+        ComponentContainer<Object> cc = Mockito.mock(ComponentContainer.class);
+        Mockito.when(cc.getComponentMetadata()).thenReturn(cm);
+        Mockito.when(cc.getActivator()).thenReturn(activator);
+        Mockito.when(cc.getLogger()).thenReturn(Mockito.mock(ComponentLogger.class));
+
+        manager = new SingleComponentManager<Object>(cc, new ComponentMethodsImpl())
+        {
+            @Override
+            <T> void invokeBindMethod(DependencyManager<Object, T> dm, RefPair<Object, T> refPair, int trackingCount)
+            {
+                record("bind", refPair);
+            }
+
+            @Override
+            <T> boolean invokeUpdatedMethod(DependencyManager<Object, T> dm, RefPair<Object, T> refPair, int trackingCount)
+            {
+                record("updated", refPair);
+                return false;
+            }
+
+            @Override
+            <T> void invokeUnbindMethod(DependencyManager<Object, T> dm, RefPair<Object, T> oldRefPair, int trackingCount)
+            {
+                record("unbind", oldRefPair);
+            }
+
+            private void record(String method, RefPair<Object, ?> refPair)
+            {
+                calls.add(method + " " + refPair.getRef().getProperty(Constants.SERVICE_ID)
+                    + (isStateLocked() ? "" : " (not locked)"));
+            }
+        };
+        dependencyManager = (DependencyManager<Object, Object>) manager.getDependencyManagers().get(0);
+
+        // open the tracker and activate the reference as on component activation
+        dependencyManager.setTargetFilter(Collections.<String, Object> emptyMap());
+        assertTrue(dependencyManager.prebind(null));
+    }
+
+    private ServiceReference<?> newServiceReference(long id)
+    {
+        ServiceReference<?> ref = Mockito.mock(ServiceReference.class);
+        Mockito.when(ref.getProperty(Constants.SERVICE_ID)).thenReturn(id);
+        Mockito.when(ref.getProperty(Constants.SERVICE_RANKING)).thenReturn(0);
+        return ref;
+    }
+
+    private void fire(int type, ServiceReference<?> ref)
+    {
+        ExtendedServiceEvent event = new ExtendedServiceEvent(type, ref);
+        listener.serviceChanged(event);
+        event.activateManagers();
+    }
+
+    private void runScheduled()
+    {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        for (Runnable task : tasks)
+        {
+            task.run();
+        }
+    }
+
+    @Test
+    public void testChangesWithinWindowAreAppliedAsOneBatch() throws Exception
+    {
+        ServiceReference<?> one = newServiceReference(1);
+        ServiceReference<?> two = newServiceReference(2);
+        fire(ServiceEvent.REGISTERED, one);
+        fire(ServiceEvent.REGISTERED, two);
+        fire(ServiceEvent.MODIFIED, one);
+
+        // nothing is applied before the window has passed
+        assertTrue(calls.isEmpty());
+        assertEquals(1, scheduled.size());
+
+        runScheduled();
+        assertEquals(Arrays.asList("bind 1", "bind 2", "updated 1"), calls);
+
+        // the next change starts a new window
+        fire(ServiceEvent.MODIFIED, two);
+        assertEquals(1, scheduled.size());
+        runScheduled();
+        assertEquals(Arrays.asList("bind 1", "bind 2", "updated 1", "updated 2"), calls);
+    }
+
+    @Test
+    public void testRemovalDiscardsPendingBind() throws Exception
+    {
+        ServiceReference<?> one = newServiceReference(1);
+        ServiceReference<?> two = newServiceReference(2);
+        fire(ServiceEvent.REGISTERED, one);
+        fire(ServiceEvent.REGISTERED, two);
+        assertTrue(calls.isEmpty());
+
+        // a service which has never been bound is not unbound
+        fire(ServiceEvent.UNREGISTERING, one);
+        assertTrue(calls.isEmpty());
+
+        runScheduled();
+        assertEquals(Arrays.asList("bind 2"), calls);
+    }
+
+    @Test
+    public void testRemovalUnbindsWithoutStateLock() throws Exception
+    {
+        ServiceReference<?> one = newServiceReference(1);
+        fire(ServiceEvent.REGISTERED, one);
+        runScheduled();
+        assertEquals(Arrays.asList("bind 1"), calls);
+
+        // the service must be unbound before it goes away, without
+        // taking the state lock in the service event callback
+        fire(ServiceEvent.UNREGISTERING, one);
+        assertEquals(Arrays.asList("bind 1", "unbind 1 (not locked)"), calls);
+        assertTrue(scheduled.isEmpty());
+    }
+
+    @Test
+    public void testDeactivationFlushesPendingChanges() throws Exception
+    {
+        fire(ServiceEvent.REGISTERED, newServiceReference(1));
+        assertTrue(calls.isEmpty());
+
+        ComponentContextImpl<Object> componentContext = new ComponentContextImpl<>(manager,
+            Mockito.mock(Bundle.class), null);
+        manager.disposeImplementationObject(componentContext, ComponentConstants.DEACTIVATION_REASON_DISABLED);
+        assertEquals(Arrays.asList("bind 1"), calls);
+
+        runScheduled();
+        assertEquals(1, calls.size());
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class LockStatisticsTest extends TestCase
+{
+
+    public void test_histogram()
+    {
+        final LockStatistics statistics = new LockStatistics();
+        statistics.waited( TimeUnit.MICROSECONDS.toNanos( 5 ) );
+        statistics.waited( TimeUnit.MICROSECONDS.toNanos( 10 ) );
+        statistics.waited( TimeUnit.MILLISECONDS.toNanos( 5 ) );
+        statistics.waited( TimeUnit.SECONDS.toNanos( 3 ) );
+
+        assertEquals( Arrays.toString( new long[] { 1, 1, 0, 1, 0, 0, 1 } ),
+            Arrays.toString( statistics.getWaits() ) );
+        assertEquals( 0, statistics.getTimeouts() );
+    }
+
+
+    public void test_recent_timeouts()
+    {
+        final LockStatistics statistics = new LockStatistics();
+        for ( int i = 0; i < 12; i++ )
+        {
+            statistics.timedOut( "timeout " + i, i == 11 ? ThreadDump.dump( Thread.currentThread() ) : null );
+        }
+
+        assertEquals( 12, statistics.getTimeouts() );
+        assertEquals( 10, statistics.getRecentTimeouts().size() );
+        assertEquals( "timeout 2", statistics.getRecentTimeouts().get( 0 ) );
+        final String last = statistics.getRecentTimeouts().get( 9 );
+        assertTrue( last, last.startsWith( "timeout 11 held by Thread " ) );
+        assertTrue( last, last.contains( "test_recent_timeouts" ) );
+    }
+}
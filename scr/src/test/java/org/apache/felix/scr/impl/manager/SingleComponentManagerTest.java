@@ -21,8 +21,12 @@ package org.apache.felix.scr.impl.manager;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.felix.scr.impl.inject.internal.ComponentMethodsImpl;
@@ -93,6 +97,20 @@ public class SingleComponentManagerTest
 
         }
 
+        @Override
+        public void schedule(Object key, Runnable runnable)
+        {
+            // TODO Auto-generated method stub
+
+        }
+
+        @Override
+        public void schedule(Object key, Runnable runnable, long delayMillis)
+        {
+            // TODO Auto-generated method stub
+
+        }
+
         @Override
         public long registerComponentId(AbstractComponentManager<?> sAbstractComponentManager)
         {
@@ -166,6 +184,11 @@ public class SingleComponentManagerTest
             // TODO Auto-generated method stub
         }
 
+        @Override
+        public LockStatistics getLockStatistics() {
+            return null;
+        }
+
         @Override
         public BundleLogger getLogger() {
             return bundleLogger;
@@ -247,4 +270,68 @@ public class SingleComponentManagerTest
         AtomicInteger use = (AtomicInteger) u.get(scm);
         assertEquals(0, use.get());
     }
+
+    @Test
+    public void testLockTimeoutShowsHolder() throws Exception
+    {
+        ComponentMetadata cm = new ComponentMetadata(DSVersion.DS13);
+        cm.setImplementationClassName("foo.bar.SomeClass");
+        cm.validate();
+
+        ScrConfiguration configuration = Mockito.mock(ScrConfiguration.class);
+        Mockito.when(configuration.lockTimeout()).thenReturn(100L);
+        Mockito.when(configuration.lockFairness()).thenReturn(true);
+        ComponentActivator activator = Mockito.mock(ComponentActivator.class);
+        Mockito.when(activator.getConfiguration()).thenReturn(configuration);
+        Mockito.when(activator.getLogger()).thenReturn(bundleLogger);
+
+        @SuppressWarnings("unchecked")
+        ComponentContainer<Object> cc = Mockito.mock(ComponentContainer.class);
+        Mockito.when(cc.getComponentMetadata()).thenReturn(cm);
+        Mockito.when(cc.getActivator()).thenReturn(activator);
+        Mockito.when(cc.getLogger()).thenReturn(componentLogger);
+
+        final SingleComponentManager<Object> scm = new SingleComponentManager<Object>(cc, new ComponentMethodsImpl());
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread("lock holder")
+        {
+            @Override
+            public void run()
+            {
+                scm.obtainStateLock();
+                try
+                {
+                    locked.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                finally
+                {
+                    scm.releaseStateLock();
+                }
+            }
+        };
+        holder.start();
+        try
+        {
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            scm.obtainStateLock();
+            fail("Expected the state lock to time out");
+        }
+        catch (IllegalStateException e)
+        {
+            // the message names the holder and shows where it is blocked
+            assertTrue(e.getMessage(), e.getMessage().contains("name: lock holder"));
+            assertTrue(e.getMessage(), e.getMessage().contains("CountDownLatch.await"));
+        }
+        finally
+        {
+            release.countDown();
+            holder.join();
+        }
+    }
 }
@@ -443,6 +443,43 @@ public class ComponentMetadataTest extends TestCase
     }
 
 
+    public void test_reference_coalesce_window()
+    {
+        final ComponentMetadata cm = createComponentMetadata( Boolean.TRUE, null );
+        final ReferenceMetadata dynamicMultiple = createReferenceMetadata( "name1" );
+        dynamicMultiple.setCardinality( "0..n" );
+        dynamicMultiple.setPolicy( "dynamic" );
+        dynamicMultiple.setCoalesceWindow( "50" );
+        cm.addDependency( dynamicMultiple );
+        final ReferenceMetadata staticUnary = createReferenceMetadata( "name2" );
+        staticUnary.setCoalesceWindow( "50" );
+        cm.addDependency( staticUnary );
+        cm.validate(  );
+
+        assertEquals( 50, dynamicMultiple.getCoalesceWindow() );
+        // only dynamic multiple references are coalesced
+        assertEquals( 0, staticUnary.getCoalesceWindow() );
+    }
+
+
+    public void test_reference_coalesce_window_invalid()
+    {
+        final ComponentMetadata cm = createComponentMetadata( Boolean.TRUE, null );
+        final ReferenceMetadata rm = createReferenceMetadata( "name1" );
+        rm.setCoalesceWindow( "soon" );
+        cm.addDependency( rm );
+        try
+        {
+            cm.validate(  );
+            fail( "Expect validation failure for invalid coalesce window" );
+        }
+        catch ( ComponentException ee )
+        {
+             //expected
+        }
+    }
+
+
     public void test_reference_no_name_ds10()
     {
         // un-named reference, illegal for pre DS 1.1
@@ -20,16 +20,30 @@ package org.apache.felix.scr.impl.runtime;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 
+import org.apache.felix.scr.impl.ComponentRegistry;
+import org.apache.felix.scr.impl.logger.ScrLogger;
+import org.apache.felix.scr.impl.manager.ComponentActivator;
+import org.apache.felix.scr.impl.manager.ComponentHolder;
+import org.apache.felix.scr.impl.manager.ScrConfiguration;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.DSVersion;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.osgi.dto.DTO;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.Version;
 import org.osgi.framework.dto.BundleDTO;
 import org.osgi.framework.dto.ServiceReferenceDTO;
+import org.osgi.service.component.runtime.dto.ComponentDescriptionDTO;
 
 import junit.framework.TestCase;
 
@@ -64,6 +78,113 @@ public class ServiceComponentRuntimeImplTest extends TestCase
         assertEquals(real.properties, dto.properties);
     }
 
+    public void testComponentDescriptionSnapshots() throws Exception
+    {
+        Bundle b = Mockito.mock(Bundle.class);
+        Mockito.when(b.getBundleId()).thenReturn(42L);
+        Mockito.when(b.getVersion()).thenReturn(Version.emptyVersion);
+        BundleContext bc = Mockito.mock(BundleContext.class);
+        Mockito.when(bc.getBundle()).thenReturn(b);
+        ComponentActivator activator = Mockito.mock(ComponentActivator.class);
+        Mockito.when(activator.getBundleContext()).thenReturn(bc);
+
+        ComponentMetadata metadata = new ComponentMetadata(DSVersion.DS13);
+        metadata.setName("test");
+        metadata.setImplementationClassName("test.Component");
+        metadata.validate();
+        ComponentHolder<?> holder = Mockito.mock(ComponentHolder.class);
+        Mockito.when(holder.getComponentMetadata()).thenReturn(metadata);
+        Mockito.when(holder.getActivator()).thenReturn(activator);
+        Mockito.doReturn(Collections.emptyList()).when(holder).getComponents();
+
+        ComponentRegistry registry = new ComponentRegistry(Mockito.mock(ScrConfiguration.class), Mockito.mock(ScrLogger.class));
+        Method check = ComponentRegistry.class.getDeclaredMethod("checkComponentName", Bundle.class, String.class);
+        check.setAccessible(true);
+        Object key = check.invoke(registry, b, "test");
+        Method register = ComponentRegistry.class.getDeclaredMethod("registerComponentHolder", key.getClass(), ComponentHolder.class);
+        register.setAccessible(true);
+        register.invoke(registry, key, holder);
+
+        ServiceComponentRuntimeImpl scr = new ServiceComponentRuntimeImpl(Mockito.mock(BundleContext.class), registry);
+        long changeCount = scr.getChangeCount();
+        ComponentDescriptionDTO first = scr.getComponentDescriptionDTOs().iterator().next();
+        assertEquals("test", first.name);
+
+        // the snapshot is reused, but every call gets its own copy
+        first.name = "modified";
+        first.configurationPid[0] = "modified";
+        first.properties.put("modified", "true");
+        ComponentDescriptionDTO second = scr.getComponentDescriptionDTOs().iterator().next();
+        assertNotSame(first, second);
+        assertEquals("test", second.name);
+        assertEquals("test", second.configurationPid[0]);
+        assertFalse(second.properties.containsKey("modified"));
+        Mockito.verify(holder, Mockito.times(1)).getComponents();
+        assertTrue(scr.getChangedComponentDescriptionDTOs(changeCount).isEmpty());
+        assertEquals(1, scr.getChangedComponentDescriptionDTOs(changeCount - 1).size());
+
+        // a new change count creates a new snapshot with the same content
+        registry.updateChangeCount();
+        assertTrue(scr.getChangeCount() > changeCount);
+        Collection<ComponentDescriptionDTO> dtos = scr.getComponentDescriptionDTOs();
+        assertEquals("test", dtos.iterator().next().name);
+        assertTrue(scr.getChangedComponentDescriptionDTOs(changeCount).isEmpty());
+        Mockito.verify(holder, Mockito.times(2)).getComponents();
+
+        // events of services not referenced by any component are not counted
+        changeCount = scr.getChangeCount();
+        ServiceReference<?> sr = Mockito.mock(ServiceReference.class);
+        Mockito.when(sr.getProperty(Constants.OBJECTCLASS)).thenReturn(new String[] {"test.Unrelated"});
+        Mockito.when(sr.getProperty(Constants.SERVICE_BUNDLEID)).thenReturn(43L);
+        scr.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, sr));
+        assertEquals(changeCount, scr.getChangeCount());
+    }
+
+    public void testChangeWhileBuildingSnapshot() throws Exception
+    {
+        Bundle b = Mockito.mock(Bundle.class);
+        Mockito.when(b.getBundleId()).thenReturn(42L);
+        Mockito.when(b.getVersion()).thenReturn(Version.emptyVersion);
+        BundleContext bc = Mockito.mock(BundleContext.class);
+        Mockito.when(bc.getBundle()).thenReturn(b);
+        ComponentActivator activator = Mockito.mock(ComponentActivator.class);
+        Mockito.when(activator.getBundleContext()).thenReturn(bc);
+
+        ComponentMetadata metadata = new ComponentMetadata(DSVersion.DS13);
+        metadata.setName("test");
+        metadata.setImplementationClassName("test.Component");
+        metadata.validate();
+        ComponentHolder<?> holder = Mockito.mock(ComponentHolder.class);
+        Mockito.when(holder.getComponentMetadata()).thenReturn(metadata);
+        Mockito.when(holder.getActivator()).thenReturn(activator);
+
+        final ComponentRegistry registry = new ComponentRegistry(Mockito.mock(ScrConfiguration.class), Mockito.mock(ScrLogger.class));
+        Method check = ComponentRegistry.class.getDeclaredMethod("checkComponentName", Bundle.class, String.class);
+        check.setAccessible(true);
+        Object key = check.invoke(registry, b, "test");
+        Method register = ComponentRegistry.class.getDeclaredMethod("registerComponentHolder", key.getClass(), ComponentHolder.class);
+        register.setAccessible(true);
+        register.invoke(registry, key, holder);
+
+        // the component changes while the first snapshot is built
+        Mockito.doAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation)
+            {
+                registry.updateChangeCount();
+                return Collections.emptyList();
+            }
+        }).doReturn(Collections.emptyList()).when(holder).getComponents();
+
+        ServiceComponentRuntimeImpl scr = new ServiceComponentRuntimeImpl(Mockito.mock(BundleContext.class), registry);
+        long changeCount = scr.getChangeCount();
+        assertEquals(1, scr.getChangedComponentDescriptionDTOs(changeCount).size());
+        // the rebuilt snapshot is the same, the change is still reported
+        assertEquals(1, scr.getChangedComponentDescriptionDTOs(changeCount).size());
+        assertTrue(scr.getChangedComponentDescriptionDTOs(scr.getChangeCount()).isEmpty());
+    }
+
     public void testConvert()
     {
         ServiceComponentRuntimeImpl scr = new ServiceComponentRuntimeImpl(Mockito.mock(BundleContext.class), null);
@@ -43,6 +43,9 @@ public class Activator implements BundleActivator
     /** Optional features handler. */
     private OptionalFeaturesHandler featuresHandler;
 
+    /** Status of the event admin. */
+    private EventAdminStatus eventAdminStatus;
+
     /**
      * @see org.osgi.framework.BundleActivator#start(org.osgi.framework.BundleContext)
      */
@@ -57,6 +60,17 @@ public class Activator implements BundleActivator
         // and the optional features handler
         this.featuresHandler = new OptionalFeaturesHandler(this.plugin, context);
 
+        // the status of the event admin is optional
+        try
+        {
+            this.eventAdminStatus = new EventAdminStatus(context);
+            this.plugin.setEventAdminStatus(this.eventAdminStatus);
+        }
+        catch ( final Throwable t )
+        {
+            // JMX is not available, ignore
+        }
+
         // finally we register the plugin
         final Dictionary props = new Hashtable();
         props.put( Constants.SERVICE_DESCRIPTION, "Event Plugin for the Apache Felix Web Console" );
@@ -85,6 +99,12 @@ public class Activator implements BundleActivator
             this.eventListener.destroy();
             eventListener = null;
         }
+        if ( this.eventAdminStatus != null )
+        {
+            this.plugin.setEventAdminStatus(null);
+            this.eventAdminStatus.destroy();
+            this.eventAdminStatus = null;
+        }
         if ( this.featuresHandler != null)
         {
             this.featuresHandler.destroy();
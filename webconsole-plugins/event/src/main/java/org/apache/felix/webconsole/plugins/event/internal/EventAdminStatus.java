@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.webconsole.plugins.event.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.util.tracker.ServiceTracker;
+
+/**
+ * Access to the status bean of the Apache Felix event admin implementation.
+ * The bean is registered by the event admin as a <code>DynamicMBean</code>
+ * service.
+ */
+public class EventAdminStatus
+{
+    private static final String OBJECT_NAME = "org.apache.felix.eventadmin:type=EventAdmin"; //$NON-NLS-1$
+
+    private static final String FILTER = "(&(" + Constants.OBJECTCLASS + "=" + DynamicMBean.class.getName() + ")"
+                                        + "(jmx.objectname=" + OBJECT_NAME + "))";
+
+    /** The attributes of the queue statistics. */
+    static final String[] QUEUE_ATTRIBUTES = new String[] {
+        "AsyncQueueSize", //$NON-NLS-1$
+        "AsyncQueueLimit", //$NON-NLS-1$
+        "AsyncQueuePolicy", //$NON-NLS-1$
+        "DroppedEventCount", //$NON-NLS-1$
+        "DroppedNewestEventCount", //$NON-NLS-1$
+        "DroppedOldestEventCount", //$NON-NLS-1$
+        "CoalescedEventCount", //$NON-NLS-1$
+        "BlockedPostCount" //$NON-NLS-1$
+    };
+
+    private final ServiceTracker tracker;
+
+    public EventAdminStatus(final BundleContext context) throws InvalidSyntaxException
+    {
+        this.tracker = new ServiceTracker(context, context.createFilter(FILTER), null);
+        this.tracker.open();
+    }
+
+    public void destroy()
+    {
+        this.tracker.close();
+    }
+
+    /**
+     * Get the values of the attributes.
+     * @return A map with the attribute values or <code>null</code> if the
+     *         status bean is not available.
+     */
+    public Map getAttributes(final String[] names)
+    {
+        final DynamicMBean bean = (DynamicMBean) this.tracker.getService();
+        if ( bean == null )
+        {
+            return null;
+        }
+        final Map result = new LinkedHashMap();
+        final AttributeList list = bean.getAttributes(names);
+        final Iterator i = list.iterator();
+        while ( i.hasNext() )
+        {
+            final Attribute attr = (Attribute) i.next();
+            result.put(attr.getName(), attr.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Get the rows of a table attribute.
+     * @return A list of maps, one per row, or an empty list if the
+     *         status bean or the attribute is not available.
+     */
+    public List getTable(final String name)
+    {
+        final DynamicMBean bean = (DynamicMBean) this.tracker.getService();
+        if ( bean == null )
+        {
+            return Collections.EMPTY_LIST;
+        }
+        final Object value;
+        try
+        {
+            value = bean.getAttribute(name);
+        }
+        catch ( final JMException e )
+        {
+            return Collections.EMPTY_LIST;
+        }
+        if ( !(value instanceof TabularData) )
+        {
+            return Collections.EMPTY_LIST;
+        }
+        final List result = new ArrayList();
+        final Iterator i = ((TabularData)value).values().iterator();
+        while ( i.hasNext() )
+        {
+            final CompositeData row = (CompositeData) i.next();
+            final Map values = new LinkedHashMap();
+            final Iterator k = row.getCompositeType().keySet().iterator();
+            while ( k.hasNext() )
+            {
+                final String key = (String) k.next();
+                values.put(key, row.get(key));
+            }
+            result.add(values);
+        }
+        return result;
+    }
+
+    /**
+     * Reset the topic and handler statistics.
+     */
+    public void resetStatistics()
+    {
+        final DynamicMBean bean = (DynamicMBean) this.tracker.getService();
+        if ( bean != null )
+        {
+            try
+            {
+                bean.invoke("resetStatistics", null, null); //$NON-NLS-1$
+            }
+            catch ( final JMException e )
+            {
+                // ignore, statistics are not reset
+            }
+        }
+    }
+}
@@ -47,6 +47,7 @@ public class PluginServlet extends HttpServlet
     private static final String ACTION_POST = "post"; //$NON-NLS-1$
     private static final String ACTION_SEND = "send"; //$NON-NLS-1$
     private static final String ACTION_CLEAR = "clear"; //$NON-NLS-1$
+    private static final String ACTION_RESET_STATISTICS = "resetStatistics"; //$NON-NLS-1$
 
     private static final String PARAMETER_ACTION = "action"; //$NON-NLS-1$
 
@@ -58,6 +59,9 @@ public class PluginServlet extends HttpServlet
 
     private EventAdmin eventAdmin;
 
+    /** The status of the event admin, might be null. */
+    private volatile EventAdminStatus eventAdminStatus;
+
     private final String TEMPLATE;
 
     public PluginServlet()
@@ -131,6 +135,12 @@ public class PluginServlet extends HttpServlet
             eventAdmin.sendEvent(event);
         } else if ( ACTION_CLEAR.equals( action ) ) {
             this.collector.clear();
+        } else if ( ACTION_RESET_STATISTICS.equals( action ) ) {
+            final EventAdminStatus status = this.eventAdminStatus;
+            if ( status != null )
+            {
+                status.resetStatistics();
+            }
         }
         // we always send back the json data
         resp.setContentType( "application/json" ); //$NON-NLS-1$
@@ -170,6 +180,21 @@ public class PluginServlet extends HttpServlet
         }
         statusLine.append("available)");
 
+        final EventAdminStatus status = this.eventAdminStatus;
+        final Map queueStatus = status == null ? null : status.getAttributes(EventAdminStatus.QUEUE_ATTRIBUTES);
+        if ( queueStatus != null )
+        {
+            statusLine.append(" Async queue: ");
+            statusLine.append(queueStatus.get("AsyncQueueSize"));
+            statusLine.append(" queued, ");
+            statusLine.append(queueStatus.get("DroppedEventCount"));
+            statusLine.append(" dropped, ");
+            statusLine.append(queueStatus.get("CoalescedEventCount"));
+            statusLine.append(" coalesced, ");
+            statusLine.append(queueStatus.get("BlockedPostCount"));
+            statusLine.append(" blocked posts.");
+        }
+
         // Compute scale: startTime is 0, lastTimestamp is 100%
         final long startTime = this.collector.getStartTime();
         final long endTime = (events.size() == 0 ? startTime : ((EventInfo)events.get(events.size() - 1)).received);
@@ -180,6 +205,29 @@ public class PluginServlet extends HttpServlet
         writer.key( "status" );
         writer.value( statusLine.toString() );
 
+        if ( queueStatus != null )
+        {
+            writer.key( "queue" );
+            writer.object();
+            final Iterator i = queueStatus.entrySet().iterator();
+            while ( i.hasNext() )
+            {
+                final Map.Entry current = (Entry) i.next();
+                writer.key( current.getKey().toString() );
+                writer.value( current.getValue() );
+            }
+            writer.endObject();
+
+            final Map counts = status.getAttributes(new String[] {"BlacklistCount"}); //$NON-NLS-1$
+            if ( counts != null )
+            {
+                writer.key( "blacklisted" );
+                writer.value( counts.get("BlacklistCount") ); //$NON-NLS-1$
+            }
+            tableJson( writer, "handlers", status.getTable("HandlerStatistics") ); //$NON-NLS-1$ //$NON-NLS-2$
+            tableJson( writer, "topics", status.getTable("TopicStatistics") ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
         writer.key( "data" );
         writer.array();
 
@@ -195,6 +243,39 @@ public class PluginServlet extends HttpServlet
     }
 
 
+    private void tableJson( final JSONWriter writer, final String key, final List rows ) throws IOException
+    {
+        writer.key( key );
+        writer.array();
+        final Iterator i = rows.iterator();
+        while ( i.hasNext() )
+        {
+            writer.object();
+            final Iterator k = ((Map) i.next()).entrySet().iterator();
+            while ( k.hasNext() )
+            {
+                final Map.Entry current = (Entry) k.next();
+                writer.key( current.getKey().toString() );
+                if ( current.getValue() instanceof long[] )
+                {
+                    writer.array();
+                    final long[] values = (long[]) current.getValue();
+                    for ( int n = 0; n < values.length; n++ )
+                    {
+                        writer.value( values[n] );
+                    }
+                    writer.endArray();
+                }
+                else
+                {
+                    writer.value( current.getValue() );
+                }
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+    }
+
     protected void doGet( HttpServletRequest request, HttpServletResponse response )
     throws ServletException, IOException
     {
@@ -300,6 +381,11 @@ public class PluginServlet extends HttpServlet
         this.eventAdmin = eventAdmin;
     }
 
+    public void setEventAdminStatus(final EventAdminStatus status)
+    {
+        this.eventAdminStatus = status;
+    }
+
     public void setConfigAdminAvailable(final boolean flag)
     {
         this.configAdminAvailable = flag;
@@ -33,6 +33,45 @@ function renderData( eventData )  {
 	// append timeline view
 	timeline.empty();
     for ( var i in eventData.data ) entryTimeline( eventData.data[i] );
+
+	// append statistics
+	renderStatistics( eventData );
+}
+
+function renderStatistics( eventData ) {
+	if ( !eventData.handlers ) {
+		statistics.addClass('ui-helper-hidden');
+		return;
+	}
+	statistics.removeClass('ui-helper-hidden');
+
+	handlersBody.empty();
+	for ( var i in eventData.handlers ) {
+		var h = eventData.handlers[i];
+		$(tr( h.blacklisted ? 'ui-state-error' : null, null, [
+			td( 'handler', null, [ text( h.handler ) ] ),
+			td( 'bundle', null, [ text( h.bundle ) ] ),
+			td( 'deliveries', null, [ text( h.deliveries ) ] ),
+			td( 'mean', null, [ text( h.meanMicros + ' \u00b5s' ) ] ),
+			td( 'max', null, [ text( h.maxMicros + ' \u00b5s' ) ] ),
+			td( 'buckets', null, [ text( h.buckets.join(' / ') ) ] ),
+			td( 'blacklisted', null, [ text( h.blacklisted ? i18n.yes : i18n.no ) ] )
+		])).appendTo(handlersBody);
+	}
+	handlersTable.trigger('update').trigger('applyWidgets');
+
+	topicsBody.empty();
+	for ( var i in eventData.topics ) {
+		var t = eventData.topics[i];
+		$(tr( null, null, [
+			td( 'topic', null, [ text( t.topic ) ] ),
+			td( 'posted', null, [ text( t.posted ) ] ),
+			td( 'sent', null, [ text( t.sent ) ] ),
+			td( 'postRate', null, [ text( t.postRate.toFixed(2) ) ] ),
+			td( 'sendRate', null, [ text( t.sendRate.toFixed(2) ) ] )
+		])).appendTo(topicsBody);
+	}
+	topicsTable.trigger('update').trigger('applyWidgets');
 }
 
 
@@ -70,15 +109,26 @@ function entry( /* Object */ dataEntry ) {
 
 var timeline = false;
 var timelineLegend = false;
+var statistics = false;
+var handlersTable = false;
+var topicsTable = false;
 $(document).ready(function(){
 	eventsTable = $('#eventsTable');
 	eventsBody  = eventsTable.find('tbody');
+	statistics = $('#statistics');
+	handlersTable = $('#handlersTable');
+	handlersBody  = handlersTable.find('tbody');
+	topicsTable = $('#topicsTable');
+	topicsBody  = topicsTable.find('tbody');
 	timeline = $('#timeline');
 	timelineLegend = $('#timelineLegend');
 
 	$('#clear').click(function () {
 		$.post(pluginRoot, { 'action':'clear' }, renderData, 'json');
 	});
+	$('#resetStatistics').click(function () {
+		$.post(pluginRoot, { 'action':'resetStatistics' }, renderData, 'json');
+	});
 	$('#switch').click(function() {
 		var timelineHidden = timeline.hasClass('ui-helper-hidden');
 		if (timelineHidden) {